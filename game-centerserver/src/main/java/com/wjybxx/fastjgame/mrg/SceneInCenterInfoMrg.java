@@ -36,7 +36,6 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Optional;
 import java.util.Set;
 
 import static com.wjybxx.fastjgame.protobuffer.p_center_scene.*;
@@ -256,17 +255,23 @@ public class SceneInCenterInfoMrg {
         }
 
         // TODO 检查该场景可以启动哪些互斥场景
-        // 会话id是相同的(使用同步方法调用，会大大简化逻辑)
+        // 会话id是相同的(使用异步调用，避免单个场景响应慢时阻塞中心服)
         p_center_command_single_scene_start command = p_center_command_single_scene_start.newBuilder()
                 .addActiveMutexRegions(SceneRegion.LOCAL_PKC.getNumber())
                 .build();
-        Optional<p_center_command_single_scene_start_result> response = syncC2SSessionMrg.request(session.getServerGuid(), command, p_center_command_single_scene_start_result.class);
-        if (response.isPresent()){
-            activeRegions.add(SceneRegion.LOCAL_PKC);
-        }else {
-            // 遇见这个需要好好处理(适当增加超时时间)，尽量不能失败
-            logger.error("syncRpc request active region failed.");
-        }
+        syncC2SSessionMrg.requestAsync(session.getServerGuid(), command, p_center_command_single_scene_start_result.class)
+                .addCallback(future -> {
+                    // 等待期间场景可能已断开
+                    if (guid2InfoMap.get(session.getServerGuid()) != sceneInCenterInfo){
+                        return;
+                    }
+                    if (future.getResponse().isPresent()){
+                        activeRegions.add(SceneRegion.LOCAL_PKC);
+                    }else {
+                        // 遇见这个需要好好处理(适当增加超时时间)，尽量不能失败
+                        logger.error("syncRpc request active region failed, resultCode={}.", future.getResultCode());
+                    }
+                });
     }
 
     /**
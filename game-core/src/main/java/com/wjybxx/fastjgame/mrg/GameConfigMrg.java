@@ -56,6 +56,42 @@ public class GameConfigMrg {
      * mongodb每个服务器建立几个连接
      */
     private final int mongoConnectionsPerHost;
+    /**
+     * 场景线程数，小于等于0表示不启用场景线程，场景在游戏世界线程tick
+     */
+    private final int sceneLoopThreadNum;
+    /**
+     * 场景线程的帧率
+     */
+    private final int sceneLoopFramesPerSecond;
+    /**
+     * 是否并行tick相互独立的场景
+     */
+    private final boolean sceneParallelTick;
+    /**
+     * 并行tick的线程数，小于等于0表示使用cpu核心数
+     */
+    private final int sceneParallelTickThreadNum;
+    /**
+     * 并行tick时每个子任务最少tick的场景数
+     */
+    private final int sceneParallelTickBatchSize;
+    /**
+     * 地图文件目录
+     */
+    private final String mapDataDir;
+    /**
+     * 地图文件不存在时是否使用空地图(仅开发环境)
+     */
+    private final boolean mapDataEmptyIfAbsent;
+    /**
+     * 异步寻路的线程数
+     */
+    private final int pathQueryThreadNum;
+    /**
+     * 每个场景同时进行中的异步寻路请求上限
+     */
+    private final int pathQueryMaxInFlightPerScene;
 
     @Inject
     public GameConfigMrg() throws IOException {
@@ -66,6 +102,15 @@ public class GameConfigMrg {
         zkNameSpace=configWrapper.getAsString("zkNameSpace");
         mongoConnectionTimeoutMs=configWrapper.getAsInt("mongoConnectionTimeoutMs");
         mongoConnectionsPerHost=configWrapper.getAsInt("mongoConnectionsPerHost");
+        sceneLoopThreadNum=configWrapper.getAsInt("sceneLoopThreadNum",0);
+        sceneLoopFramesPerSecond=configWrapper.getAsInt("sceneLoopFramesPerSecond",30);
+        sceneParallelTick=configWrapper.getAsBool("sceneParallelTick",false);
+        sceneParallelTickThreadNum=configWrapper.getAsInt("sceneParallelTickThreadNum",0);
+        sceneParallelTickBatchSize=configWrapper.getAsInt("sceneParallelTickBatchSize",4);
+        mapDataDir=configWrapper.getAsString("mapDataDir","./map");
+        mapDataEmptyIfAbsent=configWrapper.getAsBool("mapDataEmptyIfAbsent",false);
+        pathQueryThreadNum=configWrapper.getAsInt("pathQueryThreadNum",2);
+        pathQueryMaxInFlightPerScene=configWrapper.getAsInt("pathQueryMaxInFlightPerScene",64);
     }
 
     public ConfigWrapper getConfigWrapper() {
@@ -95,4 +140,40 @@ public class GameConfigMrg {
     public int getMongoConnectionsPerHost() {
         return mongoConnectionsPerHost;
     }
+
+    public int getSceneLoopThreadNum() {
+        return sceneLoopThreadNum;
+    }
+
+    public int getSceneLoopFramesPerSecond() {
+        return sceneLoopFramesPerSecond;
+    }
+
+    public boolean isSceneParallelTick() {
+        return sceneParallelTick;
+    }
+
+    public int getSceneParallelTickThreadNum() {
+        return sceneParallelTickThreadNum;
+    }
+
+    public int getSceneParallelTickBatchSize() {
+        return sceneParallelTickBatchSize;
+    }
+
+    public String getMapDataDir() {
+        return mapDataDir;
+    }
+
+    public boolean isMapDataEmptyIfAbsent() {
+        return mapDataEmptyIfAbsent;
+    }
+
+    public int getPathQueryThreadNum() {
+        return pathQueryThreadNum;
+    }
+
+    public int getPathQueryMaxInFlightPerScene() {
+        return pathQueryMaxInFlightPerScene;
+    }
 }
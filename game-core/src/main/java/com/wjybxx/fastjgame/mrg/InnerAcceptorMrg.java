@@ -80,9 +80,11 @@ public class InnerAcceptorMrg {
      * @throws Exception
      */
     public void registerInnerCodecHelper() throws Exception {
+        // 内网链接双方都是自己的服务器，使用更快的按字校验
         codecHelperMrg.registerCodecHelper(GameUtils.INNER_CODEC_NAME,
                 new ProtoBufHashMappingStrategy(),
-                new ProtoBufMessageSerializer());
+                new ProtoBufMessageSerializer(),
+                WordHashChecksumStrategy.INSTANCE);
     }
 
     private CodecHelper getInnerCodecHelper() {
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+
+import java.util.List;
+
+/**
+ * 视野(AOI)变化的回调，由{@link AoiStrategy}产生；
+ * 视野不一定是相互的(视野半径、视野层不同)，因此"我看见了谁"和"谁看见了我"分别通知。
+ *
+ * 传入的列表是视野策略内部共享的缓存，只读，不可以持有；列表不会为空。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/27 10:30
+ * @github - https://github.com/hl845740757
+ */
+public interface AoiListener {
+
+    /**
+     * others这些对象进入了gameObject的视野
+     * @param gameObject 观察者
+     * @param others 新看见的对象
+     */
+    void onOthersEnter(GameObject gameObject, List<GameObject> others);
+
+    /**
+     * others这些对象离开了gameObject的视野
+     * @param gameObject 观察者
+     * @param others 看不见了的对象
+     */
+    void onOthersLeave(GameObject gameObject, List<GameObject> others);
+
+    /**
+     * gameObject进入了watchers这些对象的视野
+     * @param watchers 新看见gameObject的对象
+     * @param gameObject 被观察的对象
+     */
+    void onEnterOthers(List<GameObject> watchers, GameObject gameObject);
+
+    /**
+     * gameObject离开了watchers这些对象的视野
+     * @param watchers 看不见gameObject了的对象
+     * @param gameObject 被观察的对象
+     */
+    void onLeaveOthers(List<GameObject> watchers, GameObject gameObject);
+}
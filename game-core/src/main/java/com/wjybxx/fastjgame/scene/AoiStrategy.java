@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+
+import java.util.Collection;
+
+/**
+ * 场景的视野管理(AOI, area of interest)策略。
+ *
+ * 对象A能看见对象B的条件：A关注B所在的视野层({@link GameObject#isAoiLayerWatched(GameObject)})，
+ * 并且B在A的视野范围内，视野范围由具体实现决定(视野格子、视野半径)。
+ * 视野变化通过{@link AoiListener}通知，一次调用中的回调都在调用线程执行。
+ *
+ * 实现：
+ * {@link GridAoiStrategy} 九宫格，所有对象使用场景统一的视野范围，移动时只比较格子，开销小；
+ * {@link OrthogonalListAoiStrategy} 十字链表，支持每个对象不同的视野半径，适合大地图、视野差异大的玩法。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/27 10:30
+ * @github - https://github.com/hl845740757
+ */
+public interface AoiStrategy {
+
+    /**
+     * 对象进入场景，通知它看见的对象以及看见它的对象
+     * @param gameObject 游戏对象
+     * @param listener 视野变化回调
+     */
+    void enter(GameObject gameObject, AoiListener listener);
+
+    /**
+     * 对象离开场景，通知它看见的对象以及看见它的对象
+     * @param gameObject 游戏对象
+     * @param listener 视野变化回调
+     */
+    void leave(GameObject gameObject, AoiListener listener);
+
+    /**
+     * 对象坐标改变之后刷新视野(场景定时刷新)
+     * @param gameObject 游戏对象
+     * @param listener 视野变化回调
+     */
+    void update(GameObject gameObject, AoiListener listener);
+
+    /**
+     * 修改场景中对象的视野属性，并重新计算它的视野；
+     * (不在场景中的对象直接修改{@link GameObject}的属性即可)
+     * @param gameObject 游戏对象
+     * @param aoiLayer 所在的视野层
+     * @param aoiLayerMask 关注的视野层
+     * @param aoiRadius 视野半径，小于等于0表示使用场景的视野半径
+     * @param listener 视野变化回调
+     */
+    void updateAoiProperties(GameObject gameObject, int aoiLayer, int aoiLayerMask, float aoiRadius, AoiListener listener);
+
+    /**
+     * 获取能看见该对象的所有对象(广播使用)，不包括自己
+     * @param gameObject 游戏对象
+     * @param out 结果写入该集合(不会清空)
+     * @return 找到的对象数
+     */
+    int collectWatchers(GameObject gameObject, Collection<? super GameObject> out);
+}
@@ -21,6 +21,7 @@ import com.wjybxx.fastjgame.utils.FastCollectionsUtils;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.objects.ObjectCollection;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.util.EnumMap;
 
@@ -60,11 +61,26 @@ public class GameObjectContainer {
      */
     private final EnumMap<GameObjectType,Long2ObjectMap<? extends GameObject>> helperMap = new EnumMap<>(GameObjectType.class);
 
+    /**
+     * 按类型划分的坐标存储(SoA)，用于批量的区域判断；未启用时为null。
+     * 一个对象同时只能在一个坐标存储中，因此只有场景的对象容器可以启用，视野格子等不启用。
+     */
+    private final EnumMap<GameObjectType,GameObjectPositionStore> positionStoreMap;
+
     public GameObjectContainer() {
         this(InitCapacityHolder.EMPTY);
     }
 
     public GameObjectContainer(InitCapacityHolder capacityHolder) {
+        this(capacityHolder, false);
+    }
+
+    /**
+     * @param capacityHolder 初始容量信息
+     * @param positionStoreEnabled 是否启用坐标存储
+     */
+    public GameObjectContainer(InitCapacityHolder capacityHolder, boolean positionStoreEnabled) {
+        positionStoreMap = positionStoreEnabled ? new EnumMap<>(GameObjectType.class) : null;
         playerMap = createMap(GameObjectType.PLAYER, capacityHolder.getPlayerSetInitCapacity());
         petMap = createMap(GameObjectType.PET, capacityHolder.getPetSetInitCapacity());
         npcMap = createMap(GameObjectType.NPC, capacityHolder.getNpcSetInitCapacity());
@@ -75,6 +91,9 @@ public class GameObjectContainer {
     private <V extends GameObject> Long2ObjectMap<V> createMap(GameObjectType gameObjectType,int initCapacity){
         Long2ObjectMap<V> result = FastCollectionsUtils.newEnoughCapacityLongMap(initCapacity);
         helperMap.put(gameObjectType, result);
+        if (null != positionStoreMap){
+            positionStoreMap.put(gameObjectType, new GameObjectPositionStore(initCapacity));
+        }
         totalInitCapacity += initCapacity;
         return result;
     }
@@ -111,6 +130,43 @@ public class GameObjectContainer {
         return helperMap.get(gameObjectType).values();
     }
 
+    public boolean isPositionStoreEnabled(){
+        return null != positionStoreMap;
+    }
+
+    /**
+     * 获取指定类型对象的坐标存储
+     * @param gameObjectType 对象类型
+     * @return 未启用坐标存储时返回null
+     */
+    @Nullable
+    public GameObjectPositionStore getPositionStore(GameObjectType gameObjectType){
+        return null == positionStoreMap ? null : positionStoreMap.get(gameObjectType);
+    }
+
+    /**
+     * 同步所有对象的坐标到坐标存储，未启用时什么也不做
+     */
+    public void syncPositions(){
+        if (null == positionStoreMap){
+            return;
+        }
+        for (GameObjectPositionStore positionStore : positionStoreMap.values()){
+            positionStore.sync();
+        }
+    }
+
+    /**
+     * 同步单个对象的坐标到坐标存储，未启用时什么也不做
+     * @param gameObject 游戏对象
+     */
+    public void syncPosition(GameObject gameObject){
+        if (null == positionStoreMap){
+            return;
+        }
+        positionStoreMap.get(gameObject.getObjectType()).update(gameObject);
+    }
+
     /**
      * 添加一个场景对象到该视野格子
      * @param gameObject 游戏对象
@@ -124,6 +180,10 @@ public class GameObjectContainer {
         Long2ObjectMap<T> objectMap = (Long2ObjectMap<T>) helperMap.get(gameObject.getObjectType());
         assert null != objectMap : gameObject.getObjectType().name();
         objectMap.put(gameObject.getGuid(),gameObject);
+
+        if (null != positionStoreMap){
+            positionStoreMap.get(gameObject.getObjectType()).add(gameObject);
+        }
     }
 
     /**
@@ -139,5 +199,9 @@ public class GameObjectContainer {
         Long2ObjectMap<T> objectMap = (Long2ObjectMap<T>) helperMap.get(gameObject.getObjectType());
         assert null != objectMap : gameObject.getObjectType().name();
         objectMap.remove(gameObject.getGuid());
+
+        if (null != positionStoreMap){
+            positionStoreMap.get(gameObject.getObjectType()).remove(gameObject);
+        }
     }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.shape.Point2D;
+import com.wjybxx.fastjgame.shape.shape2d.Shape2D;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 同一类游戏对象的坐标的结构数组(SoA)存储。
+ *
+ * {@link GameObject}的坐标是各自独立的{@link Point2D}对象，逐个{@link Shape2D#hasPoint(Point2D)}时
+ * 每个对象都是一次指针跳转和虚方法调用；这里把所有对象的x、y坐标分别存放在连续的float数组中，
+ * 对象占用一个紧凑的槽位(删除时把最后一个对象移动过来)，
+ * 区域判断使用{@link Shape2D#hasPoints(float[], float[], int, boolean[])}对整个数组做批量计算。
+ *
+ * 数组中的坐标是最近一次{@link #sync()}或{@link #update(GameObject)}时的坐标，移动之后需要及时同步。
+ * 一个对象同时只能属于一个存储(槽位记录在对象上)，只有场景的对象容器会启用它。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/26 10:20
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class GameObjectPositionStore {
+
+    private static final int DEFAULT_INIT_CAPACITY = 16;
+
+    private GameObject[] gameObjects;
+    private float[] xArray;
+    private float[] yArray;
+    /**
+     * 批量判断的结果缓存
+     */
+    private boolean[] resultCache;
+
+    private int size = 0;
+
+    public GameObjectPositionStore() {
+        this(DEFAULT_INIT_CAPACITY);
+    }
+
+    public GameObjectPositionStore(int initCapacity) {
+        int capacity = Math.max(initCapacity, DEFAULT_INIT_CAPACITY);
+        this.gameObjects = new GameObject[capacity];
+        this.xArray = new float[capacity];
+        this.yArray = new float[capacity];
+        this.resultCache = new boolean[capacity];
+    }
+
+    /**
+     * 添加对象，并记录当前坐标
+     * @param gameObject 游戏对象
+     */
+    public void add(GameObject gameObject){
+        assert gameObject.getPositionSlot() < 0;
+        if (size == gameObjects.length){
+            int newCapacity = size << 1;
+            gameObjects = Arrays.copyOf(gameObjects, newCapacity);
+            xArray = Arrays.copyOf(xArray, newCapacity);
+            yArray = Arrays.copyOf(yArray, newCapacity);
+            resultCache = new boolean[newCapacity];
+        }
+        int slot = size++;
+        gameObjects[slot] = gameObject;
+        gameObject.setPositionSlot(slot);
+        xArray[slot] = gameObject.getPosition().getX();
+        yArray[slot] = gameObject.getPosition().getY();
+    }
+
+    /**
+     * 删除对象，最后一个对象移动到它的槽位
+     * @param gameObject 游戏对象
+     */
+    public void remove(GameObject gameObject){
+        int slot = gameObject.getPositionSlot();
+        assert slot >= 0 && gameObjects[slot] == gameObject;
+        int lastSlot = --size;
+        if (slot != lastSlot){
+            GameObject last = gameObjects[lastSlot];
+            gameObjects[slot] = last;
+            xArray[slot] = xArray[lastSlot];
+            yArray[slot] = yArray[lastSlot];
+            last.setPositionSlot(slot);
+        }
+        gameObjects[lastSlot] = null;
+        gameObject.setPositionSlot(-1);
+    }
+
+    /**
+     * 同步单个对象的坐标(瞬移、击退等)
+     * @param gameObject 游戏对象
+     */
+    public void update(GameObject gameObject){
+        int slot = gameObject.getPositionSlot();
+        assert slot >= 0 && gameObjects[slot] == gameObject;
+        Point2D position = gameObject.getPosition();
+        xArray[slot] = position.getX();
+        yArray[slot] = position.getY();
+    }
+
+    /**
+     * 同步所有对象的坐标，每帧刷帧之后调用一次
+     */
+    public void sync(){
+        final GameObject[] gameObjects = this.gameObjects;
+        final float[] xArray = this.xArray;
+        final float[] yArray = this.yArray;
+        for (int slot = 0, size = this.size; slot < size; slot++){
+            Point2D position = gameObjects[slot].getPosition();
+            xArray[slot] = position.getX();
+            yArray[slot] = position.getY();
+        }
+    }
+
+    /**
+     * 查询图形内的所有对象
+     * @param shape 查询区域
+     * @param out 结果写入该集合(不会清空)
+     * @param <T> 对象类型
+     * @return 找到的对象数
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends GameObject> int query(Shape2D shape, Collection<? super T> out){
+        final int size = this.size;
+        final boolean[] result = this.resultCache;
+        int count = shape.hasPoints(xArray, yArray, size, result);
+        if (count == 0){
+            return 0;
+        }
+        for (int slot = 0, found = 0; found < count; slot++){
+            if (result[slot]){
+                out.add((T) gameObjects[slot]);
+                found++;
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取指定槽位的对象
+     * @param slot [0,size)
+     */
+    public GameObject getGameObject(int slot) {
+        return gameObjects[slot];
+    }
+
+    /**
+     * 所有对象的x坐标，只有[0,size)有效；只读，数组可能因为扩容而更换，不要长期持有
+     */
+    public float[] getXArray() {
+        return xArray;
+    }
+
+    /**
+     * 所有对象的y坐标，只有[0,size)有效；只读，数组可能因为扩容而更换，不要长期持有
+     */
+    public float[] getYArray() {
+        return yArray;
+    }
+}
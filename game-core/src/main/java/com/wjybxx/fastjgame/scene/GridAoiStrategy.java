@@ -0,0 +1,244 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.wjybxx.fastjgame.utils.GameConstant.VIEWABLE_GRID_NUM;
+
+/**
+ * 九宫格视野策略，基于{@link ViewGridSet}；
+ * 所有对象的视野范围都是所在格子的可见格子，对象的视野半径({@link GameObject#getAoiRadius()})不生效，视野层生效。
+ *
+ * 对象在场景中时总是属于一个视野格子({@link GameObject#getViewGrid()})，
+ * 因此基于视野格子的广播({@link ViewGrid#getViewableGrids()})也可以使用。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/27 11:00
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class GridAoiStrategy implements AoiStrategy {
+
+    private final ViewGridSet viewGridSet;
+
+    // 视野更新会频繁的执行，不可以大量创建list，因此使用缓存
+    // (不能是静态的，不同的场景可能运行在不同的线程)
+    private final List<ViewGrid> invisibleGridsCache = new ArrayList<>(VIEWABLE_GRID_NUM);
+    private final List<ViewGrid> visibleGridsCache = new ArrayList<>(VIEWABLE_GRID_NUM);
+    private final List<GameObject> othersCache = new ArrayList<>();
+    private final List<GameObject> watchersCache = new ArrayList<>();
+    private final List<GameObject> leftOthersCache = new ArrayList<>();
+    private final List<GameObject> leftWatchersCache = new ArrayList<>();
+
+    public GridAoiStrategy(ViewGridSet viewGridSet) {
+        this.viewGridSet = viewGridSet;
+    }
+
+    public ViewGridSet getViewGridSet() {
+        return viewGridSet;
+    }
+
+    @Override
+    public void enter(GameObject gameObject, AoiListener listener) {
+        ViewGrid viewGrid = viewGridSet.findViewGrid(gameObject.getPosition());
+        gameObject.setViewGrid(viewGrid);
+        viewGrid.addGameObject(gameObject);
+        notifyEnter(gameObject, viewGrid.getViewableGrids(), listener);
+    }
+
+    @Override
+    public void leave(GameObject gameObject, AoiListener listener) {
+        ViewGrid viewGrid = gameObject.getViewGrid();
+        viewGrid.removeObject(gameObject);
+        gameObject.setViewGrid(null);
+        notifyLeave(gameObject, viewGrid.getViewableGrids(), listener);
+    }
+
+    @Override
+    public void update(GameObject gameObject, AoiListener listener) {
+        final ViewGrid preViewGrid = gameObject.getViewGrid();
+        final ViewGrid curViewGrid = viewGridSet.findViewGrid(gameObject.getPosition());
+
+        // 视野范围未发生改变
+        if (preViewGrid == curViewGrid){
+            return;
+        }
+
+        // 视野格子发生改变(需要找到前后格子差异)
+        List<ViewGrid> invisibleGrids;
+        List<ViewGrid> visibleGrids;
+        try{
+            int moveIndex = ViewGridSet.moveIndex(preViewGrid, curViewGrid);
+            if (moveIndex >= 0){
+                // 移动到相邻格子(绝大多数情况)，直接使用预先计算的差异
+                ViewGrid.MoveDiff moveDiff = preViewGrid.getMoveDiff(moveIndex);
+                invisibleGrids = moveDiff.getInvisibleGrids();
+                visibleGrids = moveDiff.getVisibleGrids();
+            } else {
+                // 瞬移等，逐个比较
+                invisibleGrids = invisibleGridsCache;
+                visibleGrids = visibleGridsCache;
+                viewGridSet.diffViewableGrids(preViewGrid, curViewGrid, invisibleGrids, visibleGrids);
+            }
+
+            // 更新所在的视野格子
+            gameObject.setViewGrid(curViewGrid);
+            preViewGrid.removeObject(gameObject);
+            curViewGrid.addGameObject(gameObject);
+
+            // 视野，进入和退出都是相互的，他们离开了我的视野，我也离开了他们的视野(视野层允许的情况下)
+            notifyLeave(gameObject, invisibleGrids, listener);
+            notifyEnter(gameObject, visibleGrids, listener);
+        }finally {
+            invisibleGridsCache.clear();
+            visibleGridsCache.clear();
+        }
+    }
+
+    /**
+     * 九宫格策略下视野半径不生效，可见格子不变，只有视野层会改变可见关系；
+     * 视野格子不记录对象之间的可见关系，因此按新旧视野层分别计算可见格子中的可见关系，只通知发生变化的对象。
+     */
+    @Override
+    public void updateAoiProperties(GameObject gameObject, int aoiLayer, int aoiLayerMask, float aoiRadius, AoiListener listener) {
+        final int preAoiLayer = gameObject.getAoiLayer();
+        final int preAoiLayerMask = gameObject.getAoiLayerMask();
+        gameObject.setAoiLayer(aoiLayer);
+        gameObject.setAoiLayerMask(aoiLayerMask);
+        gameObject.setAoiRadius(aoiRadius);
+        if (preAoiLayer == aoiLayer && preAoiLayerMask == aoiLayerMask){
+            return;
+        }
+        try {
+            for (ViewGrid viewGrid : gameObject.getViewGrid().getViewableGrids()){
+                if (viewGrid.getAllGameObjectNum() == 0){
+                    continue;
+                }
+                for (GameObject other : viewGrid.getAllGameObject()){
+                    if (other == gameObject){
+                        continue;
+                    }
+                    // 我能看见的
+                    boolean preWatching = (preAoiLayerMask & other.getAoiLayer()) != 0;
+                    boolean curWatching = gameObject.isAoiLayerWatched(other);
+                    if (preWatching != curWatching){
+                        (curWatching ? othersCache : leftOthersCache).add(other);
+                    }
+                    // 能看见我的
+                    boolean preWatched = (other.getAoiLayerMask() & preAoiLayer) != 0;
+                    boolean curWatched = other.isAoiLayerWatched(gameObject);
+                    if (preWatched != curWatched){
+                        (curWatched ? watchersCache : leftWatchersCache).add(other);
+                    }
+                }
+            }
+            if (leftOthersCache.size() > 0){
+                listener.onOthersLeave(gameObject, leftOthersCache);
+            }
+            if (leftWatchersCache.size() > 0){
+                listener.onLeaveOthers(leftWatchersCache, gameObject);
+            }
+            if (othersCache.size() > 0){
+                listener.onOthersEnter(gameObject, othersCache);
+            }
+            if (watchersCache.size() > 0){
+                listener.onEnterOthers(watchersCache, gameObject);
+            }
+        } finally {
+            othersCache.clear();
+            watchersCache.clear();
+            leftOthersCache.clear();
+            leftWatchersCache.clear();
+        }
+    }
+
+    @Override
+    public int collectWatchers(GameObject gameObject, Collection<? super GameObject> out) {
+        int count = 0;
+        for (ViewGrid viewGrid : gameObject.getViewGrid().getViewableGrids()){
+            if (viewGrid.getAllGameObjectNum() == 0){
+                continue;
+            }
+            for (GameObject other : viewGrid.getAllGameObject()){
+                if (other != gameObject && other.isAoiLayerWatched(gameObject)){
+                    out.add(other);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 收集格子中gameObject能看见的对象以及能看见gameObject的对象
+     */
+    private void collectGameObjects(GameObject gameObject, List<ViewGrid> viewGrids){
+        for (ViewGrid viewGrid : viewGrids){
+            if (viewGrid.getAllGameObjectNum() == 0){
+                continue;
+            }
+            for (GameObject other : viewGrid.getAllGameObject()){
+                if (other == gameObject){
+                    continue;
+                }
+                if (gameObject.isAoiLayerWatched(other)){
+                    othersCache.add(other);
+                }
+                if (other.isAoiLayerWatched(gameObject)){
+                    watchersCache.add(other);
+                }
+            }
+        }
+    }
+
+    private void notifyEnter(GameObject gameObject, List<ViewGrid> visibleGrids, AoiListener listener){
+        try {
+            collectGameObjects(gameObject, visibleGrids);
+            if (othersCache.size() > 0){
+                listener.onOthersEnter(gameObject, othersCache);
+            }
+            if (watchersCache.size() > 0){
+                listener.onEnterOthers(watchersCache, gameObject);
+            }
+        } finally {
+            othersCache.clear();
+            watchersCache.clear();
+        }
+    }
+
+    private void notifyLeave(GameObject gameObject, List<ViewGrid> invisibleGrids, AoiListener listener){
+        try {
+            collectGameObjects(gameObject, invisibleGrids);
+            if (othersCache.size() > 0){
+                listener.onOthersLeave(gameObject, othersCache);
+            }
+            if (watchersCache.size() > 0){
+                listener.onLeaveOthers(watchersCache, gameObject);
+            }
+        } finally {
+            othersCache.clear();
+            watchersCache.clear();
+        }
+    }
+}
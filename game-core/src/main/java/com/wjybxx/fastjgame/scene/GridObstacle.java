@@ -57,6 +57,14 @@ public enum GridObstacle implements NumberEnum {
         return number;
     }
 
+    /**
+     * 遮挡标记在格子掩码中对应的bit，地图文件和{@link MapGrid}中以掩码表示一个格子的所有遮挡标记
+     * @return 1 << number
+     */
+    public int getMask() {
+        return 1 << number;
+    }
+
     private static final NumberEnumMapper<GridObstacle> mapper = ReflectionUtils.indexNumberEnum(values());
 
     public static GridObstacle forNumber(int number){
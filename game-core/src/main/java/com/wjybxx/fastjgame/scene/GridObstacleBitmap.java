@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 地图格子遮挡标记的位图，每一种{@link GridObstacle}一层，每个格子占一个bit；
+ * 格子索引 = rowIndex * colCount + colIndex。
+ *
+ * 它是{@link MapData}中遮挡信息的唯一存储，每个格子只占{@link GridObstacle}种类数个bit，
+ * 寻路等批量访问遮挡信息的地方应该直接使用该位图，而不是创建{@link MapGrid}。
+ *
+ * 创建之后不可修改，可以被多个场景(线程)共享。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/23 10:15
+ * @github - https://github.com/hl845740757
+ */
+@ThreadSafe
+public class GridObstacleBitmap {
+
+    private static final GridObstacle[] OBSTACLES = GridObstacle.values();
+
+    private final int rowCount;
+    private final int colCount;
+
+    /**
+     * 每一种遮挡标记的位图，索引为{@link GridObstacle#ordinal()}
+     */
+    private final long[][] layers;
+
+    /**
+     * 可行走位图缓存，索引为可行走的格子类型的掩码({@link #mask(EnumSet)})，
+     * 格子类型很少，直接用数组缓存所有组合。
+     */
+    private final AtomicReferenceArray<long[]> walkableCache = new AtomicReferenceArray<>(1 << OBSTACLES.length);
+
+    /**
+     * @param rowCount 行数
+     * @param colCount 列数
+     * @param obstacleMasks 从当前position开始，按格子索引顺序每个格子一个字节的遮挡掩码({@link GridObstacle#getMask()})，
+     *                      读取之后position前进rowCount * colCount
+     */
+    public GridObstacleBitmap(int rowCount, int colCount, ByteBuffer obstacleMasks) {
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        int gridCount = rowCount * colCount;
+        this.layers = new long[OBSTACLES.length][wordCount(gridCount)];
+        for (int index = 0; index < gridCount; index++){
+            int obstacleMask = obstacleMasks.get();
+            if (obstacleMask == 0){
+                continue;
+            }
+            for (GridObstacle obstacle:OBSTACLES){
+                if ((obstacleMask & obstacle.getMask()) != 0){
+                    layers[obstacle.ordinal()][index >>> 6] |= 1L << index;
+                }
+            }
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+
+    /**
+     * 计算格子索引
+     * @param rowIndex 行索引
+     * @param colIndex 列索引
+     * @return index
+     */
+    public int index(int rowIndex, int colIndex){
+        return rowIndex * colCount + colIndex;
+    }
+
+    /**
+     * 指定格子是否有指定遮挡标记
+     * @param obstacle 遮挡标记
+     * @param rowIndex 行索引
+     * @param colIndex 列索引
+     * @return true/false
+     */
+    public boolean isMarked(GridObstacle obstacle, int rowIndex, int colIndex){
+        return isSet(layers[obstacle.ordinal()], index(rowIndex, colIndex));
+    }
+
+    /**
+     * 获取指定格子的遮挡掩码
+     * @param rowIndex 行索引
+     * @param colIndex 列索引
+     * @return 见{@link GridObstacle#getMask()}
+     */
+    public int getObstacleMask(int rowIndex, int colIndex){
+        int index = index(rowIndex, colIndex);
+        int obstacleMask = 0;
+        for (GridObstacle obstacle:OBSTACLES){
+            if (isSet(layers[obstacle.ordinal()], index)){
+                obstacleMask |= obstacle.getMask();
+            }
+        }
+        return obstacleMask;
+    }
+
+    /**
+     * 获取可行走位图：格子拥有任意一个可行走的格子类型时可行走。
+     * 返回的数组是共享的，不可以修改。
+     * @param movableGrids 可行走的格子类型
+     * @return 位图，格子索引见类文档
+     */
+    public long[] getWalkableBits(EnumSet<GridObstacle> movableGrids){
+        int mask = mask(movableGrids);
+        long[] walkableBits = walkableCache.get(mask);
+        if (null == walkableBits){
+            walkableBits = newWalkableBits(mask);
+            // 并发创建时以先设置的为准，保证同一组合返回同一个数组
+            if (!walkableCache.compareAndSet(mask, null, walkableBits)){
+                walkableBits = walkableCache.get(mask);
+            }
+        }
+        return walkableBits;
+    }
+
+    private long[] newWalkableBits(int mask){
+        long[] walkableBits = new long[wordCount(rowCount * colCount)];
+        for (GridObstacle obstacle:OBSTACLES){
+            if ((mask & (1 << obstacle.ordinal())) == 0){
+                continue;
+            }
+            long[] layer = layers[obstacle.ordinal()];
+            for (int wordIndex = 0; wordIndex < walkableBits.length; wordIndex++){
+                walkableBits[wordIndex] |= layer[wordIndex];
+            }
+        }
+        return walkableBits;
+    }
+
+    private static int mask(EnumSet<GridObstacle> obstacles){
+        int mask = 0;
+        for (GridObstacle obstacle:obstacles){
+            mask |= 1 << obstacle.ordinal();
+        }
+        return mask;
+    }
+
+    private static int wordCount(int bitCount){
+        return (bitCount + 63) >>> 6;
+    }
+
+    /**
+     * 位图中指定索引的bit是否为1
+     * @param bits 位图
+     * @param index 格子索引
+     * @return true/false
+     */
+    public static boolean isSet(long[] bits, int index){
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+}
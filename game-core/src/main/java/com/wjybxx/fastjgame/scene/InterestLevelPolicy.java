@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.scene.gameobject.GameObjectType;
+import com.wjybxx.fastjgame.utils.MathUtils;
+
+import java.util.EnumMap;
+
+/**
+ * 视野内同步频率的分级策略(update-rate LOD)。
+ *
+ * 观察者离对象越远，越不需要每帧都收到它的移动、状态更新；
+ * 根据两者的距离计算关注等级{@link InterestLevel}，每个等级对应一个发送间隔(帧数，2的幂)，
+ * 例如近处每帧发送，远处每4帧发送一次。发送间隔可以按对象类型单独配置(如远处的npc每8帧一次)。
+ *
+ * 只适用于可以被后续消息覆盖的消息(坐标、血量快照等)，跳过的帧不会补发；
+ * 技能、伤害等事件消息以及进出视野的消息不可以降频。
+ *
+ * 不同的观察者使用不同的相位，避免远处的观察者集中在同一帧发送。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/28 10:40
+ * @github - https://github.com/hl845740757
+ */
+public class InterestLevelPolicy {
+
+    /**
+     * 默认的发送间隔，[InterestLevel.ordinal]
+     */
+    private static final int[] DEFAULT_FRAME_INTERVALS = {1, 2, 4};
+
+    /**
+     * 近处距离的平方
+     */
+    private final float nearDistanceSquare;
+    /**
+     * 中等距离的平方
+     */
+    private final float middleDistanceSquare;
+
+    /**
+     * 按对象类型配置的发送间隔，未配置的使用{@link #DEFAULT_FRAME_INTERVALS}
+     */
+    private final EnumMap<GameObjectType, int[]> typeFrameIntervals = new EnumMap<>(GameObjectType.class);
+
+    /**
+     * @param nearDistance 小于等于该距离为{@link InterestLevel#NEAR}
+     * @param middleDistance 小于等于该距离为{@link InterestLevel#MIDDLE}，否则为{@link InterestLevel#FAR}
+     */
+    public InterestLevelPolicy(float nearDistance, float middleDistance) {
+        if (nearDistance < 0 || middleDistance < nearDistance){
+            throw new IllegalArgumentException("nearDistance " + nearDistance + ", middleDistance " + middleDistance);
+        }
+        this.nearDistanceSquare = nearDistance * nearDistance;
+        this.middleDistanceSquare = middleDistance * middleDistance;
+    }
+
+    /**
+     * 按场景视野半径创建默认策略：1/3以内为近处，2/3以内为中等距离
+     * @param viewableRange 场景视野半径
+     * @return policy
+     */
+    public static InterestLevelPolicy newDefaultPolicy(float viewableRange){
+        return new InterestLevelPolicy(viewableRange / 3, viewableRange * 2 / 3);
+    }
+
+    /**
+     * 配置某类对象的发送间隔
+     * @param gameObjectType 被观察的对象类型
+     * @param nearInterval 近处的发送间隔(帧)
+     * @param middleInterval 中等距离的发送间隔(帧)
+     * @param farInterval 远处的发送间隔(帧)
+     * @return this
+     */
+    public InterestLevelPolicy setFrameIntervals(GameObjectType gameObjectType, int nearInterval, int middleInterval, int farInterval){
+        checkFrameInterval(nearInterval);
+        checkFrameInterval(middleInterval);
+        checkFrameInterval(farInterval);
+        typeFrameIntervals.put(gameObjectType, new int[]{nearInterval, middleInterval, farInterval});
+        return this;
+    }
+
+    private static void checkFrameInterval(int frameInterval){
+        if (frameInterval <= 0 || Integer.bitCount(frameInterval) != 1){
+            throw new IllegalArgumentException("frameInterval must be power of 2, " + frameInterval);
+        }
+    }
+
+    /**
+     * 计算观察者对对象的关注等级
+     * @param source 被观察的对象
+     * @param watcher 观察者
+     * @return level
+     */
+    public InterestLevel interestLevel(GameObject source, GameObject watcher){
+        float distanceSquare = MathUtils.distanceWithoutSqrt(source.getPosition(), watcher.getPosition());
+        if (distanceSquare <= nearDistanceSquare){
+            return InterestLevel.NEAR;
+        }
+        if (distanceSquare <= middleDistanceSquare){
+            return InterestLevel.MIDDLE;
+        }
+        return InterestLevel.FAR;
+    }
+
+    /**
+     * 获取对象的更新发送给观察者的间隔
+     * @param source 被观察的对象
+     * @param watcher 观察者
+     * @return 帧数，2的幂
+     */
+    public int frameInterval(GameObject source, GameObject watcher){
+        int[] frameIntervals = typeFrameIntervals.getOrDefault(source.getObjectType(), DEFAULT_FRAME_INTERVALS);
+        return frameIntervals[interestLevel(source, watcher).ordinal()];
+    }
+
+    /**
+     * 本帧是否需要把对象的更新发送给观察者
+     * @param source 被观察的对象
+     * @param watcher 观察者
+     * @param frameIndex 场景当前帧
+     * @return true/false
+     */
+    public boolean shouldSend(GameObject source, GameObject watcher, long frameIndex){
+        int frameInterval = frameInterval(source, watcher);
+        if (frameInterval == 1){
+            return true;
+        }
+        // 相位由双方guid决定，同一对观察关系的发送帧是稳定的，不同观察者的发送帧是分散的
+        long phase = source.getGuid() ^ watcher.getGuid();
+        return ((frameIndex + phase) & (frameInterval - 1)) == 0;
+    }
+
+    /**
+     * 关注等级
+     */
+    public enum InterestLevel {
+        /**
+         * 近处
+         */
+        NEAR,
+        /**
+         * 中等距离
+         */
+        MIDDLE,
+        /**
+         * 远处
+         */
+        FAR,
+    }
+}
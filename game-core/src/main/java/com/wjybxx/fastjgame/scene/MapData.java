@@ -21,8 +21,9 @@ import com.wjybxx.fastjgame.utils.GameConstant;
 import com.wjybxx.fastjgame.utils.MathUtils;
 
 /**
- * 地图数据,从地图编辑器导出的文件加载之后创建。
- * 地图编辑器直接导出json数据是否会更方便。
+ * 地图数据,从地图编辑器导出的文件加载之后创建，文件格式见{@link MapDataFile}。
+ * 遮挡信息只存储在{@link GridObstacleBitmap}中，不持有格子对象，创建之后不可修改，
+ * 同一张地图的所有场景共享一个对象。
  *
  * @author wjybxx
  * @version 1.0
@@ -36,13 +37,14 @@ public class MapData {
      */
     private final int mapId;
 
-    /**
-     * 所有的格子数据
-     */
-    private final MapGrid[][] allMapGrids;
     private final int rowCount;
     private final int colCount;
 
+    /**
+     * 遮挡标记位图
+     */
+    private final GridObstacleBitmap obstacleBitmap;
+
     /**
      * 地图宽
      */
@@ -53,11 +55,11 @@ public class MapData {
      */
     private final int mapHeight;
 
-    public MapData(int mapId, MapGrid[][] allMapGrids) {
+    public MapData(int mapId, GridObstacleBitmap obstacleBitmap) {
         this.mapId = mapId;
-        this.allMapGrids = allMapGrids;
-        this.rowCount = allMapGrids.length;
-        this.colCount = allMapGrids[0].length;
+        this.obstacleBitmap = obstacleBitmap;
+        this.rowCount = obstacleBitmap.getRowCount();
+        this.colCount = obstacleBitmap.getColCount();
         this.mapWidth = colCount * GameConstant.MAP_GRID_WIDTH;
         this.mapHeight = rowCount * GameConstant.MAP_GRID_WIDTH;
     }
@@ -74,10 +76,6 @@ public class MapData {
         return mapHeight;
     }
 
-    public MapGrid[][] getAllMapGrids() {
-        return allMapGrids;
-    }
-
     public int getRowCount(){
         return rowCount;
     }
@@ -86,14 +84,24 @@ public class MapData {
         return colCount;
     }
 
+    public GridObstacleBitmap getObstacleBitmap() {
+        return obstacleBitmap;
+    }
+
     public MapGrid getGrid(Point2D point2D){
         int rowIndex = MathUtils.rowIndex(rowCount, GameConstant.MAP_GRID_WIDTH, point2D.getY());
         int colIndex = MathUtils.colIndex(colCount, GameConstant.MAP_GRID_WIDTH, point2D.getX());
-        return allMapGrids[rowIndex][colIndex];
+        return getGrid(rowIndex, colIndex);
     }
 
+    /**
+     * 获取格子信息，每次调用创建一个新的轻量对象
+     * @param rowIndex 行索引
+     * @param colIndex 列索引
+     * @return mapGrid
+     */
     public MapGrid getGrid(int rowIndex, int colIndex){
-        return allMapGrids[rowIndex][colIndex];
+        return new MapGrid(rowIndex, colIndex, obstacleBitmap.getObstacleMask(rowIndex, colIndex));
     }
 
     /**
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 地图文件(二进制)的读写。
+ *
+ * 文件格式(大端)：
+ * <pre>
+ * int   magic     固定为{@link #MAGIC}
+ * int   version   当前为{@link #VERSION}
+ * int   mapId
+ * int   rowCount
+ * int   colCount
+ * byte  obstacleMasks[rowCount * colCount]  按行(从下往上)存储，每个格子一个字节，见{@link GridObstacle#getMask()}
+ * </pre>
+ *
+ * 读取时通过内存映射文件直接构建{@link GridObstacleBitmap}，不经过堆上的中间数组，也不创建格子对象。
+ * 映射在读取之后不再被引用，由gc负责释放。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/24 10:40
+ * @github - https://github.com/hl845740757
+ */
+public final class MapDataFile {
+
+    /**
+     * "FJMP"
+     */
+    public static final int MAGIC = 0x464A4D50;
+
+    public static final int VERSION = 1;
+
+    /**
+     * 文件头长度
+     */
+    private static final int HEADER_LENGTH = 5 * 4;
+
+    private MapDataFile() {
+
+    }
+
+    /**
+     * 地图文件名
+     * @param mapId 地图id
+     * @return fileName
+     */
+    public static String fileName(int mapId){
+        return "map_" + mapId + ".bin";
+    }
+
+    /**
+     * 读取地图文件
+     * @param file 地图文件
+     * @param expectedMapId 期望的地图id，必须与文件头中的地图id一致(避免文件被错误命名或拷贝)
+     * @return mapData
+     * @throws IOException 文件不存在、格式错误或地图id不一致
+     */
+    public static MapData read(File file, int expectedMapId) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel fileChannel = randomAccessFile.getChannel()){
+            long fileLength = fileChannel.size();
+            if (fileLength < HEADER_LENGTH){
+                throw new IOException("bad map file " + file + ", length=" + fileLength);
+            }
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileLength);
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != MAGIC || version != VERSION){
+                throw new IOException("bad map file " + file + ", magic=" + magic + ", version=" + version);
+            }
+            int mapId = buffer.getInt();
+            if (mapId != expectedMapId){
+                throw new IOException("bad map file " + file + ", mapId=" + mapId + ", expectedMapId=" + expectedMapId);
+            }
+            int rowCount = buffer.getInt();
+            int colCount = buffer.getInt();
+            if (rowCount <= 0 || colCount <= 0 || buffer.remaining() != (long) rowCount * colCount){
+                throw new IOException("bad map file " + file + ", rowCount=" + rowCount + ", colCount=" + colCount
+                        + ", remaining=" + buffer.remaining());
+            }
+            return new MapData(mapId, new GridObstacleBitmap(rowCount, colCount, buffer));
+        }
+    }
+
+    /**
+     * 写入地图文件(地图编辑器导出及测试使用)
+     * @param file 地图文件
+     * @param mapId 地图id
+     * @param rowCount 行数
+     * @param colCount 列数
+     * @param obstacleMasks 每个格子的遮挡掩码，按格子索引(rowIndex * colCount + colIndex)存储
+     * @throws IOException 写入错误
+     */
+    public static void write(File file, int mapId, int rowCount, int colCount, byte[] obstacleMasks) throws IOException {
+        if (obstacleMasks.length != rowCount * colCount){
+            throw new IllegalArgumentException("rowCount=" + rowCount + ", colCount=" + colCount + ", masks=" + obstacleMasks.length);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putInt(VERSION).putInt(mapId).putInt(rowCount).putInt(colCount);
+        header.flip();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel fileChannel = randomAccessFile.getChannel()){
+            fileChannel.truncate(0);
+            ByteBuffer body = ByteBuffer.wrap(obstacleMasks);
+            ByteBuffer[] buffers = {header, body};
+            while (body.hasRemaining()){
+                fileChannel.write(buffers);
+            }
+        }
+    }
+}
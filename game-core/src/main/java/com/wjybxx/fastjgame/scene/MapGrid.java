@@ -31,6 +31,9 @@ import java.util.EnumSet;
  *
  * 地图左下角为(0,0)
  *
+ * 地图数据({@link MapData})并不持有格子对象，一张1000*1000的地图就有一百万个格子，
+ * 格子对象只是{@link MapData#getGrid(int, int)}时创建的轻量值对象，中心坐标按索引计算。
+ *
  * @author wjybxx
  * @version 1.0
  * @date 2019/6/1 18:29
@@ -48,27 +51,14 @@ public class MapGrid {
     private final int colIndex;
 
     /**
-     * 该格子的中心坐标
+     * 地图格子特征值，遮挡标记等，见{@link GridObstacle#getMask()}
      */
-    private final Point2D center;
-
-    // 其它，如遮挡标记等
+    private final int obstacleMask;
 
-    /**
-     * 地图格子特征值，遮挡标记等
-     */
-    private final EnumSet<GridObstacle> obstacleValues = EnumSet.noneOf(GridObstacle.class);
-
-    public MapGrid(int rowIndex, int colIndex,int[] obstacleInts) {
+    public MapGrid(int rowIndex, int colIndex, int obstacleMask) {
         this.rowIndex = rowIndex;
         this.colIndex = colIndex;
-
-        this.center = MathUtils.gridCenterLocation(rowIndex,colIndex, GameConstant.MAP_GRID_WIDTH)
-                .unmodifiable();
-
-        for (int number :obstacleInts){
-            obstacleValues.add(GridObstacle.forNumber(number));
-        }
+        this.obstacleMask = obstacleMask;
     }
 
     public int getColIndex() {
@@ -79,19 +69,63 @@ public class MapGrid {
         return rowIndex;
     }
 
+    /**
+     * 该格子的中心坐标，每次调用创建一个新的不可修改对象，频繁调用请使用{@link #getCenterX()}和{@link #getCenterY()}
+     * @return center
+     */
     public Point2D getCenter() {
-        return center;
+        return MathUtils.gridCenterLocation(rowIndex, colIndex, GameConstant.MAP_GRID_WIDTH).unmodifiable();
     }
 
     public float getCenterX(){
-        return center.getX();
+        return (colIndex + 0.5f) * GameConstant.MAP_GRID_WIDTH;
     }
 
     public float getCenterY(){
-        return center.getY();
+        return (rowIndex + 0.5f) * GameConstant.MAP_GRID_WIDTH;
     }
 
+    public int getObstacleMask() {
+        return obstacleMask;
+    }
+
+    /**
+     * 格子是否有指定遮挡标记
+     * @param obstacle 遮挡标记
+     * @return true/false
+     */
+    public boolean hasObstacle(GridObstacle obstacle){
+        return (obstacleMask & obstacle.getMask()) != 0;
+    }
+
+    /**
+     * 格子的所有遮挡标记，每次调用创建一个新的集合
+     * @return obstacleValues
+     */
     public EnumSet<GridObstacle> getObstacleValues() {
+        EnumSet<GridObstacle> obstacleValues = EnumSet.noneOf(GridObstacle.class);
+        for (GridObstacle obstacle:GridObstacle.values()){
+            if (hasObstacle(obstacle)){
+                obstacleValues.add(obstacle);
+            }
+        }
         return obstacleValues;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MapGrid mapGrid = (MapGrid) o;
+        return rowIndex == mapGrid.rowIndex && colIndex == mapGrid.colIndex;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * rowIndex + colIndex;
+    }
 }
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.utils.FastCollectionsUtils;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 十字链表视野策略。
+ *
+ * 所有对象按x坐标、y坐标分别串成两条有序的双向链表，对象移动时只需要在链表中与相邻节点交换位置(移动距离一般很小)；
+ * 查找视野范围内的对象时，同时沿两条链表向两侧遍历，哪条链表先走出范围就使用哪条链表上的候选对象，
+ * 遍历的节点数约为两个轴上候选数较少者的两倍。
+ *
+ * 每个对象可以有不同的视野半径({@link GameObject#getAoiRadius()})，视野不是相互的：
+ * 每个节点记录它能看见的对象以及能看见它的对象，刷新时与新的结果比较得到进入、离开的对象。
+ * 视野半径不能超过{@link #maxRadius}，候选对象的查找范围由它决定，它越大候选对象越多。
+ *
+ * 对象进入场景时需要从表头查找插入位置，是O(n)的，进出场景不频繁的玩法适用。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/27 14:00
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class OrthogonalListAoiStrategy implements AoiStrategy {
+
+    private static final int AXIS_X = 0;
+    private static final int AXIS_Y = 1;
+    private static final int AXIS_NUM = 2;
+
+    /**
+     * 默认视野半径(对象未指定视野半径时)
+     */
+    private final float defaultRadius;
+    /**
+     * 最大视野半径
+     */
+    private final float maxRadius;
+
+    /**
+     * 两条链表的表头，[axis]
+     */
+    private final AoiNode[] heads = new AoiNode[AXIS_NUM];
+
+    /**
+     * 所有节点 guid->node
+     */
+    private final Long2ObjectMap<AoiNode> nodeMap = FastCollectionsUtils.newEnoughCapacityLongMap(64);
+
+    /**
+     * 计算视野时的标记版本号，避免为新的可见集合创建Set
+     */
+    private int markVersion = 0;
+
+    // 计算用的缓存(不能是静态的，不同的场景可能运行在不同的线程)
+    private final List<AoiNode> xCandidatesCache = new ArrayList<>();
+    private final List<AoiNode> yCandidatesCache = new ArrayList<>();
+    private final List<AoiNode> newWatchingCache = new ArrayList<>();
+    private final List<AoiNode> newWatchersCache = new ArrayList<>();
+    private final List<AoiNode> nodesCache = new ArrayList<>();
+    private final List<GameObject> gameObjectsCache = new ArrayList<>();
+
+    /**
+     * @param defaultRadius 默认视野半径(一般为场景配置的视野半径)
+     * @param maxRadius 最大视野半径，大于等于默认视野半径
+     */
+    public OrthogonalListAoiStrategy(float defaultRadius, float maxRadius) {
+        if (defaultRadius <= 0 || maxRadius < defaultRadius){
+            throw new IllegalArgumentException("defaultRadius " + defaultRadius + ", maxRadius " + maxRadius);
+        }
+        this.defaultRadius = defaultRadius;
+        this.maxRadius = maxRadius;
+    }
+
+    @Override
+    public void enter(GameObject gameObject, AoiListener listener) {
+        AoiNode node = new AoiNode(gameObject);
+        FastCollectionsUtils.requireNotContains(nodeMap, gameObject.getGuid(), "guid");
+        nodeMap.put(gameObject.getGuid(), node);
+        node.pos[AXIS_X] = gameObject.getPosition().getX();
+        node.pos[AXIS_Y] = gameObject.getPosition().getY();
+        for (int axis = 0; axis < AXIS_NUM; axis++){
+            insert(node, axis);
+        }
+        refreshView(node, listener);
+    }
+
+    @Override
+    public void leave(GameObject gameObject, AoiListener listener) {
+        AoiNode node = nodeMap.remove(gameObject.getGuid());
+        assert null != node;
+        for (int axis = 0; axis < AXIS_NUM; axis++){
+            unlink(node, axis);
+        }
+        try {
+            if (node.watching.size() > 0){
+                for (AoiNode other : node.watching){
+                    other.watchers.remove(node);
+                    gameObjectsCache.add(other.gameObject);
+                }
+                node.watching.clear();
+                listener.onOthersLeave(gameObject, gameObjectsCache);
+                gameObjectsCache.clear();
+            }
+            if (node.watchers.size() > 0){
+                for (AoiNode other : node.watchers){
+                    other.watching.remove(node);
+                    gameObjectsCache.add(other.gameObject);
+                }
+                node.watchers.clear();
+                listener.onLeaveOthers(gameObjectsCache, gameObject);
+            }
+        } finally {
+            gameObjectsCache.clear();
+        }
+    }
+
+    @Override
+    public void update(GameObject gameObject, AoiListener listener) {
+        AoiNode node = nodeMap.get(gameObject.getGuid());
+        assert null != node;
+        float x = gameObject.getPosition().getX();
+        float y = gameObject.getPosition().getY();
+        // 未移动，可见关系只会在其它对象移动时改变，由其它对象刷新
+        if (x == node.pos[AXIS_X] && y == node.pos[AXIS_Y]){
+            return;
+        }
+        node.pos[AXIS_X] = x;
+        node.pos[AXIS_Y] = y;
+        for (int axis = 0; axis < AXIS_NUM; axis++){
+            reposition(node, axis);
+        }
+        refreshView(node, listener);
+    }
+
+    @Override
+    public void updateAoiProperties(GameObject gameObject, int aoiLayer, int aoiLayerMask, float aoiRadius, AoiListener listener) {
+        AoiNode node = nodeMap.get(gameObject.getGuid());
+        assert null != node;
+        gameObject.setAoiLayer(aoiLayer);
+        gameObject.setAoiLayerMask(aoiLayerMask);
+        gameObject.setAoiRadius(aoiRadius);
+        refreshView(node, listener);
+    }
+
+    @Override
+    public int collectWatchers(GameObject gameObject, Collection<? super GameObject> out) {
+        AoiNode node = nodeMap.get(gameObject.getGuid());
+        assert null != node;
+        for (AoiNode watcher : node.watchers){
+            out.add(watcher.gameObject);
+        }
+        return node.watchers.size();
+    }
+
+    /**
+     * 获取对象的实际视野半径
+     */
+    private float radius(GameObject gameObject){
+        float aoiRadius = gameObject.getAoiRadius();
+        return aoiRadius <= 0 ? defaultRadius : Math.min(aoiRadius, maxRadius);
+    }
+
+    // ------------------------------------------ 视野计算 ---------------------------------
+
+    /**
+     * 重新计算节点的可见关系(它能看见的，以及能看见它的)，并通知变化
+     */
+    private void refreshView(AoiNode node, AoiListener listener){
+        final GameObject gameObject = node.gameObject;
+        final float radius = radius(gameObject);
+        final float rr = radius * radius;
+        final int version = ++markVersion;
+        try {
+            for (AoiNode other : collectCandidates(node)){
+                float dx = other.pos[AXIS_X] - node.pos[AXIS_X];
+                float dy = other.pos[AXIS_Y] - node.pos[AXIS_Y];
+                float distance = dx * dx + dy * dy;
+                if (distance <= rr && gameObject.isAoiLayerWatched(other.gameObject)){
+                    other.watchingMark = version;
+                    newWatchingCache.add(other);
+                }
+                float otherRadius = radius(other.gameObject);
+                if (distance <= otherRadius * otherRadius && other.gameObject.isAoiLayerWatched(gameObject)){
+                    other.watcherMark = version;
+                    newWatchersCache.add(other);
+                }
+            }
+
+            // 我看不见的
+            for (AoiNode other : node.watching){
+                if (other.watchingMark != version){
+                    nodesCache.add(other);
+                }
+            }
+            if (nodesCache.size() > 0){
+                for (AoiNode other : nodesCache){
+                    node.watching.remove(other);
+                    other.watchers.remove(node);
+                    gameObjectsCache.add(other.gameObject);
+                }
+                listener.onOthersLeave(gameObject, gameObjectsCache);
+                nodesCache.clear();
+                gameObjectsCache.clear();
+            }
+
+            // 看不见我的
+            for (AoiNode other : node.watchers){
+                if (other.watcherMark != version){
+                    nodesCache.add(other);
+                }
+            }
+            if (nodesCache.size() > 0){
+                for (AoiNode other : nodesCache){
+                    node.watchers.remove(other);
+                    other.watching.remove(node);
+                    gameObjectsCache.add(other.gameObject);
+                }
+                listener.onLeaveOthers(gameObjectsCache, gameObject);
+                nodesCache.clear();
+                gameObjectsCache.clear();
+            }
+
+            // 我新看见的
+            for (AoiNode other : newWatchingCache){
+                if (node.watching.add(other)){
+                    other.watchers.add(node);
+                    gameObjectsCache.add(other.gameObject);
+                }
+            }
+            if (gameObjectsCache.size() > 0){
+                listener.onOthersEnter(gameObject, gameObjectsCache);
+                gameObjectsCache.clear();
+            }
+
+            // 新看见我的
+            for (AoiNode other : newWatchersCache){
+                if (node.watchers.add(other)){
+                    other.watching.add(node);
+                    gameObjectsCache.add(other.gameObject);
+                }
+            }
+            if (gameObjectsCache.size() > 0){
+                listener.onEnterOthers(gameObjectsCache, gameObject);
+            }
+        } finally {
+            xCandidatesCache.clear();
+            yCandidatesCache.clear();
+            newWatchingCache.clear();
+            newWatchersCache.clear();
+            nodesCache.clear();
+            gameObjectsCache.clear();
+        }
+    }
+
+    /**
+     * 查找候选对象：两条链表上交替向两侧各走一步，先走出{@link #maxRadius}范围的链表上的节点即为候选对象
+     * (另一个轴的距离可能超出范围，由调用者判断)
+     */
+    private List<AoiNode> collectCandidates(AoiNode node){
+        AoiNode xLeft = node.prev[AXIS_X];
+        AoiNode xRight = node.next[AXIS_X];
+        AoiNode yLeft = node.prev[AXIS_Y];
+        AoiNode yRight = node.next[AXIS_Y];
+        final float minX = node.pos[AXIS_X] - maxRadius;
+        final float maxX = node.pos[AXIS_X] + maxRadius;
+        final float minY = node.pos[AXIS_Y] - maxRadius;
+        final float maxY = node.pos[AXIS_Y] + maxRadius;
+        while (true){
+            // x轴
+            if (null != xLeft && xLeft.pos[AXIS_X] >= minX){
+                xCandidatesCache.add(xLeft);
+                xLeft = xLeft.prev[AXIS_X];
+            } else {
+                xLeft = null;
+            }
+            if (null != xRight && xRight.pos[AXIS_X] <= maxX){
+                xCandidatesCache.add(xRight);
+                xRight = xRight.next[AXIS_X];
+            } else {
+                xRight = null;
+            }
+            if (null == xLeft && null == xRight){
+                return xCandidatesCache;
+            }
+            // y轴
+            if (null != yLeft && yLeft.pos[AXIS_Y] >= minY){
+                yCandidatesCache.add(yLeft);
+                yLeft = yLeft.prev[AXIS_Y];
+            } else {
+                yLeft = null;
+            }
+            if (null != yRight && yRight.pos[AXIS_Y] <= maxY){
+                yCandidatesCache.add(yRight);
+                yRight = yRight.next[AXIS_Y];
+            } else {
+                yRight = null;
+            }
+            if (null == yLeft && null == yRight){
+                return yCandidatesCache;
+            }
+        }
+    }
+
+    // ------------------------------------------ 链表操作 ---------------------------------
+
+    /**
+     * 从表头开始查找插入位置
+     */
+    private void insert(AoiNode node, int axis){
+        AoiNode head = heads[axis];
+        if (null == head || head.pos[axis] >= node.pos[axis]){
+            node.next[axis] = head;
+            if (null != head){
+                head.prev[axis] = node;
+            }
+            heads[axis] = node;
+            return;
+        }
+        AoiNode prev = head;
+        while (null != prev.next[axis] && prev.next[axis].pos[axis] < node.pos[axis]){
+            prev = prev.next[axis];
+        }
+        linkAfter(node, prev, axis);
+    }
+
+    /**
+     * 坐标改变之后，向前或向后移动到正确的位置
+     */
+    private void reposition(AoiNode node, int axis){
+        final float pos = node.pos[axis];
+        AoiNode prev = node.prev[axis];
+        if (null != prev && prev.pos[axis] > pos){
+            // 向前移动
+            while (null != prev.prev[axis] && prev.prev[axis].pos[axis] > pos){
+                prev = prev.prev[axis];
+            }
+            unlink(node, axis);
+            if (null == prev.prev[axis]){
+                node.next[axis] = prev;
+                prev.prev[axis] = node;
+                heads[axis] = node;
+            } else {
+                linkAfter(node, prev.prev[axis], axis);
+            }
+            return;
+        }
+        AoiNode next = node.next[axis];
+        if (null != next && next.pos[axis] < pos){
+            // 向后移动
+            while (null != next.next[axis] && next.next[axis].pos[axis] < pos){
+                next = next.next[axis];
+            }
+            unlink(node, axis);
+            linkAfter(node, next, axis);
+        }
+    }
+
+    private void linkAfter(AoiNode node, AoiNode prev, int axis){
+        AoiNode next = prev.next[axis];
+        node.prev[axis] = prev;
+        node.next[axis] = next;
+        prev.next[axis] = node;
+        if (null != next){
+            next.prev[axis] = node;
+        }
+    }
+
+    private void unlink(AoiNode node, int axis){
+        AoiNode prev = node.prev[axis];
+        AoiNode next = node.next[axis];
+        if (null == prev){
+            heads[axis] = next;
+        } else {
+            prev.next[axis] = next;
+        }
+        if (null != next){
+            next.prev[axis] = prev;
+        }
+        node.prev[axis] = null;
+        node.next[axis] = null;
+    }
+
+    /**
+     * 十字链表上的节点
+     */
+    private static class AoiNode {
+
+        private final GameObject gameObject;
+        /**
+         * 链表中使用的坐标(最近一次刷新时的坐标)，[axis]
+         */
+        private final float[] pos = new float[AXIS_NUM];
+        private final AoiNode[] prev = new AoiNode[AXIS_NUM];
+        private final AoiNode[] next = new AoiNode[AXIS_NUM];
+
+        /**
+         * 我能看见的对象
+         */
+        private final ObjectOpenHashSet<AoiNode> watching = new ObjectOpenHashSet<>();
+        /**
+         * 能看见我的对象
+         */
+        private final ObjectOpenHashSet<AoiNode> watchers = new ObjectOpenHashSet<>();
+
+        // 计算视野时的标记
+        private int watchingMark;
+        private int watcherMark;
+
+        AoiNode(GameObject gameObject) {
+            this.gameObject = gameObject;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.scene;
+
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.scene.gameobject.GameObjectType;
+import com.wjybxx.fastjgame.shape.BoundingBox2D;
+import com.wjybxx.fastjgame.shape.Point2D;
+import com.wjybxx.fastjgame.shape.shape2d.Shape2D;
+import com.wjybxx.fastjgame.utils.MathUtils;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+
+/**
+ * 场景的空间索引(均匀网格)，用于技能、AOE等区域查询：“某个图形内的所有某类对象”。
+ *
+ * 视野格子太大，遍历九宫格内所有对象逐个{@link Shape2D#hasPoint(Point2D)}在大规模战斗中开销很大；
+ * 空间索引的格子更小且按{@link GameObjectType}分层，查询时只访问图形包围盒覆盖的格子中指定类型的对象，
+ * 先用包围盒排除，再精确判断。
+ *
+ * 对象在格子中的位置记录在对象上，增删改都是O(1)；查询结果写入调用者提供的集合，查询本身不创建对象。
+ * 索引的是最近一次{@link #update(GameObject)}时的坐标，移动之后需要及时更新。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/25 11:00
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class SpatialGridIndex {
+
+    private static final GameObjectType[] GAME_OBJECT_TYPES = GameObjectType.values();
+
+    private final int cellWidth;
+    private final int rowCount;
+    private final int colCount;
+
+    /**
+     * 按对象类型分层的格子，[type.ordinal][cellIndex]，格子在第一次使用时创建
+     */
+    private final Cell[][] layers;
+
+    /**
+     * 查询时的包围盒缓存
+     */
+    private final BoundingBox2D boundingBoxCache = new BoundingBox2D();
+
+    /**
+     * @param mapWidth 地图宽
+     * @param mapHeight 地图高
+     * @param cellWidth 格子宽度
+     */
+    public SpatialGridIndex(int mapWidth, int mapHeight, int cellWidth) {
+        this.cellWidth = cellWidth;
+        this.rowCount = MathUtils.rowCount(mapHeight, cellWidth);
+        this.colCount = MathUtils.colCount(mapWidth, cellWidth);
+        this.layers = new Cell[GAME_OBJECT_TYPES.length][rowCount * colCount];
+    }
+
+    /**
+     * 添加对象到索引
+     * @param gameObject 游戏对象
+     */
+    public void add(GameObject gameObject){
+        assert gameObject.getSpatialCellIndex() < 0 : gameObject.getGuid();
+        addToCell(gameObject, cellIndex(gameObject.getPosition()));
+    }
+
+    /**
+     * 从索引删除对象
+     * @param gameObject 游戏对象
+     */
+    public void remove(GameObject gameObject){
+        if (gameObject.getSpatialCellIndex() < 0){
+            return;
+        }
+        removeFromCell(gameObject);
+        gameObject.setSpatialCellIndex(-1);
+        gameObject.setSpatialSlot(-1);
+    }
+
+    /**
+     * 对象坐标改变之后更新索引，格子不变时什么也不做
+     * @param gameObject 游戏对象
+     */
+    public void update(GameObject gameObject){
+        int preCellIndex = gameObject.getSpatialCellIndex();
+        if (preCellIndex < 0){
+            return;
+        }
+        int curCellIndex = cellIndex(gameObject.getPosition());
+        if (curCellIndex == preCellIndex){
+            return;
+        }
+        removeFromCell(gameObject);
+        addToCell(gameObject, curCellIndex);
+    }
+
+    private void addToCell(GameObject gameObject, int cellIndex){
+        Cell[] cells = layers[gameObject.getObjectType().ordinal()];
+        Cell cell = cells[cellIndex];
+        if (null == cell){
+            cell = new Cell();
+            cells[cellIndex] = cell;
+        }
+        gameObject.setSpatialCellIndex(cellIndex);
+        gameObject.setSpatialSlot(cell.add(gameObject));
+    }
+
+    private void removeFromCell(GameObject gameObject){
+        Cell cell = layers[gameObject.getObjectType().ordinal()][gameObject.getSpatialCellIndex()];
+        cell.remove(gameObject.getSpatialSlot());
+    }
+
+    /**
+     * 查询图形内指定类型的对象
+     * @param shape 查询区域
+     * @param gameObjectType 对象类型
+     * @param out 结果写入该集合(不会清空)
+     * @param <T> 对象类型
+     * @return 找到的对象数
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends GameObject> int query(Shape2D shape, GameObjectType gameObjectType, Collection<? super T> out){
+        BoundingBox2D boundingBox = shape.getBoundingBox(boundingBoxCache);
+        return queryLayer(shape, boundingBox, layers[gameObjectType.ordinal()], (Collection<? super GameObject>) out);
+    }
+
+    /**
+     * 查询图形内多种类型的对象
+     * @param shape 查询区域
+     * @param gameObjectTypes 对象类型
+     * @param out 结果写入该集合(不会清空)
+     * @return 找到的对象数
+     */
+    public int query(Shape2D shape, EnumSet<GameObjectType> gameObjectTypes, Collection<? super GameObject> out){
+        BoundingBox2D boundingBox = shape.getBoundingBox(boundingBoxCache);
+        int count = 0;
+        for (GameObjectType gameObjectType:gameObjectTypes){
+            count += queryLayer(shape, boundingBox, layers[gameObjectType.ordinal()], out);
+        }
+        return count;
+    }
+
+    private int queryLayer(Shape2D shape, BoundingBox2D boundingBox, Cell[] cells, Collection<? super GameObject> out){
+        int minRow = clampIndex(boundingBox.getMinY(), rowCount);
+        int maxRow = clampIndex(boundingBox.getMaxY(), rowCount);
+        int minCol = clampIndex(boundingBox.getMinX(), colCount);
+        int maxCol = clampIndex(boundingBox.getMaxX(), colCount);
+        int count = 0;
+        for (int rowIndex = minRow; rowIndex <= maxRow; rowIndex++){
+            for (int colIndex = minCol; colIndex <= maxCol; colIndex++){
+                Cell cell = cells[rowIndex * colCount + colIndex];
+                if (null == cell){
+                    continue;
+                }
+                GameObject[] objects = cell.objects;
+                for (int slot = 0, size = cell.size; slot < size; slot++){
+                    GameObject gameObject = objects[slot];
+                    Point2D position = gameObject.getPosition();
+                    if (boundingBox.contains(position.getX(), position.getY()) && shape.hasPoint(position)){
+                        out.add(gameObject);
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private int cellIndex(Point2D position){
+        return clampIndex(position.getY(), rowCount) * colCount + clampIndex(position.getX(), colCount);
+    }
+
+    /**
+     * 坐标对应的格子行(列)索引，地图外的坐标修正到边界格子
+     */
+    private int clampIndex(float value, int count){
+        if (value <= 0){
+            return 0;
+        }
+        return Math.min(count - 1, (int) (value / cellWidth));
+    }
+
+    /**
+     * 格子，数组存储，删除时用最后一个对象填补空位
+     */
+    private static class Cell{
+
+        private GameObject[] objects = new GameObject[4];
+        private int size = 0;
+
+        int add(GameObject gameObject){
+            if (size == objects.length){
+                objects = Arrays.copyOf(objects, size << 1);
+            }
+            objects[size] = gameObject;
+            return size++;
+        }
+
+        void remove(int slot){
+            int lastSlot = --size;
+            if (slot != lastSlot){
+                GameObject last = objects[lastSlot];
+                objects[slot] = last;
+                last.setSpatialSlot(slot);
+            }
+            objects[lastSlot] = null;
+        }
+    }
+}
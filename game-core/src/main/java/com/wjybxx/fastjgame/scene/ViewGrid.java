@@ -17,6 +17,7 @@
 package com.wjybxx.fastjgame.scene;
 
 import com.wjybxx.fastjgame.dsl.CoordinateSystem2D;
+import com.wjybxx.fastjgame.shape.BoundingBox2D;
 import com.wjybxx.fastjgame.shape.Point2D;
 import com.wjybxx.fastjgame.shape.shape2d.Rectangle;
 import com.wjybxx.fastjgame.shape.shape2d.Shape2D;
@@ -66,6 +67,11 @@ public class ViewGrid extends GameObjectContainer implements Shape2D {
      * 周围的视野格子(可见的视野格子，周围的格子和自己)
      */
     private final List<ViewGrid> viewableGrids = new ArrayList<>(VIEWABLE_GRID_NUM);
+    /**
+     * 移动到相邻格子时的视野差异，[{@link ViewGridSet#moveIndex(ViewGrid, ViewGrid)}]；
+     * 由{@link ViewGridSet}创建时预先计算，地图外的方向为null
+     */
+    private final MoveDiff[] moveDiffs = new MoveDiff[ViewGridSet.MOVE_INDEX_NUM];
 
     public ViewGrid(int rowIndex, int colIndex, int gridWidth) {
         this(rowIndex,colIndex,gridWidth,InitCapacityHolder.EMPTY);
@@ -95,8 +101,55 @@ public class ViewGrid extends GameObjectContainer implements Shape2D {
         return viewableGrids;
     }
 
+    /**
+     * 获取从该格子移动到相邻格子时的视野差异
+     * @param moveIndex {@link ViewGridSet#moveIndex(ViewGrid, ViewGrid)}
+     * @return diff
+     */
+    public MoveDiff getMoveDiff(int moveIndex) {
+        return moveDiffs[moveIndex];
+    }
+
+    void setMoveDiff(int moveIndex, MoveDiff moveDiff) {
+        moveDiffs[moveIndex] = moveDiff;
+    }
+
     @Override
     public boolean hasPoint(@Nonnull Point2D point2D) {
         return region.hasPoint(point2D);
     }
+
+    @Override
+    public BoundingBox2D getBoundingBox(@Nonnull BoundingBox2D out) {
+        return region.getBoundingBox(out);
+    }
+
+    /**
+     * 从一个视野格子移动到相邻视野格子时的视野差异，
+     * 视野半径固定，差异只取决于移动方向和地图边界，因此可以预先计算；列表是共享的，只读。
+     */
+    public static class MoveDiff {
+
+        /**
+         * 移动后看不见的格子
+         */
+        private final List<ViewGrid> invisibleGrids;
+        /**
+         * 移动后新看见的格子
+         */
+        private final List<ViewGrid> visibleGrids;
+
+        MoveDiff(List<ViewGrid> invisibleGrids, List<ViewGrid> visibleGrids) {
+            this.invisibleGrids = invisibleGrids;
+            this.visibleGrids = visibleGrids;
+        }
+
+        public List<ViewGrid> getInvisibleGrids() {
+            return invisibleGrids;
+        }
+
+        public List<ViewGrid> getVisibleGrids() {
+            return visibleGrids;
+        }
+    }
 }
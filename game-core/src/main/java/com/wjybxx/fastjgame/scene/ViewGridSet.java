@@ -22,6 +22,10 @@ import com.wjybxx.fastjgame.utils.MathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static com.wjybxx.fastjgame.utils.GameConstant.VIEWABLE_DELTA_INDEX;
 import static com.wjybxx.fastjgame.utils.GameConstant.VIEWABLE_RANGE_GRID_NUM;
 
@@ -54,6 +58,11 @@ public class ViewGridSet {
 
     private static final Logger logger= LoggerFactory.getLogger(ViewGridSet.class);
 
+    /**
+     * 相邻移动的方向数(包含未移动)，{@link #moveIndex(ViewGrid, ViewGrid)}
+     */
+    public static final int MOVE_INDEX_NUM = 9;
+
     /**
      * 地图宽高
      */
@@ -129,6 +138,13 @@ public class ViewGridSet {
                 indexViewableGrids(viewGrid,rowIndex,colIndex);
             }
         }
+
+        // 预先计算移动到相邻格子时的视野差异
+        for (int rowIndex=0; rowIndex<rowCount; rowIndex++) {
+            for (int colIndex = 0; colIndex < colCount; colIndex++) {
+                indexMoveDiffs(allViewGrids[rowIndex][colIndex]);
+            }
+        }
     }
 
     /**
@@ -157,6 +173,69 @@ public class ViewGridSet {
         }
     }
 
+    /**
+     * 计算格子移动到8个相邻格子时的视野差异
+     * @param from 视野格子
+     */
+    private void indexMoveDiffs(ViewGrid from){
+        for (int deltaRow = -1; deltaRow <= 1; deltaRow++){
+            int toRowIndex = from.getRowIndex() + deltaRow;
+            if (toRowIndex < 0 || toRowIndex >= rowCount){
+                continue;
+            }
+            for (int deltaCol = -1; deltaCol <= 1; deltaCol++){
+                int toColIndex = from.getColIndex() + deltaCol;
+                if ((deltaRow == 0 && deltaCol == 0) || toColIndex < 0 || toColIndex >= colCount){
+                    continue;
+                }
+                ViewGrid to = allViewGrids[toRowIndex][toColIndex];
+                List<ViewGrid> invisibleGrids = new ArrayList<>();
+                List<ViewGrid> visibleGrids = new ArrayList<>();
+                diffViewableGrids(from, to, invisibleGrids, visibleGrids);
+                from.setMoveDiff(moveIndex(from, to), new ViewGrid.MoveDiff(
+                        Collections.unmodifiableList(invisibleGrids),
+                        Collections.unmodifiableList(visibleGrids)));
+            }
+        }
+    }
+
+    /**
+     * 逐个比较两个格子的可见格子，计算从from移动到to时的视野差异(不相邻的格子使用)
+     * @param from 移动前的格子
+     * @param to 移动后的格子
+     * @param invisibleGrids 移动后看不见的格子
+     * @param visibleGrids 移动后新看见的格子
+     */
+    public void diffViewableGrids(ViewGrid from, ViewGrid to, List<ViewGrid> invisibleGrids, List<ViewGrid> visibleGrids){
+        // 旧的哪些看不见了
+        for (ViewGrid preViewableGrid : from.getViewableGrids()){
+            if (!visible(to, preViewableGrid)){
+                invisibleGrids.add(preViewableGrid);
+            }
+        }
+        // 新看见的格子有哪些
+        for (ViewGrid curViewableGrid : to.getViewableGrids()){
+            if (!visible(from, curViewableGrid)){
+                visibleGrids.add(curViewableGrid);
+            }
+        }
+    }
+
+    /**
+     * 计算两个格子之间的移动方向索引
+     * @param from 移动前的格子
+     * @param to 移动后的格子
+     * @return [0, {@link #MOVE_INDEX_NUM})，不相邻时返回-1(瞬移等)
+     */
+    public static int moveIndex(ViewGrid from, ViewGrid to){
+        int deltaRow = to.getRowIndex() - from.getRowIndex();
+        int deltaCol = to.getColIndex() - from.getColIndex();
+        if (deltaRow < -1 || deltaRow > 1 || deltaCol < -1 || deltaCol > 1){
+            return -1;
+        }
+        return (deltaRow + 1) * 3 + (deltaCol + 1);
+    }
+
     public int getMapWidth() {
         return mapWidth;
     }
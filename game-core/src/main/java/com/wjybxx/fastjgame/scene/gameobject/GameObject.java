@@ -18,6 +18,7 @@ package com.wjybxx.fastjgame.scene.gameobject;
 
 import com.wjybxx.fastjgame.shape.Point2D;
 import com.wjybxx.fastjgame.scene.ViewGrid;
+import com.wjybxx.fastjgame.utils.GameConstant;
 
 import javax.annotation.Nonnull;
 
@@ -46,6 +47,26 @@ public abstract class GameObject {
      */
     private ViewGrid viewGrid;
 
+    // 空间索引信息，只由所在场景的空间索引({@link com.wjybxx.fastjgame.scene.SpatialGridIndex})使用
+    /**
+     * 对象在空间索引中的格子索引，-1表示不在空间索引中
+     */
+    private int spatialCellIndex = -1;
+    /**
+     * 对象在格子中的位置，用于O(1)删除
+     */
+    private int spatialSlot = -1;
+    // 坐标存储中的槽位，只由场景对象容器的坐标存储({@link com.wjybxx.fastjgame.scene.GameObjectPositionStore})使用
+    private int positionSlot = -1;
+
+    // 视野(AOI)属性，由场景的视野策略({@link com.wjybxx.fastjgame.scene.AoiStrategy})使用
+    // 所在的视野层
+    private int aoiLayer = GameConstant.AOI_LAYER_DEFAULT;
+    // 能看见的视野层
+    private int aoiLayerMask = GameConstant.AOI_LAYER_MASK_ALL;
+    // 视野半径，小于等于0表示使用场景的视野半径
+    private float aoiRadius = 0;
+
     protected GameObject(long guid) {
         this.guid = guid;
     }
@@ -67,5 +88,66 @@ public abstract class GameObject {
         this.viewGrid = viewGrid;
     }
 
+    public int getSpatialCellIndex() {
+        return spatialCellIndex;
+    }
+
+    public void setSpatialCellIndex(int spatialCellIndex) {
+        this.spatialCellIndex = spatialCellIndex;
+    }
+
+    public int getSpatialSlot() {
+        return spatialSlot;
+    }
+
+    public void setSpatialSlot(int spatialSlot) {
+        this.spatialSlot = spatialSlot;
+    }
+
+    public int getPositionSlot() {
+        return positionSlot;
+    }
+
+    public void setPositionSlot(int positionSlot) {
+        this.positionSlot = positionSlot;
+    }
+
+    public int getAoiLayer() {
+        return aoiLayer;
+    }
+
+    /**
+     * 视野属性只能在进入场景之前直接修改，在场景中时需要通过视野策略修改
+     * ({@link com.wjybxx.fastjgame.scene.AoiStrategy#updateAoiProperties(GameObject, int, int, float, com.wjybxx.fastjgame.scene.AoiListener)})
+     */
+    public void setAoiLayer(int aoiLayer) {
+        this.aoiLayer = aoiLayer;
+    }
+
+    public int getAoiLayerMask() {
+        return aoiLayerMask;
+    }
+
+    public void setAoiLayerMask(int aoiLayerMask) {
+        this.aoiLayerMask = aoiLayerMask;
+    }
+
+    public float getAoiRadius() {
+        return aoiRadius;
+    }
+
+    public void setAoiRadius(float aoiRadius) {
+        this.aoiRadius = aoiRadius;
+    }
+
+    /**
+     * 是否关注另一个对象所在的视野层
+     * @param other 另一个对象
+     * @return true/false
+     */
+    public boolean isAoiLayerWatched(GameObject other){
+        return (aoiLayerMask & other.aoiLayer) != 0;
+    }
+
     public abstract GameObjectType getObjectType();
 }
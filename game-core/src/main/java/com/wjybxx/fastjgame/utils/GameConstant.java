@@ -30,6 +30,12 @@ public class GameConstant {
      */
     public static final int MAP_GRID_WIDTH = 50;
 
+    /**
+     * 空间索引({@link com.wjybxx.fastjgame.scene.SpatialGridIndex})的格子大小，
+     * 技能范围一般为几个地图格子，格子太大候选对象多，太小则要访问的格子多。
+     */
+    public static final int SPATIAL_INDEX_CELL_WIDTH = MAP_GRID_WIDTH * 4;
+
     // region 视野
     /**
      * 一行（列）可见格子数；
@@ -54,6 +60,17 @@ public class GameConstant {
      * （视野范围是半径，理想的其实是正方形内的一个圆）
      */
     public static final float VIEWABLE_RANGE_GRID_NUM = VIEWABLE_GRID_NUM_PER_LINE / 2f;
+
+    /**
+     * 默认的视野层，对象所在的层({@link com.wjybxx.fastjgame.scene.gameobject.GameObject#getAoiLayer()})；
+     * 其它层(如boss层)由具体玩法定义，每一层占一个bit
+     */
+    public static final int AOI_LAYER_DEFAULT = 1;
+
+    /**
+     * 关注所有视野层
+     */
+    public static final int AOI_LAYER_MASK_ALL = -1;
     // endregion
 
     private GameConstant() {
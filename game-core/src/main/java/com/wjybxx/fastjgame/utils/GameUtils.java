@@ -41,6 +41,10 @@ public class GameUtils {
      * 内部通信用的codec名字
      */
     public static final String INNER_CODEC_NAME = "protoBufCodec";
+    /**
+     * 与玩家通信用的codec名字
+     */
+    public static final String PLAYER_CODEC_NAME = "playerCodec";
     /**
      * 服务器之间通信端口
      */
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.scene.*;
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.scene.gameobject.Npc;
+import com.wjybxx.fastjgame.scene.gameobject.Player;
+import com.wjybxx.fastjgame.utils.GameConstant;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 视野策略测试：对象随机进出、移动、修改视野属性，
+ * 根据回调维护的可见关系必须与直接计算的可见关系一致，且回调不能重复或遗漏；
+ * 一次操作中先离开又重新进入的关系(可见关系其实没变)是多余的回调。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/27 17:20
+ * @github - https://github.com/hl845740757
+ */
+public class AoiStrategyTest {
+
+    private static final int MAP_WIDTH = 10000;
+    private static final int MAP_HEIGHT = 8000;
+    private static final int VIEWABLE_RANGE = 1500;
+    private static final int MAX_RADIUS = 3000;
+    private static final int BOSS_LAYER = 1 << 1;
+
+    public static void main(String[] args) {
+        ViewGridSet viewGridSet = new ViewGridSet(MAP_WIDTH, MAP_HEIGHT, VIEWABLE_RANGE);
+        test(new GridAoiStrategy(viewGridSet), (watcher, target) -> viewGridSet.visible(watcher.getViewGrid(), target.getViewGrid()));
+
+        test(new OrthogonalListAoiStrategy(VIEWABLE_RANGE, MAX_RADIUS), (watcher, target) -> {
+            float radius = watcher.getAoiRadius() <= 0 ? VIEWABLE_RANGE : Math.min(watcher.getAoiRadius(), MAX_RADIUS);
+            float dx = watcher.getPosition().getX() - target.getPosition().getX();
+            float dy = watcher.getPosition().getY() - target.getPosition().getY();
+            return dx * dx + dy * dy <= radius * radius;
+        });
+    }
+
+    private static void test(AoiStrategy aoiStrategy, RangeChecker rangeChecker){
+        Random random = new Random(1024);
+        RelationListener listener = new RelationListener();
+        List<GameObject> inScene = new ArrayList<>();
+        long guid = 0;
+        long startTime = System.currentTimeMillis();
+        for (int round = 0; round < 20000; round++){
+            listener.leftInOp.clear();
+            int op = random.nextInt(10);
+            if (inScene.size() < 300 || op == 0){
+                GameObject gameObject = ++guid % 4 == 0 ? new Npc(guid) : new Player(guid);
+                randomPosition(random, gameObject);
+                if (random.nextInt(5) == 0){
+                    gameObject.setAoiRadius(random.nextInt(MAX_RADIUS * 2));
+                }
+                aoiStrategy.enter(gameObject, listener);
+                inScene.add(gameObject);
+            } else if (op == 1){
+                GameObject gameObject = inScene.remove(random.nextInt(inScene.size()));
+                aoiStrategy.leave(gameObject, listener);
+            } else if (op == 2){
+                GameObject gameObject = inScene.get(random.nextInt(inScene.size()));
+                int layer = random.nextBoolean() ? GameConstant.AOI_LAYER_DEFAULT : BOSS_LAYER;
+                int layerMask = random.nextBoolean() ? GameConstant.AOI_LAYER_MASK_ALL : GameConstant.AOI_LAYER_DEFAULT;
+                aoiStrategy.updateAoiProperties(gameObject, layer, layerMask, random.nextInt(MAX_RADIUS), listener);
+            } else {
+                GameObject gameObject = inScene.get(random.nextInt(inScene.size()));
+                if (random.nextInt(20) == 0){
+                    // 瞬移
+                    randomPosition(random, gameObject);
+                } else {
+                    float x = clamp(gameObject.getPosition().getX() + random.nextInt(1001) - 500, MAP_WIDTH);
+                    float y = clamp(gameObject.getPosition().getY() + random.nextInt(1001) - 500, MAP_HEIGHT);
+                    gameObject.getPosition().updateLocation(x, y);
+                }
+                aoiStrategy.update(gameObject, listener);
+            }
+        }
+        long costTime = System.currentTimeMillis() - startTime;
+
+        // 直接计算的可见关系
+        Set<String> expected = new HashSet<>();
+        for (GameObject watcher : inScene){
+            for (GameObject target : inScene){
+                if (watcher != target && watcher.isAoiLayerWatched(target) && rangeChecker.inRange(watcher, target)){
+                    expected.add(watcher.getGuid() + "->" + target.getGuid());
+                }
+            }
+        }
+        System.out.println(aoiStrategy.getClass().getSimpleName() + ": objectNum=" + inScene.size()
+                + ", relationNum=" + expected.size()
+                + ", match=" + expected.equals(listener.relations)
+                + ", badCallback=" + listener.badCallback
+                + ", redundantCallback=" + listener.redundantCallback
+                + ", costTime=" + costTime + "ms");
+    }
+
+    private static void randomPosition(Random random, GameObject gameObject){
+        gameObject.getPosition().updateLocation(random.nextInt(MAP_WIDTH), random.nextInt(MAP_HEIGHT));
+    }
+
+    private static float clamp(float value, int max){
+        return Math.max(0, Math.min(value, max - 1));
+    }
+
+    private interface RangeChecker {
+        boolean inRange(GameObject watcher, GameObject target);
+    }
+
+    /**
+     * 根据回调维护可见关系，重复进入或者离开不存在的关系都是错误的回调
+     */
+    private static class RelationListener implements AoiListener {
+
+        private final Set<String> relations = new HashSet<>();
+        /**
+         * 当前操作中离开的关系
+         */
+        private final Set<String> leftInOp = new HashSet<>();
+        private int badCallback = 0;
+        private int redundantCallback = 0;
+
+        private void add(GameObject watcher, GameObject target){
+            String relation = watcher.getGuid() + "->" + target.getGuid();
+            if (!relations.add(relation)){
+                badCallback++;
+            }
+            if (leftInOp.remove(relation)){
+                redundantCallback++;
+            }
+        }
+
+        private void remove(GameObject watcher, GameObject target){
+            String relation = watcher.getGuid() + "->" + target.getGuid();
+            if (!relations.remove(relation)){
+                badCallback++;
+            }
+            leftInOp.add(relation);
+        }
+
+        @Override
+        public void onOthersEnter(GameObject gameObject, List<GameObject> others) {
+            others.forEach(other -> add(gameObject, other));
+        }
+
+        @Override
+        public void onOthersLeave(GameObject gameObject, List<GameObject> others) {
+            others.forEach(other -> remove(gameObject, other));
+        }
+
+        @Override
+        public void onEnterOthers(List<GameObject> watchers, GameObject gameObject) {
+            watchers.forEach(watcher -> add(watcher, gameObject));
+        }
+
+        @Override
+        public void onLeaveOthers(List<GameObject> watchers, GameObject gameObject) {
+            watchers.forEach(watcher -> remove(watcher, gameObject));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.scene.InterestLevelPolicy;
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.scene.gameobject.GameObjectType;
+import com.wjybxx.fastjgame.scene.gameobject.Npc;
+import com.wjybxx.fastjgame.scene.gameobject.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 主城人多时，降频广播减少的消息数；
+ * 每对观察关系都严格按配置的间隔发送(不漏发、不多发)，且不同观察者的发送帧是分散的。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/28 15:00
+ * @github - https://github.com/hl845740757
+ */
+public class InterestLevelPolicyTest {
+
+    private static final int VIEWABLE_RANGE = 1500;
+    /**
+     * 最大发送间隔的整数倍，保证每对观察关系的发送次数是确定的
+     */
+    private static final int FRAME_NUM = 120;
+    private static final int NPC_FAR_INTERVAL = 8;
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        // npc近处的间隔也大于1，检查的不是"间隔为1时总是发送"这一平凡情况
+        InterestLevelPolicy policy = InterestLevelPolicy.newDefaultPolicy(VIEWABLE_RANGE)
+                .setFrameIntervals(GameObjectType.NPC, 2, 4, NPC_FAR_INTERVAL);
+
+        // 主城：300个玩家和50个npc都在一块视野范围内的区域
+        List<GameObject> gameObjects = new ArrayList<>();
+        for (int index = 0; index < 350; index++){
+            GameObject gameObject = index < 300 ? new Player(index) : new Npc(index);
+            gameObject.getPosition().updateLocation(5000 + random.nextInt(VIEWABLE_RANGE * 2) - VIEWABLE_RANGE,
+                    4000 + random.nextInt(VIEWABLE_RANGE * 2) - VIEWABLE_RANGE);
+            gameObjects.add(gameObject);
+        }
+
+        long fullSendNum = 0;
+        long lodSendNum = 0;
+        // 发送次数或发送帧间距与配置的间隔不符的观察关系数
+        int intervalMismatch = 0;
+        int npcNearPairNum = 0;
+        // npc远处观察者的首次发送帧在[0,NPC_FAR_INTERVAL)上的分布
+        int[] npcFarPhaseCount = new int[NPC_FAR_INTERVAL];
+        // 每帧npc发送给远处观察者的消息数
+        int[] npcFarFrameSendNum = new int[FRAME_NUM];
+        for (GameObject source : gameObjects){
+            for (GameObject watcher : gameObjects){
+                if (source == watcher || watcher.getObjectType() != GameObjectType.PLAYER){
+                    continue;
+                }
+                int frameInterval = policy.frameInterval(source, watcher);
+                InterestLevelPolicy.InterestLevel level = policy.interestLevel(source, watcher);
+                boolean npcFar = source.getObjectType() == GameObjectType.NPC && level == InterestLevelPolicy.InterestLevel.FAR;
+                if (source.getObjectType() == GameObjectType.NPC && level == InterestLevelPolicy.InterestLevel.NEAR){
+                    npcNearPairNum++;
+                }
+
+                int sendNum = 0;
+                long lastSendFrame = -1;
+                boolean gapMismatch = false;
+                for (int frameIndex = 0; frameIndex < FRAME_NUM; frameIndex++){
+                    fullSendNum++;
+                    if (!policy.shouldSend(source, watcher, frameIndex)){
+                        continue;
+                    }
+                    lodSendNum++;
+                    if (lastSendFrame < 0){
+                        if (npcFar){
+                            npcFarPhaseCount[frameIndex]++;
+                        }
+                    } else if (frameIndex - lastSendFrame != frameInterval){
+                        gapMismatch = true;
+                    }
+                    if (npcFar){
+                        npcFarFrameSendNum[frameIndex]++;
+                    }
+                    lastSendFrame = frameIndex;
+                    sendNum++;
+                }
+                if (gapMismatch || sendNum != FRAME_NUM / frameInterval){
+                    intervalMismatch++;
+                }
+            }
+        }
+        System.out.println("full=" + fullSendNum + ", lod=" + lodSendNum
+                + ", ratio=" + String.format("%.2f", lodSendNum * 1.0 / fullSendNum));
+        System.out.println("npcNearPairNum=" + npcNearPairNum + ", intervalMismatch=" + intervalMismatch);
+
+        // 相位分散：每个相位都应该有观察者，且最多的相位不超过平均值的1.5倍
+        int phaseTotal = Arrays.stream(npcFarPhaseCount).sum();
+        int phaseMax = Arrays.stream(npcFarPhaseCount).max().orElse(0);
+        int phaseMin = Arrays.stream(npcFarPhaseCount).min().orElse(0);
+        boolean phaseSpread = phaseMin > 0 && phaseMax * NPC_FAR_INTERVAL <= phaseTotal * 3 / 2;
+        System.out.println("npcFarPhaseCount=" + Arrays.toString(npcFarPhaseCount) + ", spread=" + phaseSpread);
+        int frameMax = Arrays.stream(npcFarFrameSendNum).max().orElse(0);
+        int frameMin = Arrays.stream(npcFarFrameSendNum).min().orElse(0);
+        System.out.println("npcFarFrameSendNum min=" + frameMin + ", max=" + frameMax);
+
+        System.out.println("match=" + (npcNearPairNum > 0 && intervalMismatch == 0 && phaseSpread));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.scene.GridObstacle;
+import com.wjybxx.fastjgame.scene.MapData;
+import com.wjybxx.fastjgame.scene.MapDataFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * 地图文件写入再读取，校验所有格子的遮挡掩码；地图id与文件头不一致时必须读取失败
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/24 11:30
+ * @github - https://github.com/hl845740757
+ */
+public class MapDataFileTest {
+
+    public static void main(String[] args) throws IOException {
+        final int rowCount = 1000;
+        final int colCount = 1000;
+        Random random = new Random();
+        byte[] obstacleMasks = new byte[rowCount * colCount];
+        for (int index = 0; index < obstacleMasks.length; index++){
+            int mask = random.nextInt(4) == 0 ? GridObstacle.OBSTACLE.getMask() : GridObstacle.FREE.getMask();
+            if (random.nextInt(10) == 0){
+                mask |= GridObstacle.SAFE_AREA.getMask();
+            }
+            obstacleMasks[index] = (byte) mask;
+        }
+
+        File file = File.createTempFile("map_", ".bin");
+        file.deleteOnExit();
+        MapDataFile.write(file, 1, rowCount, colCount, obstacleMasks);
+
+        long startTime = System.nanoTime();
+        MapData mapData = MapDataFile.read(file, 1);
+        long costMs = (System.nanoTime() - startTime) / 1000_000;
+
+        int mismatch = 0;
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++){
+            for (int colIndex = 0; colIndex < colCount; colIndex++){
+                if (mapData.getGrid(rowIndex, colIndex).getObstacleMask() != obstacleMasks[rowIndex * colCount + colIndex]){
+                    mismatch++;
+                }
+            }
+        }
+        System.out.println("mapId=" + mapData.getMapId() + ", load cost " + costMs + " ms, mismatch=" + mismatch);
+
+        boolean mapIdRejected = false;
+        try {
+            MapDataFile.read(file, 2);
+        } catch (IOException e){
+            mapIdRejected = true;
+            System.out.println(e.getMessage());
+        }
+        System.out.println("mapIdRejected=" + mapIdRejected);
+    }
+}
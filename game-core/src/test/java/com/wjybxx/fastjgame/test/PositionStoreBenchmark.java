@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.scene.GameObjectPositionStore;
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.scene.gameobject.Npc;
+import com.wjybxx.fastjgame.shape.Point2D;
+import com.wjybxx.fastjgame.shape.shape2d.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 坐标存储(SoA)批量判断与逐个对象判断的对比。
+ * 10000个对象，每种图形分别测试，两种方式的结果必须一致。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/26 14:10
+ * @github - https://github.com/hl845740757
+ */
+public class PositionStoreBenchmark {
+
+    private static final int OBJECT_NUM = 10000;
+    private static final int ROUND = 2000;
+
+    public static void main(String[] args) {
+        Random random = new Random(6666);
+        GameObjectPositionStore positionStore = new GameObjectPositionStore(OBJECT_NUM);
+        List<GameObject> allGameObjects = new ArrayList<>(OBJECT_NUM);
+        for (int index = 0; index < OBJECT_NUM; index++){
+            GameObject gameObject = new Npc(index);
+            gameObject.getPosition().updateLocation(random.nextFloat() * 10000, random.nextFloat() * 8000);
+            allGameObjects.add(gameObject);
+            positionStore.add(gameObject);
+        }
+
+        Point2D center = Point2D.newPoint2D(5000, 4000);
+        Shape2D[] shapes = {
+                new Circle(center, 2000),
+                Sector.newSector(center, 3000, 45, 120),
+                Rectangle.newRectangleByCentralAngle(center, 30, 3000, 5000),
+                new Triangle(Point2D.newPoint2D(1000, 1000), Point2D.newPoint2D(9000, 2000), Point2D.newPoint2D(5000, 7000))
+        };
+
+        List<GameObject> result = new ArrayList<>(OBJECT_NUM);
+        // 两轮，第一轮预热
+        for (int loop = 0; loop < 2; loop++){
+            for (Shape2D shape : shapes){
+                long startTime = System.nanoTime();
+                int eachCount = 0;
+                for (int round = 0; round < ROUND; round++){
+                    result.clear();
+                    for (GameObject gameObject : allGameObjects){
+                        if (shape.hasPoint(gameObject.getPosition())){
+                            result.add(gameObject);
+                        }
+                    }
+                    eachCount = result.size();
+                }
+                long eachCostNs = (System.nanoTime() - startTime) / ROUND;
+
+                startTime = System.nanoTime();
+                int batchCount = 0;
+                for (int round = 0; round < ROUND; round++){
+                    result.clear();
+                    batchCount = positionStore.query(shape, result);
+                }
+                long batchCostNs = (System.nanoTime() - startTime) / ROUND;
+
+                if (loop == 1){
+                    System.out.println(shape.getClass().getSimpleName() + ": hit=" + batchCount
+                            + (eachCount == batchCount ? "" : ", MISMATCH each=" + eachCount)
+                            + ", each=" + eachCostNs / 1000 + "us, batch=" + batchCostNs / 1000 + "us");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.scene.SpatialGridIndex;
+import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.scene.gameobject.GameObjectType;
+import com.wjybxx.fastjgame.scene.gameobject.Npc;
+import com.wjybxx.fastjgame.scene.gameobject.Player;
+import com.wjybxx.fastjgame.shape.Point2D;
+import com.wjybxx.fastjgame.shape.shape2d.*;
+import com.wjybxx.fastjgame.utils.GameConstant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 空间索引测试：随机移动对象和随机图形，查询结果与遍历所有对象的结果对比，并对比耗时。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/25 14:30
+ * @github - https://github.com/hl845740757
+ */
+public class SpatialGridIndexTest {
+
+    private static final int MAP_WIDTH = 10000;
+    private static final int MAP_HEIGHT = 8000;
+    private static final int OBJECT_NUM = 300;
+    private static final int QUERY_NUM = 100000;
+
+    public static void main(String[] args) {
+        Random random = new Random();
+        SpatialGridIndex spatialGridIndex = new SpatialGridIndex(MAP_WIDTH, MAP_HEIGHT, GameConstant.SPATIAL_INDEX_CELL_WIDTH);
+        List<GameObject> allGameObjects = new ArrayList<>(OBJECT_NUM);
+        // boss战，所有对象聚集在一块区域
+        for (int index = 0; index < OBJECT_NUM; index++){
+            GameObject gameObject = index % 3 == 0 ? new Npc(index) : new Player(index);
+            gameObject.getPosition().updateLocation(randomNear(random, 5000, 4000, 1500));
+            spatialGridIndex.add(gameObject);
+            allGameObjects.add(gameObject);
+        }
+
+        List<Shape2D> shapes = new ArrayList<>(QUERY_NUM);
+        for (int index = 0; index < QUERY_NUM; index++){
+            shapes.add(randomShape(random));
+        }
+
+        List<Player> result = new ArrayList<>(OBJECT_NUM);
+        int mismatch = 0;
+        long indexCostNs = 0;
+        long bruteForceCostNs = 0;
+        for (int index = 0; index < QUERY_NUM; index++){
+            // 部分对象移动
+            GameObject moved = allGameObjects.get(random.nextInt(OBJECT_NUM));
+            moved.getPosition().updateLocation(randomNear(random, 5000, 4000, 1500));
+            spatialGridIndex.update(moved);
+
+            Shape2D shape = shapes.get(index);
+            result.clear();
+            long startTime = System.nanoTime();
+            int indexCount = spatialGridIndex.query(shape, GameObjectType.PLAYER, result);
+            indexCostNs += System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            int bruteForceCount = 0;
+            for (GameObject gameObject : allGameObjects){
+                if (gameObject.getObjectType() == GameObjectType.PLAYER && shape.hasPoint(gameObject.getPosition())){
+                    bruteForceCount++;
+                }
+            }
+            bruteForceCostNs += System.nanoTime() - startTime;
+
+            if (indexCount != bruteForceCount || result.size() != indexCount){
+                mismatch++;
+            }
+        }
+        System.out.println("mismatch=" + mismatch + ", index=" + indexCostNs / QUERY_NUM + "ns/query, bruteForce="
+                + bruteForceCostNs / QUERY_NUM + "ns/query");
+    }
+
+    private static Point2D randomNear(Random random, float x, float y, float range){
+        return Point2D.newPoint2D(x + (random.nextFloat() * 2 - 1) * range, y + (random.nextFloat() * 2 - 1) * range);
+    }
+
+    private static Shape2D randomShape(Random random){
+        Point2D center = randomNear(random, 5000, 4000, 1500);
+        float direction = random.nextFloat() * 360;
+        switch (random.nextInt(4)){
+            case 0:
+                return new Circle(center, 100 + random.nextInt(400));
+            case 1:
+                return Sector.newSector(center, 100 + random.nextInt(500), direction, 30 + random.nextInt(150));
+            case 2:
+                return Rectangle.newRectangleByCentralAngle(center, direction, 100 + random.nextInt(300), 200 + random.nextInt(600));
+            default:
+                return new Triangle(center, randomNear(random, center.getX(), center.getY(), 400),
+                        randomNear(random, center.getX(), center.getY(), 400));
+        }
+    }
+}
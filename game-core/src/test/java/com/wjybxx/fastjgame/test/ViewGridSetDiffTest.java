@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.scene.ViewGrid;
+import com.wjybxx.fastjgame.scene.ViewGridSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预先计算的视野差异与逐个比较的结果对比(包括地图边界的格子)
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/26 17:40
+ * @github - https://github.com/hl845740757
+ */
+public class ViewGridSetDiffTest {
+
+    public static void main(String[] args) {
+        ViewGridSet viewGridSet = new ViewGridSet(10000, 8000, 1500);
+        ViewGrid[][] allViewGrids = viewGridSet.getAllViewGrids();
+
+        List<ViewGrid> invisibleGrids = new ArrayList<>();
+        List<ViewGrid> visibleGrids = new ArrayList<>();
+        int checkNum = 0;
+        int mismatch = 0;
+        for (ViewGrid[] rowGrids : allViewGrids){
+            for (ViewGrid from : rowGrids){
+                for (ViewGrid to : from.getViewableGrids()){
+                    if (from == to){
+                        continue;
+                    }
+                    invisibleGrids.clear();
+                    visibleGrids.clear();
+                    viewGridSet.diffViewableGrids(from, to, invisibleGrids, visibleGrids);
+
+                    ViewGrid.MoveDiff moveDiff = from.getMoveDiff(ViewGridSet.moveIndex(from, to));
+                    checkNum++;
+                    if (!invisibleGrids.equals(moveDiff.getInvisibleGrids()) || !visibleGrids.equals(moveDiff.getVisibleGrids())){
+                        mismatch++;
+                    }
+                }
+            }
+        }
+        System.out.println(viewGridSet + ", check=" + checkNum + ", mismatch=" + mismatch);
+    }
+}
@@ -22,6 +22,8 @@ import com.google.inject.Injector;
 import com.wjybxx.fastjgame.misc.AbstractThreadLifeCycleHelper;
 import com.wjybxx.fastjgame.module.NetModule;
 import com.wjybxx.fastjgame.mrg.DisruptorMrg;
+import com.wjybxx.fastjgame.mrg.FrameStatsMrg;
+import com.wjybxx.fastjgame.mrg.NetConfigMrg;
 import com.wjybxx.fastjgame.mrg.WorldInfoMrg;
 import com.wjybxx.fastjgame.net.async.event.NetEventHandlerImp;
 import com.wjybxx.fastjgame.configwrapper.ArrayConfigWrapper;
@@ -92,7 +94,9 @@ public class NetBootstrap<T extends NetBootstrap<T>> extends AbstractThreadLifeC
         this.world=world;
         // 启动
         DisruptorMrg disruptorMrg=injector.getInstance(DisruptorMrg.class);
-        disruptorMrg.start(threadFactory,new NetEventHandlerImp(world, framesPerSecond));
+        NetEventHandlerImp netEventHandler = new NetEventHandlerImp(world, framesPerSecond,
+                injector.getInstance(NetConfigMrg.class), injector.getInstance(FrameStatsMrg.class));
+        disruptorMrg.start(threadFactory,netEventHandler);
         // 没有留启动完成钩子是因为启动完成后设置属性可能存在线程安全问题
     }
 
@@ -37,6 +37,10 @@ public final class NetConstants {
      * 初始请求id
      */
     public static final long INIT_REQUEST_GUID=0;
+    /**
+     * 消息直接序列化到byteBuf时，预分配的消息内容大小，不够时byteBuf会自动扩容
+     */
+    public static final int ESTIMATED_MESSAGE_LENGTH = 128;
 
     private NetConstants() {
 
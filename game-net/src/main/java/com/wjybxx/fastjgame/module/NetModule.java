@@ -62,6 +62,7 @@ public final class NetModule extends AbstractModule {
         bind(SyncRequestDispatcherMrg.class).in(Singleton.class);
         bind(GlobalExecutorMrg.class).in(Singleton.class);
         bind(AcceptorMrg.class).in(Singleton.class);
+        bind(FrameStatsMrg.class).in(Singleton.class);
     }
 
 }
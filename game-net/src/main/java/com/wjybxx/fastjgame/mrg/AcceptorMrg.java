@@ -26,13 +26,16 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 
 /**
  * 建立链接的帮助类。
@@ -67,7 +70,7 @@ public class AcceptorMrg {
         ServerBootstrap serverBootstrap=new ServerBootstrap();
         serverBootstrap.group(nettyThreadMrg.getBossGroup(), nettyThreadMrg.getWorkerGroup());
 
-        serverBootstrap.channel(NioServerSocketChannel.class);
+        serverBootstrap.channel(nettyThreadMrg.serverChannelClass());
         serverBootstrap.childHandler(initializer);
 
         // parentGroup参数
@@ -83,10 +86,23 @@ public class AcceptorMrg {
         serverBootstrap.childOption(ChannelOption.SO_REUSEADDR,true);
 
         String host = outer ? netConfigMrg.outerIp() : netConfigMrg.localIp();
+        if (nettyThreadMrg.isEpoll()){
+            serverBootstrap.childOption(EpollChannelOption.TCP_QUICKACK, netConfigMrg.epollTcpQuickAck());
+            serverBootstrap.childOption(EpollChannelOption.EPOLL_MODE, epollMode());
+            if (nettyThreadMrg.isReusePort()){
+                // SO_REUSEPORT允许同用户的其它进程绑定同一个端口，必须先确认该端口没有被占用，否则连接会被内核分给别的进程
+                if (!isPortFree(host, port)){
+                    throw new BindException("can't bind " + host + ":" + port);
+                }
+                serverBootstrap.option(EpollChannelOption.SO_REUSEPORT,true);
+            }
+        }
+
         ChannelFuture channelFuture = serverBootstrap.bind(host, port);
         try {
             channelFuture.sync();
             logger.info("bind {}:{} success.",host,port);
+            bindReusePort(nettyThreadMrg, serverBootstrap, host, port);
             return outer?new HostAndPort(netConfigMrg.outerIp(),port):new HostAndPort(netConfigMrg.localIp(),port);
         } catch (InterruptedException e) {
             // ignore e
@@ -99,6 +115,41 @@ public class AcceptorMrg {
         throw new BindException("can't bind " + host + ":" + port);
     }
 
+    /**
+     * 开启SO_REUSEPORT时，同一个端口继续绑定，使每个acceptor线程都有一个监听channel。
+     * 第一次绑定已成功，后续绑定失败不影响服务，只是接收线程变少。
+     */
+    private void bindReusePort(NettyThreadMrg nettyThreadMrg, ServerBootstrap serverBootstrap, String host, int port){
+        if (!nettyThreadMrg.isReusePort()){
+            return;
+        }
+        for (int index = 1; index < nettyThreadMrg.acceptorThreadNum(); index++){
+            ChannelFuture channelFuture = serverBootstrap.bind(host, port);
+            channelFuture.awaitUninterruptibly();
+            if (!channelFuture.isSuccess()){
+                logger.warn("reuse port bind {}:{} failed.", host, port, channelFuture.cause());
+                NetUtils.closeQuietly(channelFuture);
+            }
+        }
+    }
+
+    /**
+     * 检查端口是否空闲(未开启SO_REUSEPORT的情况下能否绑定成功)
+     */
+    private static boolean isPortFree(String host, int port){
+        try (ServerSocket serverSocket = new ServerSocket()){
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(host, port));
+            return true;
+        } catch (IOException e){
+            return false;
+        }
+    }
+
+    private EpollMode epollMode(){
+        return netConfigMrg.epollEdgeTriggered() ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED;
+    }
+
     /**
      * 在某个端口范围内选择一个端口监听.
      * @param outer 否外网，若外网不存在，则绑定的是内网
@@ -135,7 +186,7 @@ public class AcceptorMrg {
         Bootstrap bootstrap=new Bootstrap();
         bootstrap.group(nettyThreadMrg.getWorkerGroup());
 
-        bootstrap.channel(NioSocketChannel.class);
+        bootstrap.channel(nettyThreadMrg.socketChannelClass());
         bootstrap.handler(initializer);
 
         bootstrap.option(ChannelOption.SO_KEEPALIVE,false);
@@ -144,6 +195,10 @@ public class AcceptorMrg {
         bootstrap.option(ChannelOption.SO_RCVBUF, netConfigMrg.revBufferAsClient());
         bootstrap.option(ChannelOption.SO_LINGER,0);
         bootstrap.option(ChannelOption.SO_REUSEADDR,true);
+        if (nettyThreadMrg.isEpoll()){
+            bootstrap.option(EpollChannelOption.TCP_QUICKACK, netConfigMrg.epollTcpQuickAck());
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, epollMode());
+        }
         return bootstrap.connect(hostAndPort.getHost(),hostAndPort.getPort());
     }
 
@@ -17,10 +17,7 @@
 package com.wjybxx.fastjgame.mrg;
 
 import com.google.inject.Inject;
-import com.wjybxx.fastjgame.net.common.CodecHelper;
-import com.wjybxx.fastjgame.net.common.MessageMapper;
-import com.wjybxx.fastjgame.net.common.MessageMappingStrategy;
-import com.wjybxx.fastjgame.net.common.MessageSerializer;
+import com.wjybxx.fastjgame.net.common.*;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 
 import javax.annotation.concurrent.NotThreadSafe;
@@ -52,10 +49,23 @@ public final class CodecHelperMrg {
      * @throws Exception mapping error , or init exception
      */
     public void registerCodecHelper(String name, MessageMappingStrategy mappingStrategy, MessageSerializer messageSerializer) throws Exception {
+        registerCodecHelper(name, mappingStrategy, messageSerializer, SumChecksumStrategy.INSTANCE);
+    }
+
+    /**
+     * 通过mappingStrategy、serializer和checksumStrategy注册codec
+     * @param name codec的名字
+     * @param mappingStrategy 消息映射策略
+     * @param messageSerializer 消息序列化方式
+     * @param checksumStrategy 校验和策略，通信双方必须一致
+     * @throws Exception mapping error , or init exception
+     */
+    public void registerCodecHelper(String name, MessageMappingStrategy mappingStrategy, MessageSerializer messageSerializer,
+                                    ChecksumStrategy checksumStrategy) throws Exception {
         Object2IntMap<Class<?>> mapper = mappingStrategy.mapping();
         MessageMapper messageMapper = new MessageMapper(mapper);
         messageSerializer.init(messageMapper);
-        registerCodecHelper(name,new CodecHelper(messageMapper,messageSerializer));
+        registerCodecHelper(name,new CodecHelper(messageMapper,messageSerializer,checksumStrategy));
     }
 
     /**
@@ -18,10 +18,11 @@ package com.wjybxx.fastjgame.mrg;
 
 import com.google.inject.Inject;
 import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import com.wjybxx.fastjgame.misc.AbstractThreadLifeCycleHelper;
-import com.wjybxx.fastjgame.net.async.SleepingWaitExtendStrategy;
+import com.wjybxx.fastjgame.net.async.*;
 import com.wjybxx.fastjgame.net.async.event.*;
 import io.netty.channel.Channel;
 import org.slf4j.Logger;
@@ -30,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * disruptor控制器，它本身不是线程安全的。
@@ -81,7 +83,7 @@ public class DisruptorMrg extends AbstractThreadLifeCycleHelper {
         if (netEventHandler==null || worldThreadFactory==null){
             throw new IllegalStateException("netEventHandler==null || worldThreadFactory==null");
         }
-        SleepingWaitExtendStrategy<NetEvent> sleepingWaitStrategy=new SleepingWaitExtendStrategy<>(netEventHandler);
+        WaitStrategy waitStrategy=newWaitStrategy(netEventHandler);
         // 线程的数量取决于handler数量，而不是Executor
         // Netty线程作为生产者，因此是多线程，而消费者只有游戏世界(逻辑线程)，因此是单线程。
         // 总结：多生产者-单消费者模型
@@ -90,13 +92,36 @@ public class DisruptorMrg extends AbstractThreadLifeCycleHelper {
                 configMrg.ringBufferSize(),
                 worldThreadFactory,
                 ProducerType.MULTI,
-                sleepingWaitStrategy
+                waitStrategy
         );
         this.disruptor.handleEventsWith(netEventHandler);
         this.logicQueue=disruptor.getRingBuffer();
         this.disruptor.start();
     }
 
+    /**
+     * 根据配置创建游戏世界线程的等待策略，所有策略在等待期间都会调用{@link NetEventHandler#onWaitEvent()}。
+     * @see WorldWaitStrategyType
+     */
+    private WaitStrategy newWaitStrategy(NetEventHandler netEventHandler){
+        logger.info("world wait strategy is {}",configMrg.worldWaitStrategy());
+        switch (configMrg.worldWaitStrategy()){
+            case BUSY_SPIN:
+                return new BusySpinWaitExtendStrategy(netEventHandler);
+            case YIELDING:
+                return new YieldingWaitExtendStrategy(netEventHandler, configMrg.worldWaitSpinTries());
+            case PHASED_BACKOFF:
+                return new PhasedBackoffWaitExtendStrategy(netEventHandler, configMrg.worldWaitSpinTries(),
+                        configMrg.worldWaitYieldTries(), configMrg.worldWaitParkNanos());
+            case TIMEOUT_BLOCKING:
+                return new TimeoutBlockingWaitExtendStrategy(netEventHandler, configMrg.worldWaitBlockTimeoutNanos(), TimeUnit.NANOSECONDS);
+            case SLEEPING:
+            default:
+                return new SleepingWaitExtendStrategy<NetEvent>(netEventHandler, configMrg.worldWaitSpinTries(),
+                        configMrg.worldWaitYieldTries(), configMrg.worldWaitParkNanos());
+        }
+    }
+
     /**
      * 关闭游戏世界(关闭disruptor消费者线程)。
      * 它是游戏世界的结束口。
@@ -137,4 +162,55 @@ public class DisruptorMrg extends AbstractThreadLifeCycleHelper {
         }
     }
 
+    /**
+     * 发布消息事件(业务逻辑包或ack心跳包)，字段直接填充到事件对象上，不需要创建事件参数对象。
+     * @param channel 产生事件的channel
+     * @param eventType 事件类型
+     * @param sessionGuid 会话唯一标识
+     * @param ack 捎带确认的ack
+     * @param sequence 包id
+     * @param message 业务逻辑消息，ack心跳包为null
+     */
+    public void publishMessageEvent(Channel channel, NetEventType eventType, long sessionGuid, long ack, long sequence, Object message){
+        long ringBufferSequence=logicQueue.next();
+        try {
+            NetEvent netEvent =logicQueue.get(ringBufferSequence);
+            netEvent.setChannel(channel);
+            netEvent.setEventType(eventType);
+            netEvent.setMessageEvent(sessionGuid, ack, sequence, message);
+        }finally {
+            logicQueue.publish(ringBufferSequence);
+        }
+    }
+
+    /**
+     * 批量发布同一个channel产生的事件，只需要申请一次序号区间。
+     * @param channel 产生事件的channel
+     * @param eventBatch 缓存的事件
+     * @param num 事件数量，不可以超过RingBuffer的大小
+     */
+    public void publishEvents(@Nullable Channel channel, NetEventBatch eventBatch, int num){
+        long hi=logicQueue.next(num);
+        long lo=hi - (num - 1);
+        try {
+            for (int index=0; index<num; index++){
+                NetEvent netEvent =logicQueue.get(lo + index);
+                netEvent.setChannel(channel);
+                eventBatch.translateTo(index, netEvent);
+            }
+        }finally {
+            logicQueue.publish(lo, hi);
+        }
+    }
+
+    /**
+     * 创建一个IO线程使用的事件批量发布器
+     * @return 未开启批量发布时返回null
+     */
+    @Nullable
+    public NetEventBatch newEventBatch(){
+        int batchSize = Math.min(configMrg.netEventBatchSize(), configMrg.ringBufferSize());
+        return batchSize > 1 ? new NetEventBatch(this, batchSize) : null;
+    }
+
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.mrg;
+
+import com.google.inject.Inject;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 游戏世界帧统计信息，由{@link com.wjybxx.fastjgame.net.async.event.NetEventHandlerImp}更新，只允许游戏世界线程访问。
+ * 逻辑层可以定时读取并输出到日志或监控，判断帧率是否稳定、各阶段预算是否合理。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 19:30
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class FrameStatsMrg {
+
+    /**
+     * 执行的帧数
+     */
+    private long frameCount;
+    /**
+     * 帧超时次数：tick的开始时间晚于预定时间一个帧间隔及以上(也就是至少错过了一帧)
+     */
+    private long frameOverrunCount;
+    /**
+     * 最大的tick延迟(毫秒)
+     */
+    private long maxFrameDelay;
+    /**
+     * tick耗时超过预算的次数
+     */
+    private long tickOverrunCount;
+    /**
+     * 最大的tick耗时(毫秒)
+     */
+    private long maxTickCost;
+    /**
+     * 连续处理网络事件超出预算，被强制打断去执行loop的次数
+     */
+    private long netEventOverrunCount;
+    /**
+     * 同步rpc请求超出预算，剩余请求延迟到下次处理的次数
+     */
+    private long syncRpcOverrunCount;
+
+    @Inject
+    public FrameStatsMrg() {
+
+    }
+
+    /**
+     * 开始一帧
+     * @param frameDelay tick开始时间与预定时间的差值(毫秒)
+     * @param frameInterval 帧间隔(毫秒)
+     */
+    public void onFrameStart(long frameDelay, long frameInterval){
+        frameCount++;
+        if (frameDelay >= frameInterval){
+            frameOverrunCount++;
+        }
+        maxFrameDelay = Math.max(maxFrameDelay, frameDelay);
+    }
+
+    /**
+     * 一帧结束
+     * @param tickCost tick耗时(毫秒)
+     * @param tickBudget tick预算(毫秒)
+     */
+    public void onFrameEnd(long tickCost, long tickBudget){
+        if (tickCost > tickBudget){
+            tickOverrunCount++;
+        }
+        maxTickCost = Math.max(maxTickCost, tickCost);
+    }
+
+    public void onNetEventOverrun(){
+        netEventOverrunCount++;
+    }
+
+    public void onSyncRpcOverrun(){
+        syncRpcOverrunCount++;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getFrameOverrunCount() {
+        return frameOverrunCount;
+    }
+
+    public long getMaxFrameDelay() {
+        return maxFrameDelay;
+    }
+
+    public long getTickOverrunCount() {
+        return tickOverrunCount;
+    }
+
+    public long getMaxTickCost() {
+        return maxTickCost;
+    }
+
+    public long getNetEventOverrunCount() {
+        return netEventOverrunCount;
+    }
+
+    public long getSyncRpcOverrunCount() {
+        return syncRpcOverrunCount;
+    }
+
+    /**
+     * 重置统计信息，方便按周期统计
+     */
+    public void reset(){
+        frameCount = 0;
+        frameOverrunCount = 0;
+        maxFrameDelay = 0;
+        tickOverrunCount = 0;
+        maxTickCost = 0;
+        netEventOverrunCount = 0;
+        syncRpcOverrunCount = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameStatsMrg{" +
+                "frameCount=" + frameCount +
+                ", frameOverrunCount=" + frameOverrunCount +
+                ", maxFrameDelay=" + maxFrameDelay +
+                ", tickOverrunCount=" + tickOverrunCount +
+                ", maxTickCost=" + maxTickCost +
+                ", netEventOverrunCount=" + netEventOverrunCount +
+                ", syncRpcOverrunCount=" + syncRpcOverrunCount +
+                '}';
+    }
+}
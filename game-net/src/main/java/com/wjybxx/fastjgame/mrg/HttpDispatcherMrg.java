@@ -17,13 +17,13 @@
 package com.wjybxx.fastjgame.mrg;
 
 import com.google.inject.Inject;
+import com.wjybxx.fastjgame.misc.ExpiryIndex;
 import com.wjybxx.fastjgame.misc.HttpResponseHelper;
 import com.wjybxx.fastjgame.net.async.HttpRequestHandler;
 import com.wjybxx.fastjgame.net.async.HttpSession;
 import com.wjybxx.fastjgame.net.async.transferobject.HttpRequestTO;
 import com.wjybxx.fastjgame.net.async.transferobject.OkHttpResponseTO;
 import com.wjybxx.fastjgame.trigger.Timer;
-import com.wjybxx.fastjgame.utils.CollectionUtils;
 import com.wjybxx.fastjgame.utils.NetUtils;
 import io.netty.channel.Channel;
 import org.slf4j.Logger;
@@ -54,15 +54,21 @@ public class HttpDispatcherMrg {
      */
     private final Map<String, HttpRequestHandler> handlerMap =new HashMap<>();
     /**
-     * channel->session
+     * channel->session过期信息
      */
-    private final Map<Channel,HttpSession> sessionMap=new IdentityHashMap<>();
+    private final Map<Channel,ExpiryIndex.Entry<HttpSession>> sessionMap=new IdentityHashMap<>();
+    /**
+     * session过期索引，检查超时时只处理到期的session
+     */
+    private final ExpiryIndex<HttpSession> sessionExpiryIndex;
 
     @Inject
     public HttpDispatcherMrg(NetConfigMrg netConfigMrg,TimerMrg timerMrg,SystemTimeMrg systemTimeMrg) {
         this.netConfigMrg=netConfigMrg;
         this.systemTimeMrg=systemTimeMrg;
-        Timer timer=new Timer(netConfigMrg.httpSessionTimeout()*1000,Integer.MAX_VALUE,this::checkSessionTimeout);
+        this.sessionExpiryIndex=new ExpiryIndex<>(netConfigMrg.httpSessionTimeout(),systemTimeMrg.getSystemSecTime());
+        // 每秒检查一次，只处理到期的session
+        Timer timer=new Timer(1000,Integer.MAX_VALUE,this::checkSessionTimeout);
         timerMrg.addTimer(timer,systemTimeMrg.getSystemMillTime());
     }
 
@@ -92,8 +98,16 @@ public class HttpDispatcherMrg {
         }
 
         // 保持session
-        HttpSession httpSession= sessionMap.computeIfAbsent(channel,k->new HttpSession(channel));
-        httpSession.setSessionTimeout(netConfigMrg.httpSessionTimeout() + systemTimeMrg.getSystemSecTime());
+        int sessionTimeout = netConfigMrg.httpSessionTimeout() + systemTimeMrg.getSystemSecTime();
+        ExpiryIndex.Entry<HttpSession> expiryEntry = sessionMap.get(channel);
+        if (null == expiryEntry){
+            expiryEntry = sessionExpiryIndex.add(new HttpSession(channel), sessionTimeout);
+            sessionMap.put(channel, expiryEntry);
+        } else {
+            expiryEntry.setExpireSecTime(sessionTimeout);
+        }
+        HttpSession httpSession = expiryEntry.getKey();
+        httpSession.setSessionTimeout(sessionTimeout);
 
         try {
             httpRequestHandler.handle(httpSession, httpRequestTO.getPath(), httpRequestTO.getParams());
@@ -126,8 +140,9 @@ public class HttpDispatcherMrg {
      * @param timer
      */
     private void checkSessionTimeout(Timer timer){
-        CollectionUtils.removeIfAndThen(sessionMap,
-                (channel, httpSession) -> systemTimeMrg.getSystemSecTime() > httpSession.getSessionTimeout(),
-                (channel, httpSession) -> NetUtils.closeQuietly(channel));
+        sessionExpiryIndex.expire(systemTimeMrg.getSystemSecTime(), httpSession -> {
+            sessionMap.remove(httpSession.getChannel());
+            NetUtils.closeQuietly(httpSession.getChannel());
+        });
     }
 }
@@ -18,6 +18,7 @@ package com.wjybxx.fastjgame.mrg;
 
 import com.google.inject.Inject;
 import com.wjybxx.fastjgame.constants.NetConstants;
+import com.wjybxx.fastjgame.net.async.WorldWaitStrategyType;
 import com.wjybxx.fastjgame.utils.ConfigLoader;
 import com.wjybxx.fastjgame.utils.NetUtils;
 import com.wjybxx.fastjgame.configwrapper.ConfigWrapper;
@@ -77,6 +78,37 @@ public class NetConfigMrg {
     private final int syncRpcPingInterval;
     private final int syncRpcSessionTimeout;
 
+    private final boolean s2cWriteCoalescing;
+    private final int s2cFlushThreshold;
+
+    private final boolean useEpoll;
+    private final boolean epollReusePort;
+    private final int epollAcceptorThreadNum;
+    private final boolean epollTcpQuickAck;
+    private final boolean epollEdgeTriggered;
+
+    private final boolean retransmitEncodedMessage;
+
+    private final int netEventBatchSize;
+
+    private final int syncRpcResponseCacheSize;
+
+    private final boolean timerUseTimingWheel;
+    private final int timingWheelTickDuration;
+
+
+    private final WorldWaitStrategyType worldWaitStrategy;
+    private final int worldWaitSpinTries;
+    private final int worldWaitYieldTries;
+    private final long worldWaitParkNanos;
+    private final long worldWaitBlockTimeoutNanos;
+
+
+    private final int netEventClockCheckInterval;
+    private final long netEventBudgetMillis;
+    private final long syncRpcBudgetMillis;
+    private final long tickBudgetMillis;
+
     @Inject
     public NetConfigMrg() throws IOException {
         configWrapper = ConfigLoader.loadConfig(NetConfigMrg.class.getClassLoader(), NetConstants.NET_CONFIG_NAME);
@@ -114,6 +146,37 @@ public class NetConfigMrg {
         syncRpcMaxTryTimes=configWrapper.getAsInt("syncRpcMaxTryTimes");
         syncRpcPingInterval=configWrapper.getAsInt("syncRpcPingInterval");
         syncRpcSessionTimeout=configWrapper.getAsInt("syncRpcSessionTimeout");
+
+        s2cWriteCoalescing=configWrapper.getAsBool("s2cWriteCoalescing",false);
+        s2cFlushThreshold=configWrapper.getAsInt("s2cFlushThreshold",64);
+
+        useEpoll=configWrapper.getAsBool("useEpoll",false);
+        epollReusePort=configWrapper.getAsBool("epollReusePort",false);
+        epollAcceptorThreadNum=configWrapper.getAsInt("epollAcceptorThreadNum",1);
+        epollTcpQuickAck=configWrapper.getAsBool("epollTcpQuickAck",true);
+        epollEdgeTriggered=configWrapper.getAsBool("epollEdgeTriggered",true);
+
+        retransmitEncodedMessage=configWrapper.getAsBool("retransmitEncodedMessage",false);
+
+        netEventBatchSize=configWrapper.getAsInt("netEventBatchSize",32);
+
+        syncRpcResponseCacheSize=configWrapper.getAsInt("syncRpcResponseCacheSize",128);
+
+        timerUseTimingWheel=configWrapper.getAsBool("timerUseTimingWheel",false);
+        timingWheelTickDuration=configWrapper.getAsInt("timingWheelTickDuration",1);
+
+
+        worldWaitStrategy=WorldWaitStrategyType.valueOf(configWrapper.getAsString("worldWaitStrategy","SLEEPING"));
+        worldWaitSpinTries=configWrapper.getAsInt("worldWaitSpinTries",100);
+        worldWaitYieldTries=configWrapper.getAsInt("worldWaitYieldTries",100);
+        worldWaitParkNanos=configWrapper.getAsLong("worldWaitParkNanos",100_000);
+        worldWaitBlockTimeoutNanos=configWrapper.getAsLong("worldWaitBlockTimeoutNanos",1000_000);
+
+
+        netEventClockCheckInterval=Math.max(1,configWrapper.getAsInt("netEventClockCheckInterval",64));
+        netEventBudgetMillis=configWrapper.getAsLong("netEventBudgetMillis",20);
+        syncRpcBudgetMillis=configWrapper.getAsLong("syncRpcBudgetMillis",10);
+        tickBudgetMillis=configWrapper.getAsLong("tickBudgetMillis",0);
     }
 
     /**
@@ -332,4 +395,175 @@ public class NetConfigMrg {
     public int tokenForbiddenTimeout(){
         return tokenForbiddenTimeout;
     }
+
+    /**
+     * 服务器发送消息时是否合并刷新(每帧末尾统一flush)
+     * @return
+     */
+    public boolean s2cWriteCoalescing(){
+        return s2cWriteCoalescing;
+    }
+
+    /**
+     * 合并刷新模式下，单个会话未flush的消息数达到该值时立即flush
+     * @return
+     */
+    public int s2cFlushThreshold(){
+        return s2cFlushThreshold;
+    }
+
+    /**
+     * 是否使用epoll传输(仅linux可用，不可用时退回nio)
+     * @return
+     */
+    public boolean useEpoll(){
+        return useEpoll;
+    }
+
+    /**
+     * epoll模式下是否开启SO_REUSEPORT
+     * @return
+     */
+    public boolean epollReusePort(){
+        return epollReusePort;
+    }
+
+    /**
+     * epoll模式且开启SO_REUSEPORT时，异步服务的接收线程数
+     * @return
+     */
+    public int epollAcceptorThreadNum(){
+        return epollAcceptorThreadNum;
+    }
+
+    /**
+     * epoll模式下是否开启TCP_QUICKACK
+     * @return
+     */
+    public boolean epollTcpQuickAck(){
+        return epollTcpQuickAck;
+    }
+
+    /**
+     * epoll模式下是否使用边缘触发，否则使用水平触发
+     * @return
+     */
+    public boolean epollEdgeTriggered(){
+        return epollEdgeTriggered;
+    }
+
+    /**
+     * 重传缓冲区是否缓存已编码的消息内容
+     * @return
+     */
+    public boolean retransmitEncodedMessage(){
+        return retransmitEncodedMessage;
+    }
+
+    /**
+     * IO线程批量发布网络事件的最大数量
+     * @return
+     */
+    public int netEventBatchSize(){
+        return netEventBatchSize;
+    }
+
+    /**
+     * 同步rpc服务端每个会话缓存的最近请求结果数量
+     * @return
+     */
+    public int syncRpcResponseCacheSize(){
+        return syncRpcResponseCacheSize;
+    }
+
+    /**
+     * 全局定时器是否使用分层时间轮
+     * @return
+     */
+    public boolean timerUseTimingWheel(){
+        return timerUseTimingWheel;
+    }
+
+    /**
+     * 时间轮每个tick的毫秒数
+     * @return
+     */
+    public int timingWheelTickDuration(){
+        return timingWheelTickDuration;
+    }
+
+
+    /**
+     * 游戏世界线程等待网络事件的策略
+     * @return
+     */
+    public WorldWaitStrategyType worldWaitStrategy(){
+        return worldWaitStrategy;
+    }
+
+    /**
+     * 等待策略中的自旋次数
+     * @return
+     */
+    public int worldWaitSpinTries(){
+        return worldWaitSpinTries;
+    }
+
+    /**
+     * 等待策略中的yield次数
+     * @return
+     */
+    public int worldWaitYieldTries(){
+        return worldWaitYieldTries;
+    }
+
+    /**
+     * 等待策略中park的纳秒数(分阶段退避策略中为最大park纳秒数)
+     * @return
+     */
+    public long worldWaitParkNanos(){
+        return worldWaitParkNanos;
+    }
+
+    /**
+     * 阻塞等待策略的超时纳秒数
+     * @return
+     */
+    public long worldWaitBlockTimeoutNanos(){
+        return worldWaitBlockTimeoutNanos;
+    }
+
+
+    /**
+     * 连续处理网络事件时，每处理多少个检查一次时间；
+     * 同步rpc请求不使用该间隔，每处理一个请求都检查时间
+     * @return
+     */
+    public int netEventClockCheckInterval(){
+        return netEventClockCheckInterval;
+    }
+
+    /**
+     * 连续处理网络事件的时间预算(毫秒)，超出后强制执行一次loop
+     * @return
+     */
+    public long netEventBudgetMillis(){
+        return netEventBudgetMillis;
+    }
+
+    /**
+     * 每次loop处理同步rpc请求的时间预算(毫秒)，超出后剩余请求留到下次处理
+     * @return
+     */
+    public long syncRpcBudgetMillis(){
+        return syncRpcBudgetMillis;
+    }
+
+    /**
+     * tick的时间预算(毫秒)，只用于统计超时次数，小于等于0表示使用帧间隔
+     * @return
+     */
+    public long tickBudgetMillis(){
+        return tickBudgetMillis;
+    }
 }
@@ -18,17 +18,21 @@ package com.wjybxx.fastjgame.mrg;
 
 import com.google.inject.Inject;
 import com.wjybxx.fastjgame.misc.AbstractThreadLifeCycleHelper;
-import com.wjybxx.fastjgame.misc.PortRange;
-import com.wjybxx.fastjgame.utils.NetUtils;
-import io.netty.bootstrap.Bootstrap;
-import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.*;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ThreadFactory;
+
 /**
  * 抽象网络服务器控制器
  * @author wjybxx
@@ -38,11 +42,27 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class NettyThreadMrg extends AbstractThreadLifeCycleHelper {
 
+    private static final Logger logger= LoggerFactory.getLogger(NettyThreadMrg.class);
+
     protected final NetConfigMrg netConfigMrg;
+    /**
+     * 是否使用epoll传输。
+     * 配置了epoll但是当前平台不支持时(非linux或缺少native库)，退回nio。
+     */
+    private final boolean epoll;
 
     @Inject
     protected NettyThreadMrg(NetConfigMrg netConfigMrg) {
         this.netConfigMrg = netConfigMrg;
+        this.epoll = netConfigMrg.useEpoll() && isEpollAvailable();
+    }
+
+    private static boolean isEpollAvailable(){
+        if (Epoll.isAvailable()){
+            return true;
+        }
+        logger.warn("epoll is unavailable, fallback to nio.", Epoll.unavailabilityCause());
+        return false;
     }
 
     /**
@@ -54,4 +74,54 @@ public abstract class NettyThreadMrg extends AbstractThreadLifeCycleHelper {
      */
     public abstract EventLoopGroup getWorkerGroup();
 
+    /**
+     * 同一个端口需要绑定的次数(接收线程数)。
+     * 只有开启了SO_REUSEPORT时才可能大于1，每次绑定的channel会注册到不同的acceptor线程。
+     */
+    public int acceptorThreadNum(){
+        return 1;
+    }
+
+    /**
+     * 是否使用的是epoll传输
+     */
+    public boolean isEpoll() {
+        return epoll;
+    }
+
+    /**
+     * 是否开启SO_REUSEPORT，只有epoll支持
+     */
+    public boolean isReusePort(){
+        return epoll && netConfigMrg.epollReusePort();
+    }
+
+    /**
+     * 创建与当前传输方式匹配的线程组
+     * @param nThreads 线程数
+     * @param threadFactory 线程工厂
+     * @return eventLoopGroup
+     */
+    protected EventLoopGroup newEventLoopGroup(int nThreads, ThreadFactory threadFactory){
+        if (epoll){
+            return new EpollEventLoopGroup(nThreads, threadFactory);
+        } else {
+            return new NioEventLoopGroup(nThreads, threadFactory);
+        }
+    }
+
+    /**
+     * 监听使用的channel类型，必须与线程组类型匹配
+     */
+    public Class<? extends ServerSocketChannel> serverChannelClass(){
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    /**
+     * 建立连接使用的channel类型，必须与线程组类型匹配
+     */
+    public Class<? extends SocketChannel> socketChannelClass(){
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
 }
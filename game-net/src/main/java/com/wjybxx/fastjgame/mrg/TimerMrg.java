@@ -17,10 +17,13 @@
 package com.wjybxx.fastjgame.mrg;
 
 import com.google.inject.Inject;
+import com.wjybxx.fastjgame.trigger.PriorityQueueTrigger;
+import com.wjybxx.fastjgame.trigger.TimingWheelTrigger;
 import com.wjybxx.fastjgame.trigger.TriggerSystem;
 
 /**
- * 全局定时器管理器
+ * 全局定时器管理器。
+ * timer的存储方式由配置{@link NetConfigMrg#timerUseTimingWheel()}决定。
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 22:13
@@ -29,6 +32,8 @@ import com.wjybxx.fastjgame.trigger.TriggerSystem;
 public class TimerMrg extends TriggerSystem {
 
     @Inject
-    public TimerMrg() {
+    public TimerMrg(NetConfigMrg netConfigMrg) {
+        super(netConfigMrg.timerUseTimingWheel() ?
+                new TimingWheelTrigger(netConfigMrg.timingWheelTickDuration()) : new PriorityQueueTrigger());
     }
 }
@@ -20,7 +20,6 @@ import com.google.inject.Inject;
 import com.wjybxx.fastjgame.mrg.NetConfigMrg;
 import com.wjybxx.fastjgame.mrg.NettyThreadMrg;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -51,8 +50,16 @@ public class AsyncNettyThreadMrg extends NettyThreadMrg {
      */
     @Override
     protected void startImp() {
-        bossGroup=new NioEventLoopGroup(1,new BossThreadFactory());
-        workerGroup=new NioEventLoopGroup(netConfigMrg.maxIoThreadNum(),new WorkerTheadFactory());
+        bossGroup=newEventLoopGroup(acceptorThreadNum(),new BossThreadFactory());
+        workerGroup=newEventLoopGroup(netConfigMrg.maxIoThreadNum(),new WorkerTheadFactory());
+    }
+
+    /**
+     * 开启SO_REUSEPORT时，同一个端口绑定多次，由内核将新连接分散到多个接收线程。
+     */
+    @Override
+    public int acceptorThreadNum() {
+        return isReusePort() ? Math.max(1, netConfigMrg.epollAcceptorThreadNum()) : 1;
     }
 
     /**
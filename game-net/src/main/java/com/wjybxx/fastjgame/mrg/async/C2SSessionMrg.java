@@ -24,9 +24,9 @@ import com.wjybxx.fastjgame.net.async.*;
 import com.wjybxx.fastjgame.net.async.event.AckPingPongEventParam;
 import com.wjybxx.fastjgame.net.async.event.ConnectResponseEventParam;
 import com.wjybxx.fastjgame.net.async.event.LogicMessageEventParam;
+import com.wjybxx.fastjgame.net.async.event.MessageEventParam;
 import com.wjybxx.fastjgame.net.async.event.NetEventParam;
 import com.wjybxx.fastjgame.net.async.transferobject.ConnectRequestTO;
-import com.wjybxx.fastjgame.net.async.transferobject.MessageTO;
 import com.wjybxx.fastjgame.net.common.RoleType;
 import com.wjybxx.fastjgame.net.common.SessionLifecycleAware;
 import com.wjybxx.fastjgame.utils.NetUtils;
@@ -41,7 +41,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -154,7 +153,8 @@ public class C2SSessionMrg {
             removeSession(serverGuid,"cacheMessageNum is too much!");
         }else {
             // 添加到待发送队列
-            LogicMessage logicMessage=new LogicMessage(messageQueue.nextSequence(),message);
+            LogicMessage logicMessage=new LogicMessage(messageQueue.nextSequence(),message,
+                    netConfigMrg.retransmitEncodedMessage());
             messageQueue.getNeedSendQueue().addLast(logicMessage);
         }
     }
@@ -182,6 +182,8 @@ public class C2SSessionMrg {
                 sessionWrapper.getState().closeChannel();
                 sessionWrapper.setState(null);
             }
+            // 释放未确认的消息
+            sessionWrapper.getMessageQueue().releaseAll();
         }
         logger.info("remove session by reason of {}, session info={}.",reason,session);
         return session;
@@ -189,20 +191,25 @@ public class C2SSessionMrg {
 
     // region 事件处理
 
-    private <T extends NetEventParam> void ifEventChannelOK(Channel eventChannel, T eventParam, Consumer<C2SSessionState> then){
+    /**
+     * 获取事件对应的会话状态，并校验事件channel是否合法
+     * (不使用lambda回调，避免每个消息包都创建一个捕获对象)
+     * @return channel不合法时返回null
+     */
+    private C2SSessionState getStateIfEventChannelOK(Channel eventChannel, NetEventParam eventParam){
         SessionWrapper sessionWrapper = sessionWrapperMap.get(eventParam.sessionGuid());
         // 非法的channel
         if (sessionWrapper==null){
             NetUtils.closeQuietly(eventChannel);
-            return;
+            return null;
         }
         // 校验收到消息的channel是否合法
         C2SSessionState sessionState = sessionWrapper.getState();
         if (!sessionState.isEventChannelOK(eventChannel)){
             NetUtils.closeQuietly(eventChannel);
-            return;
+            return null;
         }
-        then.accept(sessionState);
+        return sessionState;
     }
 
     /**
@@ -211,16 +218,18 @@ public class C2SSessionMrg {
      * @param responseParam 连接响应结果
      */
     public void onRcvConnectResponse(Channel eventChannel, ConnectResponseEventParam responseParam){
-        ifEventChannelOK(eventChannel,responseParam, sessionState -> {
-            // 无论什么状态，只要当前channel收到token验证失败，都关闭session(移除会话)，它意味着服务器通知关闭。
-            if (!responseParam.isSuccess()){
-                NetUtils.closeQuietly(eventChannel);
-                removeSession(responseParam.getServerGuid(),"token check failed.");
-                return;
-            }
-            // token验证成功
-            sessionState.onTokenCheckSuccess(eventChannel, responseParam);
-        });
+        C2SSessionState sessionState = getStateIfEventChannelOK(eventChannel, responseParam);
+        if (null == sessionState){
+            return;
+        }
+        // 无论什么状态，只要当前channel收到token验证失败，都关闭session(移除会话)，它意味着服务器通知关闭。
+        if (!responseParam.isSuccess()){
+            NetUtils.closeQuietly(eventChannel);
+            removeSession(responseParam.getServerGuid(),"token check failed.");
+            return;
+        }
+        // token验证成功
+        sessionState.onTokenCheckSuccess(eventChannel, responseParam);
     }
 
     /**
@@ -229,9 +238,10 @@ public class C2SSessionMrg {
      * @param ackPongParam 服务器返回的pong包
      */
     public void onRevServerAckPong(Channel eventChannel, AckPingPongEventParam ackPongParam){
-        ifEventChannelOK(eventChannel,ackPongParam, sessionState -> {
+        C2SSessionState sessionState = getStateIfEventChannelOK(eventChannel, ackPongParam);
+        if (null != sessionState){
             sessionState.onRcvServerAckPong(eventChannel, ackPongParam);
-        });
+        }
     }
 
     /**
@@ -240,9 +250,10 @@ public class C2SSessionMrg {
      * @param logicMessageParam 服务器发来的业务逻辑包
      */
     public void onRevServerLogicMsg(Channel eventChannel, LogicMessageEventParam logicMessageParam){
-        ifEventChannelOK(eventChannel,logicMessageParam, sessionState -> {
+        C2SSessionState sessionState = getStateIfEventChannelOK(eventChannel, logicMessageParam);
+        if (null != sessionState){
             sessionState.onRcvServerMessage(eventChannel, logicMessageParam);
-        });
+        }
     }
 
     // endregion
@@ -562,8 +573,9 @@ public class C2SSessionMrg {
                 // 重发未确认接受到的消息
                 MessageQueue messageQueue= getMessageQueue();
                 if (messageQueue.getSentQueue().size()>0){
-                    for (Message message:messageQueue.getSentQueue()){
-                        channel.write(message.build(messageQueue.getAck()));
+                    MessageRingBuffer sentQueue = messageQueue.getSentQueue();
+                    for (int index=0,size=sentQueue.size(); index<size; index++){
+                        channel.write(sentQueue.get(index).build(messageQueue.getAck()));
                     }
                     channel.flush();
                 }
@@ -586,7 +598,7 @@ public class C2SSessionMrg {
             // 是否需要发送ack-ping包，ping包服务器收到一定是会返回的，而普通消息则不一定。
             if (isNeedSendAckPing()){
                 AckPingPongMessage ackPingMessage=new AckPingPongMessage(messageQueue.nextSequence());
-                messageQueue.getNeedSendQueue().add(ackPingMessage);
+                messageQueue.getNeedSendQueue().addLast(ackPingMessage);
                 hasPingMessage=true;
             }
 
@@ -642,14 +654,14 @@ public class C2SSessionMrg {
         @Override
         protected void onRcvServerAckPong(Channel eventChannel, AckPingPongEventParam ackPongParam) {
             hasPingMessage=false;
-            tryUpdateMessageQueue(ackPongParam.getAckPingPongMessage());
+            tryUpdateMessageQueue(ackPongParam);
         }
 
         @Override
         protected void onRcvServerMessage(Channel eventChannel, LogicMessageEventParam messageParam) {
-            boolean success = tryUpdateMessageQueue(messageParam.messageTO());
+            boolean success = tryUpdateMessageQueue(messageParam);
             if (success){
-                dispatcherMrg.handleResponseMessage(session,messageParam.messageTO().getMessage());
+                dispatcherMrg.handleResponseMessage(session,messageParam.message());
             }
         }
 
@@ -658,20 +670,20 @@ public class C2SSessionMrg {
          * @param message 服务器发来的消息(pong包或业务逻辑包)
          * @return 当服务器发来的消息是期望的下一个消息，且ack正确时返回true
          */
-        final boolean tryUpdateMessageQueue(MessageTO message){
+        final boolean tryUpdateMessageQueue(MessageEventParam message){
             MessageQueue messageQueue = getMessageQueue();
             // 不是期望的下一个消息,请求重传
-            if (message.getSequence() != messageQueue.getAck()+1){
-                reconnect("serverSequence != ack()+1, serverSequence=" + message.getSequence() + ", ack="+messageQueue.getAck());
+            if (message.sequence() != messageQueue.getAck()+1){
+                reconnect("serverSequence != ack()+1, serverSequence=" + message.sequence() + ", ack="+messageQueue.getAck());
                 return false;
             }
             // 服务器ack不对，尝试矫正
-            if (!messageQueue.isAckOK(message.getAck())){
-                reconnect("server ack error,ackInfo="+messageQueue.generateAckErrorInfo(message.getAck()));
+            if (!messageQueue.isAckOK(message.ack())){
+                reconnect("server ack error,ackInfo="+messageQueue.generateAckErrorInfo(message.ack()));
                 return false;
             }
-            messageQueue.setAck(message.getSequence());
-            messageQueue.updateSentQueue(message.getAck());
+            messageQueue.setAck(message.sequence());
+            messageQueue.updateSentQueue(message.ack());
             return true;
         }
     }
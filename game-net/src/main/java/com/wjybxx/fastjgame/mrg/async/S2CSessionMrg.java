@@ -17,6 +17,7 @@
 package com.wjybxx.fastjgame.mrg.async;
 
 import com.google.inject.Inject;
+import com.wjybxx.fastjgame.misc.ExpiryIndex;
 import com.wjybxx.fastjgame.misc.HostAndPort;
 import com.wjybxx.fastjgame.misc.PortRange;
 import com.wjybxx.fastjgame.mrg.*;
@@ -26,10 +27,8 @@ import com.wjybxx.fastjgame.net.async.event.LogicMessageEventParam;
 import com.wjybxx.fastjgame.net.async.event.MessageEventParam;
 import com.wjybxx.fastjgame.net.async.transferobject.ConnectRequestTO;
 import com.wjybxx.fastjgame.net.async.transferobject.ConnectResponseTO;
-import com.wjybxx.fastjgame.net.async.transferobject.MessageTO;
 import com.wjybxx.fastjgame.net.common.*;
 import com.wjybxx.fastjgame.trigger.Timer;
-import com.wjybxx.fastjgame.utils.FastCollectionsUtils;
 import com.wjybxx.fastjgame.utils.NetUtils;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
@@ -44,8 +43,9 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.BindException;
+import java.util.ArrayList;
 import java.util.EnumMap;
-import java.util.function.Consumer;
+import java.util.List;
 
 /**
  * 服务器到客户端会话管理器。
@@ -91,11 +91,27 @@ public class S2CSessionMrg {
      * 客户端guid到会话的映射
      */
     private final Long2ObjectMap<SessionWrapper> sessionWrapperMap =new Long2ObjectOpenHashMap<>();
+    /**
+     * 会话过期索引，检查超时时只处理到期的会话，而不遍历所有会话
+     */
+    private final ExpiryIndex<SessionWrapper> sessionExpiryIndex;
     /**
      * 会话生命周期handler。
      * 这样设计是因为角色类型很多，而真正与你建立会话的角色类型很少。
      */
     private final EnumMap<RoleType,SessionLifecycleAware<S2CSession>> lifecycleAwareMap=new EnumMap<>(RoleType.class);
+    /**
+     * 合并刷新模式下，本帧有未flush消息的会话，每帧末尾统一flush。
+     */
+    private final List<SessionWrapper> waitFlushSessions = new ArrayList<>();
+    /**
+     * 写入channel的消息数(统计用)
+     */
+    private long writeCount = 0;
+    /**
+     * 真正执行flush的次数(统计用)，与{@link #writeCount}比较可得到合并效果
+     */
+    private long flushCount = 0;
 
     @Inject
     public S2CSessionMrg(SystemTimeMrg systemTimeMrg, NetConfigMrg netConfigMrg, TimerMrg timerMrg, WorldInfoMrg worldInfoMrg,
@@ -110,8 +126,10 @@ public class S2CSessionMrg {
         this.dispatcherMrg = dispatcherMrg;
         this.forbiddenTokenHelper=new ForbiddenTokenHelper(systemTimeMrg,timerMrg,netConfigMrg.tokenForbiddenTimeout());
 
-        // 定时检查会话超时的timer(1/3个周期检测一次)
-        Timer checkTimeOutTimer = Timer.newInfiniteTimer(netConfigMrg.sessionTimeout()/3 * 1000,this::checkSessionTimeout);
+        this.sessionExpiryIndex=new ExpiryIndex<>(netConfigMrg.sessionTimeout(),systemTimeMrg.getSystemSecTime());
+
+        // 定时检查会话超时的timer(每秒检测一次，只处理到期的会话)
+        Timer checkTimeOutTimer = Timer.newInfiniteTimer(1000,this::checkSessionTimeout);
         timerMrg.addTimer(checkTimeOutTimer,systemTimeMrg.getSystemMillTime());
     }
 
@@ -126,9 +144,10 @@ public class S2CSessionMrg {
      * 定时检查会话超时时间
      */
     private void checkSessionTimeout(Timer timer){
-        FastCollectionsUtils.removeIfAndThen(sessionWrapperMap,
-                (k, sessionWrapper) -> systemTimeMrg.getSystemSecTime() > sessionWrapper.getSessionTimeout(),
-                (k, sessionWrapper) -> afterRemoved(sessionWrapper,"session time out!"));
+        sessionExpiryIndex.expire(systemTimeMrg.getSystemSecTime(), sessionWrapper -> {
+            sessionWrapperMap.remove(sessionWrapper.getSession().getClientGuid());
+            afterRemoved(sessionWrapper,"session time out!");
+        });
     }
 
     /**
@@ -160,11 +179,69 @@ public class S2CSessionMrg {
         if (sessionWrapper.getCacheMessageNum() >= netConfigMrg.serverMaxCacheNum()){
             removeSession(clientGuid,"cacheMessageNum is too much! cacheMessageNum="+sessionWrapper.getCacheMessageNum());
         }else {
-            LogicMessage logicMessage=new LogicMessage(sessionWrapper.getMessageQueue().nextSequence(),message);
-            sessionWrapper.writeAndFlush(logicMessage);
+            LogicMessage logicMessage=new LogicMessage(sessionWrapper.getMessageQueue().nextSequence(),message,
+                    netConfigMrg.retransmitEncodedMessage());
+            write(sessionWrapper,logicMessage);
+        }
+    }
+
+    /**
+     * 发送一个消息。
+     * 如果未开启合并刷新，则立即flush；
+     * 否则只写入channel，在帧末尾{@link #flushAll()}或未flush的消息数达到阈值时才flush。
+     * (与{@link C2SSessionMrg}在tick中批量发送的方式一致，减少系统调用和唤醒IO线程的次数)
+     */
+    private void write(SessionWrapper sessionWrapper, Message message){
+        sessionWrapper.write(message);
+        writeCount++;
+        if (!netConfigMrg.s2cWriteCoalescing()
+                || sessionWrapper.getUnflushedNum() >= netConfigMrg.s2cFlushThreshold()){
+            flush(sessionWrapper);
+            return;
+        }
+        if (!sessionWrapper.isWaitFlush()){
+            sessionWrapper.setWaitFlush(true);
+            waitFlushSessions.add(sessionWrapper);
+        }
+    }
+
+    private void flush(SessionWrapper sessionWrapper){
+        if (sessionWrapper.flush()){
+            flushCount++;
         }
     }
 
+    /**
+     * 刷新所有会话中合并的消息，由{@link com.wjybxx.fastjgame.world.World#tick(long)}在每帧末尾调用。
+     * 未开启合并刷新时，这里不会有任何会话。
+     */
+    public void flushAll(){
+        if (waitFlushSessions.size() == 0){
+            return;
+        }
+        for (SessionWrapper sessionWrapper:waitFlushSessions){
+            sessionWrapper.setWaitFlush(false);
+            flush(sessionWrapper);
+        }
+        waitFlushSessions.clear();
+    }
+
+    /**
+     * 写入channel的消息数
+     * @return
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * 真正执行flush的次数
+     * @return
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
     /**
      * 请求移除一个会话
      * @param clientGuid sessionId
@@ -183,11 +260,14 @@ public class S2CSessionMrg {
      * 会话删除之后
      */
     private void afterRemoved(SessionWrapper sessionWrapper, String reason) {
+        sessionWrapper.getExpiryEntry().remove();
         // 禁用该token及之前的token
         forbiddenTokenHelper.forbiddenCurToken(sessionWrapper.getToken());
 
         S2CSession session=sessionWrapper.getSession();
         notifyClientExit(sessionWrapper.getChannel(),sessionWrapper);
+        // 释放未确认的消息
+        sessionWrapper.getMessageQueue().releaseAll();
         logger.info("remove session by reason of {}, session info={}.",reason, session);
 
         SessionLifecycleAware<S2CSession> lifecycleAware = lifecycleAwareMap.get(session.getRoleType());
@@ -333,6 +413,7 @@ public class S2CSessionMrg {
         // 登录成功
         S2CSession session=new S2CSession(requestParam.getClientGuid(), clientToken.getClientRoleType());
         SessionWrapper sessionWrapper=new SessionWrapper(session);
+        sessionWrapper.setExpiryEntry(sessionExpiryIndex.add(sessionWrapper, nextSessionTimeout()));
         sessionWrapperMap.put(requestParam.getClientGuid(),sessionWrapper);
 
         // 分配新的token并进入等待状态
@@ -398,8 +479,9 @@ public class S2CSessionMrg {
 
         // 重发已发送未确认的消息
         if (messageQueue.getSentQueue().size()>0){
-            for (Message message:messageQueue.getSentQueue()){
-                sessionWrapper.getChannel().write(message.build(messageQueue.getAck()));
+            MessageRingBuffer sentQueue = messageQueue.getSentQueue();
+            for (int index=0,size=sentQueue.size(); index<size; index++){
+                sessionWrapper.getChannel().write(sentQueue.get(index).build(messageQueue.getAck()));
             }
             sessionWrapper.getChannel().flush();
         }
@@ -463,28 +545,29 @@ public class S2CSessionMrg {
      * @param ackPingParam 心跳包参数
      */
     public void onRcvClientAckPing(Channel eventChannel, AckPingPongEventParam ackPingParam){
-        tryUpdateMessageQueue(eventChannel,ackPingParam,sessionWrapper -> {
+        SessionWrapper sessionWrapper = tryUpdateMessageQueue(eventChannel, ackPingParam);
+        if (null != sessionWrapper){
             MessageQueue messageQueue = sessionWrapper.getMessageQueue();
-            sessionWrapper.writeAndFlush(new AckPingPongMessage(messageQueue.nextSequence()));
-        });
+            write(sessionWrapper,new AckPingPongMessage(messageQueue.nextSequence()));
+        }
     }
 
     /**
      * 尝试用message更新消息队列
      * @param eventChannel 产生事件的channel
      * @param eventParam 消息参数
-     * @param then 当且仅当message是当前channel上期望的下一个消息，且ack合法时执行。
+     * @return 当且仅当message是当前channel上期望的下一个消息，且ack合法时返回对应的会话，否则返回null
      */
-    private <T extends MessageEventParam> void tryUpdateMessageQueue(Channel eventChannel, T eventParam, Consumer<SessionWrapper> then){
+    private SessionWrapper tryUpdateMessageQueue(Channel eventChannel, MessageEventParam eventParam){
         SessionWrapper sessionWrapper = sessionWrapperMap.get(eventParam.sessionGuid());
         if (null==sessionWrapper){
             NetUtils.closeQuietly(eventChannel);
-            return;
+            return null;
         }
         // 必须是相同的channel (isEventChannelOk)
         if (eventChannel!=sessionWrapper.getChannel()){
             NetUtils.closeQuietly(eventChannel);
-            return;
+            return null;
         }
         // 在新channel收到客户端的消息时 => 客户端一定收到了token验证结果
         // 确定客户端已收到了新的token,更新channel为已激活状态，并添加禁用的token
@@ -495,31 +578,29 @@ public class S2CSessionMrg {
         // 更新session超时时间
         sessionWrapper.setSessionTimeout(nextSessionTimeout());
 
-        MessageTO message=eventParam.messageTO();
         MessageQueue messageQueue=sessionWrapper.getMessageQueue();
         // 不是期望的下一个消息
-        if (message.getSequence()!=messageQueue.getAck()+1){
-            return;
+        if (eventParam.sequence()!=messageQueue.getAck()+1){
+            return null;
         }
         // 客户端发来的ack错误
-        if (!messageQueue.isAckOK(message.getAck())){
-            return;
+        if (!messageQueue.isAckOK(eventParam.ack())){
+            return null;
         }
         // 更新消息队列
-        messageQueue.setAck(message.getSequence());
-        messageQueue.updateSentQueue(message.getAck());
-
-        // 然后执行自己的逻辑
-        then.accept(sessionWrapper);
+        messageQueue.setAck(eventParam.sequence());
+        messageQueue.updateSentQueue(eventParam.ack());
+        return sessionWrapper;
     }
 
     /**
      * 当接收到客户端发送的消息时
      */
     public void onRcvClientLogicMsg(Channel eventChannel, LogicMessageEventParam logicMessageParam){
-        tryUpdateMessageQueue(eventChannel,logicMessageParam,sessionWrapper -> {
-            dispatcherMrg.handleRequestMessage(sessionWrapper.getSession(),logicMessageParam.messageTO().getMessage());
-        });
+        SessionWrapper sessionWrapper = tryUpdateMessageQueue(eventChannel, logicMessageParam);
+        if (null != sessionWrapper){
+            dispatcherMrg.handleRequestMessage(sessionWrapper.getSession(),logicMessageParam.message());
+        }
     }
 
     /**
@@ -544,9 +625,9 @@ public class S2CSessionMrg {
          */
         private Token token;
         /**
-         * 会话过期时间(秒)(时间到则需要移除)
+         * 会话过期信息，保存了会话过期时间(秒)(时间到则需要移除)
          */
-        private int sessionTimeout;
+        private ExpiryIndex.Entry<SessionWrapper> expiryEntry;
         /**
          * 这是客户端第几次发送token验证
          */
@@ -555,6 +636,14 @@ public class S2CSessionMrg {
          * 在确认客户端收到新的token之前会保留
          */
         private Token preToken=null;
+        /**
+         * 已写入channel但还未flush的消息数
+         */
+        private int unflushedNum=0;
+        /**
+         * 是否已在待flush列表中
+         */
+        private boolean waitFlush=false;
 
         public SessionWrapper(S2CSession session) {
             this.session = session;
@@ -573,7 +662,15 @@ public class S2CSessionMrg {
         }
 
         public int getSessionTimeout() {
-            return sessionTimeout;
+            return expiryEntry.getExpireSecTime();
+        }
+
+        public ExpiryIndex.Entry<SessionWrapper> getExpiryEntry() {
+            return expiryEntry;
+        }
+
+        public void setExpiryEntry(ExpiryIndex.Entry<SessionWrapper> expiryEntry) {
+            this.expiryEntry = expiryEntry;
         }
 
         public int getSndTokenTimes() {
@@ -600,9 +697,11 @@ public class S2CSessionMrg {
         public void changeToWaitState(Channel channel, int sndTokenTimes, Token preToken, Token nextToken, int sessionTimeout){
             this.channel=channel;
             this.token=nextToken;
-            this.sessionTimeout =sessionTimeout;
+            this.expiryEntry.setExpireSecTime(sessionTimeout);
             this.preToken=preToken;
             this.sndTokenTimes=sndTokenTimes;
+            // 旧channel上未flush的消息都在sentQueue中，会在新channel上重发
+            this.unflushedNum=0;
         }
 
         /**
@@ -614,18 +713,44 @@ public class S2CSessionMrg {
         }
 
         public void setSessionTimeout(int sessionTimeout) {
-            this.sessionTimeout = sessionTimeout;
+            this.expiryEntry.setExpireSecTime(sessionTimeout);
         }
 
         /**
-         * 立即发送一个消息
+         * 写入一个消息，但不flush
          * @param message
          */
-        public void writeAndFlush(Message message){
+        public void write(Message message){
             // 服务器不需要设置它的超时时间，只需要设置捎带确认的ack
             messageQueue.getSentQueue().addLast(message);
             // 发送
-            channel.writeAndFlush(message.build(messageQueue.getAck()));
+            channel.write(message.build(messageQueue.getAck()));
+            unflushedNum++;
+        }
+
+        /**
+         * 刷新已写入的消息
+         * @return 有消息需要刷新时返回true
+         */
+        public boolean flush(){
+            if (unflushedNum == 0){
+                return false;
+            }
+            unflushedNum = 0;
+            channel.flush();
+            return true;
+        }
+
+        public int getUnflushedNum() {
+            return unflushedNum;
+        }
+
+        public boolean isWaitFlush() {
+            return waitFlush;
+        }
+
+        public void setWaitFlush(boolean waitFlush) {
+            this.waitFlush = waitFlush;
         }
 
         /**
@@ -21,13 +21,13 @@ import com.wjybxx.fastjgame.constants.NetConstants;
 import com.wjybxx.fastjgame.misc.HostAndPort;
 import com.wjybxx.fastjgame.misc.IntSequencer;
 import com.wjybxx.fastjgame.misc.LongSequencer;
-import com.wjybxx.fastjgame.mrg.AcceptorMrg;
-import com.wjybxx.fastjgame.mrg.NetConfigMrg;
-import com.wjybxx.fastjgame.mrg.TokenMrg;
-import com.wjybxx.fastjgame.mrg.WorldInfoMrg;
+import com.wjybxx.fastjgame.mrg.*;
+import com.wjybxx.fastjgame.net.async.event.NetEventType;
 import com.wjybxx.fastjgame.net.common.RoleType;
 import com.wjybxx.fastjgame.net.common.SessionLifecycleAware;
 import com.wjybxx.fastjgame.net.common.Token;
+import com.wjybxx.fastjgame.net.sync.RpcFuture;
+import com.wjybxx.fastjgame.net.sync.RpcResultCode;
 import com.wjybxx.fastjgame.net.sync.SyncC2SSession;
 import com.wjybxx.fastjgame.net.sync.event.SyncConnectResponseEvent;
 import com.wjybxx.fastjgame.net.sync.event.SyncLogicResponseEvent;
@@ -35,11 +35,15 @@ import com.wjybxx.fastjgame.net.sync.transferobject.SyncConnectRequestTO;
 import com.wjybxx.fastjgame.net.sync.transferobject.SyncConnectResponseTO;
 import com.wjybxx.fastjgame.net.sync.transferobject.SyncLogicRequestTO;
 import com.wjybxx.fastjgame.net.sync.transferobject.SyncLogicResponseTO;
+import com.wjybxx.fastjgame.trigger.Timer;
 import com.wjybxx.fastjgame.utils.CollectionUtils;
 import com.wjybxx.fastjgame.utils.NetUtils;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.slf4j.Logger;
@@ -47,14 +51,24 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * 同步RPC调用客户端到服务器的会话管理器。
- * 主要用于发起同步RPC调用。
+ * 支持两种调用方式：
+ * 1.阻塞调用{@link #request(long, Object, Class)}，在当前线程等待结果(可能阻塞world线程，慎用)，
+ * 响应由IO线程通过等待表直接完成，多个请求可以通过{@link #requestAll(long, List, Class)}流水线发送。
+ * 2.异步调用{@link #requestAsync(long, Object, Class)}，立即返回{@link RpcFuture}，
+ * 响应由IO线程发布到disruptor，在world线程完成，超时和重试由{@link TimerMrg}驱动，同一个会话上可以同时存在多个未完成的请求。
  *
  * 什么时候与远程进行连接？
  * 1.第一次注册的时候
@@ -74,27 +88,45 @@ public class SyncC2SSessionMrg {
     private final SyncNettyThreadMrg syncNettyThreadMrg;
     private final NetConfigMrg netConfigMrg;
     private final TokenMrg tokenMrg;
+    private final DisruptorMrg disruptorMrg;
+    private final TimerMrg timerMrg;
+    private final SystemTimeMrg systemTimeMrg;
     /**
      * 所有的服务器信息
      */
     private final Long2ObjectMap<SessionWrapper> sessionMap =new Long2ObjectOpenHashMap<>();
     /**
-     * 建立链接的响应队列
+     * 请求id序号生成器。
+     * 所有会话共用，保证请求id在进程内唯一，因此(serverGuid,requestGuid)可以直接以requestGuid索引。
+     */
+    private final LongSequencer requestGuidSequencer = new LongSequencer(NetConstants.INIT_REQUEST_GUID);
+    /**
+     * 建立链接的响应队列(阻塞连接使用)
      */
     private final LinkedBlockingQueue<SyncConnectResponseEvent> connectResponseQueue =new LinkedBlockingQueue<>();
     /**
-     * 逻辑消息的响应队列
+     * 阻塞调用的等待表，requestGuid -> 等待中的请求。
+     * 由world线程放入和删除，由IO线程({@link com.wjybxx.fastjgame.net.sync.codec.ClientSyncRpcCodec})直接完成，
+     * 因此同一个会话上可以同时有多个阻塞请求在途(流水线)，迟到的响应也不会被丢弃。
+     */
+    private final ConcurrentHashMap<Long, BlockingRequest> blockingRequestMap =new ConcurrentHashMap<>();
+    /**
+     * 正在阻塞等待连接响应的channel，其它channel上的连接响应发布到disruptor
      */
-    private final LinkedBlockingQueue<SyncLogicResponseEvent> logicResponseQueue =new LinkedBlockingQueue<>();
+    private volatile Channel blockingConnectChannel;
 
     @Inject
     public SyncC2SSessionMrg(WorldInfoMrg worldInfoMrg, AcceptorMrg acceptorMrg, SyncNettyThreadMrg syncNettyThreadMrg,
-                             NetConfigMrg netConfigMrg, TokenMrg tokenMrg) {
+                             NetConfigMrg netConfigMrg, TokenMrg tokenMrg, DisruptorMrg disruptorMrg,
+                             TimerMrg timerMrg, SystemTimeMrg systemTimeMrg) {
         this.worldInfoMrg = worldInfoMrg;
         this.acceptorMrg = acceptorMrg;
         this.syncNettyThreadMrg = syncNettyThreadMrg;
         this.netConfigMrg = netConfigMrg;
         this.tokenMrg = tokenMrg;
+        this.disruptorMrg = disruptorMrg;
+        this.timerMrg = timerMrg;
+        this.systemTimeMrg = systemTimeMrg;
     }
 
     /**
@@ -121,6 +153,36 @@ public class SyncC2SSessionMrg {
     public SyncC2SSession registerServer(final long serverGuid, RoleType roleType, HostAndPort hostAndPort,
                                Supplier<ChannelInitializer<SocketChannel>> initializerSupplier,
                                SessionLifecycleAware<SyncC2SSession> lifeCycleAware) {
+        SessionWrapper sessionWrapper=newSessionWrapper(serverGuid, roleType, hostAndPort, initializerSupplier, lifeCycleAware);
+        // 执行连接请求
+        connect(sessionWrapper);
+        return sessionWrapper.getSession();
+    }
+
+    /**
+     * 注册一个rpc同步调用服务器，与{@link #registerServer(long, RoleType, HostAndPort, Supplier, SessionLifecycleAware)}不同的是，
+     * 该方法不会阻塞，连接结果在world线程中通知(lifeCycleAware)。
+     * 注册之后立即可以发起异步请求，请求会在连接成功之后发送。
+     * @param serverGuid 服务器标识
+     * @param roleType 服务器角色类型(用于验证)
+     * @param hostAndPort 服务器地址
+     * @param initializerSupplier initializer提供器，如果线程安全，可以总是返回同一个initializer。
+     * @return 由注册信息创建的session
+     */
+    public SyncC2SSession registerServerAsync(final long serverGuid, RoleType roleType, HostAndPort hostAndPort,
+                                              Supplier<ChannelInitializer<SocketChannel>> initializerSupplier,
+                                              SessionLifecycleAware<SyncC2SSession> lifeCycleAware) {
+        SessionWrapper sessionWrapper=newSessionWrapper(serverGuid, roleType, hostAndPort, initializerSupplier, lifeCycleAware);
+        connectAsync(sessionWrapper);
+        return sessionWrapper.getSession();
+    }
+
+    /**
+     * 创建并保存会话信息
+     */
+    private SessionWrapper newSessionWrapper(final long serverGuid, RoleType roleType, HostAndPort hostAndPort,
+                                             Supplier<ChannelInitializer<SocketChannel>> initializerSupplier,
+                                             SessionLifecycleAware<SyncC2SSession> lifeCycleAware){
         if (sessionMap.containsKey(serverGuid)){
             throw new IllegalArgumentException("server " +serverGuid + " is already registered");
         }
@@ -132,14 +194,11 @@ public class SyncC2SSessionMrg {
         SyncC2SSession session=new SyncC2SSession(serverGuid, roleType,hostAndPort,initializerSupplier, lifeCycleAware);
         SessionWrapper sessionWrapper=new SessionWrapper(session,tokenBytes);
         sessionMap.put(serverGuid,sessionWrapper);
-
-        // 执行连接请求
-        connect(sessionWrapper);
-        return session;
+        return sessionWrapper;
     }
 
     /**
-     * 执行真正的连接请求
+     * 执行真正的连接请求(阻塞)
      */
     private void connect(SessionWrapper sessionWrapper) {
         SyncC2SSession session=sessionWrapper.getSession();
@@ -148,6 +207,11 @@ public class SyncC2SSessionMrg {
         HostAndPort hostAndPort=session.getHostAndPort();
         ChannelInitializer<SocketChannel> initializer=session.getInitializerSupplier().get();
 
+        // 放弃可能正在进行的非阻塞连接
+        cancelConnectAsync(sessionWrapper);
+        NetUtils.closeQuietly(sessionWrapper.getChannel());
+
+        long startTime=System.currentTimeMillis();
         final Channel channel = acceptorMrg.connectSyn(syncNettyThreadMrg,hostAndPort, initializer);
         sessionWrapper.setChannel(channel);
 
@@ -157,19 +221,25 @@ public class SyncC2SSessionMrg {
             return;
         }
 
-        // 发送建立连接请求
         final int sndTokenTimes = sessionWrapper.getSndTokenSequencer().incAndGet();
-        channel.writeAndFlush(new SyncConnectRequestTO(worldInfoMrg.getProcessGuid(), serverGuid,
-                sndTokenTimes,sessionWrapper.getTokenBytes()));
-
-        // 清除无效结果集
-        connectResponseQueue.clear();
-
-        long startTime=System.currentTimeMillis();
-        // 等待连接响应
-        SyncConnectResponseEvent connectResponseEvent = CollectionUtils.waitElementWithPoll(connectResponseQueue,
-                e -> isExpectConnectResponse(e, channel, serverGuid, sndTokenTimes),
-                netConfigMrg.syncRpcConnectTimeout());
+        SyncConnectResponseEvent connectResponseEvent;
+        // 标记之后再发送请求，保证响应一定进入阻塞队列
+        blockingConnectChannel=channel;
+        try {
+            // 清除无效结果集
+            connectResponseQueue.clear();
+
+            // 发送建立连接请求
+            channel.writeAndFlush(new SyncConnectRequestTO(worldInfoMrg.getProcessGuid(), serverGuid,
+                    sndTokenTimes,sessionWrapper.getTokenBytes()));
+
+            // 等待连接响应
+            connectResponseEvent = CollectionUtils.waitElementWithPoll(connectResponseQueue,
+                    e -> isExpectConnectResponse(e, channel, serverGuid, sndTokenTimes),
+                    netConfigMrg.syncRpcConnectTimeout());
+        } finally {
+            blockingConnectChannel=null;
+        }
 
         // 超时
         if (null == connectResponseEvent){
@@ -178,24 +248,115 @@ public class SyncC2SSessionMrg {
             return;
         }
 
+        onConnectResponse(sessionWrapper, connectResponseEvent.getConnectResponseTO(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 执行非阻塞的连接请求，连接响应由IO线程发布到disruptor，
+     * 超时由timer检测。如果已经在连接中，则什么也不做。
+     */
+    private void connectAsync(SessionWrapper sessionWrapper){
+        if (sessionWrapper.getConnectTimer() != null){
+            return;
+        }
+        SyncC2SSession session=sessionWrapper.getSession();
+
+        final long serverGuid=session.getServerGuid();
+        HostAndPort hostAndPort=session.getHostAndPort();
+        ChannelInitializer<SocketChannel> initializer=session.getInitializerSupplier().get();
+
+        NetUtils.closeQuietly(sessionWrapper.getChannel());
+
+        final ChannelFuture connectFuture = acceptorMrg.connectAsyn(syncNettyThreadMrg, hostAndPort, initializer);
+        final Channel channel = connectFuture.channel();
+        sessionWrapper.setChannel(channel);
+
+        // 在IO线程连接成功时发送建立连接请求
+        final SyncConnectRequestTO connectRequestTO=new SyncConnectRequestTO(worldInfoMrg.getProcessGuid(), serverGuid,
+                sessionWrapper.getSndTokenSequencer().incAndGet(), sessionWrapper.getTokenBytes());
+        connectFuture.addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()){
+                future.channel().writeAndFlush(connectRequestTO);
+            }
+        });
+
+        Timer connectTimer=new Timer(netConfigMrg.syncRpcConnectTimeout(),1,
+                timer -> onConnectAsyncTimeout(serverGuid, connectFuture));
+        sessionWrapper.changeToConnectingState(connectTimer, systemTimeMrg.getSystemMillTime());
+        timerMrg.addTimer(connectTimer,systemTimeMrg.getSystemMillTime());
+    }
+
+    /**
+     * 取消正在进行的非阻塞连接(如果有的话)
+     */
+    private void cancelConnectAsync(SessionWrapper sessionWrapper){
+        Timer connectTimer = sessionWrapper.getConnectTimer();
+        if (null != connectTimer){
+            connectTimer.closeTimer();
+            sessionWrapper.changeToConnectingState(null, 0);
+        }
+    }
+
+    /**
+     * 非阻塞连接超时
+     * @param serverGuid 连接的服务器
+     * @param connectFuture 连接时的future
+     */
+    private void onConnectAsyncTimeout(long serverGuid, ChannelFuture connectFuture){
+        SessionWrapper sessionWrapper = sessionMap.get(serverGuid);
+        // 会话已删除或已发起新的连接
+        if (null == sessionWrapper || sessionWrapper.getChannel() != connectFuture.channel()){
+            return;
+        }
+        sessionWrapper.changeToConnectingState(null, 0);
+
+        HostAndPort hostAndPort=sessionWrapper.getSession().getHostAndPort();
+        if (!connectFuture.isSuccess()){
+            // 远程服务器可能没启动
+            NetUtils.closeQuietly(connectFuture);
+            removeSession(serverGuid,"can't connect remote " + hostAndPort);
+        } else {
+            // 未收到连接响应，等待下次请求时重连
+            logger.warn("connect {} timeout",hostAndPort);
+            NetUtils.closeQuietly(connectFuture.channel());
+        }
+    }
+
+    /**
+     * 收到期望的连接响应
+     * @param sessionWrapper 会话信息
+     * @param response 连接响应
+     * @param costTime 建立连接花费的时间
+     */
+    private void onConnectResponse(SessionWrapper sessionWrapper, SyncConnectResponseTO response, long costTime){
+        SyncC2SSession session=sessionWrapper.getSession();
+        cancelConnectAsync(sessionWrapper);
+
         // 禁止连接(token验证失败)
-        SyncConnectResponseTO response = connectResponseEvent.getConnectResponseTO();
         if (!response.isSuccess()){
-            removeSession(serverGuid,"connect remote "+ hostAndPort + " was refused!");
+            removeSession(session.getServerGuid(),"connect remote "+ session.getHostAndPort() + " was refused!");
             return;
         }
 
         // 建立连接成功
-        sessionWrapper.setTokenBytes(response.getEncryptTokenBytes());
+        sessionWrapper.changeToVerifiedState(response.getEncryptTokenBytes());
         int verifiedTimes = sessionWrapper.getVerifiedSequencer().incAndGet();
 
-        long costTime = System.currentTimeMillis() - startTime;
         if (verifiedTimes == 1 && null != session.getLifeCycleAware()){
             logger.info("syncRpc first connect success, cost {} milltime, sessionInfo={}", costTime,session);
             session.getLifeCycleAware().onSessionConnected(session);
         }else {
             logger.info("syncRpc reconnect success , cost {} milltime,verifiedTimes={}, sessionInfo={}",costTime,verifiedTimes,session);
         }
+
+        // 发送所有未完成的异步请求(lifeCycleAware可能删除了会话)
+        if (sessionWrapper.isVerified() && sessionWrapper.getPendingRequestMap().size() > 0){
+            Channel channel=sessionWrapper.getChannel();
+            for (PendingRequest pendingRequest:sessionWrapper.getPendingRequestMap().values()){
+                channel.write(pendingRequest.getLogicRequestTO());
+            }
+            channel.flush();
+        }
     }
 
     /**
@@ -215,7 +376,7 @@ public class SyncC2SSessionMrg {
     }
 
     /**
-     * 删除某个同步RPC服务器会话
+     * 删除某个同步RPC服务器会话，该会话上所有未完成的异步请求以{@link RpcResultCode#SESSION_REMOVED}完成。
      * @param serverGuid 服务器guid
      * @param reason 删除会话的原因
      * @return 返回删除的session，如果不存在则返回null
@@ -226,10 +387,21 @@ public class SyncC2SSessionMrg {
             return null;
         }
         SyncC2SSession session=sessionWrapper.getSession();
+        cancelConnectAsync(sessionWrapper);
         NetUtils.closeQuietly(sessionWrapper.getChannel());
 
         logger.info("remove syncRpc session by reason of {},sessionInfo={}",reason,session);
 
+        // 未完成的异步请求全部失败(先拷贝，回调中可能发起新的请求)
+        if (sessionWrapper.getPendingRequestMap().size() > 0){
+            List<PendingRequest> pendingRequests=new ArrayList<>(sessionWrapper.getPendingRequestMap().values());
+            sessionWrapper.getPendingRequestMap().clear();
+            for (PendingRequest pendingRequest:pendingRequests){
+                pendingRequest.getTimer().closeTimer();
+                pendingRequest.getFuture().complete(RpcResultCode.SESSION_REMOVED, null);
+            }
+        }
+
         // 验证成功过(调用过connect)才会执行disconnect回调。
         if (sessionWrapper.getVerifiedSequencer().get() > 0 && session.getLifeCycleAware() != null){
             try {
@@ -242,7 +414,20 @@ public class SyncC2SSessionMrg {
     }
 
     /**
-     * 发起同步RPC调用请求
+     * 获取已注册的会话信息
+     * @param serverGuid 服务器guid
+     * @return sessionWrapper
+     */
+    private SessionWrapper getRegisteredSession(long serverGuid){
+        SessionWrapper sessionWrapper = sessionMap.get(serverGuid);
+        if (null == sessionWrapper){
+            throw new IllegalArgumentException("server " +serverGuid + " is not registered or removed");
+        }
+        return sessionWrapper;
+    }
+
+    /**
+     * 发起同步RPC调用请求(阻塞直到收到结果或超时)
      * @param serverGuid 服务器id，向哪个服务器发起请求
      * @param request 请求内容。本质是rpc，只不过不是标准的rpc调用形式，对象的类型就决定了要调用的方法
      * @param responseClazz 响应消息的类型(帮助强转)
@@ -250,94 +435,337 @@ public class SyncC2SSessionMrg {
      * @return 注意查看Optional的文档 {@link Optional#isPresent()} {@link Optional#get()}
      * {@link Optional#ifPresent(Consumer)}
      */
-    @SuppressWarnings("unchecked")
     public <T> Optional<T> request(long serverGuid, @Nonnull Object request, Class<T> responseClazz){
-        SessionWrapper sessionWrapper = sessionMap.get(serverGuid);
-        if (null == sessionWrapper){
-            throw new IllegalArgumentException("server " +serverGuid + " is not registered or removed");
-        }
+        return requestAll(serverGuid, Collections.singletonList(request), responseClazz).get(0);
+    }
+
+    /**
+     * 以流水线的方式发起多个同步RPC调用请求(阻塞直到收到所有结果或超时)。
+     * 所有请求一次性写入channel，总的等待时间取决于最慢的请求，而不是请求数量乘以往返时间。
+     * 服务器按顺序处理同一个会话上的请求。
+     * @param serverGuid 服务器id，向哪个服务器发起请求
+     * @param requests 请求内容，按顺序发送
+     * @param responseClazz 响应消息的类型(帮助强转)
+     * @param <T> 响应消息的类型
+     * @return 与requests一一对应的结果，未得到结果的为empty
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<Optional<T>> requestAll(long serverGuid, @Nonnull List<?> requests, Class<T> responseClazz){
+        SessionWrapper sessionWrapper = getRegisteredSession(serverGuid);
+        List<Optional<T>> result=new ArrayList<>(requests.size());
         // 使用的时候检查是否断开连接，断开了连接则重连
-        if (!sessionWrapper.getChannel().isActive()){
+        if (!sessionWrapper.isVerified()){
             connect(sessionWrapper);
             // 仍然不可用，无法建立连接
-            if (!sessionWrapper.getChannel().isActive()){
-                return Optional.empty();
+            if (!sessionWrapper.isVerified()){
+                for (int index=0;index<requests.size();index++){
+                    result.add(Optional.empty());
+                }
+                return result;
             }
         }
 
-        long nextRequestGuid= sessionWrapper.getRequestGuidSequencer().incAndGet();
-        SyncLogicRequestTO logicRequestTO=new SyncLogicRequestTO(nextRequestGuid,request);
-
-        for (int tryTimes=1;tryTimes<=netConfigMrg.syncRpcMaxTryTimes();tryTimes++){
-            SyncLogicResponseTO responseTO= requestImp(sessionWrapper,logicRequestTO,tryTimes);
-            if (null!=responseTO){
-                return (Optional<T>) Optional.ofNullable(responseTO.getResponse());
+        // 先放入等待表再发送请求，保证响应一定能找到等待者
+        List<BlockingRequest> blockingRequests=new ArrayList<>(requests.size());
+        for (Object request:requests){
+            long nextRequestGuid= requestGuidSequencer.incAndGet();
+            BlockingRequest blockingRequest=new BlockingRequest(serverGuid,new SyncLogicRequestTO(nextRequestGuid,request));
+            blockingRequests.add(blockingRequest);
+            blockingRequestMap.put(nextRequestGuid,blockingRequest);
+        }
+        try {
+            for (int tryTimes=1;tryTimes<=netConfigMrg.syncRpcMaxTryTimes();tryTimes++){
+                if (requestImp(sessionWrapper,blockingRequests)){
+                    break;
+                }
+            }
+        } finally {
+            for (BlockingRequest blockingRequest:blockingRequests){
+                blockingRequestMap.remove(blockingRequest.getRequestGuid());
             }
         }
-        return Optional.empty();
+
+        for (BlockingRequest blockingRequest:blockingRequests){
+            SyncLogicResponseTO responseTO=blockingRequest.getResponseTO();
+            result.add(null == responseTO ? Optional.empty() : (Optional<T>) Optional.ofNullable(responseTO.getResponse()));
+        }
+        return result;
     }
 
     /**
-     * 发起同步rpc请求的实现
+     * 发起同步rpc请求的一次尝试。
+     * 只发送还未得到结果的请求，之前尝试的迟到结果同样有效。
      * @param sessionWrapper 会话信息
-     * @param logicRequestTO 请求信息
-     * @param tryTimes 当前尝试次数，1开始，大于1表示重试
-     * @return 如果未得到结果则返回null
+     * @param blockingRequests 所有请求
+     * @return 是否所有请求都得到了结果
      */
-    private SyncLogicResponseTO requestImp(SessionWrapper sessionWrapper, SyncLogicRequestTO logicRequestTO, int tryTimes){
-        if (tryTimes==1){
-            // 该请求第一次发起,结果集中的一定不存在期望的结果
-            logicResponseQueue.clear();
-        }else {
-            // 该请求重试，先查看当前结果集是否有了结果，减少IO次数
-            SyncLogicResponseEvent responseEvent = CollectionUtils.findElementWithPoll(logicResponseQueue,
-                    e -> isExpectLogicResponse(e,sessionWrapper.getSession().getServerGuid(),logicRequestTO.getRequestGuid()));
-            if(null!=responseEvent){
-                return responseEvent.getLogicResponseTO();
+    private boolean requestImp(SessionWrapper sessionWrapper, List<BlockingRequest> blockingRequests){
+        Channel channel=sessionWrapper.getChannel();
+        for (BlockingRequest blockingRequest:blockingRequests){
+            if (!blockingRequest.isDone()){
+                channel.write(blockingRequest.getLogicRequestTO());
             }
         }
-        // 到这里，只能说明结果里暂时没有结果
-        sessionWrapper.getChannel().writeAndFlush(logicRequestTO);
+        channel.flush();
 
         // 等待结果到来
-        SyncLogicResponseEvent responseEvent= CollectionUtils.waitElementWithPoll(logicResponseQueue,
-                e -> isExpectLogicResponse(e,sessionWrapper.getSession().getServerGuid(),logicRequestTO.getRequestGuid()),
-                netConfigMrg.syncRpcRequestTimeout());
+        long endTime=System.currentTimeMillis() + netConfigMrg.syncRpcRequestTimeout();
+        for (BlockingRequest blockingRequest:blockingRequests){
+            if (!blockingRequest.await(endTime)){
+                return false;
+            }
+        }
+        return true;
+    }
 
-        if (null!=responseEvent){
-            return responseEvent.getLogicResponseTO();
-        }else {
-            return null;
+    /**
+     * 发起异步RPC调用请求，不会阻塞当前线程。
+     * 请求会在连接可用时立即发送，否则发起非阻塞的重连，连接成功后发送；
+     * 每隔{@link NetConfigMrg#syncRpcRequestTimeout()}未收到结果则重试，
+     * 尝试{@link NetConfigMrg#syncRpcMaxTryTimes()}次之后以{@link RpcResultCode#TIMEOUT}完成。
+     * @param serverGuid 服务器id，向哪个服务器发起请求
+     * @param request 请求内容
+     * @param responseClazz 响应消息的类型(帮助强转)
+     * @param <T> 响应消息的类型
+     * @return future，在world线程完成
+     */
+    public <T> RpcFuture<T> requestAsync(long serverGuid, @Nonnull Object request, Class<T> responseClazz){
+        SessionWrapper sessionWrapper = getRegisteredSession(serverGuid);
+
+        final long requestGuid= requestGuidSequencer.incAndGet();
+        RpcFuture<T> future=new RpcFuture<>(serverGuid, requestGuid);
+        SyncLogicRequestTO logicRequestTO=new SyncLogicRequestTO(requestGuid,request);
+
+        // timer每次执行表示一次尝试超时
+        Timer timer=new Timer(netConfigMrg.syncRpcRequestTimeout(), netConfigMrg.syncRpcMaxTryTimes(),
+                t -> onRequestAsyncTimeout(serverGuid, requestGuid, t));
+        sessionWrapper.getPendingRequestMap().put(requestGuid, new PendingRequest(logicRequestTO, future, timer));
+        timerMrg.addTimer(timer,systemTimeMrg.getSystemMillTime());
+
+        sendOrConnect(sessionWrapper, logicRequestTO);
+        return future;
+    }
+
+    /**
+     * 如果连接可用，则发送请求，否则发起非阻塞的重连(连接成功后会发送所有未完成的请求)
+     */
+    private void sendOrConnect(SessionWrapper sessionWrapper, SyncLogicRequestTO logicRequestTO){
+        if (sessionWrapper.isVerified()){
+            sessionWrapper.getChannel().writeAndFlush(logicRequestTO);
+        } else {
+            connectAsync(sessionWrapper);
         }
     }
 
     /**
-     * 是否是期望的逻辑包响应
-     * @param responseEvent 收到的某个请求响应
-     * @param serverGuid 等待的服务器
-     * @param waitRequestId 等待的请求id
-     * @return
+     * 异步请求的一次尝试超时
+     * @param serverGuid 请求的服务器
+     * @param requestGuid 请求id
+     * @param timer 该请求的timer
      */
-    private boolean isExpectLogicResponse(SyncLogicResponseEvent responseEvent, long serverGuid, long waitRequestId){
-        // 这里不判断channel，原因是：只要收到对应的结果即可，不论中途是否产生了网络故障导致了channel变更
-        return responseEvent.getServerGuid() == serverGuid
-                && responseEvent.getRequestGuid() == waitRequestId;
+    private void onRequestAsyncTimeout(long serverGuid, long requestGuid, Timer timer){
+        SessionWrapper sessionWrapper = sessionMap.get(serverGuid);
+        // 会话已删除(删除时已完成所有请求)
+        if (null == sessionWrapper){
+            return;
+        }
+        PendingRequest pendingRequest = sessionWrapper.getPendingRequestMap().get(requestGuid);
+        // 已完成
+        if (null == pendingRequest){
+            return;
+        }
+        // 用完了所有尝试次数
+        if (timer.getExecuteNum() <= 0){
+            sessionWrapper.getPendingRequestMap().remove(requestGuid);
+            pendingRequest.getFuture().complete(RpcResultCode.TIMEOUT, null);
+            return;
+        }
+        // 重试(服务器保证幂等性)
+        sendOrConnect(sessionWrapper, pendingRequest.getLogicRequestTO());
     }
 
     /**
-     * 当接收到连接响应
+     * 在world线程处理非阻塞连接的响应。
      * @param connectResponseEvent 连接响应事件
      */
-    public void onRcvConnectResponse(SyncConnectResponseEvent connectResponseEvent){
-        connectResponseQueue.offer(connectResponseEvent);
+    public void handleConnectResponse(SyncConnectResponseEvent connectResponseEvent){
+        SessionWrapper sessionWrapper = sessionMap.get(connectResponseEvent.getServerGuid());
+        if (null == sessionWrapper || null == sessionWrapper.getConnectTimer()){
+            return;
+        }
+        // 不是当前连接请求的响应
+        if (!isExpectConnectResponse(connectResponseEvent, sessionWrapper.getChannel(),
+                sessionWrapper.getSession().getServerGuid(), sessionWrapper.getSndTokenSequencer().get())){
+            return;
+        }
+        long costTime=systemTimeMrg.getSystemMillTime() - sessionWrapper.getConnectStartMillTime();
+        onConnectResponse(sessionWrapper, connectResponseEvent.getConnectResponseTO(), costTime);
     }
 
     /**
-     * 当接收到逻辑包响应
+     * 在world线程处理异步rpc调用的响应。
      * @param logicResponseEvent 逻辑消息响应事件
      */
-    public void onRcvLogicResponse(SyncLogicResponseEvent logicResponseEvent){
-        logicResponseQueue.offer(logicResponseEvent);
+    public void handleLogicResponse(SyncLogicResponseEvent logicResponseEvent){
+        SessionWrapper sessionWrapper = sessionMap.get(logicResponseEvent.getServerGuid());
+        if (null == sessionWrapper){
+            return;
+        }
+        // 不判断channel，只要收到对应的结果即可；找不到表示已超时，或是阻塞请求放弃后迟到的结果
+        PendingRequest pendingRequest = sessionWrapper.getPendingRequestMap().remove(logicResponseEvent.getRequestGuid());
+        if (null == pendingRequest){
+            return;
+        }
+        pendingRequest.getTimer().closeTimer();
+        pendingRequest.getFuture().complete(RpcResultCode.SUCCESS, logicResponseEvent.getLogicResponseTO().getResponse());
+    }
+
+    /**
+     * 当接收到连接响应(IO线程)
+     * @param connectResponseEvent 连接响应事件
+     */
+    public void onRcvConnectResponse(SyncConnectResponseEvent connectResponseEvent){
+        if (connectResponseEvent.getChannel() == blockingConnectChannel){
+            connectResponseQueue.offer(connectResponseEvent);
+        } else {
+            disruptorMrg.publishEvent(connectResponseEvent.getChannel(), NetEventType.SYNC_RPC_CONNECT_RESPONSE, connectResponseEvent);
+        }
+    }
+
+    /**
+     * 当接收到逻辑包响应(IO线程)。
+     * 如果是阻塞调用的响应，则直接在IO线程完成，否则发布到disruptor由world线程处理。
+     * @param channel 收到响应的channel
+     * @param serverGuid 响应的服务器
+     * @param logicResponseTO 逻辑消息响应
+     */
+    public void onRcvLogicResponse(Channel channel, long serverGuid, SyncLogicResponseTO logicResponseTO){
+        // 这里不判断channel，原因是：只要收到对应的结果即可，不论中途是否产生了网络故障导致了channel变更
+        BlockingRequest blockingRequest = blockingRequestMap.get(logicResponseTO.getRequestGuid());
+        if (null != blockingRequest && blockingRequest.getServerGuid() == serverGuid){
+            blockingRequest.complete(logicResponseTO);
+            return;
+        }
+        disruptorMrg.publishEvent(channel, NetEventType.SYNC_RPC_LOGIC_RESPONSE, new SyncLogicResponseEvent(channel, serverGuid, logicResponseTO));
+    }
+
+    /**
+     * 阻塞等待中的请求。
+     * world线程等待，IO线程完成。
+     */
+    private static class BlockingRequest{
+        /**
+         * 请求的服务器
+         */
+        private final long serverGuid;
+        /**
+         * 请求内容(重试时重新发送)
+         */
+        private final SyncLogicRequestTO logicRequestTO;
+        /**
+         * 完成信号
+         */
+        private final CountDownLatch doneLatch =new CountDownLatch(1);
+        /**
+         * 响应结果(在countDown之前写入，await返回之后可见)
+         */
+        private volatile SyncLogicResponseTO responseTO;
+
+        private BlockingRequest(long serverGuid, SyncLogicRequestTO logicRequestTO) {
+            this.serverGuid = serverGuid;
+            this.logicRequestTO = logicRequestTO;
+        }
+
+        long getServerGuid() {
+            return serverGuid;
+        }
+
+        long getRequestGuid(){
+            return logicRequestTO.getRequestGuid();
+        }
+
+        SyncLogicRequestTO getLogicRequestTO() {
+            return logicRequestTO;
+        }
+
+        SyncLogicResponseTO getResponseTO() {
+            return responseTO;
+        }
+
+        boolean isDone(){
+            return null != responseTO;
+        }
+
+        /**
+         * 完成请求(IO线程)，重复的响应(重试导致)忽略
+         */
+        void complete(SyncLogicResponseTO responseTO){
+            if (null == this.responseTO){
+                this.responseTO = responseTO;
+                doneLatch.countDown();
+            }
+        }
+
+        /**
+         * 等待请求完成
+         * @param endTime 截止时间
+         * @return 是否已完成
+         */
+        boolean await(long endTime){
+            boolean interrupted=false;
+            try {
+                for (long remainTime=endTime-System.currentTimeMillis();!isDone() && remainTime>0;remainTime=endTime-System.currentTimeMillis()){
+                    try {
+                        doneLatch.await(remainTime, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e){
+                        // 收到了中断请求，我们先不处理它，但是要将它存储下来，继续尝试
+                        interrupted=true;
+                    }
+                }
+                return isDone();
+            } finally {
+                // 返回前恢复中断状态
+                if (interrupted){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * 未完成的异步请求
+     */
+    private static class PendingRequest{
+        /**
+         * 请求内容(重试时重新发送)
+         */
+        private final SyncLogicRequestTO logicRequestTO;
+        /**
+         * 请求对应的future
+         */
+        private final RpcFuture<?> future;
+        /**
+         * 超时重试timer
+         */
+        private final Timer timer;
+
+        private PendingRequest(SyncLogicRequestTO logicRequestTO, RpcFuture<?> future, Timer timer) {
+            this.logicRequestTO = logicRequestTO;
+            this.future = future;
+            this.timer = timer;
+        }
+
+        SyncLogicRequestTO getLogicRequestTO() {
+            return logicRequestTO;
+        }
+
+        RpcFuture<?> getFuture() {
+            return future;
+        }
+
+        Timer getTimer() {
+            return timer;
+        }
     }
 
     /**
@@ -348,10 +776,6 @@ public class SyncC2SSessionMrg {
          * 原始session
          */
         private final SyncC2SSession session;
-        /**
-         * 请求id序号生成器
-         */
-        private final LongSequencer requestGuidSequencer = new LongSequencer(NetConstants.INIT_REQUEST_GUID);
         /**
          * 发送token次数序号生成器
          */
@@ -360,14 +784,30 @@ public class SyncC2SSessionMrg {
          * 已验证成功次数sequencer
          */
         private final IntSequencer verifiedSequencer =new IntSequencer(0);
+        /**
+         * 未完成的异步请求，按发起顺序保存(重连后按序重发)
+         */
+        private final Long2ObjectLinkedOpenHashMap<PendingRequest> pendingRequestMap =new Long2ObjectLinkedOpenHashMap<>();
         /**
          * 对应的channel
          */
         private Channel channel;
+        /**
+         * 已通过token验证的channel
+         */
+        private Channel verifiedChannel;
         /**
          * 客户端持有的服务器发来的token
          */
         private byte[] tokenBytes;
+        /**
+         * 非阻塞连接的超时timer，不为null表示正在进行非阻塞连接
+         */
+        private Timer connectTimer;
+        /**
+         * 非阻塞连接的开始时间
+         */
+        private long connectStartMillTime;
 
         private SessionWrapper(SyncC2SSession session, byte[] tokenBytes) {
             this.session = session;
@@ -386,12 +826,38 @@ public class SyncC2SSessionMrg {
             this.channel=channel;
         }
 
-        void setTokenBytes(byte[] tokenBytes) {
+        /**
+         * 当前channel是否已通过验证且可用
+         */
+        boolean isVerified(){
+            return null != channel && channel == verifiedChannel && channel.isActive();
+        }
+
+        /**
+         * 当前channel验证成功
+         * @param tokenBytes 服务器分配的新token
+         */
+        void changeToVerifiedState(byte[] tokenBytes){
             this.tokenBytes = tokenBytes;
+            this.verifiedChannel = channel;
+        }
+
+        /**
+         * 进入/退出非阻塞连接状态
+         * @param connectTimer 连接超时timer，null表示退出连接状态
+         * @param connectStartMillTime 连接开始时间
+         */
+        void changeToConnectingState(Timer connectTimer, long connectStartMillTime){
+            this.connectTimer = connectTimer;
+            this.connectStartMillTime = connectStartMillTime;
         }
 
-        LongSequencer getRequestGuidSequencer() {
-            return requestGuidSequencer;
+        Timer getConnectTimer() {
+            return connectTimer;
+        }
+
+        long getConnectStartMillTime() {
+            return connectStartMillTime;
         }
 
         IntSequencer getSndTokenSequencer() {
@@ -405,5 +871,9 @@ public class SyncC2SSessionMrg {
         IntSequencer getVerifiedSequencer() {
             return verifiedSequencer;
         }
+
+        Long2ObjectLinkedOpenHashMap<PendingRequest> getPendingRequestMap() {
+            return pendingRequestMap;
+        }
     }
 }
@@ -20,7 +20,6 @@ import com.google.inject.Inject;
 import com.wjybxx.fastjgame.mrg.NetConfigMrg;
 import com.wjybxx.fastjgame.mrg.NettyThreadMrg;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -55,8 +54,8 @@ public class SyncNettyThreadMrg extends NettyThreadMrg {
     @Override
     protected void startImp() {
         // 同步网络服务器只需要启动一个接收线程和IO线程即可。
-        bossGroup=new NioEventLoopGroup(1,new BossThreadFactory());
-        workerGroup=new NioEventLoopGroup(1,new WorkerTheadFactory());
+        bossGroup=newEventLoopGroup(1,new BossThreadFactory());
+        workerGroup=newEventLoopGroup(1,new WorkerTheadFactory());
     }
 
     @Override
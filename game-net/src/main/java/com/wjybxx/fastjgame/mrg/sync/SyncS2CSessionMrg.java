@@ -18,6 +18,7 @@ package com.wjybxx.fastjgame.mrg.sync;
 
 import com.google.inject.Inject;
 import com.wjybxx.fastjgame.constants.NetConstants;
+import com.wjybxx.fastjgame.misc.ExpiryIndex;
 import com.wjybxx.fastjgame.misc.HostAndPort;
 import com.wjybxx.fastjgame.misc.PortRange;
 import com.wjybxx.fastjgame.mrg.*;
@@ -30,13 +31,13 @@ import com.wjybxx.fastjgame.net.sync.transferobject.SyncConnectRequestTO;
 import com.wjybxx.fastjgame.net.sync.transferobject.SyncConnectResponseTO;
 import com.wjybxx.fastjgame.net.sync.transferobject.SyncLogicResponseTO;
 import com.wjybxx.fastjgame.trigger.Timer;
-import com.wjybxx.fastjgame.utils.FastCollectionsUtils;
 import com.wjybxx.fastjgame.utils.NetUtils;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.slf4j.Logger;
@@ -83,6 +84,10 @@ public class SyncS2CSessionMrg {
      * 与客户端建立的会话信息
      */
     private final Long2ObjectMap<SessionWrapper> sessionWrapperMap =new Long2ObjectOpenHashMap<>();
+    /**
+     * 会话过期索引，检查超时时只处理到期的会话
+     */
+    private final ExpiryIndex<SessionWrapper> sessionExpiryIndex;
     /**
      * 所有待处理的连接请求队列
      */
@@ -91,10 +96,6 @@ public class SyncS2CSessionMrg {
      * 所有待处理的逻辑请求队列
      */
     private final ConcurrentLinkedQueue<SyncLogicRequestEvent> logicRequestQueue =new ConcurrentLinkedQueue<>();
-    /**
-     * 每个客户端的最新逻辑请求缓存
-     */
-    private final Long2ObjectMap<SyncLogicRequestEvent> latestLogicRequestCache =new Long2ObjectOpenHashMap<>();
     /**
      * ping包队列
      */
@@ -113,7 +114,10 @@ public class SyncS2CSessionMrg {
         this.syncNettyThreadMrg = syncNettyThreadMrg;
         this.forbiddenTokenHelper=new ForbiddenTokenHelper(systemTimeMrg,timerMrg,netConfigMrg.tokenForbiddenTimeout());
 
-        Timer checkSessionTimeoutTimer=Timer.newInfiniteTimer(netConfigMrg.syncRpcSessionTimeout()/3 * 1000,this::checkSessionTimeout);
+        this.sessionExpiryIndex=new ExpiryIndex<>(netConfigMrg.syncRpcSessionTimeout(),systemTimeMrg.getSystemSecTime());
+
+        // 每秒检测一次，只处理到期的会话
+        Timer checkSessionTimeoutTimer=Timer.newInfiniteTimer(1000,this::checkSessionTimeout);
         timerMrg.addTimer(checkSessionTimeoutTimer,systemTimeMrg.getSystemMillTime());
     }
 
@@ -131,9 +135,10 @@ public class SyncS2CSessionMrg {
     }
 
     private void checkSessionTimeout(Timer timer){
-        FastCollectionsUtils.removeIfAndThen(sessionWrapperMap,
-                (k, sessionWrapper) -> systemTimeMrg.getSystemSecTime() > sessionWrapper.getSessionTimeout(),
-                (k, sessionWrapper) -> afterRemoved(sessionWrapper,"timeout"));
+        sessionExpiryIndex.expire(systemTimeMrg.getSystemSecTime(), sessionWrapper -> {
+            sessionWrapperMap.remove(sessionWrapper.getSession().getClientGuid());
+            afterRemoved(sessionWrapper,"timeout");
+        });
     }
 
     /**
@@ -168,6 +173,7 @@ public class SyncS2CSessionMrg {
      * 当session移除之后
      */
     private void afterRemoved(@Nonnull SessionWrapper sessionWrapper, String reason) {
+        sessionWrapper.getExpiryEntry().remove();
         // 禁用该token及之前的token
         forbiddenTokenHelper.forbiddenCurToken(sessionWrapper.getToken());
 
@@ -187,16 +193,19 @@ public class SyncS2CSessionMrg {
 
     /**
      * 分发同步请求
+     * @param deadlineMillTime 逻辑请求的处理截止时间，超过该时间时剩余的逻辑请求留到下次处理
+     * @return 所有逻辑请求都已处理时返回true，超出时间预算时返回false
      */
-    public void dispatchSyncRpcRequest(){
+    public boolean dispatchSyncRpcRequest(long deadlineMillTime){
         // 先处理连接请求，连接请求需要全部处理。先处理连接请求可以过滤掉旧连接上的事件
         handleConnectRequests();
 
         //  再处理逻辑业务请求
-        handleLogicRequests();
+        boolean finished = handleLogicRequests(deadlineMillTime);
 
         // 最后处理心跳包
         handlePingEvents();
+        return finished;
     }
 
     /**
@@ -343,6 +352,7 @@ public class SyncS2CSessionMrg {
         // 登录成功
         SyncS2CSession session=new SyncS2CSession(requestParam.getClientGuid(), clientToken.getClientRoleType());
         SessionWrapper sessionWrapper=new SessionWrapper(session);
+        sessionWrapper.setExpiryEntry(sessionExpiryIndex.add(sessionWrapper, nextSessionTimeout()));
         sessionWrapperMap.put(requestParam.getClientGuid(),sessionWrapper);
 
         // 分配新的token并进入等待状态
@@ -444,58 +454,51 @@ public class SyncS2CSessionMrg {
     }
 
     /**
-     * 处理客户端同步调用
+     * 处理客户端同步调用。
+     * 客户端可能在同一个连接上流水线式的发起多个请求(异步rpc)，因此必须按到达顺序处理所有请求，
+     * 而不能只处理最新的请求。
      */
-    private void handleLogicRequests() {
-        // 业务逻辑只需处理该连接上的最新请求，旧请求表示客户端已经放弃了，因此不必执行
-        findLatestLogicRequest();
-        if (latestLogicRequestCache.size()==0){
-            return;
-        }
-        try {
-            for (SyncLogicRequestEvent logicRequestEvent: latestLogicRequestCache.values()){
-                try {
-                    handleLogicRequest(logicRequestEvent);
-                }catch (Exception e){
-                    logger.error("handle syncRpcLogicRequest caught exception",e);
-                }
+    private boolean handleLogicRequests(long deadlineMillTime) {
+        SyncLogicRequestEvent logicRequestEvent;
+        while ((logicRequestEvent= logicRequestQueue.poll())!=null){
+            handleLogicRequest(logicRequestEvent);
+            // 同步rpc请求的处理通常较重(对方阻塞等待)，每处理一个请求都检查时间；剩余的请求保持在队列中，因此不会乱序
+            if (System.currentTimeMillis() >= deadlineMillTime){
+                return logicRequestQueue.isEmpty();
             }
-        }finally {
-            latestLogicRequestCache.clear();
         }
+        return true;
     }
+
     /**
-     * 收集最新的逻辑请求
+     * 过滤并处理一个逻辑请求
+     * @param logicRequestEvent 逻辑请求事件
      */
-    private void findLatestLogicRequest(){
-        SyncLogicRequestEvent logicRequestEvent;
-        while ((logicRequestEvent= logicRequestQueue.poll())!=null){
-            long clientGuid = logicRequestEvent.getClientGuid();
-            SessionWrapper sessionWrapper= sessionWrapperMap.get(clientGuid);
-            // 不存在该请求对应的session
-            if (null == sessionWrapper){
-                NetUtils.closeQuietly(logicRequestEvent.getChannel());
-                continue;
-            }
-            // 不是session当前channel上的事件
-            if (logicRequestEvent.getChannel() != sessionWrapper.getChannel()){
-                NetUtils.closeQuietly(logicRequestEvent.getChannel());
-                continue;
-            }
-            SyncLogicRequestEvent existElement = latestLogicRequestCache.get(clientGuid);
-            // 如果是更加新的请求就处理它
-            if (null == existElement || logicRequestEvent.getRequestGuid() > existElement.getRequestGuid()){
-                latestLogicRequestCache.put(clientGuid,logicRequestEvent);
-            }
+    private void handleLogicRequest(SyncLogicRequestEvent logicRequestEvent) {
+        SessionWrapper sessionWrapper= sessionWrapperMap.get(logicRequestEvent.getClientGuid());
+        // 不存在该请求对应的session
+        if (null == sessionWrapper){
+            NetUtils.closeQuietly(logicRequestEvent.getChannel());
+            return;
+        }
+        // 不是session当前channel上的事件
+        if (logicRequestEvent.getChannel() != sessionWrapper.getChannel()){
+            NetUtils.closeQuietly(logicRequestEvent.getChannel());
+            return;
+        }
+        try {
+            handleLogicRequest(sessionWrapper, logicRequestEvent);
+        }catch (Exception e){
+            logger.error("handle syncRpcLogicRequest caught exception",e);
         }
     }
 
     /**
      * 处理逻辑请求
+     * @param sessionWrapper 请求所属的会话
      * @param logicRequestEvent 逻辑请求事件，已过滤，这里一定当前会话上的事件
      */
-    private void handleLogicRequest(SyncLogicRequestEvent logicRequestEvent){
-        SessionWrapper sessionWrapper= sessionWrapperMap.get(logicRequestEvent.getClientGuid());
+    private void handleLogicRequest(SessionWrapper sessionWrapper, SyncLogicRequestEvent logicRequestEvent){
         // 在新channel收到客户端的消息时 => 客户端一定收到了token验证结果
         // 确定客户端已收到了新的token,更新channel为已激活状态，并添加禁用的token
         if (sessionWrapper.getPreToken()!=null){
@@ -511,22 +514,22 @@ public class SyncS2CSessionMrg {
             onLogicRequestInvalid(logicRequestEvent.getChannel(),requestGuid);
             return;
         }
-        SyncLogicResponseTO lastResponseTO=sessionWrapper.getLastResponseTO();
-        // 确认失效的请求
-        if (null != lastResponseTO && requestGuid < lastResponseTO.getRequestGuid()){
-            onLogicRequestInvalid(logicRequestEvent.getChannel(),requestGuid);
+        // 重试请求(保证幂等性，总是返回第一次的结果)
+        SyncLogicResponseTO cachedResponseTO=sessionWrapper.getCachedResponse(requestGuid);
+        if (null != cachedResponseTO){
+            logicRequestEvent.getChannel().writeAndFlush(cachedResponseTO);
             return;
         }
-        // 重试请求(保证幂等性，总是返回第一次的结果)
-        if (null != lastResponseTO && requestGuid == lastResponseTO.getRequestGuid()){
-            logicRequestEvent.getChannel().writeAndFlush(lastResponseTO);
+        // 已处理过但结果已被淘汰的请求，客户端一定早已放弃
+        if (requestGuid <= sessionWrapper.getEvictedRequestGuid()){
+            onLogicRequestInvalid(logicRequestEvent.getChannel(),requestGuid);
             return;
         }
         // 新请求
         Object response = syncRequestDispatcherMrg.handleRequest(sessionWrapper.getSession(),logicRequestEvent.getRequest());
         SyncLogicResponseTO logicResponseTO=new SyncLogicResponseTO(requestGuid,response);
         // 存下结果，以支持客户端重试
-        sessionWrapper.setLastResponseTO(logicResponseTO);
+        sessionWrapper.cacheResponse(logicResponseTO, netConfigMrg.syncRpcResponseCacheSize());
         logicRequestEvent.getChannel().writeAndFlush(logicResponseTO);
     }
 
@@ -631,13 +634,18 @@ public class SyncS2CSessionMrg {
          */
         private Token preToken;
         /**
-         * 上一次请求的返回结果(为了保持幂等性，始终返回第一次的处理结果)，此外肩负识别最新逻辑请求的责任
+         * 最近处理的请求的返回结果(为了保持幂等性，重试时始终返回第一次的处理结果)。
+         * 按处理顺序保存，超出上限时淘汰最早的结果。
          */
-        private SyncLogicResponseTO lastResponseTO;
+        private final Long2ObjectLinkedOpenHashMap<SyncLogicResponseTO> responseCache =new Long2ObjectLinkedOpenHashMap<>();
         /**
-         * 会话超时时间(秒)
+         * 已淘汰的结果中最大的请求id，小于等于该值且不在缓存中的请求都是已处理过的请求
          */
-        private int sessionTimeout;
+        private long evictedRequestGuid =NetConstants.INIT_REQUEST_GUID;
+        /**
+         * 会话过期信息，保存了会话超时时间(秒)
+         */
+        private ExpiryIndex.Entry<SessionWrapper> expiryEntry;
 
         private SessionWrapper(SyncS2CSession session) {
             this.session = session;
@@ -651,12 +659,26 @@ public class SyncS2CSessionMrg {
             return channel;
         }
 
-        SyncLogicResponseTO getLastResponseTO() {
-            return lastResponseTO;
+        SyncLogicResponseTO getCachedResponse(long requestGuid) {
+            return responseCache.get(requestGuid);
+        }
+
+        long getEvictedRequestGuid() {
+            return evictedRequestGuid;
         }
 
-        void setLastResponseTO(SyncLogicResponseTO lastResponseTO) {
-            this.lastResponseTO = lastResponseTO;
+        /**
+         * 缓存请求结果
+         * @param responseTO 请求结果
+         * @param maxCacheSize 最大缓存数量
+         */
+        void cacheResponse(SyncLogicResponseTO responseTO, int maxCacheSize){
+            responseCache.put(responseTO.getRequestGuid(), responseTO);
+            while (responseCache.size() > maxCacheSize){
+                long requestGuid=responseCache.firstLongKey();
+                responseCache.removeFirst();
+                evictedRequestGuid =Math.max(evictedRequestGuid, requestGuid);
+            }
         }
 
         int getSndTokenTimes() {
@@ -681,7 +703,7 @@ public class SyncS2CSessionMrg {
             this.sndTokenTimes=sndTokenTimes;
             this.token=token;
             this.preToken=preToken;
-            this.sessionTimeout=sessionTimeout;
+            this.expiryEntry.setExpireSecTime(sessionTimeout);
         }
 
         /**
@@ -692,11 +714,19 @@ public class SyncS2CSessionMrg {
         }
 
         int getSessionTimeout() {
-            return sessionTimeout;
+            return expiryEntry.getExpireSecTime();
         }
 
         void setSessionTimeout(int sessionTimeout) {
-            this.sessionTimeout = sessionTimeout;
+            this.expiryEntry.setExpireSecTime(sessionTimeout);
+        }
+
+        ExpiryIndex.Entry<SessionWrapper> getExpiryEntry() {
+            return expiryEntry;
+        }
+
+        void setExpiryEntry(ExpiryIndex.Entry<SessionWrapper> expiryEntry) {
+            this.expiryEntry = expiryEntry;
         }
     }
 }
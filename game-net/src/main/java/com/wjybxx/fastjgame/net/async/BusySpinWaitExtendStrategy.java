@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.WaitStrategy;
+import com.wjybxx.fastjgame.net.async.event.NetEventHandler;
+
+/**
+ * 忙等待策略，等待期间一直自旋(并尝试执行游戏世界循环)。
+ * 唤醒延迟最低，但会占满一个核心，只适合绑定了独立核心的延迟敏感进程。
+ * @see WorldWaitStrategyType#BUSY_SPIN
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 15:20
+ * @github - https://github.com/hl845740757
+ */
+public class BusySpinWaitExtendStrategy implements WaitStrategy {
+
+    private final NetEventHandler eventConsumer;
+
+    public BusySpinWaitExtendStrategy(NetEventHandler eventConsumer) {
+        this.eventConsumer = eventConsumer;
+    }
+
+    @Override
+    public long waitFor(final long sequence, Sequence cursor, final Sequence dependentSequence,
+                        final SequenceBarrier barrier) throws AlertException {
+        long availableSequence;
+        while ((availableSequence = dependentSequence.get()) < sequence) {
+            eventConsumer.onWaitEvent();
+            barrier.checkAlert();
+        }
+        return availableSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 已编码消息内容的持有者，用于重传缓冲区。
+ * 消息内容为包中ack字段之后的部分(sequence、messageId、消息体)，重发时只需要写入新的包头和ack。
+ *
+ * 缓存编码内容之前持有原始的消息对象，缓存成功之后不再引用它，
+ * 避免消息在等待确认期间(可能很久)一直持有完整的java对象图。
+ *
+ * IO线程第一次编码之后通过{@link #trySetBody(ByteBuf)}缓存；
+ * 逻辑线程重发时通过{@link #retainedBody()}获取，消息被确认或会话删除时通过{@link #release()}释放。
+ * 获取和释放都在逻辑线程，因此不存在释放之后又被引用的问题。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/19 16:40
+ * @github - https://github.com/hl845740757
+ */
+@ThreadSafe
+public final class EncodedMessageHolder {
+
+    private static final AtomicReferenceFieldUpdater<EncodedMessageHolder, ByteBuf> BODY_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(EncodedMessageHolder.class, ByteBuf.class, "body");
+    /**
+     * 已释放标记，释放之后IO线程不可以再缓存
+     */
+    private static final ByteBuf RELEASED = Unpooled.EMPTY_BUFFER;
+
+    private volatile ByteBuf body;
+    /**
+     * 原始的消息对象，缓存编码内容之后或释放之后为null。
+     * 总是先设置body，再清除message，因此读到null时body一定可见
+     */
+    private volatile Object message;
+
+    /**
+     * @param message 原始的消息对象
+     */
+    public EncodedMessageHolder(Object message) {
+        this.message = message;
+    }
+
+    /**
+     * 获取原始的消息对象
+     * @return 已缓存编码内容或已释放时返回null
+     */
+    @Nullable
+    public Object getMessage() {
+        return message;
+    }
+
+    /**
+     * 缓存编码后的消息内容(IO线程调用)，缓存成功后不再引用原始的消息对象
+     * @param body 消息内容，调用者已为其增加引用计数
+     * @return 缓存成功返回true，如果已经缓存过或已释放返回false，此时调用者需要释放body
+     */
+    public boolean trySetBody(ByteBuf body){
+        if (BODY_UPDATER.compareAndSet(this, null, body)){
+            message = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 获取缓存的消息内容(逻辑线程调用)
+     * @return 增加了引用计数的副本，使用者负责释放；还未缓存或已释放时返回null
+     */
+    @Nullable
+    public ByteBuf retainedBody(){
+        ByteBuf body = this.body;
+        if (null == body || body == RELEASED){
+            return null;
+        }
+        return body.retainedDuplicate();
+    }
+
+    /**
+     * 释放缓存的消息内容(逻辑线程调用)
+     */
+    public void release(){
+        message = null;
+        ByteBuf body = BODY_UPDATER.getAndSet(this, RELEASED);
+        if (null != body && body != RELEASED){
+            body.release();
+        }
+    }
+}
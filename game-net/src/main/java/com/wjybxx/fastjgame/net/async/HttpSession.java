@@ -64,6 +64,10 @@ public final class HttpSession {
         return writeAndFlush(response);
     }
 
+    public Channel getChannel() {
+        return channel;
+    }
+
     public int getSessionTimeout() {
         return sessionTimeout;
     }
@@ -16,14 +16,19 @@
 
 package com.wjybxx.fastjgame.net.async;
 
+import com.wjybxx.fastjgame.net.async.transferobject.EncodedLogicMessageTO;
 import com.wjybxx.fastjgame.net.async.transferobject.LogicMessageTO;
 import com.wjybxx.fastjgame.net.async.transferobject.MessageTO;
 
-import javax.annotation.Nonnull;
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
  * 业务逻辑消息，应用层使用的对象。
+ * 如果需要缓存编码后的内容，第一次发送时由IO线程缓存，重发时直接使用缓存的内容，不再序列化；
+ * 缓存之后不再引用原始的消息对象(见{@link EncodedMessageHolder})，等待确认期间只持有编码后的内容。
  *
  * @author wjybxx
  * @version 1.0
@@ -34,21 +39,66 @@ import javax.annotation.concurrent.NotThreadSafe;
 public class LogicMessage extends Message{
 
     /**
-     * 真正的消息内容
+     * 真正的消息内容，需要缓存编码内容时由{@link #encodedMessageHolder}持有，该字段为null
      */
     private final Object message;
+    /**
+     * 已编码的消息内容，不需要缓存时为null
+     */
+    private final EncodedMessageHolder encodedMessageHolder;
 
     public LogicMessage(long sequence, Object message) {
+        this(sequence, message, false);
+    }
+
+    /**
+     * @param sequence 消息序号
+     * @param message 消息内容
+     * @param retransmitEncoded 是否缓存编码后的内容用于重发
+     */
+    public LogicMessage(long sequence, Object message, boolean retransmitEncoded) {
         super(sequence);
-        this.message = message;
+        if (retransmitEncoded){
+            this.message = null;
+            this.encodedMessageHolder = new EncodedMessageHolder(message);
+        } else {
+            this.message = message;
+            this.encodedMessageHolder = null;
+        }
     }
 
-    public @Nonnull Object getMessage() {
-        return message;
+    /**
+     * 获取消息内容
+     * @return 如果已缓存编码后的内容(或已释放)，则返回null
+     */
+    public @Nullable Object getMessage() {
+        return null == encodedMessageHolder ? message : encodedMessageHolder.getMessage();
     }
 
     @Override
     public MessageTO build(long ack) {
-        return new LogicMessageTO(ack,getSequence(), getMessage());
+        if (null == encodedMessageHolder){
+            return new LogicMessageTO(ack, getSequence(), message);
+        }
+        ByteBuf encodedBody = encodedMessageHolder.retainedBody();
+        if (null == encodedBody){
+            Object rawMessage = encodedMessageHolder.getMessage();
+            if (null != rawMessage){
+                // 还未编码过
+                return new LogicMessageTO(ack, getSequence(), rawMessage, encodedMessageHolder);
+            }
+            // IO线程刚好缓存了编码内容(先设置内容再清除消息对象，因此此时一定能获取到)
+            encodedBody = encodedMessageHolder.retainedBody();
+            assert null != encodedBody;
+        }
+        // 重发，只需要替换ack
+        return new EncodedLogicMessageTO(ack, getSequence(), encodedBody);
+    }
+
+    @Override
+    public void release() {
+        if (null != encodedMessageHolder){
+            encodedMessageHolder.release();
+        }
     }
 }
@@ -62,4 +62,11 @@ public abstract class Message {
      */
     public abstract MessageTO build(long ack);
 
+    /**
+     * 消息被确认或会话删除时调用，释放消息持有的资源
+     */
+    public void release(){
+
+    }
+
 }
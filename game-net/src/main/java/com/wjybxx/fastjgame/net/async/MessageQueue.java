@@ -18,8 +18,6 @@ package com.wjybxx.fastjgame.net.async;
 
 import com.wjybxx.fastjgame.misc.LongSequencer;
 
-import java.util.LinkedList;
-
 /**
  * 消息队列，可与tcp的收发缓冲区比较
  * 消息视图大致如下：
@@ -30,6 +28,8 @@ import java.util.LinkedList;
  * |    0~n    |      0~n      |
  * |---------------------------
  *
+ * 两个队列都使用{@link MessageRingBuffer}，队列内的消息序号是连续的。
+ *
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 11:43
@@ -52,11 +52,11 @@ public final class MessageQueue {
     /**
      * 已发送待确认的消息，只要发送过就不会再放入 {@link #needSendQueue}
      */
-    private final LinkedList<Message> sentQueue=new LinkedList<>();
+    private final MessageRingBuffer sentQueue=new MessageRingBuffer();
     /**
      * 待发送的消息,还没有尝试发送过的消息
      */
-    private final LinkedList<Message> needSendQueue=new LinkedList<>();
+    private final MessageRingBuffer needSendQueue=new MessageRingBuffer();
 
 
     // -----------------对方返回的ack
@@ -114,12 +114,15 @@ public final class MessageQueue {
         if (!isAckOK(ack)){
             throw new IllegalArgumentException(generateAckErrorInfo(ack));
         }
-        while (sentQueue.size()>0){
-            if (sentQueue.getFirst().getSequence()>ack){
+        // 释放已确认的消息持有的资源
+        for (int index=0,size=sentQueue.size(); index<size; index++){
+            Message message = sentQueue.get(index);
+            if (message.getSequence()>ack){
                 break;
             }
-            sentQueue.removeFirst();
+            message.release();
         }
+        sentQueue.removeUntil(ack);
     }
 
     /**
@@ -148,14 +151,28 @@ public final class MessageQueue {
         this.ack = ack;
     }
 
-    public LinkedList<Message> getSentQueue() {
+    public MessageRingBuffer getSentQueue() {
         return sentQueue;
     }
 
-    public LinkedList<Message> getNeedSendQueue() {
+    public MessageRingBuffer getNeedSendQueue() {
         return needSendQueue;
     }
 
+    /**
+     * 会话删除时调用，释放所有缓存的消息
+     */
+    public void releaseAll(){
+        for (int index=0,size=sentQueue.size(); index<size; index++){
+            sentQueue.get(index).release();
+        }
+        for (int index=0,size=needSendQueue.size(); index<size; index++){
+            needSendQueue.get(index).release();
+        }
+        sentQueue.clear();
+        needSendQueue.clear();
+    }
+
     /**
      * 获取当前缓存的消息数
      * @return
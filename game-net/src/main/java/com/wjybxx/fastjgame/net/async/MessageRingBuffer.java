@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.NoSuchElementException;
+
+/**
+ * 基于数组的环形消息队列，容量为2的整次幂，不够时扩容为2倍。
+ * 队列中的消息序号是连续的，因此可以直接通过序号计算下标，
+ * 确认消息时不需要逐个比较序号，也不需要为每个消息分配链表节点。
+ *
+ * 遍历请使用{@link #get(int)}，不提供迭代器，避免重发时的对象分配。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/19 10:20
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public final class MessageRingBuffer {
+
+    /**
+     * 默认初始容量
+     */
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    /**
+     * 最大容量
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private Message[] buffer;
+    /**
+     * 用于计算下标，buffer.length - 1
+     */
+    private int mask;
+    /**
+     * 第一个元素的下标
+     */
+    private int head = 0;
+    /**
+     * 元素个数
+     */
+    private int size = 0;
+
+    public MessageRingBuffer() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public MessageRingBuffer(int initialCapacity) {
+        int capacity = tableSizeFor(initialCapacity);
+        this.buffer = new Message[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(int capacity){
+        if (capacity <= 1){
+            return 2;
+        }
+        if (capacity >= MAXIMUM_CAPACITY){
+            return MAXIMUM_CAPACITY;
+        }
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * 添加一个消息到队尾，它的序号必须是队尾消息序号+1
+     * @param message 新消息
+     */
+    public void addLast(Message message){
+        if (size > 0 && message.getSequence() != getLast().getSequence() + 1){
+            throw new IllegalArgumentException("discontinuous sequence, last=" + getLast().getSequence()
+                    + ", new=" + message.getSequence());
+        }
+        if (size == buffer.length){
+            grow();
+        }
+        buffer[(head + size) & mask] = message;
+        size++;
+    }
+
+    /**
+     * 删除队首消息
+     * @return 队首消息
+     */
+    public Message removeFirst(){
+        Message message = getFirst();
+        buffer[head] = null;
+        head = (head + 1) & mask;
+        size--;
+        return message;
+    }
+
+    /**
+     * 删除序号小于等于指定序号的所有消息
+     * @param sequence 已确认的序号
+     */
+    public void removeUntil(long sequence){
+        if (size == 0){
+            return;
+        }
+        // 序号连续，直接计算需要删除的数量
+        long removeNum = sequence - buffer[head].getSequence() + 1;
+        if (removeNum <= 0){
+            return;
+        }
+        int num = removeNum >= size ? size : (int) removeNum;
+        for (int index = 0; index < num; index++){
+            buffer[(head + index) & mask] = null;
+        }
+        head = (head + num) & mask;
+        size -= num;
+    }
+
+    /**
+     * 获取队首消息
+     */
+    public Message getFirst(){
+        if (size == 0){
+            throw new NoSuchElementException();
+        }
+        return buffer[head];
+    }
+
+    /**
+     * 获取队尾消息
+     */
+    public Message getLast(){
+        if (size == 0){
+            throw new NoSuchElementException();
+        }
+        return buffer[(head + size - 1) & mask];
+    }
+
+    /**
+     * 获取队列中的第index个消息
+     * @param index 0 ~ size-1
+     */
+    public Message get(int index){
+        if (index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+        }
+        return buffer[(head + index) & mask];
+    }
+
+    /**
+     * 通过序号查找消息
+     * @param sequence 消息序号
+     * @return 不在队列中时返回null
+     */
+    public Message getBySequence(long sequence){
+        if (size == 0){
+            return null;
+        }
+        long index = sequence - buffer[head].getSequence();
+        if (index < 0 || index >= size){
+            return null;
+        }
+        return buffer[(head + (int) index) & mask];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * 删除所有消息
+     */
+    public void clear(){
+        for (int index = 0; index < size; index++){
+            buffer[(head + index) & mask] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * 扩容为原来的2倍，并将元素整理到数组头部
+     */
+    private void grow(){
+        if (buffer.length >= MAXIMUM_CAPACITY){
+            throw new IllegalStateException("ring buffer is full, capacity=" + buffer.length);
+        }
+        Message[] newBuffer = new Message[buffer.length << 1];
+        int firstPartLength = Math.min(size, buffer.length - head);
+        System.arraycopy(buffer, head, newBuffer, 0, firstPartLength);
+        System.arraycopy(buffer, 0, newBuffer, firstPartLength, size - firstPartLength);
+        buffer = newBuffer;
+        mask = newBuffer.length - 1;
+        head = 0;
+    }
+
+    /**
+     * 当前容量
+     */
+    public int capacity(){
+        return buffer.length;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageRingBuffer{" +
+                "capacity=" + buffer.length +
+                ", size=" + size +
+                ", firstSequence=" + (size > 0 ? buffer[head].getSequence() : -1) +
+                "}";
+    }
+}
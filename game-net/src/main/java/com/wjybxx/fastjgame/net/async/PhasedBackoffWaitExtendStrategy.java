@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.WaitStrategy;
+import com.wjybxx.fastjgame.net.async.event.NetEventHandler;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分阶段退避的等待策略：先自旋，再yield，最后park，park的时间从{@link #MIN_PARK_NANOS}开始倍增，直到最大park时间。
+ * 短暂空闲时延迟接近{@link YieldingWaitExtendStrategy}，长时间空闲时CPU占用接近{@link SleepingWaitExtendStrategy}。
+ * @see WorldWaitStrategyType#PHASED_BACKOFF
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 15:20
+ * @github - https://github.com/hl845740757
+ */
+public class PhasedBackoffWaitExtendStrategy implements WaitStrategy {
+
+    /**
+     * 第一次park的纳秒数
+     */
+    private static final long MIN_PARK_NANOS = 1000;
+
+    private final NetEventHandler eventConsumer;
+    private final int spinTries;
+    private final int yieldTries;
+    private final long maxParkNanos;
+
+    /**
+     * @param eventConsumer 事件消费者
+     * @param spinTries 自旋次数
+     * @param yieldTries yield次数
+     * @param maxParkNanos 最大park纳秒数
+     */
+    public PhasedBackoffWaitExtendStrategy(NetEventHandler eventConsumer, int spinTries, int yieldTries, long maxParkNanos) {
+        this.eventConsumer = eventConsumer;
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+        this.maxParkNanos = Math.max(MIN_PARK_NANOS, maxParkNanos);
+    }
+
+    @Override
+    public long waitFor(final long sequence, Sequence cursor, final Sequence dependentSequence,
+                        final SequenceBarrier barrier) throws AlertException {
+        long availableSequence;
+        int counter = spinTries + yieldTries;
+        long parkNanos = MIN_PARK_NANOS;
+        while ((availableSequence = dependentSequence.get()) < sequence) {
+            eventConsumer.onWaitEvent();
+            barrier.checkAlert();
+            if (counter > yieldTries) {
+                --counter;
+            } else if (counter > 0) {
+                --counter;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+            }
+        }
+        return availableSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+
+    }
+}
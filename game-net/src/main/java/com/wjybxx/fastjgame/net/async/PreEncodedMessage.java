@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async;
+
+import com.wjybxx.fastjgame.net.common.ChecksumStrategy;
+import com.wjybxx.fastjgame.net.common.CodecHelper;
+import io.netty.buffer.Unpooled;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+
+/**
+ * 预先编码好的消息，用于广播。
+ * 广播时同一个消息对象只在逻辑线程序列化一次，每个接收者的codec只需要写入自己的包头(ack、sequence等)，
+ * 然后将包头和共享的消息内容组合为{@link io.netty.buffer.CompositeByteBuf}发送，
+ * 广播的开销从 O(玩家数 × 消息大小) 降低为 O(消息大小 + 玩家数)。
+ *
+ * 校验和：codec的校验和策略支持合并({@link ChecksumStrategy#isCombinable()})时，消息内容的校验和在这里计算一次，
+ * 每个接收者只计算自己包头的校验和再合并；不支持合并时(如{@link com.wjybxx.fastjgame.net.common.WordHashChecksumStrategy})，
+ * 每个接收者需要重新计算整个包的校验和，只有序列化是共享的，广播与玩家通信时应选择支持合并的策略。
+ *
+ * 消息内容保存在堆内存的字节数组中，由GC管理，因此可以安全的保存在已发送队列中用于重发，不需要引用计数。
+ * 它在构造完成之后不再修改，可以安全的发布到IO线程。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/18 14:20
+ * @github - https://github.com/hl845740757
+ */
+@Immutable
+public final class PreEncodedMessage {
+
+    /**
+     * 原始的消息对象，当接收方的codec与编码时使用的codec不一致时，使用原始对象编码
+     */
+    private final Object message;
+    /**
+     * 编码使用的codec
+     */
+    private final CodecHelper codecHelper;
+    /**
+     * 消息id
+     */
+    private final int messageId;
+    /**
+     * 序列化后的消息内容
+     */
+    private final byte[] messageBytes;
+    /**
+     * 是否预先计算了消息内容的校验和(校验和策略支持合并)
+     */
+    private final boolean checksumCombinable;
+    /**
+     * 消息内容的校验和，仅当{@link #checksumCombinable}为true时有效
+     */
+    private final long messageChecksum;
+
+    private PreEncodedMessage(Object message, CodecHelper codecHelper, int messageId, byte[] messageBytes,
+                              boolean checksumCombinable, long messageChecksum) {
+        this.message = message;
+        this.codecHelper = codecHelper;
+        this.messageId = messageId;
+        this.messageBytes = messageBytes;
+        this.checksumCombinable = checksumCombinable;
+        this.messageChecksum = messageChecksum;
+    }
+
+    /**
+     * 使用指定的codec预编码一个消息
+     * @param codecHelper 接收方channel使用的codec
+     * @param message 要广播的消息
+     * @return 预编码的消息
+     * @throws IOException 序列化失败时抛出
+     */
+    public static PreEncodedMessage encode(CodecHelper codecHelper, @Nonnull Object message) throws IOException {
+        int messageId = codecHelper.getMessageMapper().getMessageId(message.getClass());
+        byte[] messageBytes = codecHelper.getMessageSerializer().serialize(message);
+
+        ChecksumStrategy checksumStrategy = codecHelper.getChecksumStrategy();
+        if (!checksumStrategy.isCombinable()){
+            // 不支持合并，由每个接收者计算整个包的校验和
+            return new PreEncodedMessage(message, codecHelper, messageId, messageBytes, false, 0);
+        }
+        long messageChecksum = checksumStrategy.checksum(Unpooled.wrappedBuffer(messageBytes), 0, messageBytes.length);
+        return new PreEncodedMessage(message, codecHelper, messageId, messageBytes, true, messageChecksum);
+    }
+
+    public Object getMessage() {
+        return message;
+    }
+
+    public CodecHelper getCodecHelper() {
+        return codecHelper;
+    }
+
+    public int getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * 注意：返回的是内部数组，不可以修改
+     */
+    public byte[] getMessageBytes() {
+        return messageBytes;
+    }
+
+    /**
+     * 是否预先计算了消息内容的校验和，为false时发送方需要计算整个包的校验和
+     */
+    public boolean isChecksumCombinable() {
+        return checksumCombinable;
+    }
+
+    /**
+     * 消息内容的校验和，仅当{@link #isChecksumCombinable()}为true时有效
+     */
+    public long getMessageChecksum() {
+        if (!checksumCombinable){
+            throw new IllegalStateException("message checksum not computed");
+        }
+        return messageChecksum;
+    }
+}
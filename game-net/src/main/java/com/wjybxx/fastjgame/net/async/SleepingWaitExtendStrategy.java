@@ -26,6 +26,8 @@ import java.util.concurrent.locks.LockSupport;
 
 /**
  * 消费者等待策略 (也就是我们的游戏世界等待网络事件时的策略)。
+ * 先自旋，再yield，最后固定间隔park。
+ * @see WorldWaitStrategyType#SLEEPING
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 10:06
@@ -33,19 +35,36 @@ import java.util.concurrent.locks.LockSupport;
  */
 public class SleepingWaitExtendStrategy<T> implements WaitStrategy {
 
-    private static final int DEFAULT_RETRIES = 200;
+    private static final int DEFAULT_SPIN_TRIES = 100;
+    private static final int DEFAULT_YIELD_TRIES = 100;
     private static final long DEFAULT_SLEEP = 10*10000;
 
     private final int retries;
+    /**
+     * 剩余次数大于该值时自旋，否则yield
+     */
+    private final int yieldTries;
     private final long sleepTimeNs;
 
     private final NetEventHandler eventConsumer;
 
     public SleepingWaitExtendStrategy(NetEventHandler eventConsumer)
+    {
+        this(eventConsumer, DEFAULT_SPIN_TRIES, DEFAULT_YIELD_TRIES, DEFAULT_SLEEP);
+    }
+
+    /**
+     * @param eventConsumer 事件消费者
+     * @param spinTries 自旋次数
+     * @param yieldTries yield次数
+     * @param sleepTimeNs 自旋和yield之后每次park的纳秒数
+     */
+    public SleepingWaitExtendStrategy(NetEventHandler eventConsumer, int spinTries, int yieldTries, long sleepTimeNs)
     {
         this.eventConsumer = eventConsumer;
-        this.retries = DEFAULT_RETRIES;
-        this.sleepTimeNs = DEFAULT_SLEEP;
+        this.retries = spinTries + yieldTries;
+        this.yieldTries = yieldTries;
+        this.sleepTimeNs = sleepTimeNs;
     }
 
     @Override
@@ -76,8 +95,8 @@ public class SleepingWaitExtendStrategy<T> implements WaitStrategy {
     {
         barrier.checkAlert();
 
-        if (counter > 100) {
-            --counter;// 大于100时自旋
+        if (counter > yieldTries) {
+            --counter;// 大于yieldTries时自旋
         }
         else if (counter > 0) {
             --counter;
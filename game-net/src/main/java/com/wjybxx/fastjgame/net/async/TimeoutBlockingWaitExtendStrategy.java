@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.WaitStrategy;
+import com.wjybxx.fastjgame.net.async.event.NetEventHandler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 带超时的阻塞等待策略，阻塞等待生产者唤醒，超时后执行一次游戏世界循环再继续等待。
+ * 空闲时CPU占用最低。只有消费者真正阻塞时生产者才需要加锁唤醒(同disruptor的LiteBlockingWaitStrategy)。
+ *
+ * 注意：超时时间决定了空闲时tick的精度，应不大于帧间隔；
+ * 同步rpc的响应({@link com.wjybxx.fastjgame.net.async.event.NetEventType#SYNC_RPC_LOGIC_RESPONSE}等)经由disruptor发布，会唤醒消费者；
+ * 而收到的同步rpc请求由{@link com.wjybxx.fastjgame.world.World#dispatchSyncRpcEvent(long)}在loop中轮询处理，
+ * 不会唤醒消费者，其处理延迟上限也是超时时间。
+ *
+ * @see WorldWaitStrategyType#TIMEOUT_BLOCKING
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 15:20
+ * @github - https://github.com/hl845740757
+ */
+public class TimeoutBlockingWaitExtendStrategy implements WaitStrategy {
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition processorNotifyCondition = lock.newCondition();
+    /**
+     * 消费者是否可能在阻塞，为false时生产者不需要加锁
+     */
+    private final AtomicBoolean signalNeeded = new AtomicBoolean(false);
+
+    private final NetEventHandler eventConsumer;
+    private final long timeoutNanos;
+
+    /**
+     * @param eventConsumer 事件消费者
+     * @param timeout 阻塞超时时间
+     * @param timeUnit 时间单位
+     */
+    public TimeoutBlockingWaitExtendStrategy(NetEventHandler eventConsumer, long timeout, TimeUnit timeUnit) {
+        this.eventConsumer = eventConsumer;
+        this.timeoutNanos = timeUnit.toNanos(timeout);
+    }
+
+    @Override
+    public long waitFor(final long sequence, Sequence cursor, final Sequence dependentSequence,
+                        final SequenceBarrier barrier) throws AlertException, InterruptedException {
+        long availableSequence;
+        while ((availableSequence = dependentSequence.get()) < sequence) {
+            eventConsumer.onWaitEvent();
+            barrier.checkAlert();
+
+            lock.lock();
+            try {
+                signalNeeded.getAndSet(true);
+                // 设置标记之后再检查一次，避免错过唤醒
+                if (cursor.get() < sequence) {
+                    barrier.checkAlert();
+                    processorNotifyCondition.awaitNanos(timeoutNanos);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return availableSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        if (signalNeeded.getAndSet(false)) {
+            lock.lock();
+            try {
+                processorNotifyCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
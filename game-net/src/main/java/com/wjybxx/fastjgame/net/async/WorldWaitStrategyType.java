@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async;
+
+/**
+ * 游戏世界线程(disruptor消费者)等待网络事件的策略类型，通过{@code worldWaitStrategy}配置。
+ * 等待期间都会调用{@link com.wjybxx.fastjgame.net.async.event.NetEventHandler#onWaitEvent()}驱动游戏世界tick。
+ *
+ * 唤醒延迟指生产者发布事件到游戏世界线程开始处理的时间，主要由等待方式决定：
+ * 自旋为sub-us级，yield为us级(依赖系统调度)，park/阻塞的延迟上限为park时间或阻塞超时时间。
+ * 具体数值与硬件和负载相关，可使用测试目录下的WaitStrategyBenchmark在目标机器上测量。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 15:10
+ * @github - https://github.com/hl845740757
+ */
+public enum WorldWaitStrategyType {
+
+    /**
+     * 先自旋，再yield，最后固定间隔park(默认)。
+     * 延迟与CPU占用的折中，空闲时唤醒延迟上限为park时间。
+     * @see SleepingWaitExtendStrategy
+     */
+    SLEEPING,
+    /**
+     * 一直自旋，唤醒延迟最低，但会占满一个核心。
+     * 只适合绑定了独立核心的延迟敏感进程(如战斗场景)。
+     * @see BusySpinWaitExtendStrategy
+     */
+    BUSY_SPIN,
+    /**
+     * 先自旋，之后一直yield，延迟较低，没有其它线程竞争时仍然会占满一个核心。
+     * @see YieldingWaitExtendStrategy
+     */
+    YIELDING,
+    /**
+     * 先自旋，再yield，最后以指数增长的时间park(上限为park时间)。
+     * 短暂空闲时延迟接近YIELDING，长时间空闲时CPU占用接近SLEEPING。
+     * @see PhasedBackoffWaitExtendStrategy
+     */
+    PHASED_BACKOFF,
+    /**
+     * 阻塞等待生产者唤醒，超时后执行一次游戏世界循环。
+     * CPU占用最低，适合空闲较多的进程(如登录服)，但生产者每次发布都可能需要加锁唤醒。
+     * 注意：异步调用同步rpc的响应经由disruptor发布，会唤醒消费者；
+     * 但对端发来的同步rpc请求不经过disruptor(在loop中轮询处理)，其处理延迟上限为超时时间。
+     * @see TimeoutBlockingWaitExtendStrategy
+     */
+    TIMEOUT_BLOCKING,
+    ;
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.WaitStrategy;
+import com.wjybxx.fastjgame.net.async.event.NetEventHandler;
+
+/**
+ * yield等待策略，先自旋一定次数，之后每次都尝试让出CPU。
+ * 延迟较低，没有其它线程竞争CPU时仍然会占满一个核心。
+ * @see WorldWaitStrategyType#YIELDING
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 15:20
+ * @github - https://github.com/hl845740757
+ */
+public class YieldingWaitExtendStrategy implements WaitStrategy {
+
+    private final NetEventHandler eventConsumer;
+    private final int spinTries;
+
+    /**
+     * @param eventConsumer 事件消费者
+     * @param spinTries yield之前的自旋次数
+     */
+    public YieldingWaitExtendStrategy(NetEventHandler eventConsumer, int spinTries) {
+        this.eventConsumer = eventConsumer;
+        this.spinTries = spinTries;
+    }
+
+    @Override
+    public long waitFor(final long sequence, Sequence cursor, final Sequence dependentSequence,
+                        final SequenceBarrier barrier) throws AlertException {
+        long availableSequence;
+        int counter = spinTries;
+        while ((availableSequence = dependentSequence.get()) < sequence) {
+            eventConsumer.onWaitEvent();
+            barrier.checkAlert();
+            if (counter > 0) {
+                --counter;
+            } else {
+                Thread.yield();
+            }
+        }
+        return availableSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+
+    }
+}
@@ -16,17 +16,26 @@
 
 package com.wjybxx.fastjgame.net.async.codec;
 
+import com.wjybxx.fastjgame.constants.NetConstants;
+import com.wjybxx.fastjgame.mrg.DisruptorMrg;
+import com.wjybxx.fastjgame.net.async.PreEncodedMessage;
+import com.wjybxx.fastjgame.net.async.event.NetEventBatch;
+import com.wjybxx.fastjgame.net.async.event.NetEventParam;
 import com.wjybxx.fastjgame.net.async.event.NetEventType;
 import com.wjybxx.fastjgame.net.async.transferobject.AckPingPongMessageTO;
 import com.wjybxx.fastjgame.net.async.transferobject.ConnectRequestTO;
 import com.wjybxx.fastjgame.net.async.transferobject.ConnectResponseTO;
+import com.wjybxx.fastjgame.net.async.transferobject.EncodedLogicMessageTO;
 import com.wjybxx.fastjgame.net.async.transferobject.LogicMessageTO;
+import com.wjybxx.fastjgame.net.common.ChecksumStrategy;
 import com.wjybxx.fastjgame.net.common.CodecHelper;
 import com.wjybxx.fastjgame.net.common.MessageMapper;
 import com.wjybxx.fastjgame.net.common.MessageSerializer;
 import com.wjybxx.fastjgame.utils.NetUtils;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -53,12 +62,28 @@ public abstract class BaseCodec extends ChannelDuplexHandler {
 
     private static final Logger logger= LoggerFactory.getLogger(BaseCodec.class);
 
+    /**
+     * 已编码的消息内容在包中的偏移量：长度(4) + 校验和(8) + 包类型(1) + ack(8)
+     */
+    private static final int ENCODED_BODY_OFFSET = 4 + 8 + 1 + 8;
+
     protected final MessageMapper messageMapper;
     protected final MessageSerializer messageSerializer;
+    protected final ChecksumStrategy checksumStrategy;
 
-    public BaseCodec(CodecHelper codecHelper) {
+    private final DisruptorMrg disruptorMrg;
+    /**
+     * 一次读取期间解码出的事件，在{@link #channelReadComplete(ChannelHandlerContext)}时一起发布。
+     * 未开启批量发布时为null。
+     */
+    private final NetEventBatch netEventBatch;
+
+    public BaseCodec(CodecHelper codecHelper, DisruptorMrg disruptorMrg) {
         this.messageMapper=codecHelper.getMessageMapper();
         this.messageSerializer=codecHelper.getMessageSerializer();
+        this.checksumStrategy=codecHelper.getChecksumStrategy();
+        this.disruptorMrg=disruptorMrg;
+        this.netEventBatch=disruptorMrg.newEventBatch();
     }
 
     @Override
@@ -72,7 +97,7 @@ public abstract class BaseCodec extends ChannelDuplexHandler {
         ByteBuf msg= (ByteBuf) byteBuf;
         try {
             long realSum=msg.readLong();
-            long logicSum= NetUtils.calChecksum(msg,msg.readerIndex(),msg.readableBytes());
+            long logicSum= checksumStrategy.checksum(msg,msg.readerIndex(),msg.readableBytes());
             if (realSum!=logicSum){
                 // 校验和不一致
                 closeCtx(ctx,"realSum="+realSum + ", logicSum="+logicSum);
@@ -93,6 +118,51 @@ public abstract class BaseCodec extends ChannelDuplexHandler {
         }
     }
 
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        publishBatchEvents(ctx);
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 保证关闭前读取到的事件都能发布出去
+        publishBatchEvents(ctx);
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 发布解码出的网络事件，开启批量发布时先缓存
+     * @param ctx 产生事件的channel
+     * @param eventType 事件类型
+     * @param eventParam 事件参数
+     */
+    protected final void publishEvent(ChannelHandlerContext ctx, NetEventType eventType, NetEventParam eventParam){
+        if (null == netEventBatch){
+            disruptorMrg.publishEvent(ctx.channel(), eventType, eventParam);
+        } else {
+            netEventBatch.add(ctx.channel(), eventType, eventParam);
+        }
+    }
+
+    /**
+     * 发布消息事件(业务逻辑包、ack心跳包)，字段直接填充到事件对象上
+     */
+    private void publishMessageEvent(ChannelHandlerContext ctx, NetEventType eventType, long sessionGuid,
+                                     long ack, long sequence, Object message){
+        if (null == netEventBatch){
+            disruptorMrg.publishMessageEvent(ctx.channel(), eventType, sessionGuid, ack, sequence, message);
+        } else {
+            netEventBatch.addMessageEvent(ctx.channel(), eventType, sessionGuid, ack, sequence, message);
+        }
+    }
+
+    private void publishBatchEvents(ChannelHandlerContext ctx){
+        if (null != netEventBatch){
+            netEventBatch.publish(ctx.channel());
+        }
+    }
+
     /**
      * 子类真正的读取数据
      * @param ctx
@@ -171,42 +241,127 @@ public abstract class BaseCodec extends ChannelDuplexHandler {
      */
     protected final void writeLogicMessage(ChannelHandlerContext ctx, LogicMessageTO msgTO,
                                            ChannelPromise promise, NetEventType eventType) throws Exception{
+        if (msgTO instanceof EncodedLogicMessageTO){
+            writeEncodedLogicMessage(ctx, (EncodedLogicMessageTO) msgTO, promise, eventType);
+            return;
+        }
         // 发送的时候不可能为null
         Object message = msgTO.getMessage();
         assert null!=message;
+        if (message instanceof PreEncodedMessage){
+            PreEncodedMessage preEncodedMessage = (PreEncodedMessage) message;
+            if (isSameCodec(preEncodedMessage.getCodecHelper())){
+                writePreEncodedLogicMessage(ctx, msgTO, preEncodedMessage, promise, eventType);
+                return;
+            }
+            // 编码时使用的codec与当前channel不一致，使用原始消息编码
+            message = preEncodedMessage.getMessage();
+        }
         int messageId = messageMapper.getMessageId(message.getClass());
-        byte[] messageBytes= messageSerializer.serialize(message);
 
-        int contentLength = 8 + 8 + 4 + messageBytes.length;
+        // 消息直接序列化到byteBuf中，长度字段在写完之后修正
+        int contentLength = 8 + 8 + 4 + NetConstants.ESTIMATED_MESSAGE_LENGTH;
         ByteBuf byteBuf = newInitializedByteBuf(ctx, contentLength,eventType);
-
-        byteBuf.writeLong(msgTO.getAck());
-        byteBuf.writeLong(msgTO.getSequence());
-        byteBuf.writeInt(messageId);
-        byteBuf.writeBytes(messageBytes);
+        try {
+            byteBuf.writeLong(msgTO.getAck());
+            byteBuf.writeLong(msgTO.getSequence());
+            byteBuf.writeInt(messageId);
+            messageSerializer.serialize(message, byteBuf);
+        } catch (Exception e){
+            // 序列化失败，需要释放byteBuf
+            byteBuf.release();
+            throw e;
+        }
+        NetUtils.fixPkgLength(byteBuf);
+        if (null != msgTO.getEncodedMessageHolder()){
+            // 缓存ack之后的内容用于重发，共享内存，不拷贝
+            int bodyIndex = byteBuf.readerIndex() + ENCODED_BODY_OFFSET;
+            ByteBuf encodedBody = byteBuf.retainedSlice(bodyIndex, byteBuf.writerIndex() - bodyIndex);
+            if (!msgTO.getEncodedMessageHolder().trySetBody(encodedBody)){
+                encodedBody.release();
+            }
+        }
         appendSumAndWrite(ctx,byteBuf,promise);
     }
 
     /**
-     * 解析协议3、4 - 业务逻辑包
+     * 编码协议3、4 - 重发已编码的业务逻辑包。
+     * 只写入新的包头和ack，缓存的消息内容不修改(它可能还被之前的写操作引用)。
+     */
+    private void writeEncodedLogicMessage(ChannelHandlerContext ctx, EncodedLogicMessageTO msgTO,
+                                          ChannelPromise promise, NetEventType eventType) {
+        // 消息内容的所有权转移给compositeByteBuf
+        ByteBuf encodedBody = msgTO.getEncodedBody();
+
+        ByteBuf head = newInitializedByteBuf(ctx, 8, eventType);
+        head.writeLong(msgTO.getAck());
+        head.setInt(0, head.readableBytes() - 4 + encodedBody.readableBytes());
+
+        CompositeByteBuf byteBuf = ctx.alloc().compositeBuffer(2);
+        byteBuf.addComponents(true, head, encodedBody);
+        appendSumAndWrite(ctx, byteBuf, promise);
+    }
+
+    /**
+     * 编码协议3、4 - 预编码的业务逻辑包(广播)。
+     * 只写入当前channel的包头，消息内容是共享的，不拷贝。
+     */
+    private void writePreEncodedLogicMessage(ChannelHandlerContext ctx, LogicMessageTO msgTO, PreEncodedMessage preEncodedMessage,
+                                             ChannelPromise promise, NetEventType eventType) {
+        byte[] messageBytes = preEncodedMessage.getMessageBytes();
+
+        int headContentLength = 8 + 8 + 4;
+        ByteBuf head = newInitializedByteBuf(ctx, headContentLength, eventType);
+        head.writeLong(msgTO.getAck());
+        head.writeLong(msgTO.getSequence());
+        head.writeInt(preEncodedMessage.getMessageId());
+        // 长度字段包含共享的消息内容
+        head.setInt(0, head.readableBytes() - 4 + messageBytes.length);
+
+        CompositeByteBuf byteBuf = ctx.alloc().compositeBuffer(2);
+        byteBuf.addComponents(true, head, Unpooled.wrappedBuffer(messageBytes));
+        if (preEncodedMessage.isChecksumCombinable()){
+            // 消息内容的校验和已预先计算，只需要计算包头
+            long headSum = checksumStrategy.checksum(head, 12, head.readableBytes() - 12);
+            byteBuf.setLong(4, checksumStrategy.combine(headSum, preEncodedMessage.getMessageChecksum(), messageBytes.length));
+            ctx.write(byteBuf, promise);
+        } else {
+            // 校验和策略不支持合并，计算整个包
+            appendSumAndWrite(ctx, byteBuf, promise);
+        }
+    }
+
+    /**
+     * 预编码消息使用的codec是否与当前codec一致
+     */
+    private boolean isSameCodec(CodecHelper codecHelper){
+        return codecHelper.getMessageMapper() == messageMapper
+                && codecHelper.getMessageSerializer() == messageSerializer
+                && codecHelper.getChecksumStrategy() == checksumStrategy;
+    }
+
+    /**
+     * 解析协议3、4 - 业务逻辑包，并直接发布事件(不创建传输对象和事件参数)
+     * @param sessionGuid 会话唯一标识
      * @param msg
      */
-    protected final LogicMessageTO readLogicMessage(ByteBuf msg) {
+    protected final void readAndPublishLogicMessage(ChannelHandlerContext ctx, NetEventType eventType, long sessionGuid, ByteBuf msg) {
         long ack=msg.readLong();
         long sequence=msg.readLong();
         int messageId=msg.readInt();
-        byte[] messageBytes=NetUtils.readRemainToBytes(msg);
 
+        Object message;
         try {
             Class<?> messageClazz= messageMapper.getMessageClazz(messageId);
             assert null!=messageClazz:"messageId " + messageId + " clazz not found";
-            Object message = messageSerializer.deserialize(messageClazz,messageBytes);
-            return new LogicMessageTO(ack, sequence, message);
+            // 直接从byteBuf反序列化，不拷贝为字节数组
+            message = messageSerializer.deserialize(messageClazz,msg);
         }catch (Exception e){
             // 为了不影响该连接上的其它消息，需要捕获异常
             logger.warn("deserialize messageId {} caught exception",messageId,e);
-            return new LogicMessageTO(ack, sequence, null);
+            message = null;
         }
+        publishMessageEvent(ctx, eventType, sessionGuid, ack, sequence, message);
     }
 
     /**
@@ -223,13 +378,14 @@ public abstract class BaseCodec extends ChannelDuplexHandler {
     }
 
     /**
-     * 解码协议5、6 - ack心跳包
+     * 解码协议5、6 - ack心跳包，并直接发布事件
+     * @param sessionGuid 会话唯一标识
      * @param msg
      */
-    protected final AckPingPongMessageTO readAckPingPongMessage(ByteBuf msg) {
+    protected final void readAndPublishAckPingPongMessage(ChannelHandlerContext ctx, NetEventType eventType, long sessionGuid, ByteBuf msg) {
         long ack=msg.readLong();
         long sequence=msg.readLong();
-        return new AckPingPongMessageTO(ack, sequence);
+        publishMessageEvent(ctx, eventType, sessionGuid, ack, sequence, null);
     }
 
     /**
@@ -267,7 +423,7 @@ public abstract class BaseCodec extends ChannelDuplexHandler {
      * @throws Exception
      */
     protected final void appendSumAndWrite(ChannelHandlerContext ctx, ByteBuf byteBuf, ChannelPromise promise) {
-        NetUtils.appendCheckSum(byteBuf);
+        NetUtils.appendCheckSum(byteBuf,checksumStrategy);
         ctx.write(byteBuf,promise);
     }
 }
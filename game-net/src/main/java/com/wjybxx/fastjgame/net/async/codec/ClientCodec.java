@@ -18,9 +18,7 @@ package com.wjybxx.fastjgame.net.async.codec;
 
 import com.wjybxx.fastjgame.constants.NetConstants;
 import com.wjybxx.fastjgame.mrg.DisruptorMrg;
-import com.wjybxx.fastjgame.net.async.event.AckPingPongEventParam;
 import com.wjybxx.fastjgame.net.async.event.ConnectResponseEventParam;
-import com.wjybxx.fastjgame.net.async.event.LogicMessageEventParam;
 import com.wjybxx.fastjgame.net.async.event.NetEventType;
 import com.wjybxx.fastjgame.net.async.transferobject.AckPingPongMessageTO;
 import com.wjybxx.fastjgame.net.async.transferobject.ConnectRequestTO;
@@ -44,15 +42,13 @@ import java.io.IOException;
 @NotThreadSafe
 public class ClientCodec extends BaseCodec {
 
-    private final DisruptorMrg disruptorMrg;
     /**
      * channel所属的serverGuid
      */
     private long serverGuid = NetConstants.INVALID_SESSION_ID;
 
     public ClientCodec(CodecHelper codecHelper, DisruptorMrg disruptorMrg) {
-        super(codecHelper);
-        this.disruptorMrg = disruptorMrg;
+        super(codecHelper, disruptorMrg);
     }
 
     /**
@@ -134,7 +130,7 @@ public class ClientCodec extends BaseCodec {
         }
         ConnectResponseTO responseTO = readConnectResponse(msg);
         ConnectResponseEventParam connectResponseParam=new ConnectResponseEventParam(serverGuid,responseTO);
-        disruptorMrg.publishEvent(ctx.channel(), NetEventType.SERVER_CONNECT_RESPONSE, connectResponseParam);
+        publishEvent(ctx, NetEventType.SERVER_CONNECT_RESPONSE, connectResponseParam);
     }
 
     /**
@@ -149,9 +145,7 @@ public class ClientCodec extends BaseCodec {
             closeCtx(ctx,"tryReadAckPongMessage, but not send connectRequest!");
             return;
         }
-        AckPingPongMessageTO ackPingPongMessage=readAckPingPongMessage(msg);
-        AckPingPongEventParam ackPongParam=new AckPingPongEventParam(serverGuid,ackPingPongMessage);
-        disruptorMrg.publishEvent(ctx.channel(), NetEventType.SERVER_ACK_PONG,ackPongParam);
+        readAndPublishAckPingPongMessage(ctx, NetEventType.SERVER_ACK_PONG, serverGuid, msg);
     }
 
     /**
@@ -165,9 +159,7 @@ public class ClientCodec extends BaseCodec {
             closeCtx(ctx,"tryReadServerLogicMessage, but not send connectRequest!");
             return;
         }
-        LogicMessageTO logicMessage = readLogicMessage(msg);
-        LogicMessageEventParam logicMessageEventParam =new LogicMessageEventParam(serverGuid, logicMessage);
-        disruptorMrg.publishEvent(ctx.channel(), NetEventType.SERVER_LOGIC_MSG, logicMessageEventParam);
+        readAndPublishLogicMessage(ctx, NetEventType.SERVER_LOGIC_MSG, serverGuid, msg);
     }
     // endregion
 
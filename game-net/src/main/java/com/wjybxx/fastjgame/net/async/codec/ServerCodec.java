@@ -18,8 +18,6 @@ package com.wjybxx.fastjgame.net.async.codec;
 
 import com.wjybxx.fastjgame.constants.NetConstants;
 import com.wjybxx.fastjgame.mrg.DisruptorMrg;
-import com.wjybxx.fastjgame.net.async.event.AckPingPongEventParam;
-import com.wjybxx.fastjgame.net.async.event.LogicMessageEventParam;
 import com.wjybxx.fastjgame.net.async.event.NetEventType;
 import com.wjybxx.fastjgame.net.async.transferobject.AckPingPongMessageTO;
 import com.wjybxx.fastjgame.net.async.transferobject.ConnectRequestTO;
@@ -41,15 +39,13 @@ import java.io.IOException;
  */
 public class ServerCodec extends BaseCodec{
 
-    private final DisruptorMrg disruptorMrg;
     /**
      * 缓存的客户端guid
       */
     private long clientGuid= NetConstants.INVALID_SESSION_ID;
 
     public ServerCodec(CodecHelper codecHelper, DisruptorMrg disruptorMrg) {
-        super(codecHelper);
-        this.disruptorMrg = disruptorMrg;
+        super(codecHelper, disruptorMrg);
     }
 
     /**
@@ -111,7 +107,7 @@ public class ServerCodec extends BaseCodec{
      */
     private void tryReadConnectRequest(ChannelHandlerContext ctx, ByteBuf msg){
         ConnectRequestTO connectRequest = readConnectRequest(msg);
-        disruptorMrg.publishEvent(ctx.channel(), NetEventType.CLIENT_CONNECT_REQUEST,connectRequest);
+        publishEvent(ctx, NetEventType.CLIENT_CONNECT_REQUEST,connectRequest);
         if (!inited()){
             init(connectRequest.getClientGuid());
         }
@@ -126,9 +122,7 @@ public class ServerCodec extends BaseCodec{
             closeCtx(ctx,"tryReadAckPingMessage,but has not Received ConnectRequest.");
             return;
         }
-        AckPingPongMessageTO ackPingPongMessage=readAckPingPongMessage(msg);
-        AckPingPongEventParam ackPingParam=new AckPingPongEventParam(clientGuid, ackPingPongMessage);
-        disruptorMrg.publishEvent(ctx.channel(), NetEventType.CLIENT_ACK_PING, ackPingParam);
+        readAndPublishAckPingPongMessage(ctx, NetEventType.CLIENT_ACK_PING, clientGuid, msg);
     }
 
     /**
@@ -140,9 +134,7 @@ public class ServerCodec extends BaseCodec{
             closeCtx(ctx,"tryReadClientLogicMessage,but has not Received ConnectRequest.");
             return;
         }
-        LogicMessageTO logicMessage=readLogicMessage(msg);
-        LogicMessageEventParam logicMessageEventParam =new LogicMessageEventParam(clientGuid, logicMessage);
-        disruptorMrg.publishEvent(ctx.channel(), NetEventType.CLIENT_LOGIC_MSG, logicMessageEventParam);
+        readAndPublishLogicMessage(ctx, NetEventType.CLIENT_LOGIC_MSG, clientGuid, msg);
     }
     // endregion
 }
@@ -16,57 +16,13 @@
 
 package com.wjybxx.fastjgame.net.async.event;
 
-import com.wjybxx.fastjgame.net.async.transferobject.AckPingPongMessageTO;
-
-import javax.annotation.concurrent.Immutable;
-
 /**
- * ack心跳包事件参数
+ * ack心跳包事件参数，只有ack和sequence
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 11:59
  * @github - https://github.com/hl845740757
  */
-@Immutable
-public class AckPingPongEventParam implements MessageEventParam {
-
-    /**
-     * 会话唯一id，对方唯一id。
-     */
-    private final long sessionGuid;
-    /**
-     * ping包
-     */
-    private final AckPingPongMessageTO ackPingPongMessage;
-
-    public AckPingPongEventParam(long sessionGuid, AckPingPongMessageTO ackPingPongMessage) {
-        this.sessionGuid = sessionGuid;
-        this.ackPingPongMessage = ackPingPongMessage;
-    }
-
-    public long getSessionGuid() {
-        return sessionGuid;
-    }
-
-    public AckPingPongMessageTO getAckPingPongMessage() {
-        return ackPingPongMessage;
-    }
-
-    public long getAck() {
-        return ackPingPongMessage.getAck();
-    }
-
-    public long getSequence() {
-        return ackPingPongMessage.getSequence();
-    }
-
-    @Override
-    public long sessionGuid() {
-        return sessionGuid;
-    }
+public interface AckPingPongEventParam extends MessageEventParam {
 
-    @Override
-    public AckPingPongMessageTO messageTO() {
-        return ackPingPongMessage;
-    }
 }
@@ -16,10 +16,7 @@
 
 package com.wjybxx.fastjgame.net.async.event;
 
-import com.wjybxx.fastjgame.net.async.transferobject.LogicMessageTO;
-import com.wjybxx.fastjgame.net.async.transferobject.MessageTO;
-
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.Nullable;
 
 /**
  * 业务逻辑包事件参数
@@ -28,31 +25,12 @@ import javax.annotation.concurrent.Immutable;
  * @date 2019/4/27 12:06
  * @github - https://github.com/hl845740757
  */
-@Immutable
-public class LogicMessageEventParam implements MessageEventParam {
+public interface LogicMessageEventParam extends MessageEventParam {
 
     /**
-     * 会话唯一标识，对方唯一标识。
-     * channel上取出来的。
-     */
-    private final long sessionGuid;
-    /**
-     * 逻辑包数据
+     * 业务逻辑消息，反序列化失败时为null
+     * @return
      */
-    private final LogicMessageTO logicMessageTO;
-
-    public LogicMessageEventParam(long sessionGuid, LogicMessageTO logicMessageTO) {
-        this.sessionGuid = sessionGuid;
-        this.logicMessageTO = logicMessageTO;
-    }
-
-    @Override
-    public long sessionGuid() {
-        return sessionGuid;
-    }
-
-    @Override
-    public LogicMessageTO messageTO() {
-        return logicMessageTO;
-    }
+    @Nullable
+    Object message();
 }
@@ -16,10 +16,10 @@
 
 package com.wjybxx.fastjgame.net.async.event;
 
-import com.wjybxx.fastjgame.net.async.transferobject.MessageTO;
-
 /**
  * 消息事件参数
+ * 为避免每个包都创建事件参数对象，它由{@link NetEvent}直接实现，字段在IO线程中直接填充到事件对象上。
+ * 因为事件对象是重用的，所以不可以在事件处理完之后继续持有它。
  * @author wjybxx
  * @version 1.0
  * @date 2019/5/9 9:09
@@ -27,8 +27,14 @@ import com.wjybxx.fastjgame.net.async.transferobject.MessageTO;
  */
 public interface MessageEventParam extends NetEventParam{
     /**
-     * 返回对应的消息传输对象
+     * 对方捎带确认的ack
+     * @return
+     */
+    long ack();
+
+    /**
+     * 消息的包id
      * @return
      */
-    MessageTO messageTO();
+    long sequence();
 }
@@ -24,11 +24,14 @@ import java.io.Closeable;
  * 网络事件对象，由{@link com.lmax.disruptor.RingBuffer} 调用
  * {@link NetEventFactory#newInstance()}创建，并一直重用。
  *
+ * 业务逻辑包和ack心跳包是最频繁的事件，它们的字段直接填充在事件对象上，
+ * 事件对象本身作为事件参数({@link LogicMessageEventParam}、{@link AckPingPongEventParam})，不再为每个包创建参数对象。
+ *
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 9:15
  */
-public class NetEvent implements Closeable {
+public class NetEvent implements LogicMessageEventParam, AckPingPongEventParam, Closeable {
 
     /**
      * 产生网络事件的channel
@@ -43,6 +46,24 @@ public class NetEvent implements Closeable {
      */
     private NetEventParam netEventParam =null;
 
+    // ---------------------- 消息事件字段(业务逻辑包、ack心跳包)
+    /**
+     * 会话唯一标识，对方唯一标识
+     */
+    private long sessionGuid;
+    /**
+     * 捎带确认的ack
+     */
+    private long ack;
+    /**
+     * 包id
+     */
+    private long sequence;
+    /**
+     * 业务逻辑消息，ack心跳包为null
+     */
+    private Object message=null;
+
     public Channel getChannel() {
         return channel;
     }
@@ -67,6 +88,40 @@ public class NetEvent implements Closeable {
         this.netEventParam = netEventParam;
     }
 
+    /**
+     * 填充消息事件字段
+     * @param sessionGuid 会话唯一标识
+     * @param ack 捎带确认的ack
+     * @param sequence 包id
+     * @param message 业务逻辑消息，ack心跳包为null
+     */
+    public void setMessageEvent(long sessionGuid, long ack, long sequence, Object message) {
+        this.sessionGuid = sessionGuid;
+        this.ack = ack;
+        this.sequence = sequence;
+        this.message = message;
+    }
+
+    @Override
+    public long sessionGuid() {
+        return sessionGuid;
+    }
+
+    @Override
+    public long ack() {
+        return ack;
+    }
+
+    @Override
+    public long sequence() {
+        return sequence;
+    }
+
+    @Override
+    public Object message() {
+        return message;
+    }
+
     /**
      * help GC.
      * 在disruptor中，Event对象是反复重用的。我们尽可能早的释放这些对象。
@@ -77,5 +132,6 @@ public class NetEvent implements Closeable {
         channel=null;
         eventType=null;
         netEventParam =null;
+        message=null;
     }
 }
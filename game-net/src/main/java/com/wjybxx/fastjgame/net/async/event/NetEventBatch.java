@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async.event;
+
+import com.wjybxx.fastjgame.mrg.DisruptorMrg;
+import io.netty.channel.Channel;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 同一个channel一次读取期间产生的网络事件。
+ * 一次读取可能解码出多个包，逐个发布时每个包都需要一次next/publish(多生产者下存在CAS竞争)，
+ * 缓存起来在channelReadComplete时一起发布，只需要一次next(n)/publish(lo,hi)。
+ *
+ * 每个channel一个实例，只在该channel的IO线程中使用。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/20 10:15
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class NetEventBatch {
+
+    private final DisruptorMrg disruptorMrg;
+    private final NetEventType[] eventTypes;
+    private final NetEventParam[] eventParams;
+    // 消息事件的字段，见NetEvent#setMessageEvent
+    private final long[] sessionGuids;
+    private final long[] acks;
+    private final long[] sequences;
+    private final Object[] messages;
+    /**
+     * 当前缓存的事件数
+     */
+    private int size = 0;
+
+    public NetEventBatch(DisruptorMrg disruptorMrg, int capacity) {
+        this.disruptorMrg = disruptorMrg;
+        this.eventTypes = new NetEventType[capacity];
+        this.eventParams = new NetEventParam[capacity];
+        this.sessionGuids = new long[capacity];
+        this.acks = new long[capacity];
+        this.sequences = new long[capacity];
+        this.messages = new Object[capacity];
+    }
+
+    /**
+     * 添加一个事件，缓存满时立即发布
+     * @param channel 产生事件的channel
+     * @param eventType 事件类型
+     * @param eventParam 事件参数
+     */
+    public void add(Channel channel, NetEventType eventType, NetEventParam eventParam){
+        eventTypes[size] = eventType;
+        eventParams[size] = eventParam;
+        size++;
+        if (size == eventTypes.length){
+            publish(channel);
+        }
+    }
+
+    /**
+     * 添加一个消息事件(业务逻辑包或ack心跳包)，缓存满时立即发布
+     * @param channel 产生事件的channel
+     * @param eventType 事件类型
+     * @param sessionGuid 会话唯一标识
+     * @param ack 捎带确认的ack
+     * @param sequence 包id
+     * @param message 业务逻辑消息，ack心跳包为null
+     */
+    public void addMessageEvent(Channel channel, NetEventType eventType, long sessionGuid, long ack, long sequence, Object message){
+        eventTypes[size] = eventType;
+        sessionGuids[size] = sessionGuid;
+        acks[size] = ack;
+        sequences[size] = sequence;
+        messages[size] = message;
+        size++;
+        if (size == eventTypes.length){
+            publish(channel);
+        }
+    }
+
+    /**
+     * 将第index个事件填充到RingBuffer的事件对象上
+     * @param index 事件下标
+     * @param netEvent 事件对象
+     */
+    public void translateTo(int index, NetEvent netEvent){
+        netEvent.setEventType(eventTypes[index]);
+        netEvent.setNetEventParam(eventParams[index]);
+        netEvent.setMessageEvent(sessionGuids[index], acks[index], sequences[index], messages[index]);
+    }
+
+    /**
+     * 发布缓存的所有事件
+     * @param channel 产生事件的channel
+     */
+    public void publish(Channel channel){
+        if (size == 0){
+            return;
+        }
+        try {
+            disruptorMrg.publishEvents(channel, this, size);
+        } finally {
+            // 不持有已发布的对象
+            for (int index = 0; index < size; index++){
+                eventTypes[index] = null;
+                eventParams[index] = null;
+                messages[index] = null;
+            }
+            size = 0;
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package com.wjybxx.fastjgame.net.async.event;
 
+import com.wjybxx.fastjgame.mrg.FrameStatsMrg;
+import com.wjybxx.fastjgame.mrg.NetConfigMrg;
 import com.wjybxx.fastjgame.utils.MathUtils;
 import com.wjybxx.fastjgame.world.World;
 import org.slf4j.Logger;
@@ -23,6 +25,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * NetEventHandler的具体实现，负责管理world的启动、关闭、tick。
+ *
+ * 按时间预算调度：连续处理网络事件时，每处理{@link NetConfigMrg#netEventClockCheckInterval()}个事件检查一次时间，
+ * 到达下一帧的预定时间或超出网络事件预算时，强制执行一次loop，避免消息洪峰时tick被长时间推迟。
+ * tick按固定的预定时间执行(而不是上次tick时间 + 帧间隔)，落后超过一帧时不追帧。
+ * 各阶段超出预算的次数见{@link FrameStatsMrg}。
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 23:55
@@ -31,35 +38,62 @@ import org.slf4j.LoggerFactory;
 public class NetEventHandlerImp implements NetEventHandler{
 
     private final Logger logger= LoggerFactory.getLogger(NetEventHandlerImp.class);
-    /**
-     * 最多连续处理多少个网络事件，尝试执行一次loop,默认值10000
-     */
-    private static final int LOOP_PER_EVENT_TIMES =10000;
-    /**
-     * 连续处理事件次数
-     */
-    private int handleEventTimes=0;
     /**
      * 游戏世界
      */
     private final World world;
+    /**
+     * 帧统计信息
+     */
+    private final FrameStatsMrg frameStatsMrg;
     /**
      * 游戏世界tick间隔(毫秒)
      */
     private final long frameInterval;
     /**
-     * 上次tick的时间戳
+     * 每处理多少个事件检查一次时间
+     */
+    private final int clockCheckInterval;
+    /**
+     * 连续处理网络事件的时间预算(毫秒)
+     */
+    private final long netEventBudget;
+    /**
+     * 每次loop处理同步rpc请求的时间预算(毫秒)
+     */
+    private final long syncRpcBudget;
+    /**
+     * tick的时间预算(毫秒)
+     */
+    private final long tickBudget;
+    /**
+     * 距离上次检查时间处理的事件数
+     */
+    private int handleEventTimes=0;
+    /**
+     * 本轮开始连续处理网络事件的时间戳(上次loop的时间)
      */
-    private long lastTickMillTime;
+    private long eventPhaseStartMillTime;
+    /**
+     * 下一帧的预定时间戳
+     */
+    private long nextTickMillTime;
 
     /**
      * @param world 游戏世界
      * @param framesPerSecond 游戏世界帧率。建议10-50帧。
      *                        在繁忙的时候不一定能达成指定的帧数
+     * @param netConfigMrg 网络配置，提供各阶段的时间预算
+     * @param frameStatsMrg 帧统计信息
      */
-    public NetEventHandlerImp(World world, int framesPerSecond) {
+    public NetEventHandlerImp(World world, int framesPerSecond, NetConfigMrg netConfigMrg, FrameStatsMrg frameStatsMrg) {
         this.world = world;
+        this.frameStatsMrg = frameStatsMrg;
         this.frameInterval = MathUtils.frameInterval(framesPerSecond);
+        this.clockCheckInterval = netConfigMrg.netEventClockCheckInterval();
+        this.netEventBudget = netConfigMrg.netEventBudgetMillis();
+        this.syncRpcBudget = netConfigMrg.syncRpcBudgetMillis();
+        this.tickBudget = netConfigMrg.tickBudgetMillis() > 0 ? netConfigMrg.tickBudgetMillis() : frameInterval;
     }
 
     /**
@@ -90,24 +124,53 @@ public class NetEventHandlerImp implements NetEventHandler{
         }finally {
             event.close();
             handleEventTimes++;
-            if (handleEventTimes == LOOP_PER_EVENT_TIMES){
-                tryLoop();
+            if (handleEventTimes >= clockCheckInterval){
+                checkEventBudget();
             }
         }
     }
 
+    /**
+     * 检查网络事件阶段是否超出预算，到达帧的预定时间或超出预算时强制执行一次loop
+     */
+    private void checkEventBudget(){
+        handleEventTimes=0;
+        long curMillTime=System.currentTimeMillis();
+        if (curMillTime >= nextTickMillTime){
+            tryLoop();
+            return;
+        }
+        if (curMillTime - eventPhaseStartMillTime >= netEventBudget){
+            frameStatsMrg.onNetEventOverrun();
+            tryLoop();
+        }
+    }
+
     @Override
     public void tryLoop() {
+        handleEventTimes=0;
+        long curMillTime=System.currentTimeMillis();
         // 处理同步rpc事件
-        world.dispatchSyncRpcEvent();
+        if (!world.dispatchSyncRpcEvent(curMillTime + syncRpcBudget)){
+            frameStatsMrg.onSyncRpcOverrun();
+        }
+        // 即使没有超出预算，处理同步rpc也可能消耗了大部分预算，之后的判断和tick必须使用最新的时间
+        curMillTime=System.currentTimeMillis();
+        eventPhaseStartMillTime=curMillTime;
 
-        handleEventTimes=0;
         // 控制tick间隔
-        long curMillTime=System.currentTimeMillis();
-        if (curMillTime-lastTickMillTime<frameInterval){
+        if (curMillTime < nextTickMillTime){
             return;
         }
-        lastTickMillTime=curMillTime;
+        // 第一帧不统计延迟
+        if (nextTickMillTime > 0){
+            frameStatsMrg.onFrameStart(curMillTime - nextTickMillTime, frameInterval);
+        }
+        // 按预定时间推进，落后超过一帧时不追帧
+        nextTickMillTime += frameInterval;
+        if (nextTickMillTime <= curMillTime){
+            nextTickMillTime = curMillTime + frameInterval;
+        }
 
         try {
             world.tick(curMillTime);
@@ -118,6 +181,10 @@ public class NetEventHandlerImp implements NetEventHandler{
             }
             logger.warn("loop caught exception ",e);
         }
+
+        long endMillTime=System.currentTimeMillis();
+        frameStatsMrg.onFrameEnd(endMillTime - curMillTime, tickBudget);
+        eventPhaseStartMillTime=endMillTime;
     }
 
     @Override
@@ -65,7 +65,15 @@ public enum NetEventType implements NumberEnum {
     /**
      * 子类自定义事件
      */
-    CHILD_CUSTOM_EVENTS((byte)9)
+    CHILD_CUSTOM_EVENTS((byte)9),
+    /**
+     * 同步rpc会话的连接响应(非阻塞连接时由IO线程发布)
+     */
+    SYNC_RPC_CONNECT_RESPONSE((byte)10),
+    /**
+     * 同步rpc会话的逻辑响应(异步rpc调用的结果，由IO线程发布)
+     */
+    SYNC_RPC_LOGIC_RESPONSE((byte)11),
     ;
 
     public final byte pkgType;
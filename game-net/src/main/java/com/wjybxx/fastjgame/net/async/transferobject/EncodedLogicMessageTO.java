@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.async.transferobject;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * 重发的业务逻辑包传输对象，携带已编码的消息内容(ack字段之后的部分)；
+ * 不携带原始的消息对象，{@link #getMessage()}总是返回null。
+ * 引用计数委托给消息内容，如果未能到达codec(如channel已关闭)，netty会负责释放。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/19 16:55
+ * @github - https://github.com/hl845740757
+ */
+public class EncodedLogicMessageTO extends LogicMessageTO implements ReferenceCounted {
+
+    /**
+     * 已编码的消息内容
+     */
+    private final ByteBuf encodedBody;
+
+    public EncodedLogicMessageTO(long ack, long sequence, ByteBuf encodedBody) {
+        super(ack, sequence, null);
+        this.encodedBody = encodedBody;
+    }
+
+    public ByteBuf getEncodedBody() {
+        return encodedBody;
+    }
+
+    @Override
+    public int refCnt() {
+        return encodedBody.refCnt();
+    }
+
+    @Override
+    public ReferenceCounted retain() {
+        encodedBody.retain();
+        return this;
+    }
+
+    @Override
+    public ReferenceCounted retain(int increment) {
+        encodedBody.retain(increment);
+        return this;
+    }
+
+    @Override
+    public ReferenceCounted touch() {
+        encodedBody.touch();
+        return this;
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+        encodedBody.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return encodedBody.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return encodedBody.release(decrement);
+    }
+}
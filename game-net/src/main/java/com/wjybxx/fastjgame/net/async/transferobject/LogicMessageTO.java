@@ -16,6 +16,8 @@
 
 package com.wjybxx.fastjgame.net.async.transferobject;
 
+import com.wjybxx.fastjgame.net.async.EncodedMessageHolder;
+
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
@@ -33,13 +35,26 @@ public class LogicMessageTO extends MessageTO{
      * 业务逻辑内容。
      */
     private final Object message;
+    /**
+     * 编码后需要缓存消息内容时不为null，用于重发
+     */
+    private final EncodedMessageHolder encodedMessageHolder;
 
     public LogicMessageTO(long ack, long sequence, Object message) {
+        this(ack, sequence, message, null);
+    }
+
+    public LogicMessageTO(long ack, long sequence, Object message, EncodedMessageHolder encodedMessageHolder) {
         super(ack, sequence);
         this.message = message;
+        this.encodedMessageHolder = encodedMessageHolder;
     }
 
     public @Nullable Object getMessage() {
         return message;
     }
+
+    public @Nullable EncodedMessageHolder getEncodedMessageHolder() {
+        return encodedMessageHolder;
+    }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * 基于{@link CRC32}的校验和。
+ * jdk8中{@link CRC32#update(java.nio.ByteBuffer)}和{@link CRC32#update(byte[], int, int)}是intrinsic方法，
+ * x86/ARM上会使用硬件指令(CLMUL/CRC32)计算，远快于逐字节累加，且能检测字节顺序错误。
+ *
+ * (CRC32C需要jdk9，我们的编译目标是jdk8，因此使用CRC32)
+ *
+ * {@link CRC32}是有状态的，每个IO线程持有一个。
+ *
+ * 支持合并(与zlib的crc32_combine相同的算法)：crc(A+B) = crc(A) * x^(8*len(B)) mod P ^ crc(B)，
+ * x^(8*len(B)) mod P 只与长度有关，每个线程缓存最近一个长度的乘法表(按4个bit查表)，
+ * 广播同一个消息时每个接收者的合并只需要8次查表，与消息大小无关。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/18 10:26
+ * @github - https://github.com/hl845740757
+ */
+@ThreadSafe
+public class CRC32ChecksumStrategy implements ChecksumStrategy {
+
+    public static final CRC32ChecksumStrategy INSTANCE = new CRC32ChecksumStrategy();
+
+    private static final FastThreadLocal<CRC32> LOCAL_CRC32 = new FastThreadLocal<CRC32>() {
+        @Override
+        protected CRC32 initialValue() {
+            return new CRC32();
+        }
+    };
+
+    /**
+     * CRC32的多项式(反转表示)
+     */
+    private static final int POLYNOMIAL = 0xEDB88320;
+    /**
+     * X2N_TABLE[k] = x^(2^k) mod P
+     */
+    private static final int[] X2N_TABLE = newX2nTable();
+
+    private static final FastThreadLocal<ShiftOperatorCache> LOCAL_SHIFT_OPERATOR = new FastThreadLocal<ShiftOperatorCache>() {
+        @Override
+        protected ShiftOperatorCache initialValue() {
+            return new ShiftOperatorCache();
+        }
+    };
+
+    private CRC32ChecksumStrategy() {
+
+    }
+
+    @Override
+    public long checksum(ByteBuf byteBuf, int offset, int length) {
+        CRC32 crc32 = LOCAL_CRC32.get();
+        crc32.reset();
+        if (byteBuf.hasArray()){
+            crc32.update(byteBuf.array(), byteBuf.arrayOffset() + offset, length);
+        } else if (byteBuf.nioBufferCount() == 1){
+            crc32.update(byteBuf.nioBuffer(offset, length));
+        } else {
+            for (ByteBuffer byteBuffer:byteBuf.nioBuffers(offset, length)){
+                crc32.update(byteBuffer);
+            }
+        }
+        return crc32.getValue();
+    }
+
+    @Override
+    public boolean isCombinable() {
+        return true;
+    }
+
+    @Override
+    public long combine(long headChecksum, long tailChecksum, int tailLength) {
+        ShiftOperatorCache cache = LOCAL_SHIFT_OPERATOR.get();
+        if (cache.tailLength != tailLength){
+            cache.update(tailLength);
+        }
+        return (cache.multiply((int) headChecksum) ^ (int) tailChecksum) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * GF(2)上的多项式乘法 a * b mod P(反转表示)，无分支
+     */
+    private static int multModP(int a, int b){
+        int product = 0;
+        for (int bit = 31; bit >= 0; bit--){
+            product ^= b & -((a >>> bit) & 1);
+            b = multX(b);
+        }
+        return product;
+    }
+
+    /**
+     * b * x mod P(反转表示)
+     */
+    private static int multX(int b){
+        return (b >>> 1) ^ (POLYNOMIAL & -(b & 1));
+    }
+
+    /**
+     * 计算 x^(8 * n) mod P，即在内容之后追加n个0字节时crc需要乘以的值
+     */
+    private static int x8nModP(int n){
+        int product = 1 << 31;
+        for (int k = 3; n != 0; n >>>= 1, k++){
+            if ((n & 1) != 0){
+                product = multModP(X2N_TABLE[k & 31], product);
+            }
+        }
+        return product;
+    }
+
+    private static int[] newX2nTable(){
+        int[] table = new int[32];
+        // x^1
+        int product = 1 << 30;
+        for (int k = 0; k < table.length; k++){
+            table[k] = product;
+            product = multModP(product, product);
+        }
+        return table;
+    }
+
+    /**
+     * 最近一次合并使用的长度，及乘以 x^(8 * tailLength) mod P 的查表
+     */
+    private static class ShiftOperatorCache {
+
+        private int tailLength = -1;
+        /**
+         * table[window * 16 + nibble] 为crc第window个4bit的值为nibble时对乘积的贡献
+         */
+        private final int[] table = new int[8 * 16];
+
+        void update(int tailLength){
+            this.tailLength = tailLength;
+            // term = x^(8 * tailLength) * x^i mod P，反转表示中crc的第(31 - i)个bit对应 x^i
+            int term = x8nModP(tailLength);
+            int[] terms = new int[32];
+            for (int i = 0; i < 32; i++){
+                terms[31 - i] = term;
+                term = multX(term);
+            }
+            for (int window = 0; window < 8; window++){
+                int base = window * 16;
+                table[base] = 0;
+                for (int nibble = 1; nibble < 16; nibble++){
+                    int lowestBit = Integer.numberOfTrailingZeros(nibble);
+                    table[base + nibble] = table[base + (nibble & (nibble - 1))] ^ terms[window * 4 + lowestBit];
+                }
+            }
+        }
+
+        int multiply(int crc){
+            int product = 0;
+            for (int window = 0; window < 8; window++){
+                product ^= table[window * 16 + ((crc >>> (window * 4)) & 15)];
+            }
+            return product;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.common;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 网络包校验和策略。
+ * 通信双方必须使用相同的策略，它与{@link MessageMapper}和{@link MessageSerializer}一起由{@link CodecHelper}绑定，
+ * 即：使用同一个codec名字的双方就协商好了校验方式。
+ *
+ * 实现必须是无状态的(或线程封闭的)，因为它会被所有IO线程共享。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/18 10:12
+ * @github - https://github.com/hl845740757
+ */
+public interface ChecksumStrategy {
+
+    /**
+     * 计算byteBuf指定区域字节的校验和，不修改byteBuf的读写索引
+     * @param byteBuf byteBuf
+     * @param offset 偏移量
+     * @param length 有效长度，不可越界
+     * @return 校验和
+     */
+    long checksum(ByteBuf byteBuf, int offset, int length);
+
+    /**
+     * 是否支持合并两段连续内容的校验和。
+     * 支持合并时，广播等场景下共享内容的校验和只需要计算一次；
+     * 不支持时，调用者必须对整体内容重新计算校验和(如{@link com.wjybxx.fastjgame.net.async.PreEncodedMessage})。
+     * @return 支持合并时返回true
+     */
+    boolean isCombinable();
+
+    /**
+     * 合并两段连续内容的校验和，即计算 checksum(head + tail)。
+     * 仅当{@link #isCombinable()}为true时可调用，否则抛出{@link UnsupportedOperationException}。
+     * @param headChecksum 前一段内容的校验和
+     * @param tailChecksum 后一段内容的校验和
+     * @param tailLength 后一段内容的长度
+     * @return 整体的校验和
+     */
+    long combine(long headChecksum, long tailChecksum, int tailLength);
+}
@@ -17,7 +17,7 @@
 package com.wjybxx.fastjgame.net.common;
 
 /**
- * 编解码器帮助类，对{@link MessageMapper} 和 {@link MessageSerializer} 进行绑定。
+ * 编解码器帮助类，对{@link MessageMapper} 、 {@link MessageSerializer} 和 {@link ChecksumStrategy} 进行绑定。
  *
  * 它持有的{@link MessageMapper}为不可变对象，{@link MessageSerializer}为事实不可变对象，
  * 它自身是<b>事实不可变对象</b>，因此它不是线程安全的；
@@ -39,10 +39,19 @@ public final class CodecHelper {
      * 消息序列化器
      */
     private final MessageSerializer messageSerializer;
+    /**
+     * 校验和策略
+     */
+    private final ChecksumStrategy checksumStrategy;
 
     public CodecHelper(MessageMapper messageMapper, MessageSerializer messageSerializer) {
+        this(messageMapper, messageSerializer, SumChecksumStrategy.INSTANCE);
+    }
+
+    public CodecHelper(MessageMapper messageMapper, MessageSerializer messageSerializer, ChecksumStrategy checksumStrategy) {
         this.messageMapper = messageMapper;
         this.messageSerializer = messageSerializer;
+        this.checksumStrategy = checksumStrategy;
     }
 
     public MessageMapper getMessageMapper() {
@@ -52,4 +61,8 @@ public final class CodecHelper {
     public MessageSerializer getMessageSerializer() {
         return messageSerializer;
     }
+
+    public ChecksumStrategy getChecksumStrategy() {
+        return checksumStrategy;
+    }
 }
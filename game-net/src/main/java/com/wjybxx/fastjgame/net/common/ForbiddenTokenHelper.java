@@ -16,6 +16,7 @@
 
 package com.wjybxx.fastjgame.net.common;
 
+import com.wjybxx.fastjgame.misc.ExpiryIndex;
 import com.wjybxx.fastjgame.mrg.SystemTimeMrg;
 import com.wjybxx.fastjgame.mrg.TimerMrg;
 import com.wjybxx.fastjgame.trigger.Timer;
@@ -39,6 +40,10 @@ public final class ForbiddenTokenHelper {
     private final SystemTimeMrg systemTimeMrg;
     private final TimerMrg timerMrg;
     private final Long2ObjectMap<ForbiddenTokenInfo> forbiddenTokenMap =new Long2ObjectOpenHashMap<>(512);
+    /**
+     * 禁用信息的过期索引，释放时只处理到期的禁用信息
+     */
+    private final ExpiryIndex<ForbiddenTokenInfo> releaseIndex;
     /**
      * 禁用多久(过期时间)
      * 作为属性传入以支持不同情况
@@ -49,9 +54,10 @@ public final class ForbiddenTokenHelper {
         this.systemTimeMrg = systemTimeMrg;
         this.forbiddenTimeout=forbiddenTimeout;
         this.timerMrg=timerMrg;
+        this.releaseIndex=new ExpiryIndex<>(forbiddenTimeout,systemTimeMrg.getSystemSecTime());
 
-        // 定时检查释放被禁用的token(1/3个周期检查一次)
-        Timer releaseCacheTimer = new Timer(forbiddenTimeout/3 * 1000,
+        // 定时检查释放被禁用的token(每秒检查一次，只处理到期的)
+        Timer releaseCacheTimer = new Timer(1000,
                 Integer.MAX_VALUE,
                 this::releaseForbiddenToken);
 
@@ -96,7 +102,9 @@ public final class ForbiddenTokenHelper {
                 forbiddenTokenInfo.update(tokenCreateSecTime,releaseTime);
             }
         }else {
-            forbiddenTokenMap.put(clientGuid,new ForbiddenTokenInfo(tokenCreateSecTime,releaseTime));
+            forbiddenTokenInfo=new ForbiddenTokenInfo(clientGuid,tokenCreateSecTime);
+            forbiddenTokenInfo.setReleaseEntry(releaseIndex.add(forbiddenTokenInfo,releaseTime));
+            forbiddenTokenMap.put(clientGuid,forbiddenTokenInfo);
         }
     }
 
@@ -105,6 +113,6 @@ public final class ForbiddenTokenHelper {
      * @param timer
      */
     private void releaseForbiddenToken(Timer timer){
-        forbiddenTokenMap.values().removeIf(e -> systemTimeMrg.getSystemSecTime() > e.getReleaseTime());
+        releaseIndex.expire(systemTimeMrg.getSystemSecTime(), e -> forbiddenTokenMap.remove(e.getClientGuid()));
     }
 }
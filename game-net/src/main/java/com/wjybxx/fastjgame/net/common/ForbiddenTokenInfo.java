@@ -16,6 +16,8 @@
 
 package com.wjybxx.fastjgame.net.common;
 
+import com.wjybxx.fastjgame.misc.ExpiryIndex;
+
 /**
  * token禁用信息，禁止特定时间点之前的token使用
  * @author wjybxx
@@ -24,18 +26,26 @@ package com.wjybxx.fastjgame.net.common;
  * @github - https://github.com/hl845740757
  */
 public class ForbiddenTokenInfo {
+    /**
+     * 被禁用token的客户端
+     */
+    private final long clientGuid;
     /**
      * 被禁用的token创建时间，该时间戳及之前的token都无效。
      */
     private int forbiddenCreateTime;
     /**
-     * 被释放的时间(过期时间)
+     * 过期信息，保存了被释放的时间(过期时间)
      */
-    private int releaseTime;
+    private ExpiryIndex.Entry<ForbiddenTokenInfo> releaseEntry;
 
-    public ForbiddenTokenInfo(int forbiddenCreateTime, int releaseTime) {
+    public ForbiddenTokenInfo(long clientGuid, int forbiddenCreateTime) {
+        this.clientGuid = clientGuid;
         this.forbiddenCreateTime = forbiddenCreateTime;
-        this.releaseTime = releaseTime;
+    }
+
+    public long getClientGuid() {
+        return clientGuid;
     }
 
     public int getForbiddenCreateTime() {
@@ -43,12 +53,16 @@ public class ForbiddenTokenInfo {
     }
 
     public int getReleaseTime() {
-        return releaseTime;
+        return releaseEntry.getExpireSecTime();
+    }
+
+    public void setReleaseEntry(ExpiryIndex.Entry<ForbiddenTokenInfo> releaseEntry) {
+        this.releaseEntry = releaseEntry;
     }
 
     public void update(int forbiddenCreateTime, int releaseTime) {
         this.forbiddenCreateTime = forbiddenCreateTime;
-        this.releaseTime = releaseTime;
+        this.releaseEntry.setExpireSecTime(releaseTime);
     }
 
 }
@@ -18,6 +18,9 @@ package com.wjybxx.fastjgame.net.common;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.concurrent.FastThreadLocal;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
@@ -26,6 +29,7 @@ import java.nio.charset.StandardCharsets;
 /**
  * json消息序列化工具。
  * 使用Google的Gson序列化。
+ * Gson对象是线程安全的，因此可以共享。
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 10:23
@@ -34,6 +38,23 @@ import java.nio.charset.StandardCharsets;
 @ThreadSafe
 public class JsonMessageSerializer implements MessageSerializer {
 
+    /**
+     * 超过该容量的缓存用完后丢弃，避免偶尔的大消息使线程长期持有大块内存
+     */
+    private static final int MAX_CACHED_CAPACITY = 64 * 1024;
+
+    /**
+     * 序列化时使用的字符缓存，每个线程一个(编解码在IO线程，序列化器是共享的)
+     */
+    private static final FastThreadLocal<StringBuilder> LOCAL_BUILDER = new FastThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private final Gson gson = new GsonBuilder().create();
+
     @Override
     public void init(MessageMapper messageMapper) {
 
@@ -41,13 +62,35 @@ public class JsonMessageSerializer implements MessageSerializer {
 
     @Override
     public <T> T deserialize(Class<T> messageClazz, byte[] messageBytes) throws IOException {
-        Gson gson=new GsonBuilder().create();
         return gson.fromJson(new String(messageBytes, StandardCharsets.UTF_8), messageClazz);
     }
 
     @Override
     public byte[] serialize(Object message) {
-        Gson gson=new GsonBuilder().create();
         return gson.toJson(message).getBytes(StandardCharsets.UTF_8);
     }
+
+    @Override
+    public void serialize(Object message, ByteBuf byteBuf) throws IOException {
+        // 先输出到线程缓存的StringBuilder，再直接按utf8编码到byteBuf，不创建Writer及其字节缓冲区
+        StringBuilder builder = LOCAL_BUILDER.get();
+        try {
+            gson.toJson(message, builder);
+            ByteBufUtil.writeUtf8(byteBuf, builder);
+        } finally {
+            if (builder.capacity() > MAX_CACHED_CAPACITY){
+                LOCAL_BUILDER.remove();
+            } else {
+                builder.setLength(0);
+            }
+        }
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> messageClazz, ByteBuf byteBuf) throws IOException {
+        // 直接按utf8解码剩余的可读字节，不创建Reader及其字节缓冲区
+        String json = byteBuf.toString(StandardCharsets.UTF_8);
+        byteBuf.skipBytes(byteBuf.readableBytes());
+        return gson.fromJson(json, messageClazz);
+    }
 }
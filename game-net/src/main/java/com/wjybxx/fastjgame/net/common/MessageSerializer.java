@@ -16,6 +16,9 @@
 
 package com.wjybxx.fastjgame.net.common;
 
+import com.wjybxx.fastjgame.utils.NetUtils;
+import io.netty.buffer.ByteBuf;
+
 import java.io.IOException;
 
 /**
@@ -28,6 +31,9 @@ import java.io.IOException;
  * @apiNote
  * 如果serializer是有状态的，那么初始化完成之后，序列化和反序列化方法不可以修改它的状态，以实现高性能的并发。
  *
+ * 编解码器使用的是{@link #serialize(Object, ByteBuf)} 和 {@link #deserialize(Class, ByteBuf)}，
+ * 子类应尽量覆盖这两个方法，直接读写byteBuf，以避免中间字节数组的创建和拷贝。
+ *
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 10:20
@@ -55,4 +61,24 @@ public interface MessageSerializer {
      * @return
      */
     <T> T deserialize(Class<T> messageClazz,byte[] messageBytes) throws IOException;
+
+    /**
+     * 将对象直接序列化到byteBuf中。
+     * 默认实现先序列化为字节数组再写入byteBuf，子类应该覆盖该方法以减少一次拷贝。
+     * @param message 待序列化的对象
+     * @param byteBuf 从writerIndex开始写入，方法返回时writerIndex位于序列化内容之后
+     */
+    default void serialize(Object message, ByteBuf byteBuf) throws IOException {
+        byteBuf.writeBytes(serialize(message));
+    }
+
+    /**
+     * 从byteBuf中直接反序列化对象。
+     * 默认实现先读取为字节数组再反序列化，子类应该覆盖该方法以减少一次拷贝。
+     * @param messageClazz 消息类型
+     * @param byteBuf 剩余的可读字节都是消息内容，方法返回时 readableBytes == 0
+     */
+    default <T> T deserialize(Class<T> messageClazz, ByteBuf byteBuf) throws IOException {
+        return deserialize(messageClazz, NetUtils.readRemainToBytes(byteBuf));
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.common;
+
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 不计算校验和，校验和字段始终为0。
+ * 仅用于可信的内网链接(tcp自身已有校验)，可完全省去校验和的计算开销。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/18 10:50
+ * @github - https://github.com/hl845740757
+ */
+@ThreadSafe
+public class NoneChecksumStrategy implements ChecksumStrategy {
+
+    public static final NoneChecksumStrategy INSTANCE = new NoneChecksumStrategy();
+
+    private NoneChecksumStrategy() {
+
+    }
+
+    @Override
+    public long checksum(ByteBuf byteBuf, int offset, int length) {
+        return 0;
+    }
+
+    @Override
+    public boolean isCombinable() {
+        return true;
+    }
+
+    @Override
+    public long combine(long headChecksum, long tailChecksum, int tailLength) {
+        return 0;
+    }
+}
@@ -16,9 +16,14 @@
 
 package com.wjybxx.fastjgame.net.common;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.MessageLite;
 import com.google.protobuf.Parser;
 import com.wjybxx.fastjgame.utils.ReflectionUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -28,6 +33,10 @@ import java.util.Map;
 /**
  * google protoBuf 序列化工具。
  * protoBuf 生成的类都有一个静态的parser。
+ *
+ * 编解码时直接读写byteBuf：
+ * 序列化时先计算序列化后的大小，然后通过{@link CodedOutputStream}直接写入byteBuf的内存；
+ * 反序列化时通过{@link CodedInputStream}直接读取byteBuf的内存(堆内存或直接内存)，不产生中间字节数组。
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 10:26
@@ -56,11 +65,62 @@ public class ProtoBufMessageSerializer implements MessageSerializer {
 
     @Override
     public <T> T deserialize(Class<T> messageClazz, byte[] messageBytes) throws IOException {
+        return findParser(messageClazz).parseFrom(messageBytes);
+    }
+
+    @Override
+    public void serialize(Object message, ByteBuf byteBuf) throws IOException {
+        if (!(message instanceof MessageLite)){
+            throw new UnsupportedEncodingException("not protoBuf class " + message.getClass().getSimpleName());
+        }
+        MessageLite messageLite = (MessageLite) message;
+        int size = messageLite.getSerializedSize();
+        byteBuf.ensureWritable(size);
+
+        int writerIndex = byteBuf.writerIndex();
+        CodedOutputStream codedOutputStream;
+        if (byteBuf.hasArray()){
+            // 堆内存，直接写入底层数组
+            codedOutputStream = CodedOutputStream.newInstance(byteBuf.array(), byteBuf.arrayOffset() + writerIndex, size);
+        } else if (byteBuf.nioBufferCount() == 1){
+            // 直接内存，写入共享内存的ByteBuffer
+            codedOutputStream = CodedOutputStream.newInstance(byteBuf.nioBuffer(writerIndex, size));
+        } else {
+            // 复合buffer等，退化为流
+            messageLite.writeTo(new ByteBufOutputStream(byteBuf));
+            return;
+        }
+        messageLite.writeTo(codedOutputStream);
+        codedOutputStream.checkNoSpaceLeft();
+        byteBuf.writerIndex(writerIndex + size);
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> messageClazz, ByteBuf byteBuf) throws IOException {
+        Parser<T> parser = findParser(messageClazz);
+        int length = byteBuf.readableBytes();
+
+        CodedInputStream codedInputStream;
+        if (byteBuf.hasArray()){
+            codedInputStream = CodedInputStream.newInstance(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.readerIndex(), length);
+        } else if (byteBuf.nioBufferCount() == 1){
+            codedInputStream = CodedInputStream.newInstance(byteBuf.nioBuffer());
+        } else {
+            // 流会更新readerIndex
+            return parser.parseFrom(new ByteBufInputStream(byteBuf));
+        }
+        T message = parser.parseFrom(codedInputStream);
+        codedInputStream.checkLastTagWas(0);
+        byteBuf.skipBytes(length);
+        return message;
+    }
+
+    private <T> Parser<T> findParser(Class<T> messageClazz) throws UnsupportedEncodingException {
         @SuppressWarnings("unchecked")
         Parser<T> parser = (Parser<T>) parserMap.get(messageClazz);
         if (parser == null){
             throw new UnsupportedEncodingException("unregistered protoBuf class " + messageClazz.getSimpleName());
         }
-        return parser.parseFrom(messageBytes);
+        return parser;
     }
 }
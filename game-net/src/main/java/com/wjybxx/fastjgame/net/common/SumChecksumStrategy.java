@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.common;
+
+import com.wjybxx.fastjgame.utils.NetUtils;
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 逐字节累加的校验和，最早的实现，也是默认的策略(客户端等外部实现依赖该策略)。
+ * 它的速度最慢，也无法检测字节顺序错误，服务器之间建议使用其它策略。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/18 10:20
+ * @github - https://github.com/hl845740757
+ */
+@ThreadSafe
+public class SumChecksumStrategy implements ChecksumStrategy {
+
+    public static final SumChecksumStrategy INSTANCE = new SumChecksumStrategy();
+
+    private SumChecksumStrategy() {
+
+    }
+
+    @Override
+    public long checksum(ByteBuf byteBuf, int offset, int length) {
+        return NetUtils.calChecksum(byteBuf, offset, length);
+    }
+
+    @Override
+    public boolean isCombinable() {
+        return true;
+    }
+
+    @Override
+    public long combine(long headChecksum, long tailChecksum, int tailLength) {
+        // 累加和满足加法结合律
+        return headChecksum + tailChecksum;
+    }
+}
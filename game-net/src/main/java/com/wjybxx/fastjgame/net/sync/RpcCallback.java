@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.sync;
+
+/**
+ * 异步rpc调用完成时的回调，总是在world线程(逻辑线程)执行。
+ * @param <T> 响应消息的类型
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/15 10:20
+ * @github - https://github.com/hl845740757
+ */
+@FunctionalInterface
+public interface RpcCallback<T> {
+
+    /**
+     * 当rpc调用完成时(成功或失败)
+     * @param future 已完成的future，通过{@link RpcFuture#isSuccess()}判断是否成功
+     */
+    void onComplete(RpcFuture<T> future);
+}
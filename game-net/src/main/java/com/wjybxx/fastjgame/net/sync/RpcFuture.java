@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 异步rpc调用的future。
+ * 只在world线程(逻辑线程)中使用和完成，因此不需要任何同步，回调也总是在world线程执行。
+ * @param <T> 响应消息的类型
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/15 10:20
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class RpcFuture<T> {
+
+    private static final Logger logger= LoggerFactory.getLogger(RpcFuture.class);
+
+    /**
+     * 请求的服务器
+     */
+    private final long serverGuid;
+    /**
+     * 请求id
+     */
+    private final long requestGuid;
+    /**
+     * 调用结果，null表示尚未完成
+     */
+    private RpcResultCode resultCode;
+    /**
+     * 响应内容
+     */
+    private T response;
+    /**
+     * 完成时的回调，大多数情况下只有一个
+     */
+    private List<RpcCallback<T>> callbacks;
+
+    public RpcFuture(long serverGuid, long requestGuid) {
+        this.serverGuid = serverGuid;
+        this.requestGuid = requestGuid;
+    }
+
+    public long getServerGuid() {
+        return serverGuid;
+    }
+
+    public long getRequestGuid() {
+        return requestGuid;
+    }
+
+    /**
+     * 是否已完成(成功或失败)
+     */
+    public boolean isDone(){
+        return null != resultCode;
+    }
+
+    /**
+     * 是否成功收到了服务器的响应
+     */
+    public boolean isSuccess(){
+        return resultCode == RpcResultCode.SUCCESS;
+    }
+
+    /**
+     * 获取调用结果
+     * @return 未完成时返回null
+     */
+    @Nullable
+    public RpcResultCode getResultCode() {
+        return resultCode;
+    }
+
+    /**
+     * 获取响应内容，与同步调用一致，失败或服务器返回null时为empty。
+     * @return 注意查看Optional的文档
+     */
+    public Optional<T> getResponse() {
+        return Optional.ofNullable(response);
+    }
+
+    /**
+     * 添加一个完成回调，如果已完成，则立即执行。
+     * @param callback 回调
+     * @return this
+     */
+    public RpcFuture<T> addCallback(RpcCallback<T> callback){
+        if (isDone()){
+            notifyCallback(callback);
+            return this;
+        }
+        if (null == callbacks){
+            callbacks=new ArrayList<>(1);
+        }
+        callbacks.add(callback);
+        return this;
+    }
+
+    /**
+     * 完成该future，只应该由会话管理器调用。
+     * @param resultCode 调用结果
+     * @param response 响应内容，失败时为null
+     * @return 如果已完成则返回false
+     */
+    @SuppressWarnings("unchecked")
+    public boolean complete(RpcResultCode resultCode, @Nullable Object response){
+        if (isDone()){
+            return false;
+        }
+        this.resultCode=resultCode;
+        this.response=(T) response;
+        if (null != callbacks){
+            List<RpcCallback<T>> callbacks=this.callbacks;
+            this.callbacks=null;
+            for (RpcCallback<T> callback:callbacks){
+                notifyCallback(callback);
+            }
+        }
+        return true;
+    }
+
+    private void notifyCallback(RpcCallback<T> callback){
+        try {
+            callback.onComplete(this);
+        } catch (Exception e){
+            logger.warn("rpc callback caught exception",e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RpcFuture{" +
+                "serverGuid=" + serverGuid +
+                ", requestGuid=" + requestGuid +
+                ", resultCode=" + resultCode +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.net.sync;
+
+/**
+ * 异步rpc调用的结果码
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/15 10:20
+ * @github - https://github.com/hl845740757
+ */
+public enum RpcResultCode {
+
+    /**
+     * 收到了服务器的响应
+     */
+    SUCCESS,
+    /**
+     * 所有尝试都未收到响应
+     */
+    TIMEOUT,
+    /**
+     * 请求完成之前会话被删除(连接被拒绝、无法建立连接或主动删除)
+     */
+    SESSION_REMOVED,
+    ;
+}
@@ -16,6 +16,8 @@
 
 package com.wjybxx.fastjgame.net.sync.codec;
 
+import com.wjybxx.fastjgame.constants.NetConstants;
+import com.wjybxx.fastjgame.net.common.ChecksumStrategy;
 import com.wjybxx.fastjgame.net.common.CodecHelper;
 import com.wjybxx.fastjgame.net.common.MessageMapper;
 import com.wjybxx.fastjgame.net.common.MessageSerializer;
@@ -53,10 +55,12 @@ public abstract class BaseSyncRpcCodec extends ChannelDuplexHandler {
 
     protected final MessageMapper messageMapper;
     protected final MessageSerializer messageSerializer;
+    protected final ChecksumStrategy checksumStrategy;
 
     public BaseSyncRpcCodec(CodecHelper codecHelper) {
         this.messageMapper=codecHelper.getMessageMapper();
         this.messageSerializer=codecHelper.getMessageSerializer();
+        this.checksumStrategy=codecHelper.getChecksumStrategy();
     }
 
     @Override
@@ -70,7 +74,7 @@ public abstract class BaseSyncRpcCodec extends ChannelDuplexHandler {
         ByteBuf msg= (ByteBuf) byteBuf;
         try {
             long realSum=msg.readLong();
-            long logicSum= NetUtils.calChecksum(msg,msg.readerIndex(),msg.readableBytes());
+            long logicSum= checksumStrategy.checksum(msg,msg.readerIndex(),msg.readableBytes());
             if (realSum!=logicSum){
                 // 校验和不一致
                 closeCtx(ctx,"realSum="+realSum + ", logicSum="+logicSum);
@@ -173,14 +177,18 @@ public abstract class BaseSyncRpcCodec extends ChannelDuplexHandler {
     protected final void writeLogicRequest(ChannelHandlerContext ctx, SyncLogicRequestTO logicRequestTO, ChannelPromise promise) throws Exception {
         Object message=logicRequestTO.getRequest();
         int messageId=messageMapper.getMessageId(message.getClass());
-        byte[] messageBytes=messageSerializer.serialize(message);
 
-        int contentLength= 8 + 4 + messageBytes.length;
+        int contentLength= 8 + 4 + NetConstants.ESTIMATED_MESSAGE_LENGTH;
         ByteBuf byteBuf= newInitializedByteBuf(ctx,contentLength, SyncPkgType.SYNC_LOGIC_REQUEST);
-
-        byteBuf.writeLong(logicRequestTO.getRequestGuid());
-        byteBuf.writeInt(messageId);
-        byteBuf.writeBytes(messageBytes);
+        try {
+            byteBuf.writeLong(logicRequestTO.getRequestGuid());
+            byteBuf.writeInt(messageId);
+            messageSerializer.serialize(message, byteBuf);
+        } catch (Exception e){
+            byteBuf.release();
+            throw e;
+        }
+        NetUtils.fixPkgLength(byteBuf);
         appendSumAndWrite(ctx,byteBuf,promise);
     }
 
@@ -190,12 +198,11 @@ public abstract class BaseSyncRpcCodec extends ChannelDuplexHandler {
     protected SyncLogicRequestTO readLogicRequest(ByteBuf msg) throws IOException {
         long requestGuid=msg.readLong();
         int messageId=msg.readInt();
-        byte[] messageBytes=NetUtils.readRemainToBytes(msg);
 
         // 协议id对应的class(这里不捕获异常，等待客户端重发)
         Class<?> messageClazz= messageMapper.getMessageClazz(messageId);
         assert null!=messageClazz:"messageId " + messageId + " clazz not found";
-        Object request = messageSerializer.deserialize(messageClazz,messageBytes);
+        Object request = messageSerializer.deserialize(messageClazz,msg);
 
         return new SyncLogicRequestTO(requestGuid,request);
     }
@@ -216,14 +223,18 @@ public abstract class BaseSyncRpcCodec extends ChannelDuplexHandler {
         }else {
             // 处理成功
             int messageId = messageMapper.getMessageId(response.getClass());
-            byte[] messageBytes= messageSerializer.serialize(response);
-
-            int contentLength = 8 + 4 + messageBytes.length;
-            ByteBuf byteBuf = NetUtils.newInitializedByteBuf(ctx, contentLength, SyncPkgType.SYNC_LOGIC_RESPONSE.pkgType);
 
-            byteBuf.writeLong(msgTO.getRequestGuid());
-            byteBuf.writeInt(messageId);
-            byteBuf.writeBytes(messageBytes);
+            int contentLength = 8 + 4 + NetConstants.ESTIMATED_MESSAGE_LENGTH;
+            ByteBuf byteBuf = newInitializedByteBuf(ctx, contentLength, SyncPkgType.SYNC_LOGIC_RESPONSE);
+            try {
+                byteBuf.writeLong(msgTO.getRequestGuid());
+                byteBuf.writeInt(messageId);
+                messageSerializer.serialize(response, byteBuf);
+            } catch (Exception e){
+                byteBuf.release();
+                throw e;
+            }
+            NetUtils.fixPkgLength(byteBuf);
             appendSumAndWrite(ctx,byteBuf,promise);
         }
     }
@@ -237,12 +248,11 @@ public abstract class BaseSyncRpcCodec extends ChannelDuplexHandler {
             return new SyncLogicResponseTO(requestGuid,null);
         }else {
             int messageId=msg.readInt();
-            byte[] messageBytes=NetUtils.readRemainToBytes(msg);
 
             // 协议id对应的class(不捕获异常，等待服务器重发)
             Class<?> messageClazz= messageMapper.getMessageClazz(messageId);
             assert null!=messageClazz:"messageId " + messageId + " clazz not found";
-            Object response = messageSerializer.deserialize(messageClazz,messageBytes);
+            Object response = messageSerializer.deserialize(messageClazz,msg);
             return new SyncLogicResponseTO(requestGuid,response);
         }
     }
@@ -253,7 +263,7 @@ public abstract class BaseSyncRpcCodec extends ChannelDuplexHandler {
      */
     protected final void writePingMessage(ChannelHandlerContext ctx) {
         ByteBuf byteBuf= NetUtils.newInitializedByteBuf(ctx,0, SyncPkgType.SYNC_PING.pkgType);
-        NetUtils.appendCheckSum(byteBuf);
+        NetUtils.appendCheckSum(byteBuf,checksumStrategy);
         ctx.channel().writeAndFlush(byteBuf);
     }
 
@@ -270,7 +280,7 @@ public abstract class BaseSyncRpcCodec extends ChannelDuplexHandler {
      * 添加校验和并发送
      */
     protected final void appendSumAndWrite(ChannelHandlerContext ctx, ByteBuf byteBuf, ChannelPromise promise) {
-        NetUtils.appendCheckSum(byteBuf);
+        NetUtils.appendCheckSum(byteBuf,checksumStrategy);
         ctx.write(byteBuf,promise);
     }
     // endregion
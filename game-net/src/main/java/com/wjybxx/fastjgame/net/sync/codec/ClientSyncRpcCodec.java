@@ -20,7 +20,6 @@ import com.wjybxx.fastjgame.constants.NetConstants;
 import com.wjybxx.fastjgame.mrg.sync.SyncC2SSessionMrg;
 import com.wjybxx.fastjgame.net.common.CodecHelper;
 import com.wjybxx.fastjgame.net.sync.event.SyncConnectResponseEvent;
-import com.wjybxx.fastjgame.net.sync.event.SyncLogicResponseEvent;
 import com.wjybxx.fastjgame.net.sync.event.SyncPkgType;
 import com.wjybxx.fastjgame.net.sync.transferobject.SyncConnectRequestTO;
 import com.wjybxx.fastjgame.net.sync.transferobject.SyncConnectResponseTO;
@@ -106,8 +105,8 @@ public class ClientSyncRpcCodec extends BaseSyncRpcCodec {
             return;
         }
         SyncLogicResponseTO logicResponseTO = readLogicResponse(msg);
-        SyncLogicResponseEvent syncLogicResponseEvent = new SyncLogicResponseEvent(ctx.channel(), serverGuid, logicResponseTO);;
-        syncC2SSessionMrg.onRcvLogicResponse(syncLogicResponseEvent);
+        // 直接在IO线程完成等待中的请求
+        syncC2SSessionMrg.onRcvLogicResponse(ctx.channel(), serverGuid, logicResponseTO);
     }
 
     @Override
@@ -16,16 +16,18 @@
 
 package com.wjybxx.fastjgame.net.sync.event;
 
+import com.wjybxx.fastjgame.net.async.event.NetEventParam;
 import io.netty.channel.Channel;
 
 /**
- * 同步响应事件
+ * 同步响应事件。
+ * 异步rpc调用的响应需要发布到disruptor中由world线程处理，因此也是一个网络事件参数。
  * @author wjybxx
  * @version 1.0
  * @date 2019/5/7 13:57
  * @github - https://github.com/hl845740757
  */
-public abstract class SyncResponseEvent extends SyncEvent{
+public abstract class SyncResponseEvent extends SyncEvent implements NetEventParam {
 
     private final long serverGuid;
 
@@ -37,4 +39,9 @@ public abstract class SyncResponseEvent extends SyncEvent{
     public long getServerGuid() {
         return serverGuid;
     }
+
+    @Override
+    public long sessionGuid() {
+        return serverGuid;
+    }
 }
@@ -16,13 +16,14 @@
 
 package com.wjybxx.fastjgame.utils;
 
+import com.wjybxx.fastjgame.net.common.ChecksumStrategy;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.socket.DefaultSocketChannelConfig;
+import io.netty.channel.socket.SocketChannelConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -116,7 +117,8 @@ public class NetUtils {
     }
 
     /**
-     * 计算byteBuf指定区域字节的校验和
+     * 计算byteBuf指定区域字节的校验和(逐字节累加，{@link com.wjybxx.fastjgame.net.common.SumChecksumStrategy}使用)；
+     * 编解码器应通过{@link #appendCheckSum(ByteBuf, ChecksumStrategy)}使用配置的校验和策略
      * @param byteBuf byteBuf
      * @param offset 偏移量
      * @param length 有效长度，不可越界
@@ -227,10 +229,21 @@ public class NetUtils {
     }
 
     /**
-     * 添加校验和
+     * 根据实际写入的内容修正消息长度字段。
+     * 当内容长度无法预先计算时(如消息直接序列化到byteBuf)，写完内容后需要调用该方法。
+     * @param byteBuf 通过{@link #newInitializedByteBuf(ChannelHandlerContext, int, byte)}创建的byteBuf
      */
-    public static void appendCheckSum(ByteBuf byteBuf) {
-        long sum= NetUtils.calChecksum(byteBuf,12,byteBuf.readableBytes()-12);
+    public static void fixPkgLength(ByteBuf byteBuf){
+        byteBuf.setInt(0, byteBuf.readableBytes() - 4);
+    }
+
+    /**
+     * 使用指定的校验和策略添加校验和
+     * @param byteBuf 通过{@link #newInitializedByteBuf(ChannelHandlerContext, int, byte)}创建的byteBuf
+     * @param checksumStrategy 校验和策略
+     */
+    public static void appendCheckSum(ByteBuf byteBuf, ChecksumStrategy checksumStrategy) {
+        long sum= checksumStrategy.checksum(byteBuf,12,byteBuf.readableBytes()-12);
         byteBuf.setLong(4,sum);
     }
 
@@ -264,8 +277,9 @@ public class NetUtils {
      */
     public static void setChannelPerformancePreferences(Channel channel) {
         ChannelConfig channelConfig = channel.config();
-        if (channelConfig instanceof DefaultSocketChannelConfig){
-            DefaultSocketChannelConfig socketChannelConfig= (DefaultSocketChannelConfig) channelConfig;
+        // nio和epoll的配置类不同，统一使用接口判断
+        if (channelConfig instanceof SocketChannelConfig){
+            SocketChannelConfig socketChannelConfig= (SocketChannelConfig) channelConfig;
             socketChannelConfig.setPerformancePreferences(0,1,2);
             socketChannelConfig.setAllocator(PooledByteBufAllocator.DEFAULT);
         }
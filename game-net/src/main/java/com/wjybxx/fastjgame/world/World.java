@@ -25,15 +25,15 @@ import com.wjybxx.fastjgame.mrg.sync.SyncS2CSessionMrg;
 import com.wjybxx.fastjgame.net.async.RequestMessageHandler;
 import com.wjybxx.fastjgame.net.async.HttpRequestHandler;
 import com.wjybxx.fastjgame.net.async.ResponseMessageHandler;
-import com.wjybxx.fastjgame.net.async.event.AckPingPongEventParam;
 import com.wjybxx.fastjgame.net.async.event.ConnectResponseEventParam;
-import com.wjybxx.fastjgame.net.async.event.LogicMessageEventParam;
 import com.wjybxx.fastjgame.net.async.event.NetEvent;
 import com.wjybxx.fastjgame.net.async.transferobject.ConnectRequestTO;
 import com.wjybxx.fastjgame.net.async.transferobject.HttpRequestTO;
 import com.wjybxx.fastjgame.net.async.transferobject.OkHttpResponseTO;
 import com.wjybxx.fastjgame.net.common.*;
 import com.wjybxx.fastjgame.net.sync.SyncRequestHandler;
+import com.wjybxx.fastjgame.net.sync.event.SyncConnectResponseEvent;
+import com.wjybxx.fastjgame.net.sync.event.SyncLogicResponseEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -128,6 +128,18 @@ public abstract class World {
         codecHelperMrg.registerCodecHelper(name,mappingStrategy,messageSerializer);
     }
 
+    /**
+     * 注册codec的模板方法
+     * @param name codec的名字
+     * @param mappingStrategy 消息id到消息映射策略
+     * @param messageSerializer 消息序列化反序列化实现类
+     * @param checksumStrategy 校验和策略，通信双方必须一致
+     */
+    protected final void registerCodecHelper(String name, MessageMappingStrategy mappingStrategy, MessageSerializer messageSerializer,
+                                             ChecksumStrategy checksumStrategy) throws Exception {
+        codecHelperMrg.registerCodecHelper(name,mappingStrategy,messageSerializer,checksumStrategy);
+    }
+
     /**
      * 注册自己要处理的消息。也可以在自己的类中使用messageDispatcherMrg自己注册，不一定需要在world中注册。
      * use {@link #registerRequestMessageHandler(Class, RequestMessageHandler)} and
@@ -214,9 +226,11 @@ public abstract class World {
 
     /**
      * 分发同步Rpc事件
+     * @param deadlineMillTime 处理截止时间，超过该时间时剩余的请求留到下次处理
+     * @return 所有请求都已处理时返回true
      */
-    public final void dispatchSyncRpcEvent(){
-        syncS2CSessionMrg.dispatchSyncRpcRequest();
+    public final boolean dispatchSyncRpcEvent(long deadlineMillTime){
+        return syncS2CSessionMrg.dispatchSyncRpcRequest(deadlineMillTime);
     }
 
     /**
@@ -229,6 +243,8 @@ public abstract class World {
         timerMrg.tickTrigger(curMillTime);
         c2SSessionMrg.tick();
         tickImp(curMillTime);
+        // 帧末尾刷新本帧合并的消息
+        s2CSessionMrg.flushAll();
     }
 
     /**
@@ -250,19 +266,19 @@ public abstract class World {
             case SERVER_CONNECT_RESPONSE:
                 c2SSessionMrg.onRcvConnectResponse(netEvent.getChannel(), (ConnectResponseEventParam) netEvent.getNetEventParam());
                 break;
-                // ping-pong message
+                // ping-pong message，消息事件的参数直接填充在事件对象上
             case CLIENT_ACK_PING:
-                s2CSessionMrg.onRcvClientAckPing(netEvent.getChannel(), (AckPingPongEventParam) netEvent.getNetEventParam());
+                s2CSessionMrg.onRcvClientAckPing(netEvent.getChannel(), netEvent);
                 break;
             case SERVER_ACK_PONG:
-                c2SSessionMrg.onRevServerAckPong(netEvent.getChannel(), (AckPingPongEventParam) netEvent.getNetEventParam());
+                c2SSessionMrg.onRevServerAckPong(netEvent.getChannel(), netEvent);
                 break;
                 // logic message
             case CLIENT_LOGIC_MSG:
-                s2CSessionMrg.onRcvClientLogicMsg(netEvent.getChannel(),(LogicMessageEventParam) netEvent.getNetEventParam());
+                s2CSessionMrg.onRcvClientLogicMsg(netEvent.getChannel(), netEvent);
                 break;
             case SERVER_LOGIC_MSG:
-                c2SSessionMrg.onRevServerLogicMsg(netEvent.getChannel(), (LogicMessageEventParam) netEvent.getNetEventParam());
+                c2SSessionMrg.onRevServerLogicMsg(netEvent.getChannel(), netEvent);
                 break;
                 // http request
             case HTTP_REQUEST:
@@ -272,6 +288,13 @@ public abstract class World {
             case OK_HTTP_RESPONSE:
                 httpDispatcherMrg.handleOkHttpResponse((OkHttpResponseTO) netEvent.getNetEventParam());
                 break;
+                // sync rpc response (async call)
+            case SYNC_RPC_CONNECT_RESPONSE:
+                syncC2SSessionMrg.handleConnectResponse((SyncConnectResponseEvent) netEvent.getNetEventParam());
+                break;
+            case SYNC_RPC_LOGIC_RESPONSE:
+                syncC2SSessionMrg.handleLogicResponse((SyncLogicResponseEvent) netEvent.getNetEventParam());
+                break;
             case CHILD_CUSTOM_EVENTS:
                 onChildEvent(netEvent);
                 break;
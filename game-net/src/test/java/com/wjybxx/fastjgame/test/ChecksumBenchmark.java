@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.net.common.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 校验和策略性能对比(与最初的逐字节累加比较)。
+ * 非严格的基准测试，先预热，再统计每种策略计算相同数据的耗时。
+ * 最后校验支持合并的策略：合并包头和消息内容的校验和应等于整个包的校验和。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/18 11:05
+ * @github - https://github.com/hl845740757
+ */
+public class ChecksumBenchmark {
+
+    private static final int WARMUP_TIMES = 20_000;
+    private static final int LOOP_TIMES = 200_000;
+
+    public static void main(String[] args) {
+        ChecksumStrategy[] strategies = {
+                SumChecksumStrategy.INSTANCE,
+                CRC32ChecksumStrategy.INSTANCE,
+                WordHashChecksumStrategy.INSTANCE,
+                NoneChecksumStrategy.INSTANCE
+        };
+        // 常见的包大小
+        int[] frameLengths = {64, 512, 4096};
+        for (int frameLength:frameLengths){
+            ByteBuf byteBuf = newRandomByteBuf(frameLength);
+            try {
+                for (ChecksumStrategy strategy:strategies){
+                    run(strategy, byteBuf, WARMUP_TIMES);
+                }
+                for (ChecksumStrategy strategy:strategies){
+                    long startTime = System.nanoTime();
+                    long blackHole = run(strategy, byteBuf, LOOP_TIMES);
+                    long costNanos = System.nanoTime() - startTime;
+                    System.out.println(String.format("frameLength=%d, strategy=%s, avgCost=%.1f ns, blackHole=%d",
+                            frameLength, strategy.getClass().getSimpleName(), (double)costNanos / LOOP_TIMES, blackHole));
+                }
+            } finally {
+                byteBuf.release();
+            }
+        }
+        for (ChecksumStrategy strategy:strategies){
+            System.out.println(String.format("strategy=%s, combinable=%s, combineMismatch=%d",
+                    strategy.getClass().getSimpleName(), strategy.isCombinable(), checkCombine(strategy)));
+        }
+    }
+
+    /**
+     * 随机切分包头和消息内容，统计合并结果与整体计算不一致的次数
+     */
+    private static int checkCombine(ChecksumStrategy strategy){
+        if (!strategy.isCombinable()){
+            return 0;
+        }
+        int mismatch = 0;
+        for (int index=0; index<1000; index++){
+            ByteBuf byteBuf = newRandomByteBuf(1 + ThreadLocalRandom.current().nextInt(4096));
+            try {
+                int headLength = ThreadLocalRandom.current().nextInt(byteBuf.readableBytes());
+                int tailLength = byteBuf.readableBytes() - headLength;
+                long headSum = strategy.checksum(byteBuf, 0, headLength);
+                long tailSum = strategy.checksum(byteBuf, headLength, tailLength);
+                if (strategy.combine(headSum, tailSum, tailLength) != strategy.checksum(byteBuf, 0, byteBuf.readableBytes())){
+                    mismatch++;
+                }
+            } finally {
+                byteBuf.release();
+            }
+        }
+        return mismatch;
+    }
+
+    private static ByteBuf newRandomByteBuf(int length){
+        byte[] bytes = new byte[length];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        // 与IO线程中一致，使用池化的直接内存
+        ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.directBuffer(length);
+        byteBuf.writeBytes(bytes);
+        return byteBuf;
+    }
+
+    private static long run(ChecksumStrategy strategy, ByteBuf byteBuf, int times){
+        long result = 0;
+        for (int index=0; index<times; index++){
+            result ^= strategy.checksum(byteBuf, byteBuf.readerIndex(), byteBuf.readableBytes());
+        }
+        return result;
+    }
+}
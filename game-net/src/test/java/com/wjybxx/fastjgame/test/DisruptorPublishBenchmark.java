@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.wjybxx.fastjgame.net.async.event.NetEvent;
+import com.wjybxx.fastjgame.net.async.event.NetEventFactory;
+import com.wjybxx.fastjgame.net.async.event.NetEventType;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多生产者单消费者模型下，逐个发布与批量发布({@code next(n)/publish(lo,hi)})的性能对比。
+ * 模拟多个IO线程同时向逻辑线程发布事件，batchSize为1时等同于原来的逐个发布。
+ * 非严格的基准测试，每种情况先预热一次。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/20 11:20
+ * @github - https://github.com/hl845740757
+ */
+public class DisruptorPublishBenchmark {
+
+    private static final int RING_BUFFER_SIZE = 64 * 1024;
+    private static final int PRODUCER_NUM = 4;
+    private static final int EVENT_NUM_PER_PRODUCER = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] batchSizes = {1, 8, 32};
+        for (int batchSize:batchSizes){
+            run(batchSize);
+            long costNanos = run(batchSize);
+            long totalEventNum = (long) PRODUCER_NUM * EVENT_NUM_PER_PRODUCER;
+            System.out.println(String.format("producerNum=%d, batchSize=%d, cost=%d ms, throughput=%.1f events/us",
+                    PRODUCER_NUM, batchSize, costNanos / 1000_000, (double) totalEventNum * 1000 / costNanos));
+        }
+    }
+
+    private static long run(int batchSize) throws InterruptedException {
+        long totalEventNum = (long) PRODUCER_NUM * EVENT_NUM_PER_PRODUCER;
+        AtomicLong consumedNum = new AtomicLong();
+        CountDownLatch consumeLatch = new CountDownLatch(1);
+
+        Disruptor<NetEvent> disruptor = new Disruptor<>(new NetEventFactory(), RING_BUFFER_SIZE,
+                r -> new Thread(r, "CONSUMER"), ProducerType.MULTI, new YieldingWaitStrategy());
+        disruptor.handleEventsWith((event, sequence, endOfBatch) -> {
+            if (consumedNum.incrementAndGet() == totalEventNum){
+                consumeLatch.countDown();
+            }
+        });
+        RingBuffer<NetEvent> ringBuffer = disruptor.start();
+
+        CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCER_NUM];
+        for (int index = 0; index < PRODUCER_NUM; index++){
+            producers[index] = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                publish(ringBuffer, batchSize);
+            }, "PRODUCER_" + index);
+            producers[index].start();
+        }
+
+        long startTime = System.nanoTime();
+        startLatch.countDown();
+        consumeLatch.await();
+        long costNanos = System.nanoTime() - startTime;
+
+        for (Thread producer:producers){
+            producer.join();
+        }
+        disruptor.halt();
+        return costNanos;
+    }
+
+    private static void publish(RingBuffer<NetEvent> ringBuffer, int batchSize){
+        for (int published = 0; published < EVENT_NUM_PER_PRODUCER; published += batchSize){
+            int num = Math.min(batchSize, EVENT_NUM_PER_PRODUCER - published);
+            long hi = ringBuffer.next(num);
+            long lo = hi - (num - 1);
+            try {
+                for (long sequence = lo; sequence <= hi; sequence++){
+                    NetEvent netEvent = ringBuffer.get(sequence);
+                    netEvent.setChannel(null);
+                    netEvent.setEventType(NetEventType.CLIENT_LOGIC_MSG);
+                    netEvent.setNetEventParam(null);
+                }
+            } finally {
+                ringBuffer.publish(lo, hi);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.net.async.Message;
+import com.wjybxx.fastjgame.net.async.MessageRingBuffer;
+import com.wjybxx.fastjgame.net.async.transferobject.MessageTO;
+
+import java.util.LinkedList;
+
+/**
+ * {@link MessageRingBuffer}与原来的{@link LinkedList}实现的性能对比。
+ * 模拟会话的使用方式：持续追加消息，每隔一批消息收到一次ack，并周期性的遍历重发。
+ * 非严格的基准测试，先预热，再统计耗时。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/19 11:30
+ * @github - https://github.com/hl845740757
+ */
+public class MessageQueueBenchmark {
+
+    private static final int WARMUP_TIMES = 200;
+    private static final int LOOP_TIMES = 2000;
+    /**
+     * 每一轮发送的消息数
+     */
+    private static final int MESSAGE_NUM_PER_LOOP = 1000;
+    /**
+     * 未确认的消息数(相当于对方ack的延迟)
+     */
+    private static final int UNACKED_NUM = 200;
+    /**
+     * 每发送多少个消息遍历一次(相当于重发)
+     */
+    private static final int RESEND_INTERVAL = 500;
+
+    public static void main(String[] args) {
+        run("LinkedList", LinkedListQueue::new, WARMUP_TIMES);
+        run("RingBuffer", RingBufferQueue::new, WARMUP_TIMES);
+
+        run("LinkedList", LinkedListQueue::new, LOOP_TIMES);
+        run("RingBuffer", RingBufferQueue::new, LOOP_TIMES);
+    }
+
+    private static void run(String name, QueueFactory factory, int loopTimes){
+        long blackHole = 0;
+        long startTime = System.nanoTime();
+        for (int loop = 0; loop < loopTimes; loop++){
+            BenchmarkQueue queue = factory.newQueue();
+            long sequence = 0;
+            for (int index = 0; index < MESSAGE_NUM_PER_LOOP; index++){
+                queue.addLast(new SimpleMessage(++sequence));
+                if (sequence > UNACKED_NUM){
+                    queue.ack(sequence - UNACKED_NUM);
+                }
+                if (sequence % RESEND_INTERVAL == 0){
+                    blackHole += queue.sumSequence();
+                }
+            }
+        }
+        long costNanos = System.nanoTime() - startTime;
+        System.out.println(String.format("queue=%s, loopTimes=%d, avgCost=%.1f ns/message, blackHole=%d",
+                name, loopTimes, (double) costNanos / loopTimes / MESSAGE_NUM_PER_LOOP, blackHole));
+    }
+
+    private interface QueueFactory {
+
+        BenchmarkQueue newQueue();
+    }
+
+    private interface BenchmarkQueue {
+
+        void addLast(Message message);
+
+        void ack(long ack);
+
+        long sumSequence();
+    }
+
+    /**
+     * 原来的实现方式
+     */
+    private static class LinkedListQueue implements BenchmarkQueue {
+
+        private final LinkedList<Message> queue = new LinkedList<>();
+
+        @Override
+        public void addLast(Message message) {
+            queue.addLast(message);
+        }
+
+        @Override
+        public void ack(long ack) {
+            while (queue.size()>0){
+                if (queue.getFirst().getSequence()>ack){
+                    break;
+                }
+                queue.removeFirst();
+            }
+        }
+
+        @Override
+        public long sumSequence() {
+            long sum = 0;
+            for (Message message:queue){
+                sum += message.getSequence();
+            }
+            return sum;
+        }
+    }
+
+    private static class RingBufferQueue implements BenchmarkQueue {
+
+        private final MessageRingBuffer queue = new MessageRingBuffer();
+
+        @Override
+        public void addLast(Message message) {
+            queue.addLast(message);
+        }
+
+        @Override
+        public void ack(long ack) {
+            queue.removeUntil(ack);
+        }
+
+        @Override
+        public long sumSequence() {
+            long sum = 0;
+            for (int index=0,size=queue.size(); index<size; index++){
+                sum += queue.get(index).getSequence();
+            }
+            return sum;
+        }
+    }
+
+    private static class SimpleMessage extends Message {
+
+        private SimpleMessage(long sequence) {
+            super(sequence);
+        }
+
+        @Override
+        public MessageTO build(long ack) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.wjybxx.fastjgame.net.async.*;
+import com.wjybxx.fastjgame.net.async.event.NetEvent;
+import com.wjybxx.fastjgame.net.async.event.NetEventFactory;
+import com.wjybxx.fastjgame.net.async.event.NetEventHandler;
+import com.wjybxx.fastjgame.net.async.event.NetEventType;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 游戏世界线程各种等待策略的唤醒延迟与等待期间的tick次数。
+ * 生产者每隔一段时间发布一个事件(消费者已进入等待状态)，统计从发布到消费者收到事件的时间。
+ * 唤醒延迟与核心数、是否绑核、系统负载都有关系，应该在目标机器上运行(至少需要2个核心)。
+ * 非严格的基准测试，每种策略先预热一次。
+ *
+ * 参考结果(1个vCPU的虚拟机，JDK17，生产者与消费者争抢同一核心，仅供策略间对比)：
+ * <pre>
+ * SLEEPING         p50=92.9us p99=155.0us max=2146.7us onWaitEvent=365.1/ms
+ * BUSY_SPIN        p50=4.2us  p99=17.8us  max=4044.7us onWaitEvent=501910.3/ms
+ * YIELDING         p50=5.5us  p99=8.3us   max=304.7us  onWaitEvent=2587.0/ms
+ * PHASED_BACKOFF   p50=6.1us  p99=152.0us max=581.3us  onWaitEvent=367.4/ms
+ * TIMEOUT_BLOCKING p50=15.5us p99=46.6us  max=3451.3us onWaitEvent=1.6/ms
+ * </pre>
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 16:00
+ * @github - https://github.com/hl845740757
+ */
+public class WaitStrategyBenchmark {
+
+    private static final int EVENT_NUM = 5000;
+    /**
+     * 两个事件之间的间隔，保证消费者已进入等待状态
+     */
+    private static final long PUBLISH_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    public static void main(String[] args) throws Exception {
+        for (WorldWaitStrategyType strategyType:WorldWaitStrategyType.values()){
+            run(strategyType);
+            run(strategyType).print();
+        }
+    }
+
+    private static WaitStrategy newWaitStrategy(WorldWaitStrategyType strategyType, NetEventHandler handler){
+        switch (strategyType){
+            case BUSY_SPIN:
+                return new BusySpinWaitExtendStrategy(handler);
+            case YIELDING:
+                return new YieldingWaitExtendStrategy(handler, 100);
+            case PHASED_BACKOFF:
+                return new PhasedBackoffWaitExtendStrategy(handler, 100, 100, 100_000);
+            case TIMEOUT_BLOCKING:
+                return new TimeoutBlockingWaitExtendStrategy(handler, 1, TimeUnit.MILLISECONDS);
+            case SLEEPING:
+            default:
+                return new SleepingWaitExtendStrategy<NetEvent>(handler, 100, 100, 100_000);
+        }
+    }
+
+    private static Result run(WorldWaitStrategyType strategyType) throws InterruptedException {
+        LatencyHandler handler = new LatencyHandler();
+        ThreadFactory threadFactory = r -> new Thread(r, "WORLD");
+        Disruptor<NetEvent> disruptor = new Disruptor<>(new NetEventFactory(), 1024,
+                threadFactory, ProducerType.MULTI, newWaitStrategy(strategyType, handler));
+        disruptor.handleEventsWith(handler);
+        RingBuffer<NetEvent> ringBuffer = disruptor.start();
+
+        long startNanos = handler.awaitStart();
+        for (int index = 0; index < EVENT_NUM; index++){
+            LockSupport.parkNanos(PUBLISH_INTERVAL_NANOS);
+            long sequence = ringBuffer.next();
+            try {
+                NetEvent netEvent = ringBuffer.get(sequence);
+                netEvent.setChannel(null);
+                netEvent.setEventType(NetEventType.CLIENT_LOGIC_MSG);
+                // 借用sessionGuid携带发布时间
+                netEvent.setMessageEvent(System.nanoTime(), 0, 0, null);
+            } finally {
+                ringBuffer.publish(sequence);
+            }
+        }
+        handler.consumeLatch.await();
+        long costNanos = System.nanoTime() - startNanos;
+        disruptor.halt();
+        return new Result(strategyType, handler.latencies, handler.waitEventTimes, costNanos);
+    }
+
+    private static class LatencyHandler implements NetEventHandler {
+
+        private final CountDownLatch startLatch = new CountDownLatch(1);
+        private final CountDownLatch consumeLatch = new CountDownLatch(1);
+        private final long[] latencies = new long[EVENT_NUM];
+        private int consumedNum = 0;
+        private long waitEventTimes = 0;
+
+        long awaitStart() throws InterruptedException {
+            startLatch.await();
+            return System.nanoTime();
+        }
+
+        @Override
+        public void onStart() {
+            startLatch.countDown();
+        }
+
+        @Override
+        public void onEvent(NetEvent event, long sequence, boolean endOfBatch) {
+            latencies[consumedNum++] = System.nanoTime() - event.sessionGuid();
+            if (consumedNum == EVENT_NUM){
+                consumeLatch.countDown();
+            }
+        }
+
+        @Override
+        public void tryLoop() {
+
+        }
+
+        @Override
+        public void onWaitEvent() {
+            waitEventTimes++;
+        }
+
+        @Override
+        public void onShutdown() {
+
+        }
+    }
+
+    private static class Result {
+
+        private final WorldWaitStrategyType strategyType;
+        private final long[] latencies;
+        private final long waitEventTimes;
+        private final long costNanos;
+
+        Result(WorldWaitStrategyType strategyType, long[] latencies, long waitEventTimes, long costNanos) {
+            this.strategyType = strategyType;
+            this.latencies = latencies;
+            this.waitEventTimes = waitEventTimes;
+            this.costNanos = costNanos;
+        }
+
+        void print(){
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.println(String.format("%-16s latency p50=%.1f us, p99=%.1f us, max=%.1f us, onWaitEvent=%.1f/ms",
+                    strategyType,
+                    sorted[sorted.length / 2] / 1000.0,
+                    sorted[sorted.length * 99 / 100] / 1000.0,
+                    sorted[sorted.length - 1] / 1000.0,
+                    waitEventTimes * 1000_000.0 / costNanos));
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.wjybxx.fastjgame.misc;
 
 import com.wjybxx.fastjgame.scene.GridObstacle;
+import com.wjybxx.fastjgame.scene.MapData;
 import com.wjybxx.fastjgame.scene.MapGrid;
 
 import java.util.EnumSet;
@@ -49,12 +50,12 @@ public interface FindPathStrategy {
 
     /**
      * 寻找一条可移动的路线
-     * @param allMapGrids 地图数据
+     * @param mapData 地图数据
      * @param startGrid 起始点
      * @param endGrid 目的地
      * @param movableGrids 可行走的格子类型
      * @return 如果不可达，返回null 或 emptyList
      */
-    List<MapGrid> findPath(MapGrid[][] allMapGrids, MapGrid startGrid, MapGrid endGrid, EnumSet<GridObstacle> movableGrids);
+    List<MapGrid> findPath(MapData mapData, MapGrid startGrid, MapGrid endGrid, EnumSet<GridObstacle> movableGrids);
 
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.misc;
+
+import com.wjybxx.fastjgame.scene.GridObstacleBitmap;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 预计算跳跃距离的跳点寻路(JPS+)。
+ *
+ * 对每个格子预计算4个直线方向上的跳跃距离：
+ * 正数d表示该方向第d个格子是跳点；非正数-d表示该方向只有d个可行走格子，之后是遮挡或地图边界。
+ * 直线跳跃变为一次查表(再检查终点是否在该射线上)，斜线跳跃的每一步也只需要两次查表，
+ * 找到的路径与{@link JumpPointSearchStrategy}完全一致。
+ *
+ * 预计算表与地图和可行走的格子类型绑定，更换时重新计算(4个int/格子)，
+ * 因此适合固定地图的场景线程长期持有。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/23 14:20
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class JumpPointSearchPlusStrategy extends JumpPointSearchStrategy{
+
+    private static final int EAST = 0;
+    private static final int WEST = 1;
+    private static final int NORTH = 2;
+    private static final int SOUTH = 3;
+
+    /**
+     * 预计算的跳跃距离，[方向][格子索引]
+     */
+    private int[][] jumpDistances = new int[4][0];
+    /**
+     * 预计算表对应的可行走位图，{@link GridObstacleBitmap#getWalkableBits(java.util.EnumSet)}对同一组合返回同一个数组
+     */
+    private long[] jumpDistancesWalkableBits;
+
+    @Override
+    protected void prepare(GridObstacleBitmap obstacleBitmap, long[] walkableBits) {
+        super.prepare(obstacleBitmap, walkableBits);
+        if (jumpDistancesWalkableBits != walkableBits){
+            buildJumpDistances();
+            jumpDistancesWalkableBits = walkableBits;
+        }
+    }
+
+    private void buildJumpDistances(){
+        int gridCount = rowCount * colCount;
+        if (jumpDistances[0].length < gridCount){
+            jumpDistances = new int[4][gridCount];
+        }
+        // 从跳跃方向的尽头往回扫描，每个格子由下一个格子推出
+        for (int y = 0; y < rowCount; y++){
+            for (int x = colCount - 1; x >= 0; x--){
+                jumpDistances[EAST][index(x, y)] = nextJumpDistance(EAST, x + 1, y, 1, 0);
+            }
+            for (int x = 0; x < colCount; x++){
+                jumpDistances[WEST][index(x, y)] = nextJumpDistance(WEST, x - 1, y, -1, 0);
+            }
+        }
+        for (int x = 0; x < colCount; x++){
+            for (int y = rowCount - 1; y >= 0; y--){
+                jumpDistances[NORTH][index(x, y)] = nextJumpDistance(NORTH, x, y + 1, 0, 1);
+            }
+            for (int y = 0; y < rowCount; y++){
+                jumpDistances[SOUTH][index(x, y)] = nextJumpDistance(SOUTH, x, y - 1, 0, -1);
+            }
+        }
+    }
+
+    /**
+     * 由下一个格子(nextX,nextY)计算当前格子的跳跃距离
+     */
+    private int nextJumpDistance(int direction, int nextX, int nextY, int dx, int dy){
+        if (!isWalkable(nextX, nextY)){
+            return 0;
+        }
+        if (hasForcedNeighbor(nextX, nextY, dx, dy)){
+            return 1;
+        }
+        int nextDistance = jumpDistances[direction][index(nextX, nextY)];
+        return nextDistance > 0 ? nextDistance + 1 : nextDistance - 1;
+    }
+
+    @Override
+    protected int jumpStraight(int x, int y, int dx, int dy) {
+        int distance;
+        int goalDistance;
+        if (dx != 0){
+            distance = jumpDistances[dx > 0 ? EAST : WEST][index(x, y)];
+            goalDistance = endY == y ? (endX - x) * dx : -1;
+        } else {
+            distance = jumpDistances[dy > 0 ? NORTH : SOUTH][index(x, y)];
+            goalDistance = endX == x ? (endY - y) * dy : -1;
+        }
+        // 终点在跳跃路线上
+        if (goalDistance > 0 && goalDistance <= Math.abs(distance)){
+            return endIndex;
+        }
+        return distance > 0 ? index(x + dx * distance, y + dy * distance) : -1;
+    }
+}
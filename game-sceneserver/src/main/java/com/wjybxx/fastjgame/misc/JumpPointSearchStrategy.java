@@ -17,22 +17,406 @@
 package com.wjybxx.fastjgame.misc;
 
 import com.wjybxx.fastjgame.scene.GridObstacle;
+import com.wjybxx.fastjgame.scene.GridObstacleBitmap;
+import com.wjybxx.fastjgame.scene.MapData;
 import com.wjybxx.fastjgame.scene.MapGrid;
 
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 
 /**
- * 跳跃点寻路策略
+ * 跳跃点寻路策略(8方向，不允许穿越墙角：斜向移动时两个相邻的直线方向格子都必须可行走)。
+ *
+ * 遮挡信息使用{@link GridObstacleBitmap}，节点信息(g值、父节点、堆索引等)使用按格子索引的数组，
+ * 通过查询编号区分节点是否属于本次查询，因此数组不需要每次清理；开放列表是可修改优先级的二叉堆。
+ * 数组按地图大小分配之后复用，一次寻路除了返回的路径之外不再分配内存。
+ *
+ * 返回的路径只包含起点、跳点和终点，相邻两点之间是直线或45度斜线。
+ * 对象有状态，不是线程安全的，每个线程(场景线程)使用自己的实例。
  * @author wjybxx
  * @version 1.0
  * @date 2019/6/3 15:34
  * @github - https://github.com/hl845740757
  */
+@NotThreadSafe
 public class JumpPointSearchStrategy implements FindPathStrategy{
 
+    /**
+     * 直线移动一格的代价
+     */
+    private static final int STRAIGHT_COST = 1000;
+    /**
+     * 斜线移动一格的代价
+     */
+    private static final int DIAGONAL_COST = 1414;
+
+    private static final int[] EMPTY_INTS = new int[0];
+
+    // 本次查询的地图信息
+    protected int rowCount;
+    protected int colCount;
+    protected long[] walkableBits;
+
+    // 本次查询的终点
+    protected int endX;
+    protected int endY;
+    protected int endIndex;
+
+    /**
+     * 查询编号，节点的编号与之相等时表示节点属于本次查询
+     */
+    private int queryId = 0;
+    /**
+     * 节点加入开放列表时的查询编号
+     */
+    private int[] openedQueryIds = EMPTY_INTS;
+    /**
+     * 节点关闭时的查询编号
+     */
+    private int[] closedQueryIds = EMPTY_INTS;
+    private int[] gScores = EMPTY_INTS;
+    private int[] fScores = EMPTY_INTS;
+    private int[] parents = EMPTY_INTS;
+    /**
+     * 节点在堆中的索引
+     */
+    private int[] heapIndexes = EMPTY_INTS;
+
+    /**
+     * 开放列表，二叉堆(按f值排序)
+     */
+    private int[] heap = EMPTY_INTS;
+    private int heapSize = 0;
+
     @Override
-    public List<MapGrid> findPath(MapGrid[][] allMapGrids, MapGrid startGrid, MapGrid endGrid, EnumSet<GridObstacle> movableGrids) {
+    public List<MapGrid> findPath(MapData mapData, MapGrid startGrid, MapGrid endGrid, EnumSet<GridObstacle> movableGrids) {
+        GridObstacleBitmap obstacleBitmap = mapData.getObstacleBitmap();
+        prepare(obstacleBitmap, obstacleBitmap.getWalkableBits(movableGrids));
+
+        int startX = startGrid.getColIndex();
+        int startY = startGrid.getRowIndex();
+        endX = endGrid.getColIndex();
+        endY = endGrid.getRowIndex();
+        endIndex = index(endX, endY);
+        if (!isWalkable(startX, startY) || !isWalkable(endX, endY)){
+            return null;
+        }
+        int startIndex = index(startX, startY);
+        if (startIndex == endIndex){
+            return Collections.singletonList(startGrid);
+        }
+
+        nextQueryId();
+        heapSize = 0;
+        openedQueryIds[startIndex] = queryId;
+        gScores[startIndex] = 0;
+        parents[startIndex] = -1;
+        fScores[startIndex] = heuristic(startX, startY);
+        heapPush(startIndex);
+
+        while (heapSize > 0){
+            int current = heapPoll();
+            closedQueryIds[current] = queryId;
+            if (current == endIndex){
+                return buildPath(mapData, current);
+            }
+            identifySuccessors(current);
+        }
         return null;
     }
+
+    /**
+     * 准备本次查询的地图数据
+     * @param obstacleBitmap 遮挡位图
+     * @param walkableBits 可行走位图
+     */
+    protected void prepare(GridObstacleBitmap obstacleBitmap, long[] walkableBits){
+        this.rowCount = obstacleBitmap.getRowCount();
+        this.colCount = obstacleBitmap.getColCount();
+        this.walkableBits = walkableBits;
+        ensureCapacity(rowCount * colCount);
+    }
+
+    private void ensureCapacity(int gridCount){
+        if (openedQueryIds.length >= gridCount){
+            return;
+        }
+        openedQueryIds = new int[gridCount];
+        closedQueryIds = new int[gridCount];
+        gScores = new int[gridCount];
+        fScores = new int[gridCount];
+        parents = new int[gridCount];
+        heapIndexes = new int[gridCount];
+        heap = new int[gridCount];
+        queryId = 0;
+    }
+
+    private void nextQueryId(){
+        queryId++;
+        if (queryId == 0){
+            // 溢出了，清理之前的编号
+            Arrays.fill(openedQueryIds, 0);
+            Arrays.fill(closedQueryIds, 0);
+            queryId = 1;
+        }
+    }
+
+    /**
+     * 寻找当前节点的后继跳点(剪枝后的邻居方向上跳跃)
+     */
+    private void identifySuccessors(int current){
+        int x = current % colCount;
+        int y = current / colCount;
+        int parent = parents[current];
+        if (parent < 0){
+            // 起点，所有方向都需要搜索
+            for (int dy = -1; dy <= 1; dy++){
+                for (int dx = -1; dx <= 1; dx++){
+                    if (dx == 0 && dy == 0){
+                        continue;
+                    }
+                    if (dx != 0 && dy != 0 && !(isWalkable(x + dx, y) && isWalkable(x, y + dy))){
+                        continue;
+                    }
+                    addSuccessor(current, x, y, dx, dy);
+                }
+            }
+            return;
+        }
+        int dx = Integer.signum(x - parent % colCount);
+        int dy = Integer.signum(y - parent / colCount);
+        if (dx != 0 && dy != 0){
+            boolean verticalWalkable = isWalkable(x, y + dy);
+            boolean horizontalWalkable = isWalkable(x + dx, y);
+            if (verticalWalkable){
+                addSuccessor(current, x, y, 0, dy);
+            }
+            if (horizontalWalkable){
+                addSuccessor(current, x, y, dx, 0);
+            }
+            if (verticalWalkable && horizontalWalkable){
+                addSuccessor(current, x, y, dx, dy);
+            }
+        } else if (dx != 0){
+            boolean nextWalkable = isWalkable(x + dx, y);
+            boolean upWalkable = isWalkable(x, y + 1);
+            boolean downWalkable = isWalkable(x, y - 1);
+            if (nextWalkable){
+                addSuccessor(current, x, y, dx, 0);
+                if (upWalkable){
+                    addSuccessor(current, x, y, dx, 1);
+                }
+                if (downWalkable){
+                    addSuccessor(current, x, y, dx, -1);
+                }
+            }
+            if (upWalkable){
+                addSuccessor(current, x, y, 0, 1);
+            }
+            if (downWalkable){
+                addSuccessor(current, x, y, 0, -1);
+            }
+        } else {
+            boolean nextWalkable = isWalkable(x, y + dy);
+            boolean rightWalkable = isWalkable(x + 1, y);
+            boolean leftWalkable = isWalkable(x - 1, y);
+            if (nextWalkable){
+                addSuccessor(current, x, y, 0, dy);
+                if (rightWalkable){
+                    addSuccessor(current, x, y, 1, dy);
+                }
+                if (leftWalkable){
+                    addSuccessor(current, x, y, -1, dy);
+                }
+            }
+            if (rightWalkable){
+                addSuccessor(current, x, y, 1, 0);
+            }
+            if (leftWalkable){
+                addSuccessor(current, x, y, -1, 0);
+            }
+        }
+    }
+
+    private void addSuccessor(int current, int x, int y, int dx, int dy){
+        int jumpPoint = (dx != 0 && dy != 0) ? jumpDiagonal(x, y, dx, dy) : jumpStraight(x, y, dx, dy);
+        if (jumpPoint < 0 || closedQueryIds[jumpPoint] == queryId){
+            return;
+        }
+        int jumpX = jumpPoint % colCount;
+        int jumpY = jumpPoint / colCount;
+        int gScore = gScores[current] + distance(x, y, jumpX, jumpY);
+        if (openedQueryIds[jumpPoint] != queryId){
+            openedQueryIds[jumpPoint] = queryId;
+            gScores[jumpPoint] = gScore;
+            parents[jumpPoint] = current;
+            fScores[jumpPoint] = gScore + heuristic(jumpX, jumpY);
+            heapPush(jumpPoint);
+        } else if (gScore < gScores[jumpPoint]){
+            gScores[jumpPoint] = gScore;
+            parents[jumpPoint] = current;
+            fScores[jumpPoint] = gScore + heuristic(jumpX, jumpY);
+            siftUp(heapIndexes[jumpPoint]);
+        }
+    }
+
+    /**
+     * 从(x,y)沿直线方向跳跃(不包含(x,y)自身)
+     * @param x 起始x索引(列)
+     * @param y 起始y索引(行)
+     * @param dx x方向，-1,0,1
+     * @param dy y方向，-1,0,1
+     * @return 跳点的格子索引，没有跳点返回-1
+     */
+    protected int jumpStraight(int x, int y, int dx, int dy){
+        while (true){
+            x += dx;
+            y += dy;
+            if (!isWalkable(x, y)){
+                return -1;
+            }
+            if (x == endX && y == endY){
+                return endIndex;
+            }
+            if (hasForcedNeighbor(x, y, dx, dy)){
+                return index(x, y);
+            }
+        }
+    }
+
+    /**
+     * 沿直线方向移动到(x,y)时，(x,y)是否有强迫邻居(即是否是跳点)。
+     * 不允许穿越墙角时，侧面的格子可行走而身后侧面的格子不可行走即产生强迫邻居。
+     */
+    protected final boolean hasForcedNeighbor(int x, int y, int dx, int dy){
+        if (dx != 0){
+            return (isWalkable(x, y - 1) && !isWalkable(x - dx, y - 1))
+                    || (isWalkable(x, y + 1) && !isWalkable(x - dx, y + 1));
+        } else {
+            return (isWalkable(x - 1, y) && !isWalkable(x - 1, y - dy))
+                    || (isWalkable(x + 1, y) && !isWalkable(x + 1, y - dy));
+        }
+    }
+
+    /**
+     * 从(x,y)沿斜线方向跳跃(不包含(x,y)自身)，调用者保证了第一步的两个直线方向格子可行走
+     * @return 跳点的格子索引，没有跳点返回-1
+     */
+    private int jumpDiagonal(int x, int y, int dx, int dy){
+        while (true){
+            x += dx;
+            y += dy;
+            if (!isWalkable(x, y)){
+                return -1;
+            }
+            if (x == endX && y == endY){
+                return endIndex;
+            }
+            // 两个直线分量方向上存在跳点，则当前格子是跳点
+            if (jumpStraight(x, y, dx, 0) >= 0 || jumpStraight(x, y, 0, dy) >= 0){
+                return index(x, y);
+            }
+            // 不允许穿越墙角
+            if (!isWalkable(x + dx, y) || !isWalkable(x, y + dy)){
+                return -1;
+            }
+        }
+    }
+
+    protected final boolean isWalkable(int x, int y){
+        return x >= 0 && x < colCount && y >= 0 && y < rowCount
+                && GridObstacleBitmap.isSet(walkableBits, index(x, y));
+    }
+
+    protected final int index(int x, int y){
+        return y * colCount + x;
+    }
+
+    private int heuristic(int x, int y){
+        return distance(x, y, endX, endY);
+    }
+
+    /**
+     * 八方向距离(octile)，既是跳点之间的真实代价，也是可采纳的启发函数
+     */
+    private static int distance(int x1, int y1, int x2, int y2){
+        int deltaX = Math.abs(x1 - x2);
+        int deltaY = Math.abs(y1 - y2);
+        return deltaX > deltaY ? STRAIGHT_COST * (deltaX - deltaY) + DIAGONAL_COST * deltaY
+                : STRAIGHT_COST * (deltaY - deltaX) + DIAGONAL_COST * deltaX;
+    }
+
+    private List<MapGrid> buildPath(MapData mapData, int endIndex){
+        List<MapGrid> path = new ArrayList<>();
+        for (int index = endIndex; index >= 0; index = parents[index]){
+            path.add(mapData.getGrid(index / colCount, index % colCount));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // region 二叉堆
+
+    private void heapPush(int node){
+        heap[heapSize] = node;
+        heapIndexes[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int heapPoll(){
+        int result = heap[0];
+        int last = heap[--heapSize];
+        if (heapSize > 0){
+            heap[0] = last;
+            heapIndexes[last] = 0;
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int position){
+        int node = heap[position];
+        int fScore = fScores[node];
+        while (position > 0){
+            int parentPosition = (position - 1) >>> 1;
+            int parentNode = heap[parentPosition];
+            if (fScores[parentNode] <= fScore){
+                break;
+            }
+            heap[position] = parentNode;
+            heapIndexes[parentNode] = position;
+            position = parentPosition;
+        }
+        heap[position] = node;
+        heapIndexes[node] = position;
+    }
+
+    private void siftDown(int position){
+        int node = heap[position];
+        int fScore = fScores[node];
+        int half = heapSize >>> 1;
+        while (position < half){
+            int childPosition = (position << 1) + 1;
+            int childNode = heap[childPosition];
+            int rightPosition = childPosition + 1;
+            if (rightPosition < heapSize && fScores[heap[rightPosition]] < fScores[childNode]){
+                childPosition = rightPosition;
+                childNode = heap[childPosition];
+            }
+            if (fScore <= fScores[childNode]){
+                break;
+            }
+            heap[position] = childNode;
+            heapIndexes[childNode] = position;
+            position = childPosition;
+        }
+        heap[position] = node;
+        heapIndexes[node] = position;
+    }
+
+    // endregion
 }
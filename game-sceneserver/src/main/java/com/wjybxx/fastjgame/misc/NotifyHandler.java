@@ -16,7 +16,7 @@
 
 package com.wjybxx.fastjgame.misc;
 
-import com.wjybxx.fastjgame.scene.ViewGrid;
+import com.wjybxx.fastjgame.scene.AoiListener;
 import com.wjybxx.fastjgame.scene.gameobject.GameObject;
 
 import java.util.List;
@@ -24,6 +24,10 @@ import java.util.List;
 /**
  * 视野通知策略；
  * （来源于之前做项目时做的笔记）
+ * 由场景的视野策略({@link com.wjybxx.fastjgame.scene.AoiStrategy})产生，经{@link AoiListener}按对象类型分发；
+ * 传入的对象列表是视野策略共享的缓存，只读，不可以持有。
+ * 进出视野的消息携带完整的状态，总是立即发送；之后的移动、状态更新通过
+ * {@link com.wjybxx.fastjgame.scene.Scene#broadcastUpdate(GameObject, Object)}按距离降频发送。
  * @author wjybxx
  * @version 1.0
  * @date 2019/6/2 22:04
@@ -34,40 +38,40 @@ public interface NotifyHandler<T extends GameObject> {
 
     // 我要准备执行的逻辑
     /**
-     * 通知gameObject，newVisibleGrids这些格子进入了我的视野；
+     * 通知gameObject，others这些对象进入了我的视野；
      *
      * @param gameObject 游戏对象
-     * @param newVisibleGrids gameObject当前能看见的新格子
-     *                        视野视野list的原因是为了减少构建的消息数；
+     * @param others gameObject新看见的对象
+     *               使用list的原因是为了减少构建的消息数；
      */
-    void notifyGameObjectOthersIn(T gameObject, List<ViewGrid> newVisibleGrids);
-    
+    void notifyGameObjectOthersIn(T gameObject, List<GameObject> others);
+
     /**
-     * 通知gameObject，range这些格子离开了我的视野；
+     * 通知gameObject，others这些对象离开了我的视野；
      *
      * @param gameObject 游戏对象
-     * @param range gameObject离开了这些格子
-     *              视野视野list的原因是为了减少构建的消息数；
+     * @param others gameObject看不见了的对象
+     *               使用list的原因是为了减少构建的消息数；
      */
-    void notifyGameObjectOthersOut(T gameObject,List<ViewGrid> range);
+    void notifyGameObjectOthersOut(T gameObject, List<GameObject> others);
 
     // 其他人要执行的逻辑
     /**
-     * 通知(range)这些格子里的对象，有一个gameObject进入了它们的视野格子
+     * 通知watchers这些对象，有一个gameObject进入了它们的视野
      *
-     * @param range 视野格子
-     * @param gameObject 进入这些视野格子的对象
-     *                   视野视野list的原因是为了减少构建的消息数；
+     * @param watchers 新看见gameObject的对象
+     * @param gameObject 进入它们视野的对象
+     *                   使用list的原因是为了减少构建的消息数(只序列化一次)；
      */
-    void notifyOthersGameObjectIn(List<ViewGrid> range, T gameObject);
+    void notifyOthersGameObjectIn(List<GameObject> watchers, T gameObject);
 
     /**
-     * 通知(range)这些格子里的对象，有一个gameObject离开了它们的视野格子
+     * 通知watchers这些对象，有一个gameObject离开了它们的视野
      *
-     * @param range 视野格子
-     * @param gameObject 离开这些视野格子的对象
-     *                   视野视野list的原因是为了减少构建的消息数；
+     * @param watchers 看不见gameObject了的对象
+     * @param gameObject 离开它们视野的对象
+     *                   使用list的原因是为了减少构建的消息数(只序列化一次)；
      */
-    void notifyOthersGameObjectOut(List<ViewGrid> range, T gameObject);
+    void notifyOthersGameObjectOut(List<GameObject> watchers, T gameObject);
 
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.misc;
+
+import com.wjybxx.fastjgame.scene.MapGrid;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * 异步寻路结果处理器，在发起请求的场景所在的线程(场景线程或游戏世界线程)执行；
+ * 请求被取消(请求者离开场景或发起了新的请求)时不会执行。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/24 15:10
+ * @github - https://github.com/hl845740757
+ */
+@FunctionalInterface
+public interface PathQueryHandler {
+
+    /**
+     * 寻路完成
+     * @param path 路径，见{@link FindPathStrategy#findPath}，不可达时为null或empty
+     */
+    void onPathFound(@Nullable List<MapGrid> path);
+}
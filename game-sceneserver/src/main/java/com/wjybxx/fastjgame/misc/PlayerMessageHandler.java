@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.misc;
+
+import com.wjybxx.fastjgame.scene.Scene;
+import com.wjybxx.fastjgame.scene.gameobject.Player;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 玩家消息处理器，在玩家所在场景的线程({@link SceneLoop})中执行。
+ * @param <T> 消息类型
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/22 10:30
+ * @github - https://github.com/hl845740757
+ */
+@FunctionalInterface
+public interface PlayerMessageHandler<T> {
+
+    /**
+     * 处理玩家发来的消息
+     * @param scene 玩家所在的场景
+     * @param player 玩家
+     * @param message 消息
+     */
+    void handle(Scene scene, Player player, @Nonnull T message);
+}
@@ -38,4 +38,8 @@ public class SceneGameObjectManager extends GameObjectContainer {
     public SceneGameObjectManager(InitCapacityHolder capacityHolder) {
         super(capacityHolder);
     }
+
+    public SceneGameObjectManager(InitCapacityHolder capacityHolder, boolean positionStoreEnabled) {
+        super(capacityHolder, positionStoreEnabled);
+    }
 }
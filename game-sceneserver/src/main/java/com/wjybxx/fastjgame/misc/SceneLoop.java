@@ -0,0 +1,310 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.misc;
+
+import com.wjybxx.fastjgame.scene.Scene;
+import com.wjybxx.fastjgame.scene.gameobject.Player;
+import com.wjybxx.fastjgame.utils.MathUtils;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * 场景线程(借鉴Netty的EventLoop)。
+ * 一个SceneLoop拥有一组场景以及这些场景中的玩家，场景和玩家的数据只在该线程中访问，因此场景代码依然是单线程的。
+ * 其它线程只能通过{@link #execute(Runnable)}提交任务。
+ *
+ * 玩家切换线程时，新线程先通过{@link #expectPlayer(long)}登记等待该玩家，
+ * 在玩家真正到达之前，路由到该线程的玩家任务(消息)会被缓存，到达之后按顺序执行。
+ * 玩家到达时目标场景已不存在(期间被删除)，则丢弃缓存的任务，并通过{@link EnterSceneFailedHandler}将玩家交还给游戏世界线程。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/22 10:30
+ * @github - https://github.com/hl845740757
+ */
+public class SceneLoop implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SceneLoop.class);
+
+    /**
+     * 当前线程所属的SceneLoop
+     */
+    private static final ThreadLocal<SceneLoop> CURRENT_LOOP = new ThreadLocal<>();
+
+    private final int index;
+    private final long frameInterval;
+    private final Thread thread;
+    private final EnterSceneFailedHandler enterSceneFailedHandler;
+    /**
+     * 其它线程提交的任务
+     */
+    private final ConcurrentLinkedQueue<Runnable> taskQueue = new ConcurrentLinkedQueue<>();
+    private volatile boolean shutdown = false;
+
+    // ---------------------------- 以下字段只在本线程访问 ---------------------------
+    /**
+     * 该线程拥有的场景
+     */
+    private final Long2ObjectMap<Scene> sceneMap = new Long2ObjectOpenHashMap<>();
+    /**
+     * 该线程拥有的玩家，playerGuid -> 玩家及其所在场景
+     */
+    private final Long2ObjectMap<PlayerInfo> playerMap = new Long2ObjectOpenHashMap<>();
+    /**
+     * 正在切换到该线程的玩家，playerGuid -> 玩家到达之前收到的任务
+     */
+    private final Long2ObjectMap<List<BiConsumer<Scene, Player>>> expectedPlayerMap = new Long2ObjectOpenHashMap<>();
+    /**
+     * 下一帧的时间戳
+     */
+    private long nextTickMillTime = 0;
+
+    /**
+     * @param index 线程索引
+     * @param framesPerSecond 场景帧率
+     * @param enterSceneFailedHandler 玩家进入场景失败时的处理器
+     */
+    public SceneLoop(int index, int framesPerSecond, EnterSceneFailedHandler enterSceneFailedHandler) {
+        this.index = index;
+        this.frameInterval = MathUtils.frameInterval(framesPerSecond);
+        this.thread = new Thread(this, "SCENE_LOOP_" + index);
+        this.enterSceneFailedHandler = enterSceneFailedHandler;
+    }
+
+    /**
+     * 当前线程是否是场景线程
+     */
+    public static boolean inSceneLoop(){
+        return null != CURRENT_LOOP.get();
+    }
+
+    /**
+     * 获取当前线程所属的SceneLoop
+     * @return 当前线程不是场景线程时返回null
+     */
+    public static SceneLoop currentLoop(){
+        return CURRENT_LOOP.get();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean inLoop(){
+        return Thread.currentThread() == thread;
+    }
+
+    public void start(){
+        thread.start();
+    }
+
+    /**
+     * 请求关闭，已提交的任务不保证执行
+     */
+    public void shutdown(){
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * 提交一个任务，任务按提交顺序执行
+     * @param task 任务
+     */
+    public void execute(Runnable task){
+        taskQueue.offer(task);
+        if (!inLoop()){
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        CURRENT_LOOP.set(this);
+        logger.info("{} start.", thread.getName());
+        while (!shutdown){
+            runAllTasks();
+
+            long curMillTime = System.currentTimeMillis();
+            if (curMillTime >= nextTickMillTime){
+                // 按预定时间推进，落后超过一帧时不追帧
+                nextTickMillTime = Math.max(nextTickMillTime + frameInterval, curMillTime + 1);
+                tickScenes(curMillTime);
+                curMillTime = System.currentTimeMillis();
+            }
+            // 等待下一帧或者有新的任务
+            if (taskQueue.isEmpty() && nextTickMillTime > curMillTime){
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(nextTickMillTime - curMillTime));
+            }
+        }
+        logger.info("{} shutdown.", thread.getName());
+    }
+
+    private void runAllTasks(){
+        Runnable task;
+        while ((task = taskQueue.poll()) != null){
+            try {
+                task.run();
+            } catch (Throwable e){
+                logger.warn("{} run task caught exception", thread.getName(), e);
+            }
+        }
+    }
+
+    private void tickScenes(long curMillTime){
+        for (Scene scene : sceneMap.values()){
+            try {
+                scene.tick(curMillTime);
+            } catch (Exception e){
+                logger.error("tick caught exception, sceneType={}", scene.sceneType(), e);
+            }
+        }
+    }
+
+    // --------------------------- 以下方法只能在本线程调用 --------------------------
+
+    public void addScene(Scene scene){
+        sceneMap.put(scene.getGuid(), scene);
+    }
+
+    public Scene removeScene(long sceneGuid){
+        return sceneMap.remove(sceneGuid);
+    }
+
+    /**
+     * 登记一个正在切换到该线程的玩家
+     * @param playerGuid 玩家guid
+     */
+    public void expectPlayer(long playerGuid){
+        if (!expectedPlayerMap.containsKey(playerGuid)){
+            expectedPlayerMap.put(playerGuid, new ArrayList<>());
+        }
+    }
+
+    /**
+     * 玩家进入该线程的某个场景，并执行玩家到达之前缓存的任务
+     * @param player 玩家
+     * @param sceneGuid 场景guid
+     */
+    public void enterPlayer(Player player, long sceneGuid){
+        List<BiConsumer<Scene, Player>> pendingTasks = expectedPlayerMap.remove(player.getGuid());
+        Scene scene = sceneMap.get(sceneGuid);
+        if (null == scene){
+            logger.error("player {} enter scene {}, but scene not in {}, {} pending tasks dropped, return to world",
+                    player.getGuid(), sceneGuid, thread.getName(), null == pendingTasks ? 0 : pendingTasks.size());
+            enterSceneFailedHandler.onEnterSceneFailed(this, player, sceneGuid);
+            return;
+        }
+        scene.enterScene(player);
+        playerMap.put(player.getGuid(), new PlayerInfo(player, scene));
+
+        if (null != pendingTasks){
+            for (BiConsumer<Scene, Player> task : pendingTasks){
+                executePlayerTask(player.getGuid(), task);
+            }
+        }
+    }
+
+    /**
+     * 玩家离开所在场景及该线程
+     * @param player 玩家
+     */
+    public void removePlayer(Player player){
+        PlayerInfo playerInfo = playerMap.remove(player.getGuid());
+        if (null != playerInfo){
+            playerInfo.scene.leaveScene(player);
+        }
+    }
+
+    /**
+     * 玩家切换到该线程的另一个场景
+     * @param player 玩家
+     * @param sceneGuid 新场景guid
+     */
+    public void changeScene(Player player, long sceneGuid){
+        PlayerInfo playerInfo = playerMap.get(player.getGuid());
+        Scene scene = sceneMap.get(sceneGuid);
+        if (null == playerInfo || null == scene){
+            logger.error("player {} change scene {} failed", player.getGuid(), sceneGuid);
+            return;
+        }
+        playerInfo.scene.leaveScene(player);
+        playerInfo.scene = scene;
+        scene.enterScene(player);
+    }
+
+    /**
+     * 执行一个玩家相关的任务。
+     * 如果玩家正在切换到该线程，则缓存任务直到玩家到达。
+     * @param playerGuid 玩家guid
+     * @param task 任务
+     */
+    public void executePlayerTask(long playerGuid, BiConsumer<Scene, Player> task){
+        PlayerInfo playerInfo = playerMap.get(playerGuid);
+        if (null != playerInfo){
+            try {
+                task.accept(playerInfo.scene, playerInfo.player);
+            } catch (Exception e){
+                logger.warn("player {} task caught exception", playerGuid, e);
+            }
+            return;
+        }
+        List<BiConsumer<Scene, Player>> pendingTasks = expectedPlayerMap.get(playerGuid);
+        if (null != pendingTasks){
+            pendingTasks.add(task);
+            return;
+        }
+        logger.warn("player {} not in {}, task dropped", playerGuid, thread.getName());
+    }
+
+    /**
+     * 玩家进入场景失败的处理器
+     */
+    @FunctionalInterface
+    public interface EnterSceneFailedHandler {
+
+        /**
+         * 玩家进入场景失败，在场景线程中调用，此后玩家不再属于该线程
+         * @param sceneLoop 玩家进入失败的线程
+         * @param player 玩家
+         * @param sceneGuid 玩家要进入的场景
+         */
+        void onEnterSceneFailed(SceneLoop sceneLoop, Player player, long sceneGuid);
+    }
+
+    /**
+     * 玩家及其所在场景
+     */
+    private static class PlayerInfo {
+
+        private final Player player;
+        private Scene scene;
+
+        PlayerInfo(Player player, Scene scene) {
+            this.player = player;
+            this.scene = scene;
+        }
+    }
+}
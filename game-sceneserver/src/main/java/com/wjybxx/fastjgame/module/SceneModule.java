@@ -45,5 +45,7 @@ public class SceneModule extends CoreModule {
         bind(MapDataLoadMrg.class).in(Singleton.class);
         bind(SceneWrapper.class).in(Singleton.class);
         bind(SceneMrg.class).in(Singleton.class);
+        bind(SceneExecutorMrg.class).in(Singleton.class);
+        bind(PathQueryMrg.class).in(Singleton.class);
     }
 }
@@ -18,67 +18,100 @@ package com.wjybxx.fastjgame.mrg;
 
 import com.google.inject.Inject;
 import com.wjybxx.fastjgame.scene.GridObstacle;
+import com.wjybxx.fastjgame.scene.GridObstacleBitmap;
 import com.wjybxx.fastjgame.scene.MapData;
-import com.wjybxx.fastjgame.scene.MapGrid;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import com.wjybxx.fastjgame.scene.MapDataFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 地图资源加载器，按需加载；
  * 由于地图资源信息可能很大，加载到内存浪费内存，也会拖慢启动速度；
+ *
+ * 地图文件格式见{@link MapDataFile}，加载之后的{@link MapData}不可修改，所有使用该地图的场景共享。
+ * 场景可能在不同的线程中创建，因此是线程安全的。
  * @author wjybxx
  * @version 1.0
  * @date 2019/6/5 14:13
  * @github - https://github.com/hl845740757
  */
-@NotThreadSafe
+@ThreadSafe
 public class MapDataLoadMrg {
 
+    private static final Logger logger = LoggerFactory.getLogger(MapDataLoadMrg.class);
+
+    /**
+     * 地图文件目录
+     */
+    private final File mapDataDir;
+    /**
+     * 地图文件不存在时是否使用空地图(仅开发环境)
+     */
+    private final boolean emptyIfAbsent;
+
     /**
      * 已加载的地图信息
      */
-    private final Int2ObjectMap<MapData> loadCache = new Int2ObjectOpenHashMap<>(32);
+    private final ConcurrentMap<Integer, MapData> loadCache = new ConcurrentHashMap<>(32);
 
     @Inject
-    public MapDataLoadMrg() {
-
+    public MapDataLoadMrg(GameConfigMrg gameConfigMrg) {
+        this.mapDataDir = new File(gameConfigMrg.getMapDataDir());
+        this.emptyIfAbsent = gameConfigMrg.isMapDataEmptyIfAbsent();
     }
 
     /**
      * 加载地图资源
-     * @param mapId
-     * @return
+     * @param mapId 地图资源id
+     * @return mapData
      */
     public MapData loadMapData(int mapId){
-        MapData mapData = loadCache.get(mapId);
-        if (null == mapData){
-            mapData = loadMapDataImp(mapId);
-            loadCache.put(mapId, mapData);
-        }
-        return mapData;
+        return loadCache.computeIfAbsent(mapId, this::loadMapDataImp);
     }
 
     /**
      * 加载地图资源
      * @param mapId 地图资源id
      * @return mapData
+     * @throws UncheckedIOException 地图文件不存在(且没有开启{@link GameConfigMrg#isMapDataEmptyIfAbsent()})或格式错误
      */
     @Nonnull
     private MapData loadMapDataImp(int mapId){
-        // TODO 真正加载地图资源，现在随机生成吧
-        final int rowCount = 100;
-        final int colCount = 80;
-
-        MapGrid[][] allMapGrids = new MapGrid[rowCount][colCount];
-        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++){
-            for (int colIndex = 0; colIndex < colCount; colIndex++){
-                allMapGrids[rowIndex][colIndex] = new MapGrid(rowIndex,colIndex,new int[]{GridObstacle.FREE.getNumber()});
+        File file = new File(mapDataDir, MapDataFile.fileName(mapId));
+        if (!file.exists()){
+            if (!emptyIfAbsent){
+                throw new UncheckedIOException(new FileNotFoundException("map file " + file.getAbsolutePath() + " not found"));
             }
+            // 开发环境，地图编辑器导出地图文件之前使用一张空地图
+            logger.error("map file {} not found, use an empty map (mapDataEmptyIfAbsent=true)", file.getAbsolutePath());
+            return newEmptyMapData(mapId);
         }
+        try {
+            long startTime = System.currentTimeMillis();
+            MapData mapData = MapDataFile.read(file, mapId);
+            logger.info("load map {} cost {} ms", file.getName(), System.currentTimeMillis() - startTime);
+            return mapData;
+        } catch (IOException e) {
+            throw new UncheckedIOException("load map " + mapId + " failed", e);
+        }
+    }
 
-        return new MapData(mapId,allMapGrids);
+    private static MapData newEmptyMapData(int mapId){
+        final int rowCount = 100;
+        final int colCount = 80;
+        byte[] obstacleMasks = new byte[rowCount * colCount];
+        Arrays.fill(obstacleMasks, (byte) GridObstacle.FREE.getMask());
+        return new MapData(mapId, new GridObstacleBitmap(rowCount, colCount, ByteBuffer.wrap(obstacleMasks)));
     }
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.mrg;
+
+import com.google.inject.Inject;
+import com.wjybxx.fastjgame.misc.AbstractThreadLifeCycleHelper;
+import com.wjybxx.fastjgame.misc.JumpPointSearchStrategy;
+import com.wjybxx.fastjgame.misc.PathQueryHandler;
+import com.wjybxx.fastjgame.misc.SceneLoop;
+import com.wjybxx.fastjgame.net.async.event.NetEventParam;
+import com.wjybxx.fastjgame.net.async.event.NetEventType;
+import com.wjybxx.fastjgame.scene.GridObstacle;
+import com.wjybxx.fastjgame.scene.MapData;
+import com.wjybxx.fastjgame.scene.MapGrid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步寻路管理器。
+ * 寻路在独立的线程池中进行({@link MapData}不可修改，可以被多个线程共享)，回调在发起请求的场景所在的线程执行：
+ * 在场景线程({@link SceneLoop})中发起的请求，结果提交给该场景线程；
+ * 否则(游戏世界线程或并行tick线程)结果以{@link NetEventType#CHILD_CUSTOM_EVENTS}事件发布到Disruptor，由游戏世界线程执行回调。
+ *
+ * 每个请求者同时只有一个寻路请求，新的请求会取消旧的请求；请求者离开场景时取消它的请求，场景删除时取消场景的所有请求。
+ * 每个场景同时进行中的请求有上限，避免少数场景占满寻路线程。
+ *
+ * 场景可能在场景线程或并行tick线程中运行，因此发起和取消请求是线程安全的。
+ * 为何不使用{@link GlobalExecutorMrg}？它的队列是无界的，实际只有一个线程，且寻路策略是有状态的，需要线程封闭。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/24 15:20
+ * @github - https://github.com/hl845740757
+ */
+@ThreadSafe
+public class PathQueryMrg extends AbstractThreadLifeCycleHelper {
+
+    private static final Logger logger = LoggerFactory.getLogger(PathQueryMrg.class);
+
+    private final DisruptorMrg disruptorMrg;
+    private final int threadNum;
+    private final int maxInFlightPerScene;
+
+    /**
+     * 寻路策略有状态，每个线程一个
+     */
+    private final ThreadLocal<JumpPointSearchStrategy> strategyHolder = ThreadLocal.withInitial(JumpPointSearchStrategy::new);
+
+    /**
+     * requesterGuid -> 请求者当前的请求
+     */
+    private final ConcurrentMap<Long, PathQuery> requesterQueryMap = new ConcurrentHashMap<>();
+    /**
+     * sceneGuid -> 场景进行中的请求数
+     */
+    private final ConcurrentMap<Long, AtomicInteger> sceneInFlightCountMap = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executorService;
+
+    @Inject
+    public PathQueryMrg(DisruptorMrg disruptorMrg, GameConfigMrg gameConfigMrg) {
+        this.disruptorMrg = disruptorMrg;
+        this.threadNum = Math.max(1, gameConfigMrg.getPathQueryThreadNum());
+        this.maxInFlightPerScene = gameConfigMrg.getPathQueryMaxInFlightPerScene();
+    }
+
+    @Override
+    protected void startImp() {
+        executorService = new ThreadPoolExecutor(threadNum, threadNum,
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new PathQueryThreadFactory());
+    }
+
+    @Override
+    protected void shutdownImp() {
+        executorService.shutdownNow();
+        requesterQueryMap.clear();
+        sceneInFlightCountMap.clear();
+    }
+
+    /**
+     * 发起一个异步寻路请求
+     * @param sceneGuid 请求者所在的场景
+     * @param requesterGuid 请求者guid
+     * @param mapData 场景的地图数据
+     * @param startGrid 起始点
+     * @param endGrid 目的地
+     * @param movableGrids 可行走的格子类型
+     * @param handler 结果处理器
+     * @return 场景进行中的请求达到上限时返回false，调用者可以稍后重试或使用简单的移动方式
+     */
+    public boolean findPath(long sceneGuid, long requesterGuid, MapData mapData, MapGrid startGrid, MapGrid endGrid,
+                            EnumSet<GridObstacle> movableGrids, PathQueryHandler handler){
+        AtomicInteger sceneInFlightCount = sceneInFlightCountMap.computeIfAbsent(sceneGuid, k -> new AtomicInteger());
+        if (!tryAcquire(sceneInFlightCount)){
+            return false;
+        }
+        PathQuery pathQuery = new PathQuery(requesterGuid, sceneInFlightCount, SceneLoop.currentLoop(),
+                mapData, startGrid, endGrid, movableGrids, handler);
+        PathQuery preQuery = requesterQueryMap.put(requesterGuid, pathQuery);
+        if (null != preQuery){
+            preQuery.cancel();
+        }
+        try {
+            executorService.execute(() -> execute(pathQuery));
+        } catch (RejectedExecutionException e){
+            // 已关闭
+            requesterQueryMap.remove(requesterGuid, pathQuery);
+            sceneInFlightCount.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean tryAcquire(AtomicInteger sceneInFlightCount){
+        while (true){
+            int count = sceneInFlightCount.get();
+            if (count >= maxInFlightPerScene){
+                return false;
+            }
+            if (sceneInFlightCount.compareAndSet(count, count + 1)){
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 取消请求者的寻路请求(请求者离开场景时)
+     * @param requesterGuid 请求者guid
+     */
+    public void cancel(long requesterGuid){
+        PathQuery pathQuery = requesterQueryMap.remove(requesterGuid);
+        if (null != pathQuery){
+            pathQuery.cancel();
+        }
+    }
+
+    /**
+     * 场景删除时，取消场景的所有寻路请求。
+     * 必须在场景不再tick之后调用，否则场景之后发起的请求会重新登记该场景。
+     * @param sceneGuid 场景guid
+     */
+    public void removeScene(long sceneGuid){
+        AtomicInteger sceneInFlightCount = sceneInFlightCountMap.remove(sceneGuid);
+        if (null == sceneInFlightCount){
+            return;
+        }
+        requesterQueryMap.values().removeIf(pathQuery -> {
+            if (pathQuery.sceneInFlightCount == sceneInFlightCount){
+                pathQuery.cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * 寻路线程执行寻路
+     */
+    private void execute(PathQuery pathQuery){
+        try {
+            // 排队期间可能已被取消
+            if (pathQuery.cancelled){
+                return;
+            }
+            pathQuery.path = strategyHolder.get().findPath(pathQuery.mapData, pathQuery.startGrid, pathQuery.endGrid, pathQuery.movableGrids);
+        } catch (Exception e){
+            logger.warn("find path caught exception", e);
+        } finally {
+            pathQuery.sceneInFlightCount.decrementAndGet();
+        }
+        if (pathQuery.cancelled){
+            return;
+        }
+        if (null != pathQuery.sceneLoop){
+            pathQuery.sceneLoop.execute(() -> onQueryResult(pathQuery));
+        } else {
+            disruptorMrg.publishEvent(null, NetEventType.CHILD_CUSTOM_EVENTS, pathQuery);
+        }
+    }
+
+    /**
+     * 发起请求的线程(场景线程或游戏世界线程)收到寻路结果
+     * @param pathQuery 寻路请求
+     */
+    public void onQueryResult(PathQuery pathQuery){
+        // 在此期间可能已被取消或被新的请求替换
+        if (pathQuery.cancelled || !requesterQueryMap.remove(pathQuery.requesterGuid, pathQuery)){
+            return;
+        }
+        try {
+            pathQuery.handler.onPathFound(pathQuery.path);
+        } catch (Exception e){
+            logger.warn("path query handler caught exception, requester={}", pathQuery.requesterGuid, e);
+        }
+    }
+
+    /**
+     * 寻路请求，寻路完成后提交给发起请求的场景线程，或作为事件参数发布到Disruptor。
+     * 寻路线程写入结果之后提交，任务队列和Disruptor的发布都保证了结果对回调线程的可见性。
+     */
+    public static class PathQuery implements NetEventParam {
+
+        private final long requesterGuid;
+        private final AtomicInteger sceneInFlightCount;
+        /**
+         * 发起请求的场景线程，不是在场景线程中发起时为null
+         */
+        private final SceneLoop sceneLoop;
+        private final MapData mapData;
+        private final MapGrid startGrid;
+        private final MapGrid endGrid;
+        private final EnumSet<GridObstacle> movableGrids;
+        private final PathQueryHandler handler;
+
+        private volatile boolean cancelled = false;
+        private List<MapGrid> path;
+
+        private PathQuery(long requesterGuid, AtomicInteger sceneInFlightCount, SceneLoop sceneLoop, MapData mapData,
+                          MapGrid startGrid, MapGrid endGrid, EnumSet<GridObstacle> movableGrids, PathQueryHandler handler) {
+            this.requesterGuid = requesterGuid;
+            this.sceneInFlightCount = sceneInFlightCount;
+            this.sceneLoop = sceneLoop;
+            this.mapData = mapData;
+            this.startGrid = startGrid;
+            this.endGrid = endGrid;
+            // 调用者可能会修改
+            this.movableGrids = EnumSet.copyOf(movableGrids);
+            this.handler = handler;
+        }
+
+        private void cancel(){
+            cancelled = true;
+        }
+
+        @Override
+        public long sessionGuid() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class PathQueryThreadFactory implements ThreadFactory{
+
+        private final AtomicInteger threadIndex=new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r,"path_query_"+threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
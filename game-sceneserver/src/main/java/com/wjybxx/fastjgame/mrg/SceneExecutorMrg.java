@@ -0,0 +1,296 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.mrg;
+
+import com.google.inject.Inject;
+import com.wjybxx.fastjgame.misc.SceneLoop;
+import com.wjybxx.fastjgame.scene.Scene;
+import com.wjybxx.fastjgame.scene.gameobject.Player;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * 场景线程管理器，以场景为单位绑定线程(借鉴Netty)，玩家在哪个场景，就使用场景所在的线程。
+ * 除{@link #executeInWorld(Runnable)}以外，所有方法都只能在游戏世界线程调用，路由表也只在游戏世界线程修改。
+ * {@link GameConfigMrg#getSceneLoopThreadNum()}小于等于0时不启用场景线程，场景由{@link SceneMrg}在游戏世界线程tick，
+ * 场景和玩家的添加、删除统一通过{@link SceneMrg}，由它决定是否交给场景线程。
+ *
+ * 玩家任务(消息)：{@link #executePlayerTask(long, BiConsumer)}按玩家guid路由到玩家所在的线程执行。
+ *
+ * 切换线程：游戏世界线程先修改路由并通知新线程等待该玩家，再通知旧线程移出玩家，旧线程处理完之前的消息后将玩家交给新线程。
+ * 路由修改之后的消息进入新线程，在玩家到达之前缓存，因此同一玩家的消息始终按顺序处理。
+ *
+ * 网络层不是线程安全的，场景线程发送的消息通过{@link #executeInWorld(Runnable)}交给游戏世界线程，在下一帧发送。
+ *
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/22 10:30
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public class SceneExecutorMrg {
+
+    private static final Logger logger = LoggerFactory.getLogger(SceneExecutorMrg.class);
+
+    private final GameConfigMrg gameConfigMrg;
+    /**
+     * 场景线程，启动时创建，未启用场景线程时为null
+     */
+    private SceneLoop[] sceneLoops;
+    /**
+     * 每个线程拥有的场景数，用于负载均衡
+     */
+    private int[] sceneNums;
+    /**
+     * 场景路由，sceneGuid -> 场景所在的线程
+     */
+    private final Long2ObjectMap<SceneLoop> sceneLoopMap = new Long2ObjectOpenHashMap<>();
+    /**
+     * 玩家路由，playerGuid -> 玩家所在的线程
+     */
+    private final Long2ObjectMap<SceneLoop> playerLoopMap = new Long2ObjectOpenHashMap<>();
+    /**
+     * 场景线程提交给游戏世界线程的任务
+     */
+    private final ConcurrentLinkedQueue<Runnable> worldTaskQueue = new ConcurrentLinkedQueue<>();
+
+    @Inject
+    public SceneExecutorMrg(GameConfigMrg gameConfigMrg) {
+        this.gameConfigMrg = gameConfigMrg;
+    }
+
+    /**
+     * 启动所有场景线程，未配置场景线程数时不启动任何线程
+     */
+    public void start(){
+        int loopNum = gameConfigMrg.getSceneLoopThreadNum();
+        if (loopNum <= 0){
+            logger.info("scene loops disabled, scenes tick in world thread.");
+            return;
+        }
+        sceneLoops = new SceneLoop[loopNum];
+        sceneNums = new int[loopNum];
+        for (int index = 0; index < loopNum; index++){
+            sceneLoops[index] = new SceneLoop(index, gameConfigMrg.getSceneLoopFramesPerSecond(), this::onEnterSceneFailed);
+            sceneLoops[index].start();
+        }
+        logger.info("{} scene loops started.", loopNum);
+    }
+
+    /**
+     * 是否启用了场景线程
+     * @return true/false
+     */
+    public boolean isEnabled(){
+        return null != sceneLoops;
+    }
+
+    /**
+     * 关闭所有场景线程
+     */
+    public void shutdown(){
+        if (null == sceneLoops){
+            return;
+        }
+        for (SceneLoop sceneLoop : sceneLoops){
+            sceneLoop.shutdown();
+        }
+    }
+
+    /**
+     * 游戏世界线程每帧调用，执行场景线程提交的任务
+     */
+    public void tick(){
+        Runnable task;
+        while ((task = worldTaskQueue.poll()) != null){
+            try {
+                task.run();
+            } catch (Exception e){
+                logger.warn("run world task caught exception", e);
+            }
+        }
+    }
+
+    /**
+     * 提交一个在游戏世界线程执行的任务，任何线程都可以调用
+     * @param task 任务
+     */
+    public void executeInWorld(Runnable task){
+        worldTaskQueue.offer(task);
+    }
+
+    /**
+     * 在玩家所在的线程执行一个玩家任务(如处理玩家消息)，同一玩家的任务按提交顺序执行
+     * @param playerGuid 玩家guid
+     * @param task 任务
+     * @return 玩家不在任何场景中时返回false
+     */
+    public boolean executePlayerTask(long playerGuid, BiConsumer<Scene, Player> task){
+        SceneLoop sceneLoop = playerLoopMap.get(playerGuid);
+        if (null == sceneLoop){
+            return false;
+        }
+        sceneLoop.execute(() -> sceneLoop.executePlayerTask(playerGuid, task));
+        return true;
+    }
+
+    /**
+     * 添加一个场景，分配到场景数最少的线程
+     * @param scene 已创建的场景，之后只能在场景线程中访问
+     */
+    public void addScene(Scene scene){
+        ensureEnabled();
+        int minIndex = 0;
+        for (int index = 1; index < sceneNums.length; index++){
+            if (sceneNums[index] < sceneNums[minIndex]){
+                minIndex = index;
+            }
+        }
+        addScene(scene, sceneLoops[minIndex]);
+    }
+
+    /**
+     * 添加一个场景，与指定场景在同一个线程(场景之间需要共享数据时)
+     * @param scene 已创建的场景，之后只能在场景线程中访问
+     * @param affinitySceneGuid 关联的场景
+     */
+    public void addScene(Scene scene, long affinitySceneGuid){
+        SceneLoop sceneLoop = sceneLoopMap.get(affinitySceneGuid);
+        if (null == sceneLoop){
+            throw new IllegalArgumentException("affinity scene " + affinitySceneGuid + " not exist");
+        }
+        addScene(scene, sceneLoop);
+    }
+
+    private void ensureEnabled(){
+        if (null == sceneLoops){
+            throw new IllegalStateException("scene loops disabled");
+        }
+    }
+
+    private void addScene(Scene scene, SceneLoop sceneLoop){
+        if (sceneLoopMap.containsKey(scene.getGuid())){
+            throw new IllegalArgumentException("duplicate scene " + scene.getGuid());
+        }
+        sceneLoopMap.put(scene.getGuid(), sceneLoop);
+        sceneNums[sceneLoop.getIndex()]++;
+        sceneLoop.execute(() -> sceneLoop.addScene(scene));
+    }
+
+    /**
+     * 删除一个场景，场景中不应该再有玩家
+     * @param sceneGuid 场景guid
+     */
+    public void removeScene(long sceneGuid){
+        removeScene(sceneGuid, null);
+    }
+
+    /**
+     * 删除一个场景，场景中不应该再有玩家
+     * @param sceneGuid 场景guid
+     * @param removedCallback 场景线程删除场景之后执行(场景不会再tick)，用于清理场景相关的数据，可以为null
+     */
+    public void removeScene(long sceneGuid, Runnable removedCallback){
+        SceneLoop sceneLoop = sceneLoopMap.remove(sceneGuid);
+        if (null == sceneLoop){
+            return;
+        }
+        sceneNums[sceneLoop.getIndex()]--;
+        sceneLoop.execute(() -> {
+            sceneLoop.removeScene(sceneGuid);
+            if (null != removedCallback){
+                removedCallback.run();
+            }
+        });
+    }
+
+    /**
+     * 新玩家进入场景
+     * @param player 玩家，之后只能在场景线程中访问
+     * @param sceneGuid 场景guid
+     * @return 场景不存在或玩家已在场景中时返回false
+     */
+    public boolean enterScene(Player player, long sceneGuid){
+        SceneLoop sceneLoop = sceneLoopMap.get(sceneGuid);
+        if (null == sceneLoop || playerLoopMap.containsKey(player.getGuid())){
+            return false;
+        }
+        playerLoopMap.put(player.getGuid(), sceneLoop);
+        sceneLoop.execute(() -> sceneLoop.enterPlayer(player, sceneGuid));
+        return true;
+    }
+
+    /**
+     * 玩家切换场景，目标场景在其它线程时安全地切换线程
+     * @param playerGuid 玩家guid
+     * @param sceneGuid 新场景guid
+     * @return 场景不存在或玩家不在场景中时返回false
+     */
+    public boolean changeScene(long playerGuid, long sceneGuid){
+        SceneLoop newLoop = sceneLoopMap.get(sceneGuid);
+        SceneLoop preLoop = playerLoopMap.get(playerGuid);
+        if (null == newLoop || null == preLoop){
+            return false;
+        }
+        if (newLoop == preLoop){
+            preLoop.execute(() -> preLoop.executePlayerTask(playerGuid,
+                    (scene, player) -> preLoop.changeScene(player, sceneGuid)));
+            return true;
+        }
+        // 先修改路由，之后的消息都进入新线程，在玩家到达之前缓存
+        playerLoopMap.put(playerGuid, newLoop);
+        newLoop.execute(() -> newLoop.expectPlayer(playerGuid));
+        // 旧线程处理完之前的消息之后，移出玩家并交给新线程
+        preLoop.execute(() -> preLoop.executePlayerTask(playerGuid, (scene, player) -> {
+            preLoop.removePlayer(player);
+            newLoop.execute(() -> newLoop.enterPlayer(player, sceneGuid));
+        }));
+        return true;
+    }
+
+    /**
+     * 玩家离开场景(下线)
+     * @param playerGuid 玩家guid
+     */
+    public void removePlayer(long playerGuid){
+        SceneLoop sceneLoop = playerLoopMap.remove(playerGuid);
+        if (null == sceneLoop){
+            return;
+        }
+        sceneLoop.execute(() -> sceneLoop.executePlayerTask(playerGuid,
+                (scene, player) -> sceneLoop.removePlayer(player)));
+    }
+
+    /**
+     * 玩家进入场景失败(目标场景已被删除)，在场景线程中调用，将玩家交还给游戏世界线程
+     */
+    private void onEnterSceneFailed(SceneLoop sceneLoop, Player player, long sceneGuid){
+        executeInWorld(() -> {
+            // 期间可能已经再次切换了场景或下线
+            if (playerLoopMap.get(player.getGuid()) == sceneLoop){
+                playerLoopMap.remove(player.getGuid());
+            }
+            logger.warn("player {} enter scene {} failed, returned to world and not in any scene", player.getGuid(), sceneGuid);
+        });
+    }
+}
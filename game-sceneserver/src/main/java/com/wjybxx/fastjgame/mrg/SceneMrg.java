@@ -17,19 +17,37 @@
 package com.wjybxx.fastjgame.mrg;
 
 import com.google.inject.Inject;
+import com.wjybxx.fastjgame.misc.PlayerMessageHandler;
 import com.wjybxx.fastjgame.scene.Dungeon;
 import com.wjybxx.fastjgame.scene.Scene;
 import com.wjybxx.fastjgame.scene.Town;
+import com.wjybxx.fastjgame.scene.gameobject.Player;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * 管理所有的Scene对象；
  * （创建，寻找，删除）
+ *
+ * 城镇和副本之间没有共享的可变状态，开启{@link GameConfigMrg#isSceneParallelTick()}后，
+ * 游戏世界线程tick时会使用fork/join并行tick所有场景，并在tick返回之前等待所有场景tick完成。
+ * 并行tick期间发送的消息由{@link SceneSendMrg}暂存到{@link SceneExecutorMrg}，
+ * 并在{@link SceneExecutorMrg#tick()}中由游戏世界线程统一发送，网络层仍然只有游戏世界线程访问。
+ *
+ * 场景的添加删除、玩家的进出场景都必须通过该类：启用场景线程({@link SceneExecutorMrg#isEnabled()})时，
+ * 场景和玩家交给{@link SceneExecutorMrg}，之后只能在场景线程中访问，{@link #getScene(long)}等方法查询不到；
+ * 否则在这里保存，由游戏世界线程tick。
  * @author wjybxx
  * @version 1.0
  * @date 2019/6/5 19:56
@@ -40,6 +58,26 @@ public class SceneMrg {
     private static final Logger logger = LoggerFactory.getLogger(SceneMrg.class);
 
     private final SystemTimeMrg systemTimeMrg;
+    private final SceneExecutorMrg sceneExecutorMrg;
+    private final MessageDispatcherMrg dispatcherMrg;
+    private final PathQueryMrg pathQueryMrg;
+    /**
+     * 并行tick场景的线程池，未开启并行tick时为null
+     */
+    private final ForkJoinPool parallelTickPool;
+    /**
+     * 每个子任务最少tick的场景数
+     */
+    private final int parallelTickBatchSize;
+    /**
+     * 并行tick时收集所有场景，只在游戏世界线程使用，复用以避免每帧创建
+     */
+    private final List<Scene> parallelTickScenes = new ArrayList<>();
+    /**
+     * 是否正在并行tick场景。
+     * 在提交任务之前设置，等待任务完成之后清除，任务的提交与完成保证了并行tick线程的可见性。
+     */
+    private boolean parallelTicking = false;
     // 按照Scene的不同存储在不同的map
 
     /**
@@ -53,27 +91,133 @@ public class SceneMrg {
      */
     private final Long2ObjectMap<Dungeon> dungeonMap = new Long2ObjectOpenHashMap<>();
 
+    /**
+     * 未启用场景线程时，场景中的玩家，playerGuid -> 玩家及其所在场景
+     */
+    private final Long2ObjectMap<PlayerInfo> playerMap = new Long2ObjectOpenHashMap<>();
+
     @Inject
-    public SceneMrg(SystemTimeMrg systemTimeMrg) {
+    public SceneMrg(SystemTimeMrg systemTimeMrg, GameConfigMrg gameConfigMrg, SceneExecutorMrg sceneExecutorMrg,
+                    MessageDispatcherMrg dispatcherMrg, PathQueryMrg pathQueryMrg) {
         this.systemTimeMrg = systemTimeMrg;
+        this.sceneExecutorMrg = sceneExecutorMrg;
+        this.dispatcherMrg = dispatcherMrg;
+        this.pathQueryMrg = pathQueryMrg;
+        this.parallelTickBatchSize = Math.max(1, gameConfigMrg.getSceneParallelTickBatchSize());
+        if (gameConfigMrg.isSceneParallelTick()){
+            int threadNum = gameConfigMrg.getSceneParallelTickThreadNum();
+            if (threadNum <= 0){
+                threadNum = Runtime.getRuntime().availableProcessors();
+            }
+            this.parallelTickPool = new ForkJoinPool(threadNum, SceneMrg::newParallelTickThread, null, false);
+        } else {
+            this.parallelTickPool = null;
+        }
+    }
+
+    private static ForkJoinWorkerThread newParallelTickThread(ForkJoinPool pool){
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("SCENE_PARALLEL_TICK_" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
     }
 
     public void tick(){
+        if (null != parallelTickPool && townMap.size() + dungeonMap.size() > parallelTickBatchSize){
+            parallelTick();
+            return;
+        }
         tickScene(townMap);
         tickScene(dungeonMap);
     }
 
+    /**
+     * 并行tick所有场景，所有场景tick完成后才返回
+     */
+    private void parallelTick(){
+        long curMillTime = systemTimeMrg.getSystemMillTime();
+        parallelTickScenes.addAll(townMap.values());
+        parallelTickScenes.addAll(dungeonMap.values());
+        parallelTicking = true;
+        try {
+            parallelTickPool.invoke(new SceneTickAction(parallelTickScenes, 0, parallelTickScenes.size(), curMillTime));
+        } finally {
+            parallelTicking = false;
+            parallelTickScenes.clear();
+        }
+    }
+
+    /**
+     * 是否正在并行tick场景，此时场景代码可能运行在任意线程，不可以直接访问网络层等游戏世界线程的数据
+     * @return true/false
+     */
+    public boolean inParallelTick(){
+        return parallelTicking;
+    }
+
+    /**
+     * 关闭并行tick线程池
+     */
+    public void shutdown(){
+        if (null == parallelTickPool){
+            return;
+        }
+        parallelTickPool.shutdown();
+        try {
+            parallelTickPool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void tickScene(Scene scene, long curMillTime){
+        try {
+            scene.tick(curMillTime);
+        }catch (Exception e){
+            logger.error("tick caught exception, sceneType={}",scene.sceneType(),e);
+        }
+    }
+
     private <T extends Scene> void tickScene(Long2ObjectMap<T> sceneMap){
         if (sceneMap.size() == 0){
             return;
         }
         long curMillTime = systemTimeMrg.getSystemMillTime();
         for (Scene scene : sceneMap.values()){
-            try {
-                scene.tick(curMillTime);
-            }catch (Exception e){
-                logger.error("tick caught exception, sceneType={}",scene.sceneType(),e);
+            tickScene(scene, curMillTime);
+        }
+    }
+
+    /**
+     * 二分拆分场景区间的tick任务，区间不超过batchSize时直接tick
+     */
+    private class SceneTickAction extends RecursiveAction{
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Scene> scenes;
+        private final int from;
+        private final int to;
+        private final long curMillTime;
+
+        SceneTickAction(List<Scene> scenes, int from, int to, long curMillTime) {
+            this.scenes = scenes;
+            this.from = from;
+            this.to = to;
+            this.curMillTime = curMillTime;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= parallelTickBatchSize){
+                for (int index = from; index < to; index++){
+                    tickScene(scenes.get(index), curMillTime);
+                }
+                return;
             }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SceneTickAction(scenes, from, middle, curMillTime),
+                    new SceneTickAction(scenes, middle, to, curMillTime));
         }
     }
 
@@ -112,4 +256,142 @@ public class SceneMrg {
     public Dungeon getDungeon(long guid){
         return dungeonMap.get(guid);
     }
+
+    /**
+     * 添加一个已创建的场景
+     * @param scene 场景，启用场景线程时之后只能在场景线程中访问
+     */
+    public void addScene(Scene scene){
+        if (sceneExecutorMrg.isEnabled()){
+            sceneExecutorMrg.addScene(scene);
+            return;
+        }
+        if (null != getScene(scene.getGuid())){
+            throw new IllegalArgumentException("duplicate scene " + scene.getGuid());
+        }
+        if (scene instanceof Town){
+            townMap.put(scene.getGuid(), (Town) scene);
+        } else if (scene instanceof Dungeon){
+            dungeonMap.put(scene.getGuid(), (Dungeon) scene);
+        } else {
+            throw new IllegalArgumentException("unsupported scene " + scene.getClass().getName());
+        }
+    }
+
+    /**
+     * 删除一个场景，场景中不应该再有玩家，同时取消场景的所有寻路请求
+     * @param sceneGuid 场景guid
+     */
+    public void removeScene(long sceneGuid){
+        if (sceneExecutorMrg.isEnabled()){
+            sceneExecutorMrg.removeScene(sceneGuid, () -> pathQueryMrg.removeScene(sceneGuid));
+            return;
+        }
+        if (null == dungeonMap.remove(sceneGuid)){
+            townMap.remove(sceneGuid);
+        }
+        pathQueryMrg.removeScene(sceneGuid);
+    }
+
+    /**
+     * 玩家进入场景
+     * @param player 玩家，启用场景线程时之后只能在场景线程中访问
+     * @param sceneGuid 场景guid
+     * @return 场景不存在或玩家已在场景中时返回false
+     */
+    public boolean enterScene(Player player, long sceneGuid){
+        if (sceneExecutorMrg.isEnabled()){
+            return sceneExecutorMrg.enterScene(player, sceneGuid);
+        }
+        Scene scene = getScene(sceneGuid);
+        if (null == scene || playerMap.containsKey(player.getGuid())){
+            return false;
+        }
+        scene.enterScene(player);
+        playerMap.put(player.getGuid(), new PlayerInfo(player, scene));
+        return true;
+    }
+
+    /**
+     * 玩家切换场景
+     * @param playerGuid 玩家guid
+     * @param sceneGuid 新场景guid
+     * @return 场景不存在或玩家不在场景中时返回false
+     */
+    public boolean changeScene(long playerGuid, long sceneGuid){
+        if (sceneExecutorMrg.isEnabled()){
+            return sceneExecutorMrg.changeScene(playerGuid, sceneGuid);
+        }
+        PlayerInfo playerInfo = playerMap.get(playerGuid);
+        Scene scene = getScene(sceneGuid);
+        if (null == playerInfo || null == scene){
+            return false;
+        }
+        playerInfo.scene.leaveScene(playerInfo.player);
+        playerInfo.scene = scene;
+        scene.enterScene(playerInfo.player);
+        return true;
+    }
+
+    /**
+     * 玩家离开场景(下线)
+     * @param playerGuid 玩家guid
+     */
+    public void removePlayer(long playerGuid){
+        if (sceneExecutorMrg.isEnabled()){
+            sceneExecutorMrg.removePlayer(playerGuid);
+            return;
+        }
+        PlayerInfo playerInfo = playerMap.remove(playerGuid);
+        if (null != playerInfo){
+            playerInfo.scene.leaveScene(playerInfo.player);
+        }
+    }
+
+    /**
+     * 执行一个玩家任务，启用场景线程时在玩家所在的线程执行，否则立即执行
+     * @param playerGuid 玩家guid
+     * @param task 任务
+     * @return 玩家不在任何场景中时返回false
+     */
+    public boolean executePlayerTask(long playerGuid, BiConsumer<Scene, Player> task){
+        if (sceneExecutorMrg.isEnabled()){
+            return sceneExecutorMrg.executePlayerTask(playerGuid, task);
+        }
+        PlayerInfo playerInfo = playerMap.get(playerGuid);
+        if (null == playerInfo){
+            return false;
+        }
+        task.accept(playerInfo.scene, playerInfo.player);
+        return true;
+    }
+
+    /**
+     * 注册一个玩家消息处理器，收到该类型的消息时在玩家所在场景的线程处理
+     * @param messageClazz 消息类型
+     * @param handler 处理器
+     * @param <T> 消息类型
+     */
+    public <T> void registerPlayerMessageHandler(Class<T> messageClazz, PlayerMessageHandler<? super T> handler){
+        dispatcherMrg.registerRequestMessageHandler(messageClazz, (session, message) -> {
+            boolean success = executePlayerTask(session.getClientGuid(), (scene, player) -> handler.handle(scene, player, message));
+            if (!success){
+                logger.warn("player {} not in any scene, message {} dropped", session.getClientGuid(), messageClazz.getSimpleName());
+            }
+        });
+    }
+
+    /**
+     * 玩家及其所在场景
+     */
+    private static class PlayerInfo {
+
+        private final Player player;
+        private Scene scene;
+
+        PlayerInfo(Player player, Scene scene) {
+            this.player = player;
+            this.scene = scene;
+        }
+    }
 }
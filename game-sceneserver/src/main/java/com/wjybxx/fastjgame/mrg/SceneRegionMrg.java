@@ -93,7 +93,7 @@ public class SceneRegionMrg {
     private void activeOneRegion(SceneRegion sceneRegion){
         logger.info("try active region {}.",sceneRegion);
         try{
-            // TODO 激活区域
+            // TODO 激活区域，创建区域内的城镇并通过SceneMrg#addScene添加
             logger.info("active region {} success.",sceneRegion);
         }catch (Exception e){
             // 这里一定不能出现异常
@@ -19,18 +19,30 @@ package com.wjybxx.fastjgame.mrg;
 import com.google.inject.Inject;
 import com.wjybxx.fastjgame.constants.NetConstants;
 import com.wjybxx.fastjgame.misc.PlatformType;
+import com.wjybxx.fastjgame.misc.SceneLoop;
 import com.wjybxx.fastjgame.mrg.async.S2CSessionMrg;
+import com.wjybxx.fastjgame.net.async.PreEncodedMessage;
+import com.wjybxx.fastjgame.scene.InterestLevelPolicy;
 import com.wjybxx.fastjgame.scene.ViewGrid;
 import com.wjybxx.fastjgame.scene.gameobject.GameObject;
+import com.wjybxx.fastjgame.scene.gameobject.GameObjectType;
 import com.wjybxx.fastjgame.scene.gameobject.Player;
+import com.wjybxx.fastjgame.utils.GameUtils;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Predicate;
 
 /**
  * 对会话信息的封装，提供良好的接口，方便使用；
+ *
+ * 广播时消息只序列化一次({@link PreEncodedMessage})，每个玩家的codec只写入自己的包头。
+ * 在场景线程({@link SceneLoop})中或并行tick场景期间({@link SceneMrg#inParallelTick()})发送的消息
+ * 会交给游戏世界线程发送，网络层不是线程安全的；广播只提交一个任务({@link Broadcaster})，而不是每个接收者一个。
  * @author wjybxx
  * @version 1.0
  * @date 2019/6/4 18:22
@@ -48,11 +60,34 @@ public class SceneSendMrg {
      * center服在scene服中的信息
      */
     private final CenterInSceneInfoMrg centerInSceneInfoMrg;
+    /**
+     * 获取与玩家通信的codec，广播时预编码消息
+     */
+    private final CodecHelperMrg codecHelperMrg;
+    /**
+     * 场景线程中发送的消息需要交给游戏世界线程
+     */
+    private final SceneExecutorMrg sceneExecutorMrg;
+    /**
+     * 并行tick场景期间发送的消息需要暂存
+     */
+    private final SceneMrg sceneMrg;
 
     @Inject
-    public SceneSendMrg(S2CSessionMrg s2CSessionMrg, CenterInSceneInfoMrg centerInSceneInfoMrg) {
+    public SceneSendMrg(S2CSessionMrg s2CSessionMrg, CenterInSceneInfoMrg centerInSceneInfoMrg, CodecHelperMrg codecHelperMrg,
+                        SceneExecutorMrg sceneExecutorMrg, SceneMrg sceneMrg) {
         this.s2CSessionMrg = s2CSessionMrg;
         this.centerInSceneInfoMrg = centerInSceneInfoMrg;
+        this.codecHelperMrg = codecHelperMrg;
+        this.sceneExecutorMrg = sceneExecutorMrg;
+        this.sceneMrg = sceneMrg;
+    }
+
+    /**
+     * 当前是否需要将消息交给游戏世界线程发送
+     */
+    private boolean needHandOff(){
+        return SceneLoop.inSceneLoop() || sceneMrg.inParallelTick();
     }
 
     /**
@@ -61,6 +96,11 @@ public class SceneSendMrg {
      * @param msg 消息
      */
     public void sendToPlayer(Player player,Object msg){
+        if (needHandOff()){
+            long playerGuid = player.getGuid();
+            sceneExecutorMrg.executeInWorld(() -> s2CSessionMrg.send(playerGuid,msg));
+            return;
+        }
         s2CSessionMrg.send(player.getGuid(),msg);
     }
 
@@ -80,6 +120,10 @@ public class SceneSendMrg {
      * @param msg 消息
      */
     public void sendToCenter(PlatformType platformType,int serverId,Object msg){
+        if (needHandOff()){
+            sceneExecutorMrg.executeInWorld(() -> sendToCenter(platformType,serverId,msg));
+            return;
+        }
         long centerGuid = centerInSceneInfoMrg.getCenterGuid(platformType, serverId);
         if (NetConstants.isInvalid(centerGuid)){
             logger.warn("send to disconnected center {}-{}",platformType,serverId);
@@ -90,12 +134,13 @@ public class SceneSendMrg {
 
     /**
      * 广播指定对象视野内的所有玩家，如果gameobject为玩家，包括自己
+     * (基于对象所在的视野格子，只能在使用{@link com.wjybxx.fastjgame.scene.GridAoiStrategy}的场景中使用，否则抛出异常；
+     * 其它视野策略请使用{@link com.wjybxx.fastjgame.scene.Scene#collectWatchers(GameObject, Collection)}和{@link #broadcastPlayer(Collection, Object)})
      * @param gameObject 广播中心对象
      * @param msg 广播消息
      */
     public void broadcastPlayer(GameObject gameObject,Object msg){
-        ViewGrid centerViewGrid = gameObject.getViewGrid();
-        broadcastPlayer(centerViewGrid.getViewableGrids(), msg);
+        broadcastPlayer(viewableGrids(gameObject), msg);
     }
 
     /**
@@ -104,25 +149,32 @@ public class SceneSendMrg {
      * @param msg 消息
      */
     public void broadcastPlayer(List<ViewGrid> viewGrids, Object msg){
+        PreEncodedMessage preEncodedMessage = tryPreEncode(viewGrids, msg);
+        if (null == preEncodedMessage){
+            return;
+        }
+        Broadcaster broadcaster = new Broadcaster(preEncodedMessage);
         for (ViewGrid  viewGrid: viewGrids){
             if (viewGrid.getPlayerNum() <= 0){
                 continue;
             }
             for (Player player : viewGrid.getPlayerSet()){
-                sendToPlayer(player,msg);
+                broadcaster.send(player);
             }
         }
+        broadcaster.finish();
     }
 
     /**
      * 广播指定对象视野内的所有玩家，去除掉指定玩家
+     * (基于对象所在的视野格子，只能在使用{@link com.wjybxx.fastjgame.scene.GridAoiStrategy}的场景中使用，否则抛出异常；
+     * 其它视野策略请使用{@link com.wjybxx.fastjgame.scene.Scene#collectWatchers(GameObject, Collection)}和{@link #broadcastPlayer(Collection, Object)})
      * @param gameObject 广播中心对象
      * @param msg 消息对象
      * @param exceptPlayer 不广播该玩家
      */
     public void broadcastPlayerExcept(GameObject gameObject,Object msg,Player exceptPlayer){
-        ViewGrid centerViewGrid = gameObject.getViewGrid();
-        broadcastPlayerExcept(centerViewGrid.getViewableGrids(), msg, exceptPlayer);
+        broadcastPlayerExcept(viewableGrids(gameObject), msg, exceptPlayer);
     }
 
     /**
@@ -132,6 +184,11 @@ public class SceneSendMrg {
      * @param exceptPlayer 去除的玩家
      */
     public void broadcastPlayerExcept(List<ViewGrid> viewGrids,Object msg,Player exceptPlayer){
+        PreEncodedMessage preEncodedMessage = tryPreEncode(viewGrids, msg);
+        if (null == preEncodedMessage){
+            return;
+        }
+        Broadcaster broadcaster = new Broadcaster(preEncodedMessage);
         for (ViewGrid  viewGrid: viewGrids){
             if (viewGrid.getPlayerNum() <= 0){
                 continue;
@@ -141,21 +198,23 @@ public class SceneSendMrg {
                 if (player == exceptPlayer){
                     continue;
                 }
-                sendToPlayer(player,msg);
+                broadcaster.send(player);
             }
         }
+        broadcaster.finish();
     }
 
     /**
      * 广播指定对象视野内的所有玩家，去除掉指定条件的玩家
+     * (基于对象所在的视野格子，只能在使用{@link com.wjybxx.fastjgame.scene.GridAoiStrategy}的场景中使用，否则抛出异常；
+     * 其它视野策略请使用{@link com.wjybxx.fastjgame.scene.Scene#collectWatchers(GameObject, Collection)}和{@link #broadcastPlayer(Collection, Object)})
      * @param gameObject 广播中心对象
      * @param msg 广播消息
      * @param except 排除条件，true的不广播
      * {@link com.wjybxx.fastjgame.misc.SceneBroadcastFilters}可能会有帮助
      */
     public void broadcastPlayerExcept(GameObject gameObject, Object msg, Predicate<Player> except){
-        ViewGrid centerViewGrid = gameObject.getViewGrid();
-        broadcastPlayerExcept(centerViewGrid.getViewableGrids(), msg, except);
+        broadcastPlayerExcept(viewableGrids(gameObject), msg, except);
     }
 
     /**
@@ -166,15 +225,186 @@ public class SceneSendMrg {
      * {@link com.wjybxx.fastjgame.misc.SceneBroadcastFilters}可能会有帮助
      */
     public void broadcastPlayerExcept(List<ViewGrid> viewGrids, Object msg, Predicate<Player> except){
+        PreEncodedMessage preEncodedMessage = tryPreEncode(viewGrids, msg);
+        if (null == preEncodedMessage){
+            return;
+        }
+        Broadcaster broadcaster = new Broadcaster(preEncodedMessage);
         for (ViewGrid  viewGrid: viewGrids){
             if (viewGrid.getPlayerNum() <= 0){
                 continue;
             }
             for (Player player : viewGrid.getPlayerSet()){
                 if (!except.test(player)){
-                    sendToPlayer(player,msg);
+                    broadcaster.send(player);
+                }
+            }
+        }
+        broadcaster.finish();
+    }
+
+    /**
+     * 广播指定对象中的玩家(如视野回调中的观察者{@link com.wjybxx.fastjgame.misc.NotifyHandler})，
+     * 不依赖视野格子，任意视野策略都可以使用
+     * @param receivers 接收者，只有玩家会收到消息
+     * @param msg 消息
+     */
+    public void broadcastPlayer(Collection<? extends GameObject> receivers, Object msg){
+        Broadcaster broadcaster = null;
+        for (GameObject receiver : receivers){
+            if (receiver.getObjectType() != GameObjectType.PLAYER){
+                continue;
+            }
+            // 有玩家时才编码
+            if (null == broadcaster){
+                PreEncodedMessage preEncodedMessage = preEncode(msg);
+                if (null == preEncodedMessage){
+                    return;
+                }
+                broadcaster = new Broadcaster(preEncodedMessage);
+            }
+            broadcaster.send((Player) receiver);
+        }
+        if (null != broadcaster){
+            broadcaster.finish();
+        }
+    }
+
+    /**
+     * 按关注等级降频广播对象的更新(坐标、血量快照等可被后续消息覆盖的消息)，
+     * 离source越远的玩家收到的频率越低，本帧没有需要发送的玩家时不序列化消息。
+     * 如果source是玩家，自己每帧都会收到，不受降频策略影响(无论策略为近处配置的间隔是多少)。
+     * @param source 产生更新的对象
+     * @param receivers 接收者(能看见source的对象)，只有玩家会收到消息；包含source时也只发送一次
+     * @param msg 消息
+     * @param frameIndex 场景当前帧
+     * @param interestLevelPolicy 降频策略
+     */
+    public void broadcastPlayerWithInterest(GameObject source, Collection<? extends GameObject> receivers, Object msg,
+                                            long frameIndex, InterestLevelPolicy interestLevelPolicy){
+        Broadcaster broadcaster = null;
+        if (source.getObjectType() == GameObjectType.PLAYER){
+            broadcaster = newBroadcaster(msg);
+            if (null == broadcaster){
+                return;
+            }
+            broadcaster.send((Player) source);
+        }
+        for (GameObject receiver : receivers){
+            if (receiver == source || receiver.getObjectType() != GameObjectType.PLAYER){
+                continue;
+            }
+            if (!interestLevelPolicy.shouldSend(source, receiver, frameIndex)){
+                continue;
+            }
+            if (null == broadcaster){
+                broadcaster = newBroadcaster(msg);
+                if (null == broadcaster){
+                    return;
                 }
             }
+            broadcaster.send((Player) receiver);
+        }
+        if (null != broadcaster){
+            broadcaster.finish();
+        }
+    }
+
+    /**
+     * 预编码消息并创建广播器
+     * @param msg 广播的消息
+     * @return 编码失败时返回null
+     */
+    private Broadcaster newBroadcaster(Object msg){
+        PreEncodedMessage preEncodedMessage = preEncode(msg);
+        return null == preEncodedMessage ? null : new Broadcaster(preEncodedMessage);
+    }
+
+    /**
+     * 获取对象所在视野格子的可见格子
+     * @param gameObject 场景中的对象
+     * @return viewableGrids
+     * @throws IllegalStateException 对象不属于任何视野格子(场景没有使用{@link com.wjybxx.fastjgame.scene.GridAoiStrategy}或对象不在场景中)
+     */
+    private static List<ViewGrid> viewableGrids(GameObject gameObject){
+        ViewGrid centerViewGrid = gameObject.getViewGrid();
+        if (null == centerViewGrid){
+            throw new IllegalStateException(gameObject.getObjectType() + "-" + gameObject.getGuid()
+                    + " has no viewGrid, the scene does not use GridAoiStrategy or the object is not in scene. "
+                    + "use Scene#collectWatchers and broadcastPlayer(Collection, Object) instead.");
+        }
+        return centerViewGrid.getViewableGrids();
+    }
+
+    /**
+     * 如果视野格子中有玩家，则预编码广播消息(只序列化一次)
+     * @param viewGrids 广播的视野格子
+     * @param msg 广播的消息
+     * @return 没有玩家或编码失败时返回null
+     */
+    private PreEncodedMessage tryPreEncode(List<ViewGrid> viewGrids, Object msg){
+        boolean hasPlayer = false;
+        for (ViewGrid viewGrid:viewGrids){
+            if (viewGrid.getPlayerNum() > 0){
+                hasPlayer = true;
+                break;
+            }
+        }
+        if (!hasPlayer){
+            return null;
+        }
+        return preEncode(msg);
+    }
+
+    /**
+     * 预编码广播消息
+     * @param msg 广播的消息
+     * @return 编码失败时返回null
+     */
+    private PreEncodedMessage preEncode(Object msg){
+        try {
+            // 与SceneWorld中绑定玩家端口时使用的codec一致，否则codec会退化为使用原始消息编码
+            return PreEncodedMessage.encode(codecHelperMrg.getCodecHelper(GameUtils.PLAYER_CODEC_NAME), msg);
+        } catch (IOException e){
+            logger.warn("encode broadcast message {} caught exception", msg.getClass().getSimpleName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 一次广播的发送者。
+     * 需要交给游戏世界线程发送时，先收集所有接收者，广播结束时只提交一个任务，避免每个接收者一个任务。
+     */
+    private class Broadcaster {
+
+        private final PreEncodedMessage preEncodedMessage;
+        /**
+         * 需要交给游戏世界线程发送时的接收者，直接发送时为null
+         */
+        private final LongArrayList handOffPlayerGuids;
+
+        Broadcaster(PreEncodedMessage preEncodedMessage) {
+            this.preEncodedMessage = preEncodedMessage;
+            this.handOffPlayerGuids = needHandOff() ? new LongArrayList() : null;
+        }
+
+        void send(Player player){
+            if (null == handOffPlayerGuids){
+                s2CSessionMrg.send(player.getGuid(), preEncodedMessage);
+            } else {
+                handOffPlayerGuids.add(player.getGuid());
+            }
+        }
+
+        void finish(){
+            if (null == handOffPlayerGuids || handOffPlayerGuids.isEmpty()){
+                return;
+            }
+            sceneExecutorMrg.executeInWorld(() -> {
+                for (int index = 0, size = handOffPlayerGuids.size(); index < size; index++){
+                    s2CSessionMrg.send(handOffPlayerGuids.getLong(index), preEncodedMessage);
+                }
+            });
         }
     }
 }
@@ -29,11 +29,13 @@ public class SceneWrapper {
 
     private final SceneSendMrg sendMrg;
     private final MapDataLoadMrg mapDataLoadMrg;
+    private final PathQueryMrg pathQueryMrg;
 
     @Inject
-    public SceneWrapper(SceneSendMrg sendMrg, MapDataLoadMrg mapDataLoadMrg) {
+    public SceneWrapper(SceneSendMrg sendMrg, MapDataLoadMrg mapDataLoadMrg, PathQueryMrg pathQueryMrg) {
         this.sendMrg = sendMrg;
         this.mapDataLoadMrg = mapDataLoadMrg;
+        this.pathQueryMrg = pathQueryMrg;
     }
 
     public SceneSendMrg getSendMrg() {
@@ -43,4 +45,8 @@ public class SceneWrapper {
     public MapDataLoadMrg getMapDataLoadMrg() {
         return mapDataLoadMrg;
     }
+
+    public PathQueryMrg getPathQueryMrg() {
+        return pathQueryMrg;
+    }
 }
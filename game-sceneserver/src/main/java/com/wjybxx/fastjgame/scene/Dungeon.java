@@ -19,6 +19,7 @@ package com.wjybxx.fastjgame.scene;
 import com.wjybxx.fastjgame.config.TemplateSceneConfig;
 import com.wjybxx.fastjgame.misc.SceneType;
 import com.wjybxx.fastjgame.mrg.SceneWrapper;
+import com.wjybxx.fastjgame.trigger.TriggerInterface;
 
 /**
  * 副本场景，当玩家退出后销毁；
@@ -34,6 +35,10 @@ public abstract class Dungeon extends Scene{
         super(guid, sceneConfig, sceneWrapper);
     }
 
+    public Dungeon(long guid, TemplateSceneConfig sceneConfig, SceneWrapper sceneWrapper, TriggerInterface trigger) {
+        super(guid, sceneConfig, sceneWrapper, trigger);
+    }
+
     @Override
     public final SceneType sceneType() {
         return SceneType.DUNGEON;
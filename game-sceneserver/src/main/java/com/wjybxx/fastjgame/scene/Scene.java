@@ -20,9 +20,13 @@ import com.wjybxx.fastjgame.config.TemplateSceneConfig;
 import com.wjybxx.fastjgame.core.SceneRegion;
 import com.wjybxx.fastjgame.misc.*;
 import com.wjybxx.fastjgame.mrg.MapDataLoadMrg;
+import com.wjybxx.fastjgame.mrg.PathQueryMrg;
 import com.wjybxx.fastjgame.mrg.SceneSendMrg;
 import com.wjybxx.fastjgame.mrg.SceneWrapper;
 import com.wjybxx.fastjgame.scene.gameobject.*;
+import com.wjybxx.fastjgame.shape.shape2d.Shape2D;
+import com.wjybxx.fastjgame.trigger.PriorityQueueTrigger;
+import com.wjybxx.fastjgame.trigger.TriggerInterface;
 import com.wjybxx.fastjgame.trigger.TriggerSystem;
 import com.wjybxx.fastjgame.utils.GameConstant;
 import com.wjybxx.fastjgame.utils.MathUtils;
@@ -32,6 +36,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 
 import static com.wjybxx.fastjgame.scene.gameobject.GameObjectType.*;
@@ -49,12 +55,8 @@ public abstract class Scene extends TriggerSystem {
 
     private static final Logger logger = LoggerFactory.getLogger(Scene.class);
 
-    // 更新单个对象时，缓存对象，避免大量的创建list
-    private static final List<ViewGrid> invisibleGridsCache = new ArrayList<>(GameConstant.VIEWABLE_GRID_NUM);
-    private static final List<ViewGrid> visibleGridsCache = new ArrayList<>(GameConstant.VIEWABLE_GRID_NUM);
-
     /**
-     * 刷新视野格子的间隔
+     * 刷新视野的间隔
      */
     private static final long DELTA_UPDATE_VIEW_GRIDS = 1000;
 
@@ -67,12 +69,18 @@ public abstract class Scene extends TriggerSystem {
 
     private final SceneSendMrg sendMrg;
     private final MapDataLoadMrg mapDataLoadMrg;
+    private final PathQueryMrg pathQueryMrg;
 
     /**
      * 下次刷新视野的时间戳；
      */
     private long nextUpdateViewGridTime = 0;
 
+    /**
+     * 场景当前帧，每次刷帧加1，用于更新的降频广播
+     */
+    private long frameIndex = 0;
+
     /**
      * 每一个场景都有一个唯一的id
      */
@@ -81,12 +89,36 @@ public abstract class Scene extends TriggerSystem {
      * 每个场景都有一个对应的配置文件
      */
     private final TemplateSceneConfig sceneConfig;
+    /**
+     * 场景的地图数据，同一张地图的场景共享
+     */
+    private final MapData mapData;
     /**
      * 场景对象容器,对外提供访问对象的接口
      */
     private final SceneGameObjectManager sceneGameObjectManager;
 
-    private final ViewGridSet viewGridSet;
+    /**
+     * 视野管理策略
+     */
+    private final AoiStrategy aoiStrategy;
+    /**
+     * 视野变化时，分发到对应类型的{@link NotifyHandler}
+     */
+    private final AoiListener aoiListener = new SceneAoiListener();
+    /**
+     * 视野内更新的降频策略
+     */
+    private final InterestLevelPolicy interestLevelPolicy;
+    /**
+     * 降频广播时的观察者缓存(不能是静态的，不同的场景可能运行在不同的线程)
+     */
+    private final List<GameObject> watchersCache = new ArrayList<>();
+
+    /**
+     * 空间索引，技能、AOE等区域查询使用
+     */
+    private final SpatialGridIndex spatialGridIndex;
 
     /**
      * 场景视野通知策略
@@ -104,20 +136,30 @@ public abstract class Scene extends TriggerSystem {
     private final GameObjectHandlerMapper<GameObjectTickContext<?>> gameObjectTickContextMapper = new GameObjectHandlerMapper<>();
 
     public Scene(long guid, TemplateSceneConfig sceneConfig, SceneWrapper sceneWrapper) {
+        this(guid, sceneConfig, sceneWrapper, new PriorityQueueTrigger());
+    }
+
+    /**
+     * @param trigger 场景定时器的存储实现，timer很多的场景(大量npc的技能、buff)可以使用
+     * {@link com.wjybxx.fastjgame.trigger.TimingWheelTrigger}
+     */
+    public Scene(long guid, TemplateSceneConfig sceneConfig, SceneWrapper sceneWrapper, TriggerInterface trigger) {
+        super(trigger);
         this.guid = guid;
         this.sceneConfig = sceneConfig;
         this.sendMrg = sceneWrapper.getSendMrg();
         this.mapDataLoadMrg = sceneWrapper.getMapDataLoadMrg();
+        this.pathQueryMrg = sceneWrapper.getPathQueryMrg();
 
-        // 以后再考虑是否需要重用
-        MapData mapData = mapDataLoadMrg.loadMapData(sceneConfig.mapId);
-        this.viewGridSet = new ViewGridSet(mapData.getMapWidth(),
-                mapData.getMapHeight(),
-                sceneConfig.viewableRange,
-                getViewGridInitCapacityHolder());
+        this.mapData = mapDataLoadMrg.loadMapData(sceneConfig.mapId);
+        this.aoiStrategy = createAoiStrategy();
+        this.interestLevelPolicy = createInterestLevelPolicy();
+        this.spatialGridIndex = new SpatialGridIndex(mapData.getMapWidth(), mapData.getMapHeight(),
+                GameConstant.SPATIAL_INDEX_CELL_WIDTH);
 
         // 创建管理该场景对象的控制器
-        this.sceneGameObjectManager = new SceneGameObjectManager(getGameObjectManagerInitCapacityHolder());
+        this.sceneGameObjectManager = new SceneGameObjectManager(getGameObjectManagerInitCapacityHolder(),
+                isPositionStoreEnabled());
 
         // 注册各种各样的处理器
         registerNotifyHandlers();
@@ -148,6 +190,30 @@ public abstract class Scene extends TriggerSystem {
                 new GameObjectTickContext<>(NPC_FRAME_INTERVAL, new NpcTickHandler()));
     }
 
+    /**
+     * 创建场景的视野管理策略，默认为九宫格，子类在需要的时候可以覆盖它；
+     * 大地图、视野差异大(玩家视野大，npc之间视野小)的玩法可以使用{@link OrthogonalListAoiStrategy}。
+     * 注意：在构造方法中调用，不能依赖子类的字段。
+     * @return aoiStrategy
+     */
+    protected AoiStrategy createAoiStrategy(){
+        ViewGridSet viewGridSet = new ViewGridSet(mapData.getMapWidth(),
+                mapData.getMapHeight(),
+                sceneConfig.viewableRange,
+                getViewGridInitCapacityHolder());
+        return new GridAoiStrategy(viewGridSet);
+    }
+
+    /**
+     * 创建视野内更新的降频策略，默认按场景视野半径的1/3、2/3分级，子类在需要的时候可以覆盖它；
+     * (如主城人多，可以让远处的玩家、npc频率更低)
+     * 注意：在构造方法中调用，不能依赖子类的字段。
+     * @return interestLevelPolicy
+     */
+    protected InterestLevelPolicy createInterestLevelPolicy(){
+        return InterestLevelPolicy.newDefaultPolicy(sceneConfig.viewableRange);
+    }
+
     /**
      * 获取创建视野格子的默认容量信息，子类在需要的时候可以覆盖它;
      * @return empty
@@ -165,6 +231,16 @@ public abstract class Scene extends TriggerSystem {
         return InitCapacityHolder.EMPTY;
     }
 
+    /**
+     * 是否为场景对象启用坐标存储(SoA)，子类在需要的时候可以覆盖它；
+     * 对象很多且经常做大范围区域判断的场景(如世界boss、攻城战)启用后可以使用{@link #scanGameObjects(Shape2D, GameObjectType, Collection)}。
+     * 注意：在构造方法中调用，不能依赖子类的字段。
+     * @return false
+     */
+    protected boolean isPositionStoreEnabled(){
+        return false;
+    }
+
     public SceneGameObjectManager getSceneGameObjectManager() {
         return sceneGameObjectManager;
     }
@@ -177,6 +253,24 @@ public abstract class Scene extends TriggerSystem {
         return sceneConfig;
     }
 
+    public MapData getMapData() {
+        return mapData;
+    }
+
+    /**
+     * 异步寻路，结果在场景所在的线程(场景线程或游戏世界线程)回调；游戏对象离开场景时自动取消
+     * @param gameObject 请求寻路的游戏对象
+     * @param startGrid 起始点
+     * @param endGrid 目的地
+     * @param movableGrids 可行走的格子类型
+     * @param handler 结果处理器
+     * @return 场景进行中的寻路请求达到上限时返回false
+     */
+    public boolean findPathAsync(GameObject gameObject, MapGrid startGrid, MapGrid endGrid,
+                                 EnumSet<GridObstacle> movableGrids, PathQueryHandler handler){
+        return pathQueryMrg.findPath(guid, gameObject.getGuid(), mapData, startGrid, endGrid, movableGrids, handler);
+    }
+
     public SceneRegion region(){
         return sceneConfig.sceneRegion;
     }
@@ -195,6 +289,10 @@ public abstract class Scene extends TriggerSystem {
      * @param curMillTime 当前系统时间戳
      */
     public void tick(long curMillTime) throws Exception{
+        frameIndex++;
+
+        // 场景定时器
+        tickTrigger(curMillTime);
 
         // 场景对象刷帧(场景对象之间刷帧最好也是没有依赖的)
         for (GameObjectType gameObjectType : GameObjectType.values()){
@@ -205,6 +303,10 @@ public abstract class Scene extends TriggerSystem {
             }
         }
 
+        // 刷帧期间对象可能移动了，刷新空间索引和坐标存储
+        updateSpatialIndex();
+        sceneGameObjectManager.syncPositions();
+
         // 检测视野格子刷新
         if (curMillTime >= nextUpdateViewGridTime){
             nextUpdateViewGridTime = curMillTime + DELTA_UPDATE_VIEW_GRIDS;
@@ -231,10 +333,80 @@ public abstract class Scene extends TriggerSystem {
     // endregion
 
 
+    // region 空间索引
+
+    /**
+     * 刷新所有对象的空间索引，格子未改变的对象只是计算一次索引
+     */
+    private void updateSpatialIndex(){
+        for (GameObjectType gameObjectType : GameObjectType.values()){
+            ObjectCollection<? extends GameObject> gameObjectSet = sceneGameObjectManager.getGameObjectSet(gameObjectType);
+            if (gameObjectSet.size() == 0){
+                continue;
+            }
+            for (GameObject gameObject : gameObjectSet){
+                spatialGridIndex.update(gameObject);
+            }
+        }
+    }
+
+    /**
+     * 对象坐标改变之后立即更新空间索引和坐标存储(瞬移、击退等)，
+     * 否则区域查询直到本帧刷帧结束之前使用的都是旧的坐标。
+     * @param gameObject 游戏对象
+     */
+    public final void updateSpatialIndex(GameObject gameObject){
+        spatialGridIndex.update(gameObject);
+        sceneGameObjectManager.syncPosition(gameObject);
+    }
+
+    /**
+     * 查询图形内指定类型的对象
+     * @param shape 查询区域(技能范围等)
+     * @param gameObjectType 对象类型
+     * @param out 结果写入该集合(不会清空)，调用者可以复用集合避免创建对象
+     * @param <T> 对象类型
+     * @return 找到的对象数
+     */
+    public final <T extends GameObject> int queryGameObjects(Shape2D shape, GameObjectType gameObjectType, Collection<? super T> out){
+        return spatialGridIndex.query(shape, gameObjectType, out);
+    }
+
+    /**
+     * 查询图形内多种类型的对象
+     * @param shape 查询区域(技能范围等)
+     * @param gameObjectTypes 对象类型
+     * @param out 结果写入该集合(不会清空)，调用者可以复用集合避免创建对象
+     * @return 找到的对象数
+     */
+    public final int queryGameObjects(Shape2D shape, EnumSet<GameObjectType> gameObjectTypes, Collection<? super GameObject> out){
+        return spatialGridIndex.query(shape, gameObjectTypes, out);
+    }
+
+    /**
+     * 批量判断场景内指定类型的所有对象，查询图形内的对象；
+     * 图形覆盖场景的大部分区域或者对象非常密集时，对坐标存储的整体扫描比空间索引更快。
+     * 未启用坐标存储({@link #isPositionStoreEnabled()})时使用空间索引，结果相同。
+     * @param shape 查询区域
+     * @param gameObjectType 对象类型
+     * @param out 结果写入该集合(不会清空)
+     * @param <T> 对象类型
+     * @return 找到的对象数
+     */
+    public final <T extends GameObject> int scanGameObjects(Shape2D shape, GameObjectType gameObjectType, Collection<? super T> out){
+        GameObjectPositionStore positionStore = sceneGameObjectManager.getPositionStore(gameObjectType);
+        if (null == positionStore){
+            return spatialGridIndex.query(shape, gameObjectType, out);
+        }
+        return positionStore.query(shape, out);
+    }
+
+    // endregion
+
     // region 视野管理
 
     /**
-     * 刷新所有对象的视野格子
+     * 刷新所有对象的视野
      */
     private void updateViewableGrid(){
         // 视野刷新最好不要有依赖，我们之前项目某些实现导致视野刷新之间有依赖(跟随对象的特殊跟随策略)
@@ -254,115 +426,140 @@ public abstract class Scene extends TriggerSystem {
     }
 
     /**
-     * 刷新单个对象的视野格子
+     * 刷新单个对象的视野
      * @param gameObject 指定对象
      * @param <T> 对象类型
      */
     protected final <T extends GameObject> void updateViewableGrid(T gameObject){
-        final ViewGrid preViewGrid = gameObject.getViewGrid();
-        final ViewGrid curViewGrid = viewGridSet.findViewGrid(gameObject.getPosition());
+        aoiStrategy.update(gameObject, aoiListener);
+    }
 
-        // 视野范围未发生改变
-        if (preViewGrid == curViewGrid){
-            return;
+    /**
+     * 修改对象的视野属性(boss层、视野半径等)，并重新计算视野
+     * @param gameObject 场景中的对象
+     * @param aoiLayer 所在的视野层
+     * @param aoiLayerMask 关注的视野层
+     * @param aoiRadius 视野半径，小于等于0表示使用场景的视野半径
+     */
+    public final void updateAoiProperties(GameObject gameObject, int aoiLayer, int aoiLayerMask, float aoiRadius){
+        aoiStrategy.updateAoiProperties(gameObject, aoiLayer, aoiLayerMask, aoiRadius, aoiListener);
+    }
+
+    /**
+     * 获取能看见该对象的所有对象(不包括自己)
+     * @param gameObject 场景中的对象
+     * @param out 结果写入该集合(不会清空)
+     * @return 找到的对象数
+     */
+    public final int collectWatchers(GameObject gameObject, Collection<? super GameObject> out){
+        return aoiStrategy.collectWatchers(gameObject, out);
+    }
+
+    /**
+     * 广播对象的更新(坐标、血量快照等可以被后续消息覆盖的消息)给能看见它的玩家，
+     * 按距离降频({@link InterestLevelPolicy})，如果对象是玩家，自己每帧都会收到(不受降频策略影响)；
+     * 技能、伤害等事件消息需要每个观察者都收到，不可以使用该方法。
+     *
+     * 目前还没有移动、状态同步协议，该方法暂时没有调用者，实现移动同步时坐标更新应该走这里。
+     * @param gameObject 产生更新的对象
+     * @param msg 消息
+     */
+    public final void broadcastUpdate(GameObject gameObject, Object msg){
+        try {
+            aoiStrategy.collectWatchers(gameObject, watchersCache);
+            sendMrg.broadcastPlayerWithInterest(gameObject, watchersCache, msg, frameIndex, interestLevelPolicy);
+        } finally {
+            watchersCache.clear();
         }
+    }
 
-        // 视野格子发生改变(需要找到前后格子差异)
-        List<ViewGrid> preViewableGrids = preViewGrid.getViewableGrids();
-        List<ViewGrid> curViewableGrids = curViewGrid.getViewableGrids();
+    public long getFrameIndex() {
+        return frameIndex;
+    }
 
-        // 视野更新会频繁的执行，不可以大量创建list，因此使用缓存
-        List<ViewGrid> invisibleGrids = invisibleGridsCache;
-        List<ViewGrid> visibleGrids = visibleGridsCache;
-        try{
-            // 旧的哪些看不见了
-            for (ViewGrid preViewableGrid : preViewableGrids){
-                if (!viewGridSet.visible(curViewGrid,preViewableGrid)){
-                    invisibleGrids.add(preViewableGrid);
-                }
-            }
-            // 新看见的格子有哪些
-            for (ViewGrid curViewableGrid : curViewableGrids){
-                if (!viewGridSet.visible(preViewGrid,curViewableGrid)){
-                    visibleGrids.add(curViewableGrid);
-                }
-            }
+    /**
+     * 视野变化时，根据对象的类型分发到对应的{@link NotifyHandler}
+     */
+    private class SceneAoiListener implements AoiListener {
+
+        @Override
+        public void onOthersEnter(GameObject gameObject, List<GameObject> others) {
+            getNotifyHandler(gameObject).notifyGameObjectOthersIn(gameObject, others);
+        }
 
-            // 更新所在的视野格子
-            gameObject.setViewGrid(curViewGrid);
-            preViewGrid.removeObject(gameObject);
-            curViewGrid.addGameObject(gameObject);
+        @Override
+        public void onOthersLeave(GameObject gameObject, List<GameObject> others) {
+            getNotifyHandler(gameObject).notifyGameObjectOthersOut(gameObject, others);
+        }
 
-            @SuppressWarnings("unchecked")
-            NotifyHandler<T> notifyHandler = (NotifyHandler<T>) notifyHandlerMapper.getHandler(gameObject);
-            // 视野，进入和退出都是相互的，他们离开了我的视野，我也离开了他们的视野
-            // 通知该对象，这些对象离开了我的视野
-            notifyHandler.notifyGameObjectOthersOut(gameObject,invisibleGrids);
-            // 通知旧格子里面的对象，该对象离开了它们的视野
-            notifyHandler.notifyOthersGameObjectOut(invisibleGrids,gameObject);
+        @Override
+        public void onEnterOthers(List<GameObject> watchers, GameObject gameObject) {
+            getNotifyHandler(gameObject).notifyOthersGameObjectIn(watchers, gameObject);
+        }
 
-            // 通知该对象，这些格子的对象进入了他的视野
-            notifyHandler.notifyGameObjectOthersIn(gameObject,visibleGrids);
-            // 通知这些格子的对象，该对象进入了他们的视野
-            notifyHandler.notifyOthersGameObjectIn(visibleGrids,gameObject);
-        }finally {
-            invisibleGrids.clear();
-            visibleGrids.clear();
+        @Override
+        public void onLeaveOthers(List<GameObject> watchers, GameObject gameObject) {
+            getNotifyHandler(gameObject).notifyOthersGameObjectOut(watchers, gameObject);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends GameObject> NotifyHandler<T> getNotifyHandler(T gameObject){
+            return (NotifyHandler<T>) notifyHandlerMapper.getHandler(gameObject);
         }
     }
 
     private class DefaultNotifyHandler<T extends GameObject> implements NotifyHandler<T>{
 
         @Override
-        public void notifyGameObjectOthersIn(T t, List<ViewGrid> newVisibleGrids) {
+        public void notifyGameObjectOthersIn(T t, List<GameObject> others) {
 
         }
 
         @Override
-        public void notifyGameObjectOthersOut(T t, List<ViewGrid> range) {
+        public void notifyGameObjectOthersOut(T t, List<GameObject> others) {
 
         }
 
         @Override
-        public void notifyOthersGameObjectIn(List<ViewGrid> range, T t) {
+        public void notifyOthersGameObjectIn(List<GameObject> watchers, T t) {
             if (t.getObjectType() != PLAYER){
                 return;
             }
-            // TODO serialize range objects
+            // TODO serialize t
 //            Object msg
-//            sendMrg.broadcastPlayerExcept(range, msg,(Player) gameObject);
+//            sendMrg.broadcastPlayer(watchers, msg);
         }
 
         @Override
-        public void notifyOthersGameObjectOut(List<ViewGrid> range, T gameObject) {
+        public void notifyOthersGameObjectOut(List<GameObject> watchers, T gameObject) {
             if (gameObject.getObjectType() != PLAYER){
                 return;
             }
             // TODO serialize gameObject
 //            Object msg
-//            sendMrg.broadcastPlayerExcept(range, msg,(Player) gameObject);
+//            sendMrg.broadcastPlayer(watchers, msg);
         }
     }
 
     private class PlayerNotifyHandler implements NotifyHandler<Player>{
 
         @Override
-        public void notifyGameObjectOthersIn(Player player, List<ViewGrid> newVisibleGrids) {
+        public void notifyGameObjectOthersIn(Player player, List<GameObject> others) {
 
         }
 
         @Override
-        public void notifyGameObjectOthersOut(Player player, List<ViewGrid> range) {
+        public void notifyGameObjectOthersOut(Player player, List<GameObject> others) {
 
         }
 
         @Override
-        public void notifyOthersGameObjectIn(List<ViewGrid> range, Player player) {
+        public void notifyOthersGameObjectIn(List<GameObject> watchers, Player player) {
 
         }
 
         @Override
-        public void notifyOthersGameObjectOut(List<ViewGrid> range, Player player) {
+        public void notifyOthersGameObjectOut(List<GameObject> watchers, Player player) {
 
         }
     }
@@ -372,6 +569,28 @@ public abstract class Scene extends TriggerSystem {
 
     // region 进出场景
 
+    /**
+     * 游戏对象进入场景
+     * @param gameObject 场景对象
+     * @param <T> 对象类型
+     */
+    public final <T extends GameObject> void enterScene(T gameObject){
+        @SuppressWarnings("unchecked")
+        GameObjectInOutHandler<T> inOutHandler = (GameObjectInOutHandler<T>) gameObjectInOutHandlerMapper.getHandler(gameObject);
+        inOutHandler.processEnterScene(gameObject);
+    }
+
+    /**
+     * 游戏对象离开场景
+     * @param gameObject 场景对象
+     * @param <T> 对象类型
+     */
+    public final <T extends GameObject> void leaveScene(T gameObject){
+        @SuppressWarnings("unchecked")
+        GameObjectInOutHandler<T> inOutHandler = (GameObjectInOutHandler<T>) gameObjectInOutHandlerMapper.getHandler(gameObject);
+        inOutHandler.processLeaveScene(gameObject);
+    }
+
     /**
      * 游戏对象进出场景模板实现
      * @param <T>
@@ -390,7 +609,9 @@ public abstract class Scene extends TriggerSystem {
          * @param gameObject 场景对象
          */
         private void enterSceneCore(T gameObject){
-
+            sceneGameObjectManager.addGameObject(gameObject);
+            spatialGridIndex.add(gameObject);
+            aoiStrategy.enter(gameObject, aoiListener);
         }
 
         /**
@@ -417,7 +638,11 @@ public abstract class Scene extends TriggerSystem {
          * @param gameObject 场景对象
          */
         private void leaveSceneCore(T gameObject){
-
+            aoiStrategy.leave(gameObject, aoiListener);
+            sceneGameObjectManager.removeObject(gameObject);
+            spatialGridIndex.remove(gameObject);
+            // 取消进行中的寻路
+            pathQueryMrg.cancel(gameObject.getGuid());
         }
 
         /**
@@ -19,6 +19,7 @@ package com.wjybxx.fastjgame.scene;
 import com.wjybxx.fastjgame.config.TemplateSceneConfig;
 import com.wjybxx.fastjgame.misc.SceneType;
 import com.wjybxx.fastjgame.mrg.SceneWrapper;
+import com.wjybxx.fastjgame.trigger.TriggerInterface;
 
 /**
  * 城镇场景，不销毁；
@@ -33,6 +34,10 @@ public abstract class Town extends Scene{
         super(guid, sceneConfig, sceneWrapper);
     }
 
+    public Town(long guid, TemplateSceneConfig sceneConfig, SceneWrapper sceneWrapper, TriggerInterface trigger) {
+        super(guid, sceneConfig, sceneWrapper, trigger);
+    }
+
     @Override
     public final SceneType sceneType() {
         return SceneType.TOWN;
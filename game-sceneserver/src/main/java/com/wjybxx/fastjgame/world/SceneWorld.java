@@ -4,13 +4,18 @@ import com.google.inject.Inject;
 import com.wjybxx.fastjgame.core.SceneProcessType;
 import com.wjybxx.fastjgame.core.onlinenode.SceneNodeData;
 import com.wjybxx.fastjgame.misc.HostAndPort;
+import com.wjybxx.fastjgame.misc.ProtoBufHashMappingStrategy;
 import com.wjybxx.fastjgame.mrg.*;
 import com.wjybxx.fastjgame.mrg.async.S2CSessionMrg;
 import com.wjybxx.fastjgame.mrg.sync.SyncS2CSessionMrg;
 import com.wjybxx.fastjgame.net.async.S2CSession;
+import com.wjybxx.fastjgame.net.async.event.NetEvent;
+import com.wjybxx.fastjgame.net.async.event.NetEventParam;
 import com.wjybxx.fastjgame.net.async.initializer.TCPServerChannelInitializer;
 import com.wjybxx.fastjgame.net.async.initializer.WsServerChannelInitializer;
+import com.wjybxx.fastjgame.net.common.CRC32ChecksumStrategy;
 import com.wjybxx.fastjgame.net.common.CodecHelper;
+import com.wjybxx.fastjgame.net.common.ProtoBufMessageSerializer;
 import com.wjybxx.fastjgame.net.common.RoleType;
 import com.wjybxx.fastjgame.net.common.SessionLifecycleAware;
 import com.wjybxx.fastjgame.utils.GameUtils;
@@ -41,24 +46,31 @@ public class SceneWorld extends WorldCore {
     private final SceneWorldInfoMrg sceneWorldInfoMrg;
     private final SceneSendMrg sendMrg;
     private final SceneMrg sceneMrg;
+    private final SceneExecutorMrg sceneExecutorMrg;
+    private final PathQueryMrg pathQueryMrg;
 
     @Inject
     public SceneWorld(WorldWrapper worldWrapper, WorldCoreWrapper coreWrapper,
                       CenterInSceneInfoMrg centerInSceneInfoMrg, SceneRegionMrg sceneRegionMrg,
-                      SceneSendMrg sendMrg, SceneMrg sceneMrg) {
+                      SceneSendMrg sendMrg, SceneMrg sceneMrg, SceneExecutorMrg sceneExecutorMrg,
+                      PathQueryMrg pathQueryMrg) {
         super(worldWrapper, coreWrapper);
         this.centerInSceneInfoMrg = centerInSceneInfoMrg;
         this.sceneRegionMrg = sceneRegionMrg;
         this.sceneWorldInfoMrg= (SceneWorldInfoMrg) worldWrapper.getWorldInfoMrg();
         this.sendMrg = sendMrg;
         this.sceneMrg = sceneMrg;
+        this.sceneExecutorMrg = sceneExecutorMrg;
+        this.pathQueryMrg = pathQueryMrg;
     }
 
     @Override
     protected void registerCodecHelper() throws Exception {
         super.registerCodecHelper();
         // 这里没有使用模板方法是因为不是都有额外的codec要注册，导致太多钩子方法也不好
-        // TODO 注册与玩家交互的codec帮助类
+        // 与玩家交互的codec，外网使用CRC32校验，它支持合并，广播时消息内容的校验和只计算一次
+        registerCodecHelper(GameUtils.PLAYER_CODEC_NAME, new ProtoBufHashMappingStrategy(), new ProtoBufMessageSerializer(),
+                CRC32ChecksumStrategy.INSTANCE);
     }
 
     @Override
@@ -100,6 +112,10 @@ public class SceneWorld extends WorldCore {
 
     @Override
     protected void startHook() throws Exception {
+        // 启动场景线程(如果启用)，之后才能添加场景
+        sceneExecutorMrg.start();
+        // 启动寻路线程
+        pathQueryMrg.start();
         // 启动场景
         sceneRegionMrg.onWorldStart();
         // 注册到zookeeper
@@ -113,8 +129,8 @@ public class SceneWorld extends WorldCore {
         HostAndPort syncRpcHostAndPort = innerAcceptorMrg.bindInnerSyncRpcPort(true);
         HostAndPort httpHostAndPort = innerAcceptorMrg.bindInnerHttpPort();
 
-        // 绑定与玩家交互的两个端口 TODO 这里需要和前端确定到底使用什么通信方式，暂时使用服务器之间机制
-        CodecHelper codecHelper=codecHelperMrg.getCodecHelper(GameUtils.INNER_CODEC_NAME);
+        // 绑定与玩家交互的两个端口
+        CodecHelper codecHelper=codecHelperMrg.getCodecHelper(GameUtils.PLAYER_CODEC_NAME);
         TCPServerChannelInitializer tcplInitializer=new TCPServerChannelInitializer(netConfigMrg.maxFrameLength(),
                 codecHelper,disruptorMrg);
         HostAndPort outerTcpHostAndPort = s2CSessionMrg.bindRange(true,GameUtils.OUTER_TCP_PORT_RANGE,tcplInitializer);
@@ -141,10 +157,25 @@ public class SceneWorld extends WorldCore {
     @Override
     protected void tickHook() {
         sceneMrg.tick();
+        // 执行场景线程提交的任务(主要是发送消息)
+        sceneExecutorMrg.tick();
+    }
+
+    @Override
+    protected void onChildEvent(NetEvent netEvent) {
+        NetEventParam netEventParam = netEvent.getNetEventParam();
+        if (netEventParam instanceof PathQueryMrg.PathQuery){
+            pathQueryMrg.onQueryResult((PathQueryMrg.PathQuery) netEventParam);
+            return;
+        }
+        super.onChildEvent(netEvent);
     }
 
     @Override
     protected void shutdownHook() {
+        sceneExecutorMrg.shutdown();
+        sceneMrg.shutdown();
+        pathQueryMrg.shutdown();
 
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.misc.FindPathStrategy;
+import com.wjybxx.fastjgame.misc.JumpPointSearchPlusStrategy;
+import com.wjybxx.fastjgame.misc.JumpPointSearchStrategy;
+import com.wjybxx.fastjgame.scene.GridObstacle;
+import com.wjybxx.fastjgame.scene.GridObstacleBitmap;
+import com.wjybxx.fastjgame.scene.MapData;
+import com.wjybxx.fastjgame.scene.MapGrid;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 跳点寻路性能测试：1000*1000的地图，不同的遮挡密度，
+ * 对比{@link JumpPointSearchStrategy}和{@link JumpPointSearchPlusStrategy}，并校验两者找到的路径长度一致。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/23 16:05
+ * @github - https://github.com/hl845740757
+ */
+public class JumpPointSearchBenchmark {
+
+    private static final int ROW_COUNT = 1000;
+    private static final int COL_COUNT = 1000;
+    private static final int QUERY_COUNT = 500;
+
+    private static final EnumSet<GridObstacle> MOVABLE_GRIDS = EnumSet.of(GridObstacle.FREE, GridObstacle.SAFE_AREA);
+
+    public static void main(String[] args) {
+        double[] densities = {0, 0.1, 0.2, 0.3};
+        for (double density:densities){
+            benchmark(density);
+        }
+    }
+
+    private static void benchmark(double density){
+        Random random = new Random(1024);
+        MapData mapData = newMapData(random, density);
+
+        MapGrid[] starts = new MapGrid[QUERY_COUNT];
+        MapGrid[] ends = new MapGrid[QUERY_COUNT];
+        for (int index = 0; index < QUERY_COUNT; index++){
+            starts[index] = randomFreeGrid(random, mapData);
+            ends[index] = randomFreeGrid(random, mapData);
+        }
+
+        JumpPointSearchStrategy jps = new JumpPointSearchStrategy();
+        JumpPointSearchPlusStrategy jpsPlus = new JumpPointSearchPlusStrategy();
+
+        // 预热，JPS+第一次查询时计算跳跃距离
+        long prepareStartTime = System.nanoTime();
+        jpsPlus.findPath(mapData, starts[0], starts[0], MOVABLE_GRIDS);
+        long prepareCostMs = (System.nanoTime() - prepareStartTime) / 1000_000;
+        runQueries(jps, mapData, starts, ends, null);
+        runQueries(jpsPlus, mapData, starts, ends, null);
+
+        long[] jpsLengths = new long[QUERY_COUNT];
+        long[] jpsPlusLengths = new long[QUERY_COUNT];
+        long jpsCostNs = runQueries(jps, mapData, starts, ends, jpsLengths);
+        long jpsPlusCostNs = runQueries(jpsPlus, mapData, starts, ends, jpsPlusLengths);
+
+        int foundCount = 0;
+        int mismatchCount = 0;
+        for (int index = 0; index < QUERY_COUNT; index++){
+            if (jpsLengths[index] >= 0){
+                foundCount++;
+            }
+            if (jpsLengths[index] != jpsPlusLengths[index]){
+                mismatchCount++;
+            }
+        }
+        System.out.println(String.format("density=%.1f, queries=%d, found=%d, mismatch=%d, jps=%dus/query, jps+=%dus/query, jps+ prepare=%dms",
+                density, QUERY_COUNT, foundCount, mismatchCount,
+                jpsCostNs / QUERY_COUNT / 1000, jpsPlusCostNs / QUERY_COUNT / 1000, prepareCostMs));
+    }
+
+    private static long runQueries(FindPathStrategy strategy, MapData mapData, MapGrid[] starts, MapGrid[] ends, long[] lengths){
+        long startTime = System.nanoTime();
+        for (int index = 0; index < starts.length; index++){
+            List<MapGrid> path = strategy.findPath(mapData, starts[index], ends[index], MOVABLE_GRIDS);
+            if (null != lengths){
+                lengths[index] = pathLength(path);
+            }
+        }
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * 路径长度(直线1000，斜线1414)，不可达返回-1
+     */
+    private static long pathLength(List<MapGrid> path){
+        if (null == path || path.isEmpty()){
+            return -1;
+        }
+        long length = 0;
+        for (int index = 1; index < path.size(); index++){
+            int deltaX = Math.abs(path.get(index).getColIndex() - path.get(index - 1).getColIndex());
+            int deltaY = Math.abs(path.get(index).getRowIndex() - path.get(index - 1).getRowIndex());
+            length += 1000L * Math.abs(deltaX - deltaY) + 1414L * Math.min(deltaX, deltaY);
+        }
+        return length;
+    }
+
+    private static MapData newMapData(Random random, double density){
+        byte[] obstacleMasks = new byte[ROW_COUNT * COL_COUNT];
+        for (int index = 0; index < obstacleMasks.length; index++){
+            GridObstacle obstacle = random.nextDouble() < density ? GridObstacle.OBSTACLE : GridObstacle.FREE;
+            obstacleMasks[index] = (byte) obstacle.getMask();
+        }
+        return new MapData(1, new GridObstacleBitmap(ROW_COUNT, COL_COUNT, ByteBuffer.wrap(obstacleMasks)));
+    }
+
+    private static MapGrid randomFreeGrid(Random random, MapData mapData){
+        while (true){
+            MapGrid mapGrid = mapData.getGrid(random.nextInt(ROW_COUNT), random.nextInt(COL_COUNT));
+            if (mapGrid.hasObstacle(GridObstacle.FREE)){
+                return mapGrid;
+            }
+        }
+    }
+}
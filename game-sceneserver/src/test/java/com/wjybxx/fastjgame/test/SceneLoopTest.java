@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wjybxx.fastjgame.test;
+
+import com.wjybxx.fastjgame.config.TemplateSceneConfig;
+import com.wjybxx.fastjgame.core.SceneRegion;
+import com.wjybxx.fastjgame.mrg.GameConfigMrg;
+import com.wjybxx.fastjgame.mrg.MapDataLoadMrg;
+import com.wjybxx.fastjgame.mrg.PathQueryMrg;
+import com.wjybxx.fastjgame.mrg.SceneExecutorMrg;
+import com.wjybxx.fastjgame.mrg.SceneWrapper;
+import com.wjybxx.fastjgame.scene.GridObstacle;
+import com.wjybxx.fastjgame.scene.GridObstacleBitmap;
+import com.wjybxx.fastjgame.scene.MapData;
+import com.wjybxx.fastjgame.scene.Scene;
+import com.wjybxx.fastjgame.scene.Town;
+import com.wjybxx.fastjgame.scene.gameobject.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+
+/**
+ * 测试玩家切换场景线程时消息的缓存与顺序，以及目标场景被删除时玩家交还给游戏世界线程。
+ * main线程充当游戏世界线程。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/26 10:20
+ * @github - https://github.com/hl845740757
+ */
+public class SceneLoopTest {
+
+    private static final long SCENE_A = 1;
+    private static final long SCENE_B = 2;
+    private static final long SCENE_C = 3;
+
+    public static void main(String[] args) throws Exception {
+        GameConfigMrg gameConfigMrg = new TestGameConfigMrg();
+        // 不启动寻路线程，场景只用它取消请求
+        PathQueryMrg pathQueryMrg = new PathQueryMrg(null, gameConfigMrg);
+        SceneWrapper sceneWrapper = new SceneWrapper(null, new EmptyMapDataLoadMrg(gameConfigMrg), pathQueryMrg);
+        TemplateSceneConfig sceneConfig = new TemplateSceneConfig(1, 600, SceneRegion.LOCAL_NORMAL);
+
+        SceneExecutorMrg sceneExecutorMrg = new SceneExecutorMrg(gameConfigMrg);
+        sceneExecutorMrg.start();
+        try {
+            // A在线程0，B、C在线程1
+            sceneExecutorMrg.addScene(new ExampleTown(SCENE_A, sceneConfig, sceneWrapper));
+            sceneExecutorMrg.addScene(new ExampleTown(SCENE_B, sceneConfig, sceneWrapper));
+            sceneExecutorMrg.addScene(new ExampleTown(SCENE_C, sceneConfig, sceneWrapper), SCENE_B);
+
+            testHandOff(sceneExecutorMrg);
+            testEnterSceneFailed(sceneExecutorMrg);
+        } finally {
+            sceneExecutorMrg.shutdown();
+        }
+    }
+
+    /**
+     * 玩家从A切换到B，旧线程阻塞期间路由到新线程的任务被缓存，所有任务按提交顺序执行
+     */
+    private static void testHandOff(SceneExecutorMrg sceneExecutorMrg) throws InterruptedException {
+        Player player = new Player(10001);
+        List<String> records = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+
+        sceneExecutorMrg.enterScene(player, SCENE_A);
+        sceneExecutorMrg.executePlayerTask(player.getGuid(), (scene, p) -> await(latch));
+        for (int index = 0; index < 50; index++){
+            sceneExecutorMrg.executePlayerTask(player.getGuid(), record(records, index));
+        }
+        sceneExecutorMrg.changeScene(player.getGuid(), SCENE_B);
+        for (int index = 50; index < 100; index++){
+            sceneExecutorMrg.executePlayerTask(player.getGuid(), record(records, index));
+        }
+        // 旧线程阻塞，新线程只能缓存
+        Thread.sleep(100);
+        int bufferedExecuted = records.size();
+
+        latch.countDown();
+        waitUntil(() -> records.size() >= 100);
+
+        List<String> expected = new ArrayList<>();
+        for (int index = 0; index < 100; index++){
+            expected.add(index < 50 ? index + "-" + SCENE_A + "-SCENE_LOOP_0" : index + "-" + SCENE_B + "-SCENE_LOOP_1");
+        }
+        System.out.println("handOff: bufferedExecuted=" + bufferedExecuted + ", executed=" + records.size()
+                + ", match=" + expected.equals(records));
+    }
+
+    /**
+     * 玩家切换到C，到达之前C被删除，缓存的任务被丢弃，玩家交还给游戏世界线程后可以重新进入场景
+     */
+    private static void testEnterSceneFailed(SceneExecutorMrg sceneExecutorMrg) throws InterruptedException {
+        Player player = new Player(10002);
+        List<String> records = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+
+        sceneExecutorMrg.enterScene(player, SCENE_A);
+        sceneExecutorMrg.executePlayerTask(player.getGuid(), (scene, p) -> await(latch));
+        sceneExecutorMrg.changeScene(player.getGuid(), SCENE_C);
+        sceneExecutorMrg.removeScene(SCENE_C);
+        sceneExecutorMrg.executePlayerTask(player.getGuid(), record(records, 0));
+        latch.countDown();
+
+        // 游戏世界线程处理交还的玩家，之后玩家不再有路由
+        waitUntil(() -> {
+            sceneExecutorMrg.tick();
+            return !sceneExecutorMrg.executePlayerTask(player.getGuid(), (scene, p) -> {});
+        });
+        boolean reEnter = sceneExecutorMrg.enterScene(player, SCENE_B);
+        sceneExecutorMrg.executePlayerTask(player.getGuid(), record(records, 1));
+        waitUntil(() -> records.size() >= 1);
+
+        System.out.println("enterSceneFailed: reEnter=" + reEnter + ", records=" + records
+                + ", match=" + Arrays.asList("1-" + SCENE_B + "-SCENE_LOOP_1").equals(records));
+    }
+
+    private static BiConsumer<Scene, Player> record(List<String> records, int index){
+        return (scene, player) -> records.add(index + "-" + scene.getGuid() + "-" + Thread.currentThread().getName());
+    }
+
+    private static void await(CountDownLatch latch){
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.test()){
+            if (System.currentTimeMillis() > deadline){
+                throw new IllegalStateException("timeout");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        boolean test();
+    }
+
+    private static class TestGameConfigMrg extends GameConfigMrg {
+
+        TestGameConfigMrg() throws IOException {
+        }
+
+        @Override
+        public int getSceneLoopThreadNum() {
+            return 2;
+        }
+    }
+
+    /**
+     * 不依赖地图文件
+     */
+    private static class EmptyMapDataLoadMrg extends MapDataLoadMrg {
+
+        EmptyMapDataLoadMrg(GameConfigMrg gameConfigMrg) {
+            super(gameConfigMrg);
+        }
+
+        @Override
+        public MapData loadMapData(int mapId) {
+            byte[] obstacleMasks = new byte[100 * 80];
+            Arrays.fill(obstacleMasks, (byte) GridObstacle.FREE.getMask());
+            return new MapData(mapId, new GridObstacleBitmap(100, 80, ByteBuffer.wrap(obstacleMasks)));
+        }
+    }
+
+    private static class ExampleTown extends Town {
+
+        ExampleTown(long guid, TemplateSceneConfig sceneConfig, SceneWrapper sceneWrapper) {
+            super(guid, sceneConfig, sceneWrapper);
+        }
+    }
+}
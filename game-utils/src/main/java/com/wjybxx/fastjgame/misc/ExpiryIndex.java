@@ -0,0 +1,242 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.misc;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.function.Consumer;
+
+/**
+ * 过期索引，按秒分桶的时间轮(环形数组 + 侵入式双向链表)。
+ * 用于替代"定时遍历整个map检查是否超时"的做法：
+ * 对象注册过期时间之后，活跃时刷新过期时间为O(1)，检查过期时只处理到期的桶，开销与过期的对象数量相关，而与对象总数无关。
+ *
+ * 过期时间语义与原来保持一致：当前时间 大于 过期时间时过期。
+ * 过期时间超出时间轮一圈的对象会在到达对应的桶时被跳过(等待下一圈)，因此时间轮大小应不小于常用的超时时间。
+ *
+ * @param <K> 关联对象的类型
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 10:30
+ * @github - https://github.com/hl845740757
+ */
+@NotThreadSafe
+public final class ExpiryIndex<K> {
+
+    private final Bucket<K>[] buckets;
+    private final int mask;
+    /**
+     * 已处理到的时间(秒)，小于等于它的桶都已处理
+     */
+    private int processedSecTime;
+    /**
+     * 备用的空桶，处理某个桶时与之交换
+     */
+    private Bucket<K> spareBucket = new Bucket<>();
+    private int size = 0;
+
+    /**
+     * @param maxTimeout 常用的最大超时时间(秒)，用于决定时间轮大小
+     * @param curSecTime 当前时间(秒)
+     */
+    @SuppressWarnings("unchecked")
+    public ExpiryIndex(int maxTimeout, int curSecTime) {
+        int wheelSize = Integer.highestOneBit(Math.max(2, maxTimeout + 1) - 1) << 1;
+        buckets = new Bucket[wheelSize];
+        for (int index = 0; index < wheelSize; index++){
+            buckets[index] = new Bucket<>();
+        }
+        mask = wheelSize - 1;
+        processedSecTime = curSecTime;
+    }
+
+    /**
+     * 注册一个对象的过期时间
+     * @param key 关联的对象
+     * @param expireSecTime 过期时间(秒)
+     * @return 对象的过期信息，用于刷新过期时间和删除
+     */
+    public Entry<K> add(K key, int expireSecTime){
+        Entry<K> entry = new Entry<>(this, key, expireSecTime);
+        link(entry);
+        return entry;
+    }
+
+    /**
+     * 处理过期的对象，过期的对象在回调之前从索引中删除
+     * @param curSecTime 当前时间(秒)
+     * @param expiredHandler 过期回调
+     */
+    public void expire(int curSecTime, Consumer<K> expiredHandler){
+        if (curSecTime <= processedSecTime){
+            return;
+        }
+        // 时间跳跃超过一圈时，每个桶只需处理一次
+        int steps = (int) Math.min((long) curSecTime - processedSecTime, buckets.length);
+        int startSecTime = processedSecTime;
+        processedSecTime = curSecTime;
+        for (int step = 1; step <= steps && size > 0; step++){
+            expireBucket((startSecTime + step) & mask, curSecTime, expiredHandler);
+        }
+    }
+
+    /**
+     * 索引中的对象数量
+     */
+    public int size(){
+        return size;
+    }
+
+    private void expireBucket(int index, int curSecTime, Consumer<K> expiredHandler){
+        Bucket<K> bucket = buckets[index];
+        if (bucket.isEmpty()){
+            return;
+        }
+        // 回调中可能重入，spareBucket可能已被使用
+        buckets[index] = null != spareBucket ? spareBucket : new Bucket<>();
+        spareBucket = null;
+
+        Entry<K> entry;
+        while ((entry = bucket.pollFirst()) != null){
+            size--;
+            if (curSecTime > entry.expireSecTime){
+                expiredHandler.accept(entry.key);
+            } else {
+                // 下一圈
+                link(entry);
+            }
+        }
+        spareBucket = bucket;
+    }
+
+    private void link(Entry<K> entry){
+        // 当前时间 大于 过期时间才过期，因此放在(过期时间+1)的桶中；已过期的放在下一个要处理的桶中
+        int bucketSecTime = Math.max(entry.expireSecTime + 1, processedSecTime + 1);
+        buckets[bucketSecTime & mask].addLast(entry);
+        size++;
+    }
+
+    private void unlink(Entry<K> entry){
+        entry.bucket.remove(entry);
+        size--;
+    }
+
+    /**
+     * 对象的过期信息
+     * @param <K> 关联对象的类型
+     */
+    public static final class Entry<K> {
+
+        private final ExpiryIndex<K> index;
+        private final K key;
+        private int expireSecTime;
+
+        private Bucket<K> bucket;
+        private Entry<K> prev;
+        private Entry<K> next;
+
+        private Entry(ExpiryIndex<K> index, K key, int expireSecTime) {
+            this.index = index;
+            this.key = key;
+            this.expireSecTime = expireSecTime;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public int getExpireSecTime() {
+            return expireSecTime;
+        }
+
+        /**
+         * 刷新过期时间，如果已删除(或已过期)则什么也不做
+         * @param expireSecTime 新的过期时间(秒)
+         */
+        public void setExpireSecTime(int expireSecTime) {
+            this.expireSecTime = expireSecTime;
+            if (null != bucket){
+                index.unlink(this);
+                index.link(this);
+            }
+        }
+
+        /**
+         * 从索引中删除，可以重复调用
+         */
+        public void remove(){
+            if (null != bucket){
+                index.unlink(this);
+            }
+        }
+
+        /**
+         * 是否已从索引中删除(或已过期)
+         */
+        public boolean isRemoved(){
+            return null == bucket;
+        }
+    }
+
+    /**
+     * 同一秒过期的对象链表
+     */
+    private static final class Bucket<K> {
+
+        private Entry<K> head;
+        private Entry<K> tail;
+
+        boolean isEmpty(){
+            return null == head;
+        }
+
+        void addLast(Entry<K> entry){
+            entry.bucket = this;
+            entry.prev = tail;
+            entry.next = null;
+            if (null == tail){
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        void remove(Entry<K> entry){
+            if (null == entry.prev){
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (null == entry.next){
+                tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.bucket = null;
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        Entry<K> pollFirst(){
+            Entry<K> entry = head;
+            if (null != entry){
+                remove(entry);
+            }
+            return entry;
+        }
+    }
+}
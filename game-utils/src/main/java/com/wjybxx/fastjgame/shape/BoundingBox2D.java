@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.shape;
+
+/**
+ * 2D轴对齐包围盒(AABB)，可修改，用于空间索引等快速排除的场合。
+ * 图形通过{@link com.wjybxx.fastjgame.shape.shape2d.Shape2D#getBoundingBox(BoundingBox2D)}写入调用者提供的对象，
+ * 避免每次查询都创建对象。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/25 10:20
+ * @github - https://github.com/hl845740757
+ */
+public class BoundingBox2D {
+
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+
+    public BoundingBox2D() {
+        reset();
+    }
+
+    /**
+     * 重置为空包围盒，之后通过{@link #addPoint(float, float)}扩展
+     * @return this
+     */
+    public BoundingBox2D reset(){
+        minX = Float.POSITIVE_INFINITY;
+        minY = Float.POSITIVE_INFINITY;
+        maxX = Float.NEGATIVE_INFINITY;
+        maxY = Float.NEGATIVE_INFINITY;
+        return this;
+    }
+
+    /**
+     * 设置包围盒
+     * @return this
+     */
+    public BoundingBox2D set(float minX, float minY, float maxX, float maxY){
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        return this;
+    }
+
+    /**
+     * 扩展包围盒以包含指定点
+     * @return this
+     */
+    public BoundingBox2D addPoint(float x, float y){
+        if (x < minX){
+            minX = x;
+        }
+        if (x > maxX){
+            maxX = x;
+        }
+        if (y < minY){
+            minY = y;
+        }
+        if (y > maxY){
+            maxY = y;
+        }
+        return this;
+    }
+
+    /**
+     * 扩展包围盒以包含指定点
+     * @return this
+     */
+    public BoundingBox2D addPoint(Point2D point2D){
+        return addPoint(point2D.getX(), point2D.getY());
+    }
+
+    /**
+     * 是否包含指定点(在边上也算)
+     */
+    public boolean contains(float x, float y){
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox2D{" +
+                "minX=" + minX +
+                ", minY=" + minY +
+                ", maxX=" + maxX +
+                ", maxY=" + maxY +
+                '}';
+    }
+}
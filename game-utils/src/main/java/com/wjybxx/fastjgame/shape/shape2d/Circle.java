@@ -16,6 +16,7 @@
 
 package com.wjybxx.fastjgame.shape.shape2d;
 
+import com.wjybxx.fastjgame.shape.BoundingBox2D;
 import com.wjybxx.fastjgame.shape.Point2D;
 import com.wjybxx.fastjgame.shape.RedrawShape;
 import com.wjybxx.fastjgame.utils.MathUtils;
@@ -56,6 +57,27 @@ public class Circle implements Shape2D, RedrawShape {
         return MathUtils.distanceWithoutSqrt(center,point2D) <= rr;
     }
 
+    @Override
+    public int hasPoints(@Nonnull float[] xArray, @Nonnull float[] yArray, int size, @Nonnull boolean[] result) {
+        final float centerX = center.getX();
+        final float centerY = center.getY();
+        final float rr = this.rr;
+        int count = 0;
+        for (int index = 0; index < size; index++){
+            float dx = xArray[index] - centerX;
+            float dy = yArray[index] - centerY;
+            boolean inside = dx * dx + dy * dy <= rr;
+            result[index] = inside;
+            count += inside ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public BoundingBox2D getBoundingBox(@Nonnull BoundingBox2D out) {
+        return out.set(center.getX() - radius, center.getY() - radius, center.getX() + radius, center.getY() + radius);
+    }
+
     /**
      * 重新绘制
      * @param center 中心点
@@ -16,6 +16,7 @@
 
 package com.wjybxx.fastjgame.shape.shape2d;
 
+import com.wjybxx.fastjgame.shape.BoundingBox2D;
 import com.wjybxx.fastjgame.shape.Point2D;
 import com.wjybxx.fastjgame.shape.RedrawShape;
 
@@ -66,6 +67,17 @@ public class Quadrilateral implements Shape2D, RedrawShape {
         return abc.hasPoint(point2D) || adc.hasPoint(point2D);
     }
 
+    @Override
+    public int hasPoints(@Nonnull float[] xArray, @Nonnull float[] yArray, int size, @Nonnull boolean[] result) {
+        abc.hasPoints(xArray, yArray, size, result, false);
+        return adc.hasPoints(xArray, yArray, size, result, true);
+    }
+
+    @Override
+    public BoundingBox2D getBoundingBox(@Nonnull BoundingBox2D out) {
+        return out.reset().addPoint(getPointA()).addPoint(getPointB()).addPoint(getPointC()).addPoint(getPointD());
+    }
+
     public Point2D getPointA(){
         return abc.getPointA();
     }
@@ -17,6 +17,7 @@
 package com.wjybxx.fastjgame.shape.shape2d;
 
 import com.wjybxx.fastjgame.dsl.CoordinateSystem2D;
+import com.wjybxx.fastjgame.shape.BoundingBox2D;
 import com.wjybxx.fastjgame.shape.Point2D;
 import com.wjybxx.fastjgame.shape.RedrawShape;
 import com.wjybxx.fastjgame.utils.MathUtils;
@@ -32,7 +33,10 @@ import javax.annotation.Nonnull;
  */
 public class Sector implements Shape2D, RedrawShape {
 
-    private static final Point2D cacheP =Point2D.newPoint2D();
+    /**
+     * 计算用的缓存向量(不能是静态的，不同场景的对象可能在不同的线程中计算)
+     */
+    private final Point2D cacheP =Point2D.newPoint2D();
 
     private final Circle circle;
     /**
@@ -108,6 +112,71 @@ public class Sector implements Shape2D, RedrawShape {
                 CoordinateSystem2D.isCounterClockwiseOrOrCollinear(p,endVector);
     }
 
+    /**
+     * 与{@link #hasPoint(Point2D)}相同的圆内+同向法判断，向量的分量提前取到局部变量中，
+     * 循环内使用非短路运算，没有方法调用和分支。
+     */
+    @Override
+    public int hasPoints(@Nonnull float[] xArray, @Nonnull float[] yArray, int size, @Nonnull boolean[] result) {
+        final float centerX = getCenter().getX();
+        final float centerY = getCenter().getY();
+        final float rr = getRadius() * getRadius();
+        final float startX = startVector.getX();
+        final float startY = startVector.getY();
+        final float endX = endVector.getX();
+        final float endY = endVector.getY();
+        int count = 0;
+        for (int index = 0; index < size; index++){
+            float dx = xArray[index] - centerX;
+            float dy = yArray[index] - centerY;
+            // crossProductValue(start, p) >= 0 && crossProductValue(p, end) >= 0
+            boolean inside = (dx * dx + dy * dy <= rr)
+                    & (startX * dy - startY * dx >= 0)
+                    & (dx * endY - dy * endX >= 0);
+            result[index] = inside;
+            count += inside ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * 包围盒由圆心、两个端点以及扇形范围内的坐标轴方向的圆上点确定；
+     * 圆心角大于180度时同向法不再适用，直接使用圆的包围盒。
+     */
+    @Override
+    public BoundingBox2D getBoundingBox(@Nonnull BoundingBox2D out) {
+        if (angle > MathUtils.PI){
+            return circle.getBoundingBox(out);
+        }
+        float centerX = getCenter().getX();
+        float centerY = getCenter().getY();
+        float radius = getRadius();
+        out.reset().addPoint(centerX, centerY)
+                .addPoint(centerX + startVector.getX(), centerY + startVector.getY())
+                .addPoint(centerX + endVector.getX(), centerY + endVector.getY());
+        if (containsDirection(1, 0)){
+            out.addPoint(centerX + radius, centerY);
+        }
+        if (containsDirection(0, 1)){
+            out.addPoint(centerX, centerY + radius);
+        }
+        if (containsDirection(-1, 0)){
+            out.addPoint(centerX - radius, centerY);
+        }
+        if (containsDirection(0, -1)){
+            out.addPoint(centerX, centerY - radius);
+        }
+        return out;
+    }
+
+    /**
+     * 方向(x,y)是否在扇形范围内(同向法)
+     */
+    private boolean containsDirection(float x, float y){
+        return startVector.getX() * y - startVector.getY() * x >= 0 &&
+                x * endVector.getY() - y * endVector.getX() >= 0;
+    }
+
     /**
      * 根据参数重绘
      * @param center 中心点
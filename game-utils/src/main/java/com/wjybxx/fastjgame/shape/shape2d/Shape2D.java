@@ -16,6 +16,7 @@
 
 package com.wjybxx.fastjgame.shape.shape2d;
 
+import com.wjybxx.fastjgame.shape.BoundingBox2D;
 import com.wjybxx.fastjgame.shape.Point2D;
 
 import javax.annotation.Nonnull;
@@ -40,4 +41,32 @@ public interface Shape2D {
      * @return
      */
     boolean hasPoint(@Nonnull Point2D point2D);
+
+    /**
+     * 计算图形的轴对齐包围盒，用于空间索引等快速排除，包围盒可以比图形大，但必须包含整个图形。
+     * @param out 结果写入该对象(避免创建对象)
+     * @return out
+     */
+    BoundingBox2D getBoundingBox(@Nonnull BoundingBox2D out);
+
+    /**
+     * 批量判断点是否在图形内，坐标以结构数组(SoA)的形式传入；
+     * 常用图形会覆盖该方法，提前计算不变量并使用无分支的循环，比逐个调用{@link #hasPoint(Point2D)}快得多。
+     * @param xArray 所有点的x坐标
+     * @param yArray 所有点的y坐标
+     * @param size 点的数量，只计算[0,size)
+     * @param result 结果数组，result[i]表示第i个点是否在图形内
+     * @return 在图形内的点的数量
+     */
+    default int hasPoints(@Nonnull float[] xArray, @Nonnull float[] yArray, int size, @Nonnull boolean[] result){
+        Point2D point2D = Point2D.newPoint2D();
+        int count = 0;
+        for (int index = 0; index < size; index++){
+            point2D.updateLocation(xArray[index], yArray[index]);
+            boolean inside = hasPoint(point2D);
+            result[index] = inside;
+            count += inside ? 1 : 0;
+        }
+        return count;
+    }
 }
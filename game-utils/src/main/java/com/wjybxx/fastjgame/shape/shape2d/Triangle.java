@@ -16,6 +16,7 @@
 
 package com.wjybxx.fastjgame.shape.shape2d;
 
+import com.wjybxx.fastjgame.shape.BoundingBox2D;
 import com.wjybxx.fastjgame.shape.Point2D;
 import com.wjybxx.fastjgame.shape.Point3D;
 import com.wjybxx.fastjgame.shape.RedrawShape;
@@ -84,12 +85,13 @@ import javax.annotation.concurrent.NotThreadSafe;
 public class Triangle implements Shape2D, RedrawShape {
 
     // 三个缓存向量(为何要做缓存？ 在MMO游戏中，技能等存在大量的选中判断，一个技能可能需要做几十次的判断)
-    private static final Point2D cacheV0 =Point2D.newPoint2D();
-    private static final Point2D cacheV1 =Point2D.newPoint2D();
-    private static final Point2D cacheV2 =Point2D.newPoint2D();
+    // 不能是静态的，不同场景的对象可能在不同的线程中计算
+    private final Point2D cacheV0 =Point2D.newPoint2D();
+    private final Point2D cacheV1 =Point2D.newPoint2D();
+    private final Point2D cacheV2 =Point2D.newPoint2D();
 
-    private static final Point3D cacheV4 = Point3D.newPoint3D();
-    private static final Point3D cacheV5 = Point3D.newPoint3D();
+    private final Point3D cacheV4 = Point3D.newPoint3D();
+    private final Point3D cacheV5 = Point3D.newPoint3D();
 
     private final Point2D a;
 
@@ -140,6 +142,53 @@ public class Triangle implements Shape2D, RedrawShape {
         return (u >= 0) && (v >= 0) && (u + v <= 1);
     }
 
+    /**
+     * 重心法，与点无关的向量和点积只计算一次。
+     */
+    @Override
+    public int hasPoints(@Nonnull float[] xArray, @Nonnull float[] yArray, int size, @Nonnull boolean[] result) {
+        return hasPoints(xArray, yArray, size, result, false);
+    }
+
+    /**
+     * @param merge true表示与result中已有的结果取并集(多边形拆分为多个三角形时使用)
+     */
+    int hasPoints(float[] xArray, float[] yArray, int size, boolean[] result, boolean merge) {
+        final float ax = a.getX();
+        final float ay = a.getY();
+        final float v0x = c.getX() - ax;
+        final float v0y = c.getY() - ay;
+        final float v1x = b.getX() - ax;
+        final float v1y = b.getY() - ay;
+
+        final float dot00 = v0x * v0x + v0y * v0y;
+        final float dot01 = v0x * v1x + v0y * v1y;
+        final float dot11 = v1x * v1x + v1y * v1y;
+        final float invDenom = 1 / (dot00 * dot11 - dot01 * dot01);
+
+        int count = 0;
+        for (int index = 0; index < size; index++){
+            float v2x = xArray[index] - ax;
+            float v2y = yArray[index] - ay;
+            float dot02 = v0x * v2x + v0y * v2y;
+            float dot12 = v1x * v2x + v1y * v2y;
+            float u = (dot11 * dot02 - dot01 * dot12) * invDenom;
+            float v = (dot00 * dot12 - dot01 * dot02) * invDenom;
+            boolean inside = (u >= 0) & (v >= 0) & (u + v <= 1);
+            if (merge){
+                inside |= result[index];
+            }
+            result[index] = inside;
+            count += inside ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public BoundingBox2D getBoundingBox(@Nonnull BoundingBox2D out) {
+        return out.reset().addPoint(a).addPoint(b).addPoint(c);
+    }
+
     /**
      * 重新绘制,不会修改内部引用，只会修改数值。
      * {@link Point2D#updateLocation(Point2D)}
@@ -168,7 +217,7 @@ public class Triangle implements Shape2D, RedrawShape {
      * 判断 p1 和 p2 是否在 ab 向量的同侧
      * @return true/false
      */
-    private static boolean sameSide(Point2D p1,Point2D p2,Point2D a,Point2D b){
+    private boolean sameSide(Point2D p1,Point2D p2,Point2D a,Point2D b){
         Point2D ab = MathUtils.sub(b, a, cacheV0);
         Point2D ap1 = MathUtils.sub(p1, a, cacheV1);
         Point2D ap2 = MathUtils.sub(p2, a, cacheV2);
@@ -182,7 +231,7 @@ public class Triangle implements Shape2D, RedrawShape {
      * 同向法求p是否在三角形内，p和任意顶点都在另外两个顶点构成的向量的同侧。
      * @return true/false
      */
-    private static boolean pointInTriangle(Point2D p,Point2D a,Point2D b,Point2D c){
+    private boolean pointInTriangle(Point2D p,Point2D a,Point2D b,Point2D c){
         return sameSide(p,a, b,c)
                 && sameSide(p,b, a,c)
                 && sameSide(p,c, a,b);
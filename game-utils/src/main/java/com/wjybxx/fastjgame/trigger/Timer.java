@@ -17,6 +17,9 @@
 package com.wjybxx.fastjgame.trigger;
 
 /**
+ * 定时器，由{@link TriggerInterface}的实现管理。
+ * 同一个timer同一时间只能注册到一个触发器中，在从原触发器删除(或执行完毕)之前不可以添加到其它触发器。
+ *
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 15:01
@@ -44,6 +47,12 @@ public class Timer {
      */
     private final TimerCallBack callBack;
 
+    /**
+     * 触发器实现附加在timer上的数据(如时间轮的链表节点，使得删除timer为O(1))，不使用时为null。
+     * 具体类型由触发器实现决定，其它代码不可以访问
+     */
+    Object triggerNode;
+
     /**
      * 创建一个定时器实例
      * @param delayTime 执行间隔(毫秒)
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.fastjgame.trigger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 分层时间轮实现的触发器(类似linux内核的定时器)。
+ * 共{@link #LEVEL_NUM}层，每层{@link #WHEEL_SIZE}个槽位，第0层每个槽位表示一个tick，
+ * 第k层每个槽位表示{@code WHEEL_SIZE^k}个tick，当低层转完一圈时，将高层对应槽位的timer重新分配到低层(cascade)。
+ *
+ * 添加、删除timer都是O(1)，每个tick的开销与到期的timer数量相关，而与timer总数无关，适合存在大量timer的场景(如每个npc的技能、buff)。
+ * 执行时间仍然是精确的：同一个tick内未到执行时间的timer会留在当前槽位，直到满足执行时间。
+ *
+ * 与{@link PriorityQueueTrigger}的细微区别：执行回调时新加入的、本tick内就满足执行时间的timer，在下一次tickTrigger时执行。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/20 14:10
+ * @github - https://github.com/hl845740757
+ */
+public class TimingWheelTrigger implements TriggerInterface{
+
+    private static final Logger logger= LoggerFactory.getLogger(TimingWheelTrigger.class);
+
+    /**
+     * 每层槽位数的位数
+     */
+    private static final int WHEEL_BITS = 8;
+    /**
+     * 每层的槽位数
+     */
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    /**
+     * 时间轮层数，4层可以表示 2^32 个tick，超出的timer放在最高层，到时会重新分配
+     */
+    private static final int LEVEL_NUM = 4;
+    private static final long MAX_DELTA_TICKS = (1L << (WHEEL_BITS * LEVEL_NUM)) - 1;
+
+    /**
+     * 每个tick的毫秒数
+     */
+    private final long tickDuration;
+    /**
+     * 时间轮 [level][slot]
+     */
+    private final TimerList[][] wheels = new TimerList[LEVEL_NUM][WHEEL_SIZE];
+    /**
+     * 备用的空链表，处理某个槽位时与该槽位的链表交换，避免处理期间新加入该槽位的timer被重复处理
+     */
+    private TimerList spareList = new TimerList();
+    /**
+     * 当前tick，小于它的tick都已处理完毕
+     */
+    private long currentTick;
+    /**
+     * 是否已初始化当前tick
+     */
+    private boolean started = false;
+    /**
+     * 时间轮中的timer数量
+     */
+    private int timerCount = 0;
+
+    /**
+     * 创建一个tick为1毫秒的时间轮
+     */
+    public TimingWheelTrigger() {
+        this(1);
+    }
+
+    /**
+     * @param tickDuration 每个tick的毫秒数，越大则每次tickTrigger需要推进的槽位越少，但是同一个槽位内的timer越多
+     */
+    public TimingWheelTrigger(long tickDuration) {
+        if (tickDuration <= 0){
+            throw new IllegalArgumentException("tickDuration " + tickDuration);
+        }
+        this.tickDuration = tickDuration;
+        for (TimerList[] wheel:wheels){
+            for (int slot=0; slot<WHEEL_SIZE; slot++){
+                wheel[slot] = new TimerList();
+            }
+        }
+    }
+
+    @Override
+    public final void addTimer(Timer timer, long curMillTime) {
+        TimerNode node = nodeOf(timer);
+        tryStart(curMillTime);
+        timer.setLastExecuteMillTime(curMillTime);
+        schedule(node);
+    }
+
+    @Override
+    public final void removeTimer(Timer timer) {
+        if (!(timer.triggerNode instanceof TimerNode)){
+            return;
+        }
+        TimerNode node = (TimerNode) timer.triggerNode;
+        if (node.owner == this && null != node.list){
+            node.list.remove(node);
+            timerCount--;
+        }
+    }
+
+    @Override
+    public final void tickTrigger(long curMillTime) {
+        tryStart(curMillTime);
+        final long targetTick = curMillTime / tickDuration;
+        while (true){
+            // 没有timer时直接跳到目标tick
+            if (timerCount == 0){
+                currentTick = Math.max(currentTick, targetTick);
+                return;
+            }
+            // 当前tick的槽位可能被处理多次(同一个tick内的多次调用)，因此总是检查执行时间
+            expireSlot((int) (currentTick & WHEEL_MASK), curMillTime);
+            if (currentTick >= targetTick){
+                return;
+            }
+            currentTick++;
+            cascade(currentTick);
+        }
+    }
+
+    /**
+     * 时间轮中的timer数量
+     */
+    public int size(){
+        return timerCount;
+    }
+
+    /**
+     * 获取timer在该时间轮中的节点，第一次添加时创建
+     * @throws IllegalStateException timer正在其它触发器中
+     */
+    private TimerNode nodeOf(Timer timer){
+        Object triggerNode = timer.triggerNode;
+        if (triggerNode instanceof TimerNode){
+            TimerNode node = (TimerNode) triggerNode;
+            if (node.owner == this){
+                return node;
+            }
+            if (null != node.list){
+                throw new IllegalStateException("timer is already registered with another trigger");
+            }
+        } else if (null != triggerNode){
+            throw new IllegalStateException("timer is already registered with another trigger");
+        }
+        TimerNode node = new TimerNode(this, timer);
+        timer.triggerNode = node;
+        return node;
+    }
+
+    private void tryStart(long curMillTime){
+        if (!started){
+            started = true;
+            currentTick = curMillTime / tickDuration;
+        }
+    }
+
+    /**
+     * 将timer放入对应的槽位
+     */
+    private void schedule(TimerNode node){
+        // 重复添加
+        if (null != node.list){
+            node.list.remove(node);
+            timerCount--;
+        }
+        long expireTick = node.timer.getNextExecuteMillTime() / tickDuration;
+        long deltaTicks = expireTick - currentTick;
+        TimerList list;
+        if (deltaTicks <= 0){
+            // 已到期或即将到期的timer放在当前槽位
+            list = wheels[0][(int) (currentTick & WHEEL_MASK)];
+        } else {
+            if (deltaTicks > MAX_DELTA_TICKS){
+                deltaTicks = MAX_DELTA_TICKS;
+                expireTick = currentTick + MAX_DELTA_TICKS;
+            }
+            int level = 0;
+            while (deltaTicks >= (1L << (WHEEL_BITS * (level + 1)))){
+                level++;
+            }
+            list = wheels[level][(int) ((expireTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+        }
+        list.addLast(node);
+        timerCount++;
+    }
+
+    /**
+     * 执行第0层某个槽位中到期的timer
+     * @param slot 槽位
+     * @param curMillTime 当前时间
+     */
+    private void expireSlot(int slot, long curMillTime){
+        TimerList processingList = detachSlot(0, slot);
+        if (null == processingList){
+            return;
+        }
+        TimerNode node;
+        while ((node = processingList.pollFirst()) != null){
+            timerCount--;
+            Timer timer = node.timer;
+            // 已执行完毕(取消执行)
+            if (timer.getExecuteNum() <= 0){
+                continue;
+            }
+            // 未到执行时间，放回时间轮
+            if (curMillTime < timer.getNextExecuteMillTime()){
+                schedule(node);
+                continue;
+            }
+            try{
+                timer.setExecuteNum(timer.getExecuteNum()-1);
+                timer.getCallBack().callBack(timer);
+            }catch (Exception e){
+                logger.warn("timer callback caught exception",e);
+            }
+            // 已执行完毕，或者在回调中被重新添加了
+            if (timer.getExecuteNum() <= 0 || null != node.list){
+                continue;
+            }
+            timer.setLastExecuteMillTime(curMillTime);
+            schedule(node);
+        }
+        spareList = processingList;
+    }
+
+    /**
+     * 进入新的tick时，如果低层转完了一圈，则将高层对应槽位的timer重新分配到低层
+     * @param tick 新的tick
+     */
+    private void cascade(long tick){
+        for (int level=1; level<LEVEL_NUM; level++){
+            // 低一层还没有转完一圈
+            if (((tick >>> (WHEEL_BITS * (level - 1))) & WHEEL_MASK) != 0){
+                return;
+            }
+            TimerList processingList = detachSlot(level, (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+            if (null == processingList){
+                continue;
+            }
+            TimerNode node;
+            while ((node = processingList.pollFirst()) != null){
+                timerCount--;
+                schedule(node);
+            }
+            spareList = processingList;
+        }
+    }
+
+    /**
+     * 将某个槽位的链表取出，并换上空链表
+     * @return 如果槽位为空，则返回null
+     */
+    private TimerList detachSlot(int level, int slot){
+        TimerList list = wheels[level][slot];
+        if (list.isEmpty()){
+            return null;
+        }
+        // 回调中重入tickTrigger时spareList可能已被使用
+        wheels[level][slot] = null != spareList ? spareList : new TimerList();
+        spareList = null;
+        return list;
+    }
+
+    /**
+     * timer在时间轮中的节点，保存在{@link Timer#triggerNode}中，使得删除timer为O(1)
+     */
+    private static final class TimerNode {
+
+        /**
+         * 所属的时间轮
+         */
+        final TimingWheelTrigger owner;
+        final Timer timer;
+        /**
+         * 所在的槽位，null表示不在时间轮中
+         */
+        TimerList list;
+        TimerNode prev;
+        TimerNode next;
+
+        TimerNode(TimingWheelTrigger owner, Timer timer) {
+            this.owner = owner;
+            this.timer = timer;
+        }
+    }
+
+    /**
+     * 槽位中的timer链表(双向链表)
+     */
+    private static final class TimerList {
+
+        private TimerNode head;
+        private TimerNode tail;
+
+        boolean isEmpty(){
+            return null == head;
+        }
+
+        void addLast(TimerNode node){
+            node.list = this;
+            node.prev = tail;
+            node.next = null;
+            if (null == tail){
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void remove(TimerNode node){
+            if (null == node.prev){
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (null == node.next){
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.list = null;
+            node.prev = null;
+            node.next = null;
+        }
+
+        TimerNode pollFirst(){
+            TimerNode node = head;
+            if (null != node){
+                remove(node);
+            }
+            return node;
+        }
+    }
+}
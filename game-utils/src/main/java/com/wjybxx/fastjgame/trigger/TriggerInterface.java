@@ -17,7 +17,9 @@
 package com.wjybxx.fastjgame.trigger;
 
 /**
- * 触发器接口
+ * 触发器接口，有两种实现：
+ * 1.{@link PriorityQueueTrigger} 基于优先级队列(堆)，精确，适合timer较少的情况。
+ * 2.{@link TimingWheelTrigger} 基于分层时间轮，添加和删除都是O(1)，适合大量timer的情况。
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 15:05
@@ -32,6 +34,12 @@ public interface TriggerInterface {
      */
     void addTimer(Timer timer,long curMillTime);
 
+    /**
+     * 删除一个timer。
+     * @param timer 要删除的timer
+     */
+    void removeTimer(Timer timer);
+
     /**
      * 检查timer执行
      */
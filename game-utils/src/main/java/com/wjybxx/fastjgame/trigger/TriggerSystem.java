@@ -16,13 +16,9 @@
 
 package com.wjybxx.fastjgame.trigger;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.PriorityQueue;
-
 /**
- * 触发器系统，使用优先级队列存储timer，以获得更好的性能。
+ * 触发器系统，具体的timer存储方式由{@link TriggerInterface}的实现决定，
+ * 默认使用优先级队列{@link PriorityQueueTrigger}，timer数量很多时可以选择时间轮{@link TimingWheelTrigger}。
  * @author wjybxx
  * @version 1.0
  * @date 2019/4/27 15:06
@@ -30,61 +26,34 @@ import java.util.PriorityQueue;
  */
 public class TriggerSystem implements TriggerInterface{
 
-    private static final Logger logger= LoggerFactory.getLogger(TriggerSystem.class);
-
-    private final PriorityQueue<Timer> timerQueue;
+    /**
+     * 真正存储timer的触发器
+     */
+    private final TriggerInterface trigger;
 
     public TriggerSystem() {
-        timerQueue = new PriorityQueue<>(((o1, o2) -> {
-            // 存在缺陷：
-            // 在执行timer的时候修改delayTime是安全的,会重新插入
-            // 但是随意修改delayTime,修改不会立即生效，还可能导致其它问题
-            return Long.compare(o1.getNextExecuteMillTime(),o2.getNextExecuteMillTime());
-        }));
+        this(new PriorityQueueTrigger());
     }
 
+    /**
+     * @param trigger 指定timer的存储实现
+     */
+    public TriggerSystem(TriggerInterface trigger) {
+        this.trigger = trigger;
+    }
 
+    @Override
     public final void removeTimer(Timer timer){
-        timerQueue.remove(timer);
+        trigger.removeTimer(timer);
     }
 
     @Override
     public final void addTimer(Timer timer,long curMillTime) {
-        timer.setLastExecuteMillTime(curMillTime);
-        timerQueue.offer(timer);
+        trigger.addTimer(timer, curMillTime);
     }
 
     @Override
     public final void tickTrigger(long curMillTime) {
-        while (timerQueue.size()>0){
-            //取出优先级最高的timer，若不满足执行时间，则直接返回(peek查询首元素若没有元素则返回null)
-            Timer timer=timerQueue.peek();
-            if (curMillTime<timer.getNextExecuteMillTime()){
-                break;
-            }
-            //时间到了，先弹出
-            timerQueue.poll();//poll若没有元素，则返回null
-
-            //已执行完毕(取消执行)，无需重新压入
-            if (timer.getExecuteNum()<=0){
-                continue;
-            }
-
-            try{
-                timer.setExecuteNum(timer.getExecuteNum()-1);
-                timer.getCallBack().callBack(timer);
-            }catch (Exception e){
-                logger.warn("timer callback caught exception",e);
-            }
-
-            //已执行完毕，无需重新压入
-            if (timer.getExecuteNum()<=0){
-                continue;
-            }
-
-            //修改上次执行的时间戳，必须重新压入
-            timer.setLastExecuteMillTime(curMillTime);
-            timerQueue.offer(timer);//若超过队列上限，则返回false
-        }
+        trigger.tickTrigger(curMillTime);
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.gamefast.test;
+
+import com.wjybxx.fastjgame.trigger.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link TimingWheelTrigger}与{@link PriorityQueueTrigger}的执行时间对比。
+ * 延迟覆盖时间轮每一层的边界(256、256^2、256^3个tick的前后)，以及起始时间恰好在高层边界前一个tick的情况，
+ * 同时有重复执行、中途添加和删除的timer；两种实现使用相同的操作序列，每个timer每次执行时的时间必须完全一致。
+ *
+ * 超过256^4个tick的延迟(放在最高层，到时重新分配)需要时间轮逐个推进2^32个tick，耗时太长，这里不覆盖。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/21 10:30
+ * @github - https://github.com/hl845740757
+ */
+public class TimingWheelTriggerTest {
+
+    private static final int WHEEL_SIZE = 256;
+    /**
+     * 各层边界的tick数
+     */
+    private static final long[] LEVEL_BOUNDARIES = {WHEEL_SIZE, WHEEL_SIZE * WHEEL_SIZE, WHEEL_SIZE * WHEEL_SIZE * WHEEL_SIZE};
+    /**
+     * 帧间隔上限(毫秒)，帧间隔随机，模拟帧率抖动
+     */
+    private static final int MAX_FRAME_INTERVAL = 40;
+    /**
+     * 当前帧的时间，timer执行时记录
+     */
+    private static long frameMillTime;
+
+    public static void main(String[] args) {
+        // 起始时间不对齐
+        test(1, 1_000_003);
+        test(10, 1_000_003);
+        // 起始时间在第3层边界的前一个tick，第一次推进就会逐层cascade
+        test(1, LEVEL_BOUNDARIES[2] * 64 - 1);
+        test(10, (LEVEL_BOUNDARIES[2] * 64 - 1) * 10 + 7);
+    }
+
+    private static void test(long tickDuration, long startMillTime){
+        Random random = new Random(2019);
+        List<long[]> delayAndExecuteNums = new ArrayList<>();
+        for (long boundary : LEVEL_BOUNDARIES){
+            for (long ticks : new long[]{boundary - 1, boundary, boundary + 1, boundary + WHEEL_SIZE - 1, boundary * 2 - 1, boundary * 2}){
+                for (long remainder : new long[]{0, tickDuration - 1}){
+                    long delay = ticks * tickDuration + remainder;
+                    delayAndExecuteNums.add(new long[]{delay, 1});
+                    delayAndExecuteNums.add(new long[]{delay, 3});
+                }
+            }
+        }
+        for (int index = 0; index < 2000; index++){
+            // 每一层都有随机的延迟
+            long levelTicks = LEVEL_BOUNDARIES[random.nextInt(LEVEL_BOUNDARIES.length)];
+            long delay = 1 + (long) (random.nextDouble() * levelTicks * 2 * tickDuration);
+            delayAndExecuteNums.add(new long[]{delay, 1 + random.nextInt(3)});
+        }
+
+        TriggerInterface timingWheel = new TimingWheelTrigger(tickDuration);
+        TriggerInterface priorityQueue = new PriorityQueueTrigger();
+        List<FireRecorder> wheelRecorders = new ArrayList<>();
+        List<FireRecorder> queueRecorders = new ArrayList<>();
+
+        long maxDelay = 0;
+        long curMillTime = startMillTime;
+        for (long[] delayAndExecuteNum : delayAndExecuteNums){
+            addTimer(timingWheel, wheelRecorders, delayAndExecuteNum, curMillTime);
+            addTimer(priorityQueue, queueRecorders, delayAndExecuteNum, curMillTime);
+            maxDelay = Math.max(maxDelay, delayAndExecuteNum[0] * delayAndExecuteNum[1]);
+        }
+
+        long endMillTime = startMillTime + maxDelay * 2;
+        int frame = 0;
+        while (curMillTime < endMillTime){
+            curMillTime += 1 + random.nextInt(MAX_FRAME_INTERVAL);
+            frame++;
+            if (frame % 50_000 == 0){
+                // 中途添加：此时当前tick与各层边界不对齐
+                long[] delayAndExecuteNum = delayAndExecuteNums.get(random.nextInt(delayAndExecuteNums.size()));
+                addTimer(timingWheel, wheelRecorders, delayAndExecuteNum, curMillTime);
+                addTimer(priorityQueue, queueRecorders, delayAndExecuteNum, curMillTime);
+            }
+            if (frame % 70_000 == 0){
+                // 中途删除(可能在任意一层，也可能已经执行完毕)
+                int index = random.nextInt(wheelRecorders.size());
+                timingWheel.removeTimer(wheelRecorders.get(index).timer);
+                priorityQueue.removeTimer(queueRecorders.get(index).timer);
+            }
+            frameMillTime = curMillTime;
+            timingWheel.tickTrigger(curMillTime);
+            priorityQueue.tickTrigger(curMillTime);
+        }
+
+        int fireNum = 0;
+        int mismatch = 0;
+        for (int index = 0; index < wheelRecorders.size(); index++){
+            List<Long> wheelFireTimes = wheelRecorders.get(index).fireMillTimes;
+            List<Long> queueFireTimes = queueRecorders.get(index).fireMillTimes;
+            fireNum += queueFireTimes.size();
+            if (!wheelFireTimes.equals(queueFireTimes)){
+                mismatch++;
+                if (mismatch <= 5){
+                    System.out.println("mismatch delay=" + queueRecorders.get(index).timer.getDelayTime()
+                            + ", wheel=" + wheelFireTimes + ", queue=" + queueFireTimes);
+                }
+            }
+        }
+        System.out.println("tickDuration=" + tickDuration + ", startMillTime=" + startMillTime
+                + ", timerNum=" + wheelRecorders.size() + ", frameNum=" + frame + ", fireNum=" + fireNum
+                + ", mismatch=" + mismatch);
+    }
+
+    private static void addTimer(TriggerInterface trigger, List<FireRecorder> recorders, long[] delayAndExecuteNum, long curMillTime){
+        FireRecorder recorder = new FireRecorder();
+        recorder.timer = new Timer(delayAndExecuteNum[0], (int) delayAndExecuteNum[1], recorder);
+        trigger.addTimer(recorder.timer, curMillTime);
+        recorders.add(recorder);
+    }
+
+    /**
+     * 记录timer每次执行时的时间
+     */
+    private static class FireRecorder implements TimerCallBack {
+
+        private Timer timer;
+        private final List<Long> fireMillTimes = new ArrayList<>();
+
+        @Override
+        public void callBack(Timer timer) {
+            fireMillTimes.add(frameMillTime);
+        }
+    }
+}
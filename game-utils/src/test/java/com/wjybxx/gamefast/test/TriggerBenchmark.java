@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 wjybxx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wjybxx.gamefast.test;
+
+import com.wjybxx.fastjgame.trigger.*;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * {@link TimingWheelTrigger}与{@link PriorityQueueTrigger}的性能对比。
+ * 模拟场景中的大量npc技能/buff timer：按帧推进时间，持续添加新timer，并随机删除部分timer。
+ * 两种实现使用相同的随机序列，执行次数必须一致。
+ * 非严格的基准测试，先预热，再统计耗时。
+ * @author wjybxx
+ * @version 1.0
+ * @date 2019/6/20 16:30
+ * @github - https://github.com/hl845740757
+ */
+public class TriggerBenchmark {
+
+    /**
+     * 初始timer数量
+     */
+    private static final int TIMER_NUM = 100_000;
+    /**
+     * 帧间隔(毫秒)
+     */
+    private static final int FRAME_INTERVAL = 33;
+    private static final int FRAME_NUM = 3000;
+    /**
+     * 每帧新增的timer数
+     */
+    private static final int ADD_PER_FRAME = 200;
+    /**
+     * 每帧删除的timer数
+     */
+    private static final int REMOVE_PER_FRAME = 100;
+    private static final int MAX_DELAY = 10_000;
+
+    private static long executeTimes;
+
+    public static void main(String[] args) {
+        run("PriorityQueue", PriorityQueueTrigger::new);
+        run("TimingWheel", () -> new TimingWheelTrigger(1));
+
+        run("PriorityQueue", PriorityQueueTrigger::new);
+        run("TimingWheel", () -> new TimingWheelTrigger(1));
+        run("TimingWheel(10ms)", () -> new TimingWheelTrigger(10));
+    }
+
+    private static void run(String name, Supplier<TriggerInterface> factory){
+        TriggerInterface trigger = factory.get();
+        Random random = new Random(1024);
+        executeTimes = 0;
+
+        // 保存所有timer，用于随机删除
+        Timer[] timers = new Timer[TIMER_NUM + ADD_PER_FRAME * FRAME_NUM];
+        int timerNum = 0;
+        long curMillTime = 1_000_000;
+
+        long startTime = System.nanoTime();
+        for (int index = 0; index < TIMER_NUM; index++){
+            timers[timerNum++] = newTimer(trigger, random, curMillTime);
+        }
+        long addCost = System.nanoTime() - startTime;
+
+        long removeCost = 0;
+        for (int frame = 0; frame < FRAME_NUM; frame++){
+            curMillTime += FRAME_INTERVAL;
+            for (int index = 0; index < ADD_PER_FRAME; index++){
+                timers[timerNum++] = newTimer(trigger, random, curMillTime);
+            }
+            long removeStartTime = System.nanoTime();
+            for (int index = 0; index < REMOVE_PER_FRAME; index++){
+                trigger.removeTimer(timers[random.nextInt(timerNum)]);
+            }
+            removeCost += System.nanoTime() - removeStartTime;
+            trigger.tickTrigger(curMillTime);
+        }
+        long totalCost = System.nanoTime() - startTime;
+
+        System.out.println(String.format("trigger=%s, initAdd=%d ms, remove=%.1f ns/op, total=%d ms, executeTimes=%d",
+                name, addCost / 1000_000, (double) removeCost / FRAME_NUM / REMOVE_PER_FRAME,
+                totalCost / 1000_000, executeTimes));
+    }
+
+    private static Timer newTimer(TriggerInterface trigger, Random random, long curMillTime){
+        int executeNum = random.nextInt(4) == 0 ? Integer.MAX_VALUE : 1 + random.nextInt(5);
+        Timer timer = new Timer(1 + random.nextInt(MAX_DELAY), executeNum, t -> executeTimes++);
+        trigger.addTimer(timer, curMillTime);
+        return timer;
+    }
+}